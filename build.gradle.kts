@@ -162,6 +162,20 @@ tasks {
         useJUnitPlatform()
     }
 
+    // the Vector API engine is only used when the incubator module is added, so run the tests once more with it
+    val vectorTest by registering(Test::class) {
+        description = "Runs the tests with the Vector API engine."
+        group = LifecycleBasePlugin.VERIFICATION_GROUP
+        testClassesDirs = sourceSets.test.get().output.classesDirs
+        classpath = sourceSets.test.get().runtimeClasspath
+        useJUnitPlatform()
+        jvmArgs("--add-modules", "jdk.incubator.vector")
+    }
+
+    check {
+        dependsOn(vectorTest)
+    }
+
     withType<JavaCompile>().configureEach {
         options.errorprone {
             disableAllChecks = true
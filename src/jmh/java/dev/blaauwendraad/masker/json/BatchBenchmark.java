@@ -0,0 +1,99 @@
+package dev.blaauwendraad.masker.json;
+
+import dev.blaauwendraad.masker.json.config.JsonMaskingConfig;
+import dev.blaauwendraad.masker.json.util.JsonPathTestUtils;
+import org.jspecify.annotations.NullUnmarked;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cost per document of masking a batch of small documents one by one with masking them as a batch. The
+ * score is the average time per document.
+ */
+@Warmup(iterations = 1, time = 3)
+@Fork(value = 1)
+@Measurement(iterations = 1, time = 3)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@OperationsPerInvocation(BatchBenchmark.BATCH_SIZE)
+public class BatchBenchmark {
+    static final int BATCH_SIZE = 1000;
+
+    @org.openjdk.jmh.annotations.State(Scope.Thread)
+    @NullUnmarked
+    public static class State {
+        @Param({ "1kb" })
+        String jsonSize;
+        @Param({ "ascii", "unicode" })
+        String characters;
+        @Param({ "0.1" })
+        double maskedKeyProbability;
+        @Param({ "false", "true" })
+        boolean jsonPath;
+
+        private List<byte[]> documents;
+        private byte[] batch;
+        private int[] offsets;
+        private byte[] output;
+        private int[] outputOffsets;
+        private JsonMasker jsonMasker;
+
+        @Setup
+        public synchronized void setup() {
+            Set<String> targetKeys = BenchmarkUtils.getTargetKeys(20);
+            String jsonString = BenchmarkUtils.randomJson(targetKeys, jsonSize, characters, maskedKeyProbability);
+            byte[] document = jsonString.getBytes(StandardCharsets.UTF_8);
+            documents = new ArrayList<>(BATCH_SIZE);
+            batch = new byte[document.length * BATCH_SIZE];
+            offsets = new int[BATCH_SIZE + 1];
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                documents.add(document);
+                System.arraycopy(document, 0, batch, i * document.length, document.length);
+                offsets[i + 1] = (i + 1) * document.length;
+            }
+            output = new byte[batch.length * 2];
+            outputOffsets = new int[BATCH_SIZE + 1];
+
+            JsonMaskingConfig.Builder builder = JsonMaskingConfig.builder();
+            if (jsonPath) {
+                builder.maskJsonPaths(JsonPathTestUtils.transformToJsonPathKeys(targetKeys, jsonString));
+            } else {
+                builder.maskKeys(targetKeys);
+            }
+            jsonMasker = JsonMasker.getMasker(builder.build());
+        }
+    }
+
+    @Benchmark
+    public void jsonMaskerSingleCalls(State state, Blackhole blackhole) {
+        for (byte[] document : state.documents) {
+            blackhole.consume(state.jsonMasker.mask(document));
+        }
+    }
+
+    @Benchmark
+    public List<byte[]> jsonMaskerMaskAll(State state) {
+        return state.jsonMasker.maskAll(state.documents);
+    }
+
+    @Benchmark
+    public int jsonMaskerMaskBatch(State state) {
+        return state.jsonMasker.maskBatch(state.batch, state.offsets, state.output, 0, state.outputOffsets);
+    }
+}
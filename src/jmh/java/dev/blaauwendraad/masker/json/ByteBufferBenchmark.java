@@ -0,0 +1,68 @@
+package dev.blaauwendraad.masker.json;
+
+import org.jspecify.annotations.NullUnmarked;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@Warmup(iterations = 1, time = 3)
+@Fork(value = 1)
+@Measurement(iterations = 1, time = 3)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@BenchmarkMode(Mode.Throughput)
+public class ByteBufferBenchmark {
+
+    @org.openjdk.jmh.annotations.State(Scope.Thread)
+    @NullUnmarked
+    public static class State {
+        @Param({ "1kb", "128kb", "2mb" })
+        String jsonSize;
+        @Param({ "ascii", "unicode" })
+        String characters;
+        @Param({ "0.01" })
+        double maskedKeyProbability;
+        @Param({ "false", "true" })
+        boolean direct;
+
+        private ByteBuffer input;
+        private ByteBuffer output;
+        private JsonMasker jsonMasker;
+
+        @Setup
+        public synchronized void setup() {
+            Set<String> targetKeys = BenchmarkUtils.getTargetKeys(20);
+            byte[] jsonBytes = BenchmarkUtils.randomJson(targetKeys, jsonSize, characters, maskedKeyProbability)
+                    .getBytes(StandardCharsets.UTF_8);
+            jsonMasker = JsonMasker.getMasker(targetKeys);
+            int maskedLength = jsonMasker.mask(jsonBytes).length;
+
+            if (direct) {
+                input = ByteBuffer.allocateDirect(jsonBytes.length).put(jsonBytes).flip();
+                output = ByteBuffer.allocateDirect(maskedLength);
+            } else {
+                input = ByteBuffer.wrap(jsonBytes);
+                output = ByteBuffer.allocate(maskedLength);
+            }
+        }
+    }
+
+    @Benchmark
+    public ByteBuffer jsonMaskerByteBuffer(State state) {
+        state.input.rewind();
+        state.output.clear();
+        state.jsonMasker.mask(state.input, state.output);
+        return state.output;
+    }
+}
@@ -0,0 +1,83 @@
+package dev.blaauwendraad.masker.json;
+
+import org.jspecify.annotations.NullUnmarked;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Masks a generated file of {@value #FILE_SIZE_MB} MB with a small heap. As every invocation masks the whole file, the
+ * throughput is reported in MB/s. The peak resident set size of the forked JVM is printed after the benchmark
+ * (Linux only).
+ */
+@Warmup(iterations = 1, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx128m")
+@Measurement(iterations = 3, time = 1)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@BenchmarkMode(Mode.Throughput)
+public class FileMaskingBenchmark {
+    private static final int FILE_SIZE_MB = 4096;
+
+    @org.openjdk.jmh.annotations.State(Scope.Benchmark)
+    @NullUnmarked
+    public static class State {
+        private Path input;
+        private Path output;
+        private JsonMasker jsonMasker;
+
+        @Setup(Level.Trial)
+        public synchronized void setup() throws IOException {
+            Set<String> targetKeys = BenchmarkUtils.getTargetKeys(20);
+            byte[] element = BenchmarkUtils.randomJson(targetKeys, "2mb", "unicode", 0.01)
+                    .getBytes(StandardCharsets.UTF_8);
+            input = Files.createTempFile("json-masker-benchmark-input", ".json");
+            output = Files.createTempFile("json-masker-benchmark-output", ".json");
+            long repetitions = (long) FILE_SIZE_MB * 1024 * 1024 / (element.length + 1);
+            try (InputStream inputStream = new RepeatingJsonArrayInputStream(element, repetitions)) {
+                Files.copy(inputStream, input, StandardCopyOption.REPLACE_EXISTING);
+            }
+            jsonMasker = JsonMasker.getMasker(targetKeys);
+        }
+
+        @TearDown(Level.Trial)
+        public synchronized void tearDown() throws IOException {
+            Files.deleteIfExists(input);
+            Files.deleteIfExists(output);
+            Path status = Path.of("/proc/self/status");
+            if (Files.exists(status)) {
+                Files.readAllLines(status).stream()
+                        .filter(line -> line.startsWith("VmHWM"))
+                        .forEach(line -> System.out.println("Peak RSS: " + line.substring("VmHWM:".length()).trim()));
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FILE_SIZE_MB)
+    public void jsonMaskerFile(State state) throws IOException {
+        try (FileChannel input = FileChannel.open(state.input, StandardOpenOption.READ);
+             FileChannel output = FileChannel.open(state.output, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            state.jsonMasker.mask(input, output);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package dev.blaauwendraad.masker.json;
+
+import dev.blaauwendraad.masker.json.config.JsonMaskingConfig;
+import org.jspecify.annotations.NullUnmarked;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@Warmup(iterations = 1, time = 3)
+@Fork(value = 1)
+@Measurement(iterations = 1, time = 3)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@BenchmarkMode(Mode.Throughput)
+public class InPlaceMaskingBenchmark {
+
+    @org.openjdk.jmh.annotations.State(Scope.Thread)
+    @NullUnmarked
+    public static class State {
+        @Param({ "1kb", "128kb", "2mb" })
+        String jsonSize;
+        @Param({ "ascii", "unicode" })
+        String characters;
+        @Param({ "0.01", "0.1" })
+        double maskedKeyProbability;
+        @Param({ "false", "true" })
+        boolean maskInPlace;
+
+        private byte[] jsonBytes;
+        private byte[] inputBytes;
+        private JsonMasker jsonMasker;
+
+        @Setup
+        public synchronized void setup() {
+            Set<String> targetKeys = BenchmarkUtils.getTargetKeys(20);
+            jsonBytes = BenchmarkUtils.randomJson(targetKeys, jsonSize, characters, maskedKeyProbability)
+                    .getBytes(StandardCharsets.UTF_8);
+            inputBytes = new byte[jsonBytes.length];
+
+            JsonMaskingConfig.Builder builder = JsonMaskingConfig.builder()
+                    .maskKeys(targetKeys)
+                    .maskStringCharactersWith("*")
+                    .maskNumberDigitsWith(1);
+            if (maskInPlace) {
+                builder.maskInPlace();
+            }
+            jsonMasker = JsonMasker.getMasker(builder.build());
+        }
+    }
+
+    @Benchmark
+    public byte[] jsonMaskerBytes(State state) {
+        // masking in-place modifies the input, so the input is copied for both cases to keep them comparable
+        System.arraycopy(state.jsonBytes, 0, state.inputBytes, 0, state.jsonBytes.length);
+        return state.jsonMasker.mask(state.inputBytes);
+    }
+}
@@ -0,0 +1,76 @@
+package dev.blaauwendraad.masker.json;
+
+import org.jspecify.annotations.NullUnmarked;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares masking a document that is fed in chunks with masking it as a stream and as a whole.
+ */
+@Warmup(iterations = 1, time = 3)
+@Fork(value = 1)
+@Measurement(iterations = 1, time = 3)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@BenchmarkMode(Mode.Throughput)
+public class IncrementalMaskingBenchmark {
+
+    @org.openjdk.jmh.annotations.State(Scope.Thread)
+    @NullUnmarked
+    public static class State {
+        @Param({ "2mb" })
+        String jsonSize;
+        @Param({ "ascii", "unicode" })
+        String characters;
+        @Param({ "0.01" })
+        double maskedKeyProbability;
+        @Param({ "1kb", "8kb", "64kb" })
+        String chunkSize;
+
+        private byte[] jsonBytes;
+        private int chunkSizeBytes;
+        private JsonMasker jsonMasker;
+
+        @Setup
+        public synchronized void setup() {
+            Set<String> targetKeys = BenchmarkUtils.getTargetKeys(20);
+            jsonBytes = BenchmarkUtils.randomJson(targetKeys, jsonSize, characters, maskedKeyProbability)
+                    .getBytes(StandardCharsets.UTF_8);
+            chunkSizeBytes = BenchmarkUtils.parseSize(chunkSize);
+            jsonMasker = JsonMasker.getMasker(targetKeys);
+        }
+    }
+
+    @Benchmark
+    public byte[] jsonMaskerBytes(State state) {
+        return state.jsonMasker.mask(state.jsonBytes);
+    }
+
+    @Benchmark
+    public void jsonMaskerStream(State state) throws IOException {
+        state.jsonMasker.mask(new ByteArrayInputStream(state.jsonBytes), OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public void jsonMaskerIncremental(State state) throws IOException {
+        IncrementalJsonMasker incrementalJsonMasker = state.jsonMasker.maskIncrementally(OutputStream.nullOutputStream());
+        for (int offset = 0; offset < state.jsonBytes.length; offset += state.chunkSizeBytes) {
+            incrementalJsonMasker.feed(state.jsonBytes, offset, Math.min(state.chunkSizeBytes, state.jsonBytes.length - offset));
+        }
+        incrementalJsonMasker.finish();
+    }
+}
@@ -0,0 +1,110 @@
+package dev.blaauwendraad.masker.json;
+
+import org.jspecify.annotations.NullUnmarked;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the scaling of masking newline-delimited JSON with the number of threads in the pool. The sequential
+ * benchmark masks every line as a separate {@code byte[]}, which is what a caller would do without JSON Lines support.
+ */
+@Warmup(iterations = 1, time = 3)
+@Fork(value = 1)
+@Measurement(iterations = 1, time = 3)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@BenchmarkMode(Mode.Throughput)
+public class JsonLinesBenchmark {
+    @org.openjdk.jmh.annotations.State(Scope.Benchmark)
+    @NullUnmarked
+    public static class State {
+        @Param({ "64mb" })
+        String jsonLinesSize;
+        @Param({ "1kb" })
+        String lineSize;
+        @Param({ "0.1" })
+        double maskedKeyProbability;
+
+        private byte[] jsonLines;
+        private byte[][] lines;
+        private JsonMasker jsonMasker;
+
+        @Setup
+        public synchronized void setup() {
+            Set<String> targetKeys = BenchmarkUtils.getTargetKeys(20);
+            byte[] line = BenchmarkUtils.randomJson(targetKeys, lineSize, "ascii", maskedKeyProbability)
+                    .replace("\n", "")
+                    .getBytes(StandardCharsets.UTF_8);
+            int lineCount = BenchmarkUtils.parseSize(jsonLinesSize) / (line.length + 1);
+            ByteArrayOutputStream output = new ByteArrayOutputStream(lineCount * (line.length + 1));
+            lines = new byte[lineCount][];
+            for (int i = 0; i < lineCount; i++) {
+                output.write(line, 0, line.length);
+                output.write('\n');
+                lines[i] = line;
+            }
+            jsonLines = output.toByteArray();
+            jsonMasker = JsonMasker.getMasker(targetKeys);
+        }
+    }
+
+    @org.openjdk.jmh.annotations.State(Scope.Benchmark)
+    @NullUnmarked
+    public static class PoolState {
+        @Param({ "1", "2", "4", "8" })
+        int parallelism;
+
+        private ForkJoinPool pool;
+
+        @Setup
+        public synchronized void setup() {
+            pool = new ForkJoinPool(parallelism);
+        }
+
+        @TearDown
+        public synchronized void tearDown() {
+            pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    public void jsonMaskerSequentialLines(State state) throws IOException {
+        OutputStream output = OutputStream.nullOutputStream();
+        for (byte[] line : state.lines) {
+            output.write(state.jsonMasker.mask(Arrays.copyOf(line, line.length)));
+            output.write('\n');
+        }
+    }
+
+    @Benchmark
+    public byte[] jsonMaskerJsonLinesBytes(State state, PoolState poolState) {
+        return state.jsonMasker.maskJsonLines(state.jsonLines, poolState.pool);
+    }
+
+    @Benchmark
+    public void jsonMaskerJsonLinesStream(State state, PoolState poolState) throws IOException {
+        state.jsonMasker.maskJsonLines(
+                new ByteArrayInputStream(state.jsonLines),
+                OutputStream.nullOutputStream(),
+                poolState.pool
+        );
+    }
+}
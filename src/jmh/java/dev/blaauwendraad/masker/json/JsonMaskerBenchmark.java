@@ -39,7 +39,9 @@ public class JsonMaskerBenchmark {
 
         private String jsonString;
         private byte[] jsonBytes;
+        private byte[] outputBytes;
         private JsonMasker jsonMasker;
+        private MaskingSession maskingSession;
 
         @Setup
         public synchronized void setup() {
@@ -54,6 +56,8 @@ public class JsonMaskerBenchmark {
                 builder.maskKeys(targetKeys);
             }
             jsonMasker = JsonMasker.getMasker(builder.build());
+            outputBytes = new byte[jsonMasker.mask(jsonBytes).length];
+            maskingSession = jsonMasker.newSession();
         }
     }
 
@@ -66,4 +70,14 @@ public class JsonMaskerBenchmark {
     public byte[] jsonMaskerBytes(State state) {
         return state.jsonMasker.mask(state.jsonBytes);
     }
+
+    @Benchmark
+    public int jsonMaskerOutputArray(State state) {
+        return state.jsonMasker.mask(state.jsonBytes, 0, state.jsonBytes.length, state.outputBytes, 0);
+    }
+
+    @Benchmark
+    public byte[] jsonMaskerSession(State state) {
+        return state.maskingSession.mask(state.jsonBytes);
+    }
 }
@@ -0,0 +1,65 @@
+package dev.blaauwendraad.masker.json;
+
+import dev.blaauwendraad.masker.json.config.JsonMaskingConfig;
+import dev.blaauwendraad.masker.json.util.JsonPathTestUtils;
+import org.jspecify.annotations.NullUnmarked;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Masks the same target keys by JSONPath in different ways: by exact JSONPaths of the values, which only step through
+ * a few paths of the JSON, by descendant segments ({@code $..key}), which keep a JSONPath state alive in every object
+ * and array, and by key for reference.
+ */
+@Warmup(iterations = 1, time = 3)
+@Fork(value = 1)
+@Measurement(iterations = 1, time = 3)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@BenchmarkMode(Mode.Throughput)
+public class JsonPathBenchmark {
+
+    @org.openjdk.jmh.annotations.State(Scope.Thread)
+    @NullUnmarked
+    public static class State {
+        @Param({ "1kb", "128kb", "2mb" })
+        String jsonSize;
+        @Param({ "exact", "descendant", "key" })
+        String target;
+
+        private byte[] jsonBytes;
+        private JsonMasker jsonMasker;
+
+        @Setup
+        public synchronized void setup() {
+            Set<String> targetKeys = BenchmarkUtils.getTargetKeys(20);
+            String jsonString = BenchmarkUtils.randomJson(targetKeys, jsonSize, "ascii", 0.1);
+            jsonBytes = jsonString.getBytes(StandardCharsets.UTF_8);
+
+            JsonMaskingConfig.Builder builder = JsonMaskingConfig.builder();
+            switch (target) {
+                case "exact" -> builder.maskJsonPaths(JsonPathTestUtils.transformToJsonPathKeys(targetKeys, jsonString));
+                case "descendant" -> builder.maskJsonPaths(targetKeys.stream().map(key -> "$.." + key).collect(Collectors.toSet()));
+                default -> builder.maskKeys(targetKeys);
+            }
+            jsonMasker = JsonMasker.getMasker(builder.build());
+        }
+    }
+
+    @Benchmark
+    public byte[] jsonMaskerBytes(State state) {
+        return state.jsonMasker.mask(state.jsonBytes);
+    }
+}
@@ -0,0 +1,125 @@
+package dev.blaauwendraad.masker.json;
+
+import dev.blaauwendraad.masker.json.config.JsonMaskingConfig;
+import org.jspecify.annotations.NullUnmarked;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the look-ups of keys with and without a {@link KeyMatchCache}, where the keys follow a Zipfian distribution
+ * over a fixed set of distinct keys, as the keys in messages of the same kind do: a few keys occur in almost every
+ * message and most keys only occasionally. The hit rate of the cache for the looked up keys is printed during setup.
+ */
+@Warmup(iterations = 1, time = 3)
+@Fork(value = 1)
+@Measurement(iterations = 1, time = 3)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@BenchmarkMode(Mode.Throughput)
+public class KeyMatchCacheBenchmark {
+    private static final String[] WORDS = {"customer", "account", "address", "line", "postal", "code", "city", "country",
+            "phone", "number", "email", "first", "last", "name", "birth", "date", "order", "item", "price", "amount",
+            "currency", "status", "created", "updated", "payment", "card", "holder", "expiry", "iban", "reference"};
+
+    @org.openjdk.jmh.annotations.State(Scope.Thread)
+    @NullUnmarked
+    public static class State {
+        @Param({"500"})
+        int distinctKeys;
+        @Param({"0", "256", "1024"})
+        int cacheCapacity;
+        @Param({"false", "true"})
+        boolean keyPatterns;
+
+        private KeyMatcher keyMatcher;
+        private byte[][] keys;
+
+        @Setup
+        public synchronized void setup() {
+            Random random = new Random(distinctKeys);
+            Set<String> distinct = new LinkedHashSet<>();
+            while (distinct.size() < distinctKeys) {
+                StringBuilder key = new StringBuilder(WORDS[random.nextInt(WORDS.length)]);
+                for (int i = random.nextInt(3); i >= 0; i--) {
+                    String word = WORDS[random.nextInt(WORDS.length)];
+                    key.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+                }
+                distinct.add(key.toString());
+            }
+            List<String> distinctList = new ArrayList<>(distinct);
+            // every 25th key is targeted, spread over frequent and infrequent keys
+            Set<String> targetKeys = new LinkedHashSet<>();
+            for (int i = 0; i < distinctList.size(); i += 25) {
+                targetKeys.add(distinctList.get(i));
+            }
+            JsonMaskingConfig.Builder builder = JsonMaskingConfig.builder().maskKeys(targetKeys);
+            if (keyPatterns) {
+                builder.maskKeyPatterns("*iban*", "*card*Number", "*expiry*", "*birth*");
+            }
+            if (cacheCapacity > 0) {
+                builder.cacheKeyMatches(cacheCapacity);
+            }
+            keyMatcher = new KeyMatcher(builder.build());
+
+            // Zipfian distribution with exponent 1: the key with rank k occurs with a probability proportional to 1/k
+            double[] cumulative = new double[distinctList.size()];
+            double sum = 0;
+            for (int k = 0; k < cumulative.length; k++) {
+                sum += 1.0 / (k + 1);
+                cumulative[k] = sum;
+            }
+            keys = new byte[10_000][];
+            for (int i = 0; i < keys.length; i++) {
+                int rank = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+                String key = distinctList.get(rank >= 0 ? rank : Math.min(-rank - 1, cumulative.length - 1));
+                keys[i] = key.getBytes(StandardCharsets.UTF_8);
+            }
+            if (cacheCapacity > 0) {
+                System.out.printf("%nCache hit rate: %.1f%%%n", hitRate());
+            }
+        }
+
+        /**
+         * Replays the looked up keys against a separate cache of the same capacity, after one pass to warm it up.
+         */
+        private double hitRate() {
+            KeyMatchCache cache = new KeyMatchCache(cacheCapacity);
+            int hits = 0;
+            for (int pass = 0; pass < 2; pass++) {
+                for (byte[] key : keys) {
+                    int hash = KeyMatchCache.hash(key, 0, key.length);
+                    if (cache.get(key, 0, key.length, hash) != KeyMatchCache.NOT_CACHED) {
+                        hits += pass;
+                    } else {
+                        cache.put(key, 0, key.length, hash, null);
+                    }
+                }
+            }
+            return 100.0 * hits / keys.length;
+        }
+    }
+
+    @Benchmark
+    public void getMaskConfigIfMatched(State state, Blackhole blackhole) {
+        for (byte[] key : state.keys) {
+            blackhole.consume(state.keyMatcher.getMaskConfigIfMatched(key, 0, key.length, null));
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package dev.blaauwendraad.masker.json;
+
+import dev.blaauwendraad.masker.json.config.JsonMaskingConfig;
+import dev.blaauwendraad.masker.json.config.KeyMaskingConfig;
+import org.jspecify.annotations.NullUnmarked;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures the size of the trie and the look-ups in it, of target keys, of keys that are not targeted but start with
+ * the same byte as the target keys, and of non-ASCII keys that have to be folded when matching case-insensitively. As the trie is all that {@link #createKeyMatcher(State)}
+ * allocates, the {@code gc.alloc.rate.norm} reported by the "gc" profiler is the retained heap of the trie.
+ */
+@Warmup(iterations = 1, time = 3)
+@Fork(value = 1)
+@Measurement(iterations = 1, time = 3)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@BenchmarkMode(Mode.Throughput)
+public class KeyMatcherBenchmark {
+
+    @org.openjdk.jmh.annotations.State(Scope.Thread)
+    @NullUnmarked
+    public static class State {
+        @Param({ "20", "1000" })
+        int keyCount;
+        @Param({ "false", "true" })
+        boolean caseSensitiveTargetKeys;
+
+        private JsonMaskingConfig jsonMaskingConfig;
+        private KeyMatcher keyMatcher;
+        private byte[][] keys;
+        private byte[][] nonTargetKeys;
+        private KeyMatcher nonAsciiKeyMatcher;
+        private byte[][] nonAsciiKeys;
+
+        @Setup
+        public synchronized void setup() {
+            Set<String> targetKeys = BenchmarkUtils.getTargetKeys(keyCount);
+            JsonMaskingConfig.Builder builder = JsonMaskingConfig.builder().maskKeys(targetKeys);
+            if (caseSensitiveTargetKeys) {
+                builder.caseSensitiveTargetKeys();
+            }
+            jsonMaskingConfig = builder.build();
+            keyMatcher = new KeyMatcher(jsonMaskingConfig);
+            // with 20 target keys only half of the looked up keys are targeted
+            keys = BenchmarkUtils.getTargetKeys(40).stream()
+                    .map(key -> key.getBytes(StandardCharsets.UTF_8))
+                    .toArray(byte[][]::new);
+            // keys that are not targeted, but start with the same byte as the target keys
+            nonTargetKeys = Stream.of("status", "sessionId", "source", "sender", "size", "sequenceNumber", "someSecret",
+                            "someSecretKey", "someSecret1x", "SOMETHING")
+                    .map(key -> key.getBytes(StandardCharsets.UTF_8))
+                    .toArray(byte[][]::new);
+            JsonMaskingConfig.Builder nonAsciiBuilder = JsonMaskingConfig.builder()
+                    .maskKeys("straße", "überweisung", "пароль", "contraseña");
+            if (caseSensitiveTargetKeys) {
+                nonAsciiBuilder.caseSensitiveTargetKeys();
+            }
+            nonAsciiKeyMatcher = new KeyMatcher(nonAsciiBuilder.build());
+            // keys in a different case than the target keys, except for the last one
+            nonAsciiKeys = Stream.of("STRASSE", "Überweisung", "ПАРОЛЬ", "CONTRASEÑA", "überweisung")
+                    .map(key -> key.getBytes(StandardCharsets.UTF_8))
+                    .toArray(byte[][]::new);
+        }
+    }
+
+    @Benchmark
+    public KeyMatcher createKeyMatcher(State state) {
+        return new KeyMatcher(state.jsonMaskingConfig);
+    }
+
+    @Benchmark
+    public void getMaskConfigIfMatched(State state, Blackhole blackhole) {
+        for (byte[] key : state.keys) {
+            KeyMaskingConfig keyMaskingConfig = state.keyMatcher.getMaskConfigIfMatched(key, 0, key.length, null);
+            blackhole.consume(keyMaskingConfig);
+        }
+    }
+
+    @Benchmark
+    public void getMaskConfigIfNotMatched(State state, Blackhole blackhole) {
+        for (byte[] key : state.nonTargetKeys) {
+            KeyMaskingConfig keyMaskingConfig = state.keyMatcher.getMaskConfigIfMatched(key, 0, key.length, null);
+            blackhole.consume(keyMaskingConfig);
+        }
+    }
+
+    @Benchmark
+    public void getMaskConfigIfMatchedNonAscii(State state, Blackhole blackhole) {
+        for (byte[] key : state.nonAsciiKeys) {
+            KeyMaskingConfig keyMaskingConfig = state.nonAsciiKeyMatcher.getMaskConfigIfMatched(key, 0, key.length, null);
+            blackhole.consume(keyMaskingConfig);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package dev.blaauwendraad.masker.json;
+
+import dev.blaauwendraad.masker.json.config.JsonMaskingConfig;
+import dev.blaauwendraad.masker.json.config.KeyMaskingConfig;
+import org.jspecify.annotations.NullUnmarked;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Compares matching keys against key patterns with matching the same keys listed as exact keys and with matching them
+ * against an equivalent {@link java.util.regex.Pattern}.
+ */
+@Warmup(iterations = 1, time = 3)
+@Fork(value = 1)
+@Measurement(iterations = 1, time = 3)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@BenchmarkMode(Mode.Throughput)
+public class KeyPatternBenchmark {
+
+    @org.openjdk.jmh.annotations.State(Scope.Thread)
+    @NullUnmarked
+    public static class State {
+        private KeyMatcher exactKeyMatcher;
+        private KeyMatcher keyPatternMatcher;
+        private Pattern regex;
+        private byte[][] keys;
+
+        @Setup
+        public synchronized void setup() {
+            // the exact keys are the keys below that match the patterns
+            Set<String> exactKeys = Set.of("userPassword", "password_hash", "access_token", "refresh_token",
+                    "secretKey", "secret", "api_key", "api-key", "apiKey");
+            exactKeyMatcher = new KeyMatcher(JsonMaskingConfig.builder().maskKeys(exactKeys).build());
+            keyPatternMatcher = new KeyMatcher(JsonMaskingConfig.builder()
+                    .maskKeyPatterns("*password*", "*_token", "secret*", "api?key")
+                    .build());
+            regex = Pattern.compile(".*password.*|.*_token|secret.*|api.key", Pattern.CASE_INSENSITIVE);
+            keys = Stream.concat(exactKeys.stream(), Stream.of("id", "name", "email", "createdAt", "updatedAt",
+                            "status", "tokenType", "description", "userId", "amount", "secretary_name"))
+                    .map(key -> key.getBytes(StandardCharsets.UTF_8))
+                    .toArray(byte[][]::new);
+        }
+    }
+
+    @Benchmark
+    public void exactKeys(State state, Blackhole blackhole) {
+        for (byte[] key : state.keys) {
+            KeyMaskingConfig keyMaskingConfig = state.exactKeyMatcher.getMaskConfigIfMatched(key, 0, key.length, null);
+            blackhole.consume(keyMaskingConfig);
+        }
+    }
+
+    @Benchmark
+    public void keyPatterns(State state, Blackhole blackhole) {
+        for (byte[] key : state.keys) {
+            KeyMaskingConfig keyMaskingConfig = state.keyPatternMatcher.getMaskConfigIfMatched(key, 0, key.length, null);
+            blackhole.consume(keyMaskingConfig);
+        }
+    }
+
+    @Benchmark
+    public void regex(State state, Blackhole blackhole) {
+        for (byte[] key : state.keys) {
+            blackhole.consume(state.regex.matcher(new String(key, StandardCharsets.UTF_8)).matches());
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package dev.blaauwendraad.masker.json;
+
+import dev.blaauwendraad.masker.json.config.JsonMaskingConfig;
+import org.jspecify.annotations.NullUnmarked;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures creating a masker and masking with it for numbers of target keys below and above
+ * {@link KeyMatcher#HASHED_KEYS_THRESHOLD}. The JSON is the same for every number of target keys.
+ */
+@Warmup(iterations = 1, time = 3)
+@Fork(value = 1)
+@Measurement(iterations = 1, time = 3)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@BenchmarkMode(Mode.Throughput)
+public class LargeKeySetBenchmark {
+
+    @org.openjdk.jmh.annotations.State(Scope.Thread)
+    @NullUnmarked
+    public static class State {
+        @Param({ "20", "1000", "10000", "100000" })
+        int keyCount;
+        @Param({ "128kb" })
+        String jsonSize;
+
+        private JsonMaskingConfig jsonMaskingConfig;
+        private JsonMasker jsonMasker;
+        private byte[] jsonBytes;
+
+        @Setup
+        public synchronized void setup() {
+            jsonMaskingConfig = JsonMaskingConfig.builder().maskKeys(BenchmarkUtils.getTargetKeys(keyCount)).build();
+            jsonMasker = JsonMasker.getMasker(jsonMaskingConfig);
+            // the first 20 target keys are targeted for every key count
+            jsonBytes = BenchmarkUtils.randomJson(BenchmarkUtils.getTargetKeys(20), jsonSize, "ascii", 0.1)
+                    .getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    @Benchmark
+    public JsonMasker createMasker(State state) {
+        return JsonMasker.getMasker(state.jsonMaskingConfig);
+    }
+
+    @Benchmark
+    public byte[] jsonMaskerBytes(State state) {
+        return state.jsonMasker.mask(state.jsonBytes);
+    }
+}
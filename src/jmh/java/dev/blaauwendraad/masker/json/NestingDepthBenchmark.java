@@ -0,0 +1,74 @@
+package dev.blaauwendraad.masker.json;
+
+import dev.blaauwendraad.masker.json.config.JsonMaskingConfig;
+import org.jspecify.annotations.NullUnmarked;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+import dev.blaauwendraad.masker.json.util.JsonPathTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Masks JSON with an ordinary depth, as generated for the other benchmarks, and JSON that is nested 10k levels deep,
+ * alternating between objects with a target key and arrays.
+ */
+@Warmup(iterations = 1, time = 3)
+@Fork(value = 1)
+@Measurement(iterations = 1, time = 3)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@BenchmarkMode(Mode.Throughput)
+public class NestingDepthBenchmark {
+
+    @org.openjdk.jmh.annotations.State(Scope.Thread)
+    @NullUnmarked
+    public static class State {
+        @Param({ "ordinary", "10k" })
+        String depth;
+        @Param({ "false", "true" })
+        boolean jsonPath;
+
+        private byte[] jsonBytes;
+        private JsonMasker jsonMasker;
+
+        @Setup
+        public synchronized void setup() {
+            Set<String> targetKeys = BenchmarkUtils.getTargetKeys(20);
+            JsonMaskingConfig.Builder builder = JsonMaskingConfig.builder();
+            String json;
+            if (depth.equals("ordinary")) {
+                json = BenchmarkUtils.randomJson(targetKeys, "128kb", "ascii", 0.1);
+                if (jsonPath) {
+                    builder.maskJsonPaths(JsonPathTestUtils.transformToJsonPathKeys(targetKeys, json));
+                } else {
+                    builder.maskKeys(targetKeys);
+                }
+            } else {
+                String targetKey = targetKeys.iterator().next();
+                json = ("{\"" + targetKey + "\":[").repeat(5_000) + "\"value\"" + "]}".repeat(5_000);
+                if (jsonPath) {
+                    // the JSONPath only matches near the root, but is tracked all the way down
+                    builder.maskJsonPaths("$.%s[*].%s".formatted(targetKey, targetKey));
+                } else {
+                    builder.maskKeys(targetKeys);
+                }
+            }
+            jsonBytes = json.getBytes(StandardCharsets.UTF_8);
+            jsonMasker = JsonMasker.getMasker(builder.build());
+        }
+    }
+
+    @Benchmark
+    public byte[] jsonMaskerBytes(State state) {
+        return state.jsonMasker.mask(state.jsonBytes);
+    }
+}
@@ -0,0 +1,64 @@
+package dev.blaauwendraad.masker.json;
+
+import dev.blaauwendraad.masker.json.config.JsonMaskingConfig;
+import org.jspecify.annotations.NullUnmarked;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Masks messages that mostly do not contain any of the target keys, with and without searching the input for the
+ * target keys first.
+ */
+@Warmup(iterations = 1, time = 3)
+@Fork(value = 1)
+@Measurement(iterations = 1, time = 3)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@BenchmarkMode(Mode.Throughput)
+public class PrefilterBenchmark {
+
+    @org.openjdk.jmh.annotations.State(Scope.Thread)
+    @NullUnmarked
+    public static class State {
+        @Param({ "1kb", "128kb", "2mb" })
+        String jsonSize;
+        @Param({ "ascii", "unicode" })
+        String characters;
+        @Param({ "0.0", "0.01" })
+        double maskedKeyProbability;
+        @Param({ "false", "true" })
+        boolean prefilter;
+
+        private byte[] jsonBytes;
+        private JsonMasker jsonMasker;
+
+        @Setup
+        public synchronized void setup() {
+            Set<String> targetKeys = BenchmarkUtils.getTargetKeys(20);
+            jsonBytes = BenchmarkUtils.randomJson(targetKeys, jsonSize, characters, maskedKeyProbability)
+                    .getBytes(StandardCharsets.UTF_8);
+
+            JsonMaskingConfig.Builder builder = JsonMaskingConfig.builder().maskKeys(targetKeys);
+            if (prefilter) {
+                builder.prefilterTargetKeys();
+            }
+            jsonMasker = JsonMasker.getMasker(builder.build());
+        }
+    }
+
+    @Benchmark
+    public byte[] jsonMaskerBytes(State state) {
+        return state.jsonMasker.mask(state.jsonBytes);
+    }
+}
@@ -0,0 +1,54 @@
+package dev.blaauwendraad.masker.json;
+
+import java.io.InputStream;
+
+/**
+ * Produces a JSON array which contains the same element the given number of times, without holding the whole array
+ * in memory.
+ */
+class RepeatingJsonArrayInputStream extends InputStream {
+    private final byte[] element;
+    private final long repetitions;
+    private long repetition = 0;
+    private int index = -1;
+
+    RepeatingJsonArrayInputStream(byte[] element, long repetitions) {
+        this.element = element;
+        this.repetitions = repetitions;
+    }
+
+    @Override
+    public int read() {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        if (repetition == repetitions) {
+            return -1;
+        }
+        if (index == -1) {
+            // array start or element separator
+            b[off] = (byte) (repetition == 0 ? '[' : ',');
+            index = 0;
+            return 1;
+        }
+        if (index == element.length) {
+            repetition++;
+            index = -1;
+            if (repetition == repetitions) {
+                b[off] = ']';
+                return 1;
+            }
+            return read(b, off, len);
+        }
+        int count = Math.min(len, element.length - index);
+        System.arraycopy(element, index, b, off, count);
+        index += count;
+        return count;
+    }
+}
@@ -0,0 +1,65 @@
+package dev.blaauwendraad.masker.json;
+
+import dev.blaauwendraad.masker.json.config.JsonMaskingConfig;
+import org.jspecify.annotations.NullUnmarked;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Masks messages where many values are replaced, either because many keys are targeted or because only a few keys are
+ * allowed, to measure the cost of recording and applying the replacement operations.
+ */
+@Warmup(iterations = 1, time = 3)
+@Fork(value = 1)
+@Measurement(iterations = 1, time = 3)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@BenchmarkMode(Mode.Throughput)
+public class ReplacementOperationsBenchmark {
+
+    @org.openjdk.jmh.annotations.State(Scope.Thread)
+    @NullUnmarked
+    public static class State {
+        @Param({ "1kb", "128kb", "2mb" })
+        String jsonSize;
+        @Param({ "0.1", "0.5" })
+        double maskedKeyProbability;
+        @Param({ "false", "true" })
+        boolean allowMode;
+
+        private byte[] jsonBytes;
+        private JsonMasker jsonMasker;
+
+        @Setup
+        public synchronized void setup() {
+            Set<String> targetKeys = BenchmarkUtils.getTargetKeys(20);
+            jsonBytes = BenchmarkUtils.randomJson(targetKeys, jsonSize, "ascii", maskedKeyProbability)
+                    .getBytes(StandardCharsets.UTF_8);
+
+            JsonMaskingConfig.Builder builder = JsonMaskingConfig.builder();
+            if (allowMode) {
+                // everything except the target keys is masked
+                builder.allowKeys(targetKeys);
+            } else {
+                builder.maskKeys(targetKeys);
+            }
+            jsonMasker = JsonMasker.getMasker(builder.build());
+        }
+    }
+
+    @Benchmark
+    public byte[] jsonMaskerBytes(State state) {
+        return state.jsonMasker.mask(state.jsonBytes);
+    }
+}
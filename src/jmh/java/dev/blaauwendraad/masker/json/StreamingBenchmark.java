@@ -0,0 +1,79 @@
+package dev.blaauwendraad.masker.json;
+
+import org.jspecify.annotations.NullUnmarked;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares masking a document that is fully read into memory with masking it as a stream. Run with the "gc" profiler
+ * to compare the allocation rate, the streaming mode should only allocate its (constant size) buffers.
+ */
+@Warmup(iterations = 1, time = 3)
+@Fork(value = 1)
+@Measurement(iterations = 1, time = 3)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@BenchmarkMode(Mode.Throughput)
+public class StreamingBenchmark {
+
+    @org.openjdk.jmh.annotations.State(Scope.Thread)
+    @NullUnmarked
+    public static class State {
+        @Param({ "2mb", "256mb" })
+        String jsonSize;
+        @Param({ "ascii", "unicode" })
+        String characters;
+        @Param({ "0.01" })
+        double maskedKeyProbability;
+
+        private byte[] jsonBytes;
+        private long streamSize;
+        private JsonMasker jsonMasker;
+
+        @Setup
+        public synchronized void setup() {
+            Set<String> targetKeys = BenchmarkUtils.getTargetKeys(20);
+            // the larger documents are an array repeating a 2mb document, to keep the setup time and memory reasonable
+            jsonBytes = BenchmarkUtils.randomJson(targetKeys, "2mb", characters, maskedKeyProbability)
+                    .getBytes(StandardCharsets.UTF_8);
+            streamSize = BenchmarkUtils.parseSize(jsonSize);
+            jsonMasker = JsonMasker.getMasker(targetKeys);
+        }
+
+        InputStream inputStream() {
+            if (streamSize <= jsonBytes.length) {
+                return new ByteArrayInputStream(jsonBytes);
+            }
+            return new RepeatingJsonArrayInputStream(jsonBytes, streamSize / (jsonBytes.length + 1));
+        }
+    }
+
+    @Benchmark
+    public void jsonMaskerBytes(State state) throws IOException {
+        try (InputStream inputStream = state.inputStream()) {
+            OutputStream.nullOutputStream().write(state.jsonMasker.mask(inputStream.readAllBytes()));
+        }
+    }
+
+    @Benchmark
+    public void jsonMaskerStream(State state) throws IOException {
+        try (InputStream inputStream = state.inputStream()) {
+            state.jsonMasker.mask(inputStream, OutputStream.nullOutputStream());
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package dev.blaauwendraad.masker.json;
+
+import dev.blaauwendraad.masker.json.config.JsonMaskingConfig;
+import org.jspecify.annotations.NullUnmarked;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Masks documents where the targeted value sits in a small part of a large tree. When targeted by a JSONPath, the
+ * large payload can be stepped over as a whole, when targeted by key, every key in the payload has to be looked up.
+ */
+@Warmup(iterations = 1, time = 3)
+@Fork(value = 1)
+@Measurement(iterations = 1, time = 3)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@BenchmarkMode(Mode.Throughput)
+public class SubtreeSkippingBenchmark {
+
+    @org.openjdk.jmh.annotations.State(Scope.Thread)
+    @NullUnmarked
+    public static class State {
+        @Param({ "128kb", "2mb" })
+        String jsonSize;
+        @Param({ "ascii", "unicode" })
+        String characters;
+        @Param({ "jsonPath", "key" })
+        String target;
+
+        private byte[] jsonBytes;
+        private JsonMasker jsonMasker;
+
+        @Setup
+        public synchronized void setup() {
+            String payload = BenchmarkUtils.randomJson(BenchmarkUtils.getTargetKeys(20), jsonSize, characters, 0.1);
+            jsonBytes = ("{\"user\":{\"name\":\"John\",\"ssn\":\"123-45-6789\"},\"payload\":" + payload + "}")
+                    .getBytes(StandardCharsets.UTF_8);
+
+            JsonMaskingConfig.Builder builder = JsonMaskingConfig.builder();
+            if (target.equals("jsonPath")) {
+                builder.maskJsonPaths(Set.of("$.user.ssn"));
+            } else {
+                builder.maskKeys(Set.of("ssn"));
+            }
+            jsonMasker = JsonMasker.getMasker(builder.build());
+        }
+    }
+
+    @Benchmark
+    public byte[] jsonMaskerBytes(State state) {
+        return state.jsonMasker.mask(state.jsonBytes);
+    }
+}
@@ -0,0 +1,73 @@
+package dev.blaauwendraad.masker.json;
+
+import dev.blaauwendraad.masker.json.config.JsonMaskingConfig;
+import org.jspecify.annotations.NullUnmarked;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the scalar engine with the Vector API engine, which is only enabled in the fork that adds the
+ * {@code jdk.incubator.vector} module. In allow mode the values of the allowed keys are stepped over as a whole, which
+ * is where scanning for quotes and brackets matters the most.
+ */
+@Warmup(iterations = 1, time = 3)
+@Measurement(iterations = 1, time = 3)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@BenchmarkMode(Mode.Throughput)
+public class VectorEngineBenchmark {
+
+    @org.openjdk.jmh.annotations.State(Scope.Thread)
+    @NullUnmarked
+    public static class State {
+        @Param({ "128kb", "2mb" })
+        String jsonSize;
+        @Param({ "ascii", "unicode" })
+        String characters;
+        @Param({ "0.1" })
+        double maskedKeyProbability;
+        @Param({ "false", "true" })
+        boolean allowMode;
+
+        private byte[] jsonBytes;
+        private JsonMasker jsonMasker;
+
+        @Setup
+        public synchronized void setup() {
+            Set<String> targetKeys = BenchmarkUtils.getTargetKeys(20);
+            jsonBytes = BenchmarkUtils.randomJson(targetKeys, jsonSize, characters, maskedKeyProbability)
+                    .getBytes(StandardCharsets.UTF_8);
+
+            JsonMaskingConfig.Builder builder = JsonMaskingConfig.builder();
+            if (allowMode) {
+                builder.allowKeys(targetKeys);
+            } else {
+                builder.maskKeys(targetKeys);
+            }
+            jsonMasker = JsonMasker.getMasker(builder.build());
+        }
+    }
+
+    @Benchmark
+    @Fork(value = 1)
+    public byte[] scalarEngine(State state) {
+        return state.jsonMasker.mask(state.jsonBytes);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+    public byte[] vectorEngine(State state) {
+        return state.jsonMasker.mask(state.jsonBytes);
+    }
+}
@@ -0,0 +1,239 @@
+package dev.blaauwendraad.masker.json;
+
+import org.jspecify.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Case folding for matching keys case-insensitively. The keys are stored in their folded form only, and the keys in
+ * the JSON are folded while they are matched: ASCII bytes through a lookup table, and other characters by decoding
+ * the character and folding it with the Unicode case mappings.
+ * <p>
+ * A character is folded by converting it to upper case and then to lower case, until that no longer changes it, which
+ * maps all case variants of a character to the same string, also when the variants have different lengths:
+ * {@code "ß"}, {@code "ẞ"}, {@code "SS"} and {@code "ss"} all fold to {@code "ss"}. The case mappings are locale
+ * independent, so {@code "I"} always folds to {@code "i"}, while the Turkish {@code "ı"} folds to {@code "i"} and
+ * {@code "İ"} to {@code "i̇"}.
+ * <p>
+ * The folds of the characters encoded in two bytes and of the few characters that fold to more than one character are
+ * precomputed, any other character folds to a single character that is computed from the case mappings of the
+ * character itself, so folding a character while matching never allocates.
+ */
+final class CaseFolding {
+    private static final byte[] ASCII_FOLDS = new byte[128];
+    /**
+     * The UTF-8 bytes of the folded characters for all characters encoded in at most two bytes, which covers most
+     * scripts with case.
+     */
+    private static final byte[][] TWO_BYTE_FOLDS = new byte[0x800][];
+    /**
+     * The characters from U+0800 that fold to more than one character, sorted, and the UTF-8 bytes of their folds with
+     * the same index. These are the ligatures and the Greek characters with special upper case mappings, which are all
+     * in the blocks of {@link #SPECIAL_CASING_BLOCKS}.
+     */
+    private static final int[] MULTI_CHARACTER_FOLD_CODE_POINTS;
+    private static final byte[][] MULTI_CHARACTER_FOLDS;
+    /**
+     * The ranges of code points from U+0800 that contain characters with special upper case mappings: Latin Extended
+     * Additional, Greek Extended and Alphabetic Presentation Forms.
+     */
+    private static final int[][] SPECIAL_CASING_BLOCKS = {{0x1e00, 0x1fff}, {0xfb00, 0xfb4f}};
+
+    static {
+        for (int b = 0; b < ASCII_FOLDS.length; b++) {
+            ASCII_FOLDS[b] = (byte) (b >= 'A' && b <= 'Z' ? b | 0x20 : b);
+        }
+        for (int codePoint = 0; codePoint < TWO_BYTE_FOLDS.length; codePoint++) {
+            TWO_BYTE_FOLDS[codePoint] = foldCharacter(codePoint);
+        }
+        int[] codePoints = new int[0];
+        byte[][] folds = new byte[0][];
+        for (int[] block : SPECIAL_CASING_BLOCKS) {
+            for (int codePoint = block[0]; codePoint <= block[1]; codePoint++) {
+                byte[] folded = foldCharacter(codePoint);
+                if (!Arrays.equals(folded, Character.toString(foldSingleCharacter(codePoint)).getBytes(StandardCharsets.UTF_8))) {
+                    codePoints = Arrays.copyOf(codePoints, codePoints.length + 1);
+                    folds = Arrays.copyOf(folds, folds.length + 1);
+                    codePoints[codePoints.length - 1] = codePoint;
+                    folds[folds.length - 1] = folded;
+                }
+            }
+        }
+        MULTI_CHARACTER_FOLD_CODE_POINTS = codePoints;
+        MULTI_CHARACTER_FOLDS = folds;
+    }
+
+    private CaseFolding() {
+        // util
+    }
+
+    /**
+     * Folds an ASCII byte.
+     *
+     * @param b the byte, which must not be negative
+     * @return the folded byte
+     */
+    static byte foldAscii(byte b) {
+        return ASCII_FOLDS[b];
+    }
+
+    /**
+     * Folds a character.
+     *
+     * @param codePoint the code point of the character
+     * @return the UTF-8 bytes of the folded character, which can be more than one character
+     */
+    static byte[] foldCodePoint(int codePoint) {
+        byte[] folded = precomputedFold(codePoint);
+        if (folded != null) {
+            return folded;
+        }
+        return Character.toString(foldSingleCharacter(codePoint)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the precomputed fold of a character: of every character encoded in at most two bytes, and of the
+     * characters that fold to more than one character.
+     *
+     * @param codePoint the code point of the character
+     * @return the UTF-8 bytes of the folded character, or null if the character folds to a single character that is
+     * not precomputed, see {@link #foldSingleCharacter(int)}
+     */
+    static byte @Nullable [] precomputedFold(int codePoint) {
+        if (codePoint < TWO_BYTE_FOLDS.length) {
+            return TWO_BYTE_FOLDS[codePoint];
+        }
+        if (codePoint < MULTI_CHARACTER_FOLD_CODE_POINTS[0]
+                || codePoint > MULTI_CHARACTER_FOLD_CODE_POINTS[MULTI_CHARACTER_FOLD_CODE_POINTS.length - 1]) {
+            return null;
+        }
+        int index = Arrays.binarySearch(MULTI_CHARACTER_FOLD_CODE_POINTS, codePoint);
+        return index >= 0 ? MULTI_CHARACTER_FOLDS[index] : null;
+    }
+
+    /**
+     * Folds a character that folds to a single character, i.e. one that has no precomputed fold, with the simple case
+     * mappings of the character, which do not allocate.
+     *
+     * @param codePoint the code point of the character
+     * @return the code point of the folded character
+     */
+    static int foldSingleCharacter(int codePoint) {
+        int folded = codePoint;
+        int previous;
+        do {
+            previous = folded;
+            folded = Character.toLowerCase(Character.toUpperCase(folded));
+        } while (folded != previous);
+        return folded;
+    }
+
+    private static byte[] foldCharacter(int codePoint) {
+        String folded = Character.toString(codePoint);
+        String previous;
+        do {
+            previous = folded;
+            folded = folded.toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+        } while (!folded.equals(previous));
+        return folded.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Folds a key.
+     *
+     * @param key the key
+     * @return the UTF-8 bytes of the folded key
+     */
+    static byte[] fold(String key) {
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        return fold(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Folds the UTF-8 bytes of a key. Bytes that are not part of a valid UTF-8 encoded character are kept as is.
+     *
+     * @param bytes  the bytes containing the key
+     * @param offset the offset of the key
+     * @param length the length of the key in bytes
+     * @return the UTF-8 bytes of the folded key
+     */
+    static byte[] fold(byte[] bytes, int offset, int length) {
+        ByteArrayOutputStream folded = new ByteArrayOutputStream(length);
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            byte b = bytes[i];
+            if (b >= 0) {
+                folded.write(foldAscii(b));
+                continue;
+            }
+            int codePoint = decodeCodePoint(bytes, i, end);
+            if (codePoint < 0) {
+                folded.write(b);
+                continue;
+            }
+            folded.writeBytes(foldCodePoint(codePoint));
+            i += codePointLength(codePoint) - 1;
+        }
+        return folded.toByteArray();
+    }
+
+    /**
+     * Decodes a multibyte UTF-8 encoded character.
+     *
+     * @param bytes  the bytes containing the character
+     * @param offset the offset of the first byte of the character, which must not be an ASCII byte
+     * @param end    the end of the bytes that can belong to the character
+     * @return the code point of the character, or -1 if the bytes are not a valid UTF-8 encoded character
+     */
+    static int decodeCodePoint(byte[] bytes, int offset, int end) {
+        int lead = bytes[offset] & 0xff;
+        int length;
+        int codePoint;
+        if ((lead & 0xe0) == 0xc0) {
+            length = 2;
+            codePoint = lead & 0x1f;
+        } else if ((lead & 0xf0) == 0xe0) {
+            length = 3;
+            codePoint = lead & 0x0f;
+        } else if ((lead & 0xf8) == 0xf0) {
+            length = 4;
+            codePoint = lead & 0x07;
+        } else {
+            return -1;
+        }
+        if (offset + length > end) {
+            return -1;
+        }
+        for (int i = offset + 1; i < offset + length; i++) {
+            int b = bytes[i] & 0xff;
+            if ((b & 0xc0) != 0x80) {
+                return -1;
+            }
+            codePoint = (codePoint << 6) | (b & 0x3f);
+        }
+        // overlong encodings and surrogates are not valid UTF-8
+        if (codePointLength(codePoint) != length
+                || (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE)
+                || codePoint > Character.MAX_CODE_POINT) {
+            return -1;
+        }
+        return codePoint;
+    }
+
+    /**
+     * Returns the number of bytes of a character in UTF-8.
+     */
+    static int codePointLength(int codePoint) {
+        if (codePoint < 0x80) {
+            return 1;
+        } else if (codePoint < 0x800) {
+            return 2;
+        } else if (codePoint < 0x10000) {
+            return 3;
+        }
+        return 4;
+    }
+}
@@ -0,0 +1,251 @@
+package dev.blaauwendraad.masker.json;
+
+import dev.blaauwendraad.masker.json.util.Utf8Util;
+import org.jspecify.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Set of keys for {@link KeyMatcher} that is used instead of the trie for large numbers of keys, where a trie would
+ * consist of many nodes. The keys are stored back to back in a single byte array and found through an open-addressing
+ * hash table of key indices, so the memory grows with the total length of the keys and a look-up takes constant time
+ * regardless of the number of keys.
+ * <p>
+ * A look-up first checks whether any key has the length of the looked up key, then hashes the key and verifies the
+ * bytes of the keys in the probed slots. When matching case-insensitively, the folded keys are stored (see
+ * {@link CaseFolding}) and ASCII bytes of the looked up key are folded while hashing and verifying. Likewise, when the
+ * separators in keys are ignored, the keys are stored without them and they are skipped in the looked up key.
+ * <p>
+ * Like the trie, unicode escapes ({@code \\uXXXX}) in the looked up keys are decoded before matching, and when
+ * matching case-insensitively multibyte characters are folded before matching, which are the only cases in which a
+ * look-up allocates.
+ */
+final class HashedKeySet {
+    private final boolean caseSensitive;
+    private final boolean ignoreSeparators;
+    /**
+     * The bytes of all keys back to back, the key with index {@code i} starts at {@code keyOffsets[i]} and ends at
+     * {@code keyOffsets[i + 1]}. When matching case-insensitively, these are the bytes of the folded keys.
+     */
+    private final byte[] keyBytes;
+    private final int[] keyOffsets;
+    /**
+     * The node to return for every key, holding the masking configuration of the key.
+     */
+    private final KeyMatcher.TrieNode[] nodes;
+    /**
+     * Open-addressing hash table of key indices plus one, zero for an empty slot.
+     */
+    private final int[] table;
+    /**
+     * Bit set of the lengths (in bytes) of the keys.
+     */
+    private final long[] keyLengths;
+
+    /**
+     * Creates a set of the given keys.
+     *
+     * @param keys             the bytes of the keys as they are stored in the trie: folded when matching
+     *                         case-insensitively and without separators when they are ignored
+     * @param nodes            the node to return for every key, with the same index as the key
+     * @param caseSensitive    whether the keys are matched case-sensitively
+     * @param ignoreSeparators whether the separators in the looked up keys are ignored, see
+     *                         {@link KeyMatcher#isKeySeparator(byte)}
+     */
+    HashedKeySet(byte[][] keys, KeyMatcher.TrieNode[] nodes, boolean caseSensitive, boolean ignoreSeparators) {
+        this.caseSensitive = caseSensitive;
+        this.ignoreSeparators = ignoreSeparators;
+        int totalLength = 0;
+        int maxLength = 0;
+        for (byte[] key : keys) {
+            totalLength += key.length;
+            maxLength = Math.max(maxLength, key.length);
+        }
+        this.keyBytes = new byte[totalLength];
+        this.keyOffsets = new int[keys.length + 1];
+        this.nodes = new KeyMatcher.TrieNode[keys.length];
+        // at most half of the slots are used, so that the probe sequences stay short
+        this.table = new int[Integer.highestOneBit(Math.max(keys.length, 1) * 2 - 1) * 2];
+        this.keyLengths = new long[(maxLength >>> 6) + 1];
+
+        int keyCount = 0;
+        for (int i = 0; i < keys.length; i++) {
+            byte[] key = keys[i];
+            int slot = findSlot(key, 0, key.length, key.length);
+            if (table[slot] != 0) {
+                // the same folded key, the last one wins just like in the trie
+                this.nodes[table[slot] - 1] = nodes[i];
+                continue;
+            }
+            int offset = keyOffsets[keyCount];
+            System.arraycopy(key, 0, keyBytes, offset, key.length);
+            keyOffsets[keyCount + 1] = offset + key.length;
+            this.nodes[keyCount] = nodes[i];
+            table[slot] = ++keyCount;
+            keyLengths[key.length >>> 6] |= 1L << key.length;
+        }
+    }
+
+    /**
+     * Looks up the key in the given part of the byte array.
+     *
+     * @param bytes  the bytes containing the key
+     * @param offset the offset of the key
+     * @param length the length of the key, possibly with unicode escapes
+     * @return the node of the key, or null if the key is not in the set
+     */
+    KeyMatcher.@Nullable TrieNode get(byte[] bytes, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (bytes[i] == '\\') {
+                byte[] decoded = decodeUnicodeEscapes(bytes, offset, length);
+                if (decoded == null) {
+                    return null;
+                }
+                return caseSensitive ? getDecoded(decoded, 0, decoded.length) : getFolded(decoded, 0, decoded.length);
+            }
+        }
+        return caseSensitive ? getDecoded(bytes, offset, length) : getFolded(bytes, offset, length);
+    }
+
+    /**
+     * Looks up a key without escapes case-insensitively, folding the key first if it contains multibyte characters.
+     */
+    private KeyMatcher.@Nullable TrieNode getFolded(byte[] bytes, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (bytes[i] < 0) {
+                byte[] folded = CaseFolding.fold(bytes, offset, length);
+                return getDecoded(folded, 0, folded.length);
+            }
+        }
+        return getDecoded(bytes, offset, length);
+    }
+
+    private KeyMatcher.@Nullable TrieNode getDecoded(byte[] bytes, int offset, int length) {
+        int keyLength = length;
+        if (ignoreSeparators) {
+            for (int i = offset; i < offset + length; i++) {
+                if (KeyMatcher.isKeySeparator(bytes[i])) {
+                    keyLength--;
+                }
+            }
+        }
+        if ((keyLength >>> 6) >= keyLengths.length || (keyLengths[keyLength >>> 6] & (1L << keyLength)) == 0) {
+            return null;
+        }
+        int keyIndex = table[findSlot(bytes, offset, length, keyLength)];
+        return keyIndex != 0 ? nodes[keyIndex - 1] : null;
+    }
+
+    /**
+     * Finds the slot of the table that contains the given key, or the empty slot where it would be inserted.
+     *
+     * @param keyLength the length of the key without the ignored separators
+     */
+    private int findSlot(byte[] bytes, int offset, int length, int keyLength) {
+        int mask = table.length - 1;
+        int slot = hash(bytes, offset, length) & mask;
+        while (table[slot] != 0 && !matches(table[slot] - 1, bytes, offset, length, keyLength)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int hash(byte[] bytes, int offset, int length) {
+        int hash = 0x811c9dc5;
+        for (int i = offset; i < offset + length; i++) {
+            if (ignoreSeparators && KeyMatcher.isKeySeparator(bytes[i])) {
+                continue;
+            }
+            hash = (hash ^ fold(bytes[i])) * 0x01000193;
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Folds an ASCII byte when matching case-insensitively, multibyte characters are already folded by then.
+     */
+    private byte fold(byte b) {
+        return caseSensitive || b < 0 ? b : CaseFolding.foldAscii(b);
+    }
+
+    private boolean matches(int keyIndex, byte[] bytes, int offset, int length, int keyLength) {
+        int keyOffset = keyOffsets[keyIndex];
+        if (keyOffsets[keyIndex + 1] - keyOffset != keyLength) {
+            return false;
+        }
+        if (caseSensitive && keyLength == length) {
+            return Arrays.equals(keyBytes, keyOffset, keyOffset + length, bytes, offset, offset + length);
+        }
+        int keyPosition = keyOffset;
+        for (int i = offset; i < offset + length; i++) {
+            byte b = bytes[i];
+            if (keyLength != length && KeyMatcher.isKeySeparator(b)) {
+                continue;
+            }
+            if (fold(b) != keyBytes[keyPosition++]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decodes the unicode escapes in a key to UTF-8 the same way as the trie look-up does, other escapes are kept as
+     * is.
+     *
+     * @return the decoded key, or null if the key contains an invalid surrogate pair and cannot match
+     */
+    private static byte @Nullable [] decodeUnicodeEscapes(byte[] bytes, int offset, int length) {
+        byte[] decoded = new byte[length];
+        int decodedLength = 0;
+        for (int i = offset; i < offset + length; i++) {
+            byte b = bytes[i];
+            if (b != '\\' || i == offset + length - 1) {
+                decoded[decodedLength++] = b;
+                continue;
+            }
+            if (bytes[i + 1] != 'u' || i > offset + length - 6) {
+                // any other escape, e.g. an escaped backslash, is kept as is, and the escaped character must not be
+                // taken for the start of an escape
+                decoded[decodedLength++] = b;
+                decoded[decodedLength++] = bytes[++i];
+                continue;
+            }
+            char unicodeHexBytesAsChar = Utf8Util.unicodeHexToChar(bytes, i + 2);
+            i += 5; // the loop increment steps over the last hex digit
+            int codePoint = unicodeHexBytesAsChar;
+            if (Character.isSurrogate(unicodeHexBytesAsChar)) {
+                codePoint = -1;
+                if (Character.isHighSurrogate(unicodeHexBytesAsChar)
+                        && i + 1 <= offset + length - 6
+                        && bytes[i + 1] == '\\'
+                        && bytes[i + 2] == 'u') {
+                    char lowSurrogate = Utf8Util.unicodeHexToChar(bytes, i + 3);
+                    if (Character.isLowSurrogate(lowSurrogate)) {
+                        codePoint = Character.toCodePoint(unicodeHexBytesAsChar, lowSurrogate);
+                        i += 6;
+                    }
+                }
+                if (codePoint < 0) {
+                    return null;
+                }
+            }
+            if (codePoint < 0x80) {
+                decoded[decodedLength++] = (byte) codePoint;
+            } else if (codePoint < 0x800) {
+                decoded[decodedLength++] = (byte) (0xc0 | (codePoint >> 6));
+                decoded[decodedLength++] = (byte) (0x80 | (codePoint & 0x3f));
+            } else if (codePoint < 0x10000) {
+                decoded[decodedLength++] = (byte) (0xe0 | (codePoint >> 12));
+                decoded[decodedLength++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                decoded[decodedLength++] = (byte) (0x80 | (codePoint & 0x3f));
+            } else {
+                decoded[decodedLength++] = (byte) (0xf0 | (codePoint >> 18));
+                decoded[decodedLength++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                decoded[decodedLength++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                decoded[decodedLength++] = (byte) (0x80 | (codePoint & 0x3f));
+            }
+        }
+        return Arrays.copyOf(decoded, decodedLength);
+    }
+}
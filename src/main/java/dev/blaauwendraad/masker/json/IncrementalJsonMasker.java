@@ -0,0 +1,63 @@
+package dev.blaauwendraad.masker.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Masks a single JSON value that is provided chunk by chunk, for example the chunks of an HTTP body. The chunks can be
+ * split at any byte, including in the middle of a key, a string value or an escape sequence. Created with
+ * {@link JsonMasker#maskIncrementally(OutputStream)}.
+ * <p>
+ * The masked output is written to the output stream as soon as it is final, which is typically after every complete
+ * value in the innermost object or array, and within values that are not masked. Only the bytes of a key or a masked
+ * value that is incomplete at the end of a chunk are kept in memory until the rest of it is fed, see
+ * {@link #bufferedBytes()}.
+ * <p>
+ * Instances are not thread-safe and cannot be reused after {@link #finish()}.
+ */
+public interface IncrementalJsonMasker {
+
+    /**
+     * Feeds the next chunk of the JSON input, the masked output that is final is written to the output stream.
+     *
+     * @param chunk  the array containing the chunk
+     * @param offset the index of the first byte of the chunk
+     * @param length the length of the chunk
+     * @throws IOException               in case writing to the output fails
+     * @throws IndexOutOfBoundsException in case the offset or the length are out of bounds of the chunk array
+     * @throws IllegalStateException     in case masking has already finished or failed
+     * @throws InvalidJsonException      in case the input fed so far is invalid JSON
+     */
+    void feed(byte[] chunk, int offset, int length) throws IOException;
+
+    /**
+     * Feeds the next chunk of the JSON input, the masked output that is final is written to the output stream.
+     *
+     * @param chunk the chunk
+     * @throws IOException           in case writing to the output fails
+     * @throws IllegalStateException in case masking has already finished or failed
+     * @throws InvalidJsonException  in case the input fed so far is invalid JSON
+     * @see #feed(byte[], int, int)
+     */
+    default void feed(byte[] chunk) throws IOException {
+        feed(chunk, 0, chunk.length);
+    }
+
+    /**
+     * Signals the end of the JSON input and writes the remainder of the masked output to the output stream. The output
+     * stream is not closed by this method.
+     *
+     * @throws IOException           in case writing to the output fails
+     * @throws IllegalStateException in case masking has already finished or failed
+     * @throws InvalidJsonException  in case the input is invalid JSON, e.g. because it is incomplete
+     */
+    void finish() throws IOException;
+
+    /**
+     * Returns the number of bytes of the input fed so far that are kept in memory, because they belong to a key or a
+     * masked value that is incomplete and is masked once the rest of it is fed.
+     *
+     * @return the number of buffered bytes
+     */
+    long bufferedBytes();
+}
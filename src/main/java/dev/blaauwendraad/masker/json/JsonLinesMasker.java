@@ -0,0 +1,233 @@
+package dev.blaauwendraad.masker.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Masks newline-delimited JSON (JSON Lines) in parallel. The input is split into chunks of complete lines, each chunk is
+ * masked by a separate task into its own output buffer and the chunks are written to the output in the original order.
+ * <p>
+ * Every line is masked as a separate JSON value using {@link JsonMasker#mask(byte[], int, int, byte[], int)}, the line
+ * separators (and a carriage return before them) are copied as is. Empty lines are kept.
+ */
+final class JsonLinesMasker {
+    /**
+     * The size of a chunk of lines that is masked by a single task, lines that are longer are not split.
+     */
+    static final int CHUNK_SIZE = 64 * 1024;
+    /**
+     * The size of a block that is read at once from an input stream, a block is split into chunks.
+     */
+    private static final int BLOCK_SIZE = 1024 * 1024;
+    private static final byte[] EMPTY_OUTPUT = new byte[0];
+
+    private JsonLinesMasker() {
+        // don't instantiate
+    }
+
+    /**
+     * Masks all lines in the input array.
+     *
+     * @param jsonMasker the masker to mask the individual lines with
+     * @param input      the newline-delimited JSON
+     * @param pool       the pool to mask the chunks in
+     * @return the masked newline-delimited JSON
+     */
+    static byte[] mask(JsonMasker jsonMasker, byte[] input, ForkJoinPool pool) {
+        List<MaskedChunk> maskedChunks = pool.invoke(new BlockTask(jsonMasker, new Block(input), 0, input.length));
+        int length = 0;
+        for (MaskedChunk maskedChunk : maskedChunks) {
+            length += maskedChunk.length;
+        }
+        byte[] output = new byte[length];
+        int index = 0;
+        for (MaskedChunk maskedChunk : maskedChunks) {
+            System.arraycopy(maskedChunk.bytes, 0, output, index, maskedChunk.length);
+            index += maskedChunk.length;
+        }
+        return output;
+    }
+
+    /**
+     * Masks all lines read from the input stream and writes them to the output stream. Only a bounded number of
+     * blocks is read ahead of the block that is written, so that memory usage does not depend on the size of the
+     * input. Blocks that have been written are reused for reading the next part of the input.
+     *
+     * @param jsonMasker the masker to mask the individual lines with
+     * @param input      the stream to read the newline-delimited JSON from
+     * @param output     the stream to write the masked newline-delimited JSON to
+     * @param pool       the pool to mask the blocks in
+     */
+    static void mask(JsonMasker jsonMasker, InputStream input, OutputStream output, ForkJoinPool pool) throws IOException {
+        int maxPendingBlocks = Math.max(2, pool.getParallelism() * 2);
+        ArrayDeque<PendingBlock> pendingBlocks = new ArrayDeque<>();
+        // at most maxPendingBlocks + 1 blocks are in use at the same time, so that is all that is ever allocated
+        ArrayDeque<Block> freeBlocks = new ArrayDeque<>();
+        Block block = new Block(new byte[BLOCK_SIZE]);
+        int blockLength = 0;
+        boolean endOfStream = false;
+        try {
+            while (!endOfStream) {
+                int read = input.read(block.input, blockLength, block.input.length - blockLength);
+                if (read == -1) {
+                    endOfStream = true;
+                } else {
+                    blockLength += read;
+                    if (blockLength < block.input.length) {
+                        continue;
+                    }
+                }
+                // everything after the last newline belongs to a line that continues in the next block
+                int blockEnd = endOfStream
+                        ? blockLength
+                        : StructuralScanner.INSTANCE.lastIndexOfNewline(block.input, 0, blockLength) + 1;
+                if (blockEnd == 0 && !endOfStream) {
+                    // a single line does not fit into the block
+                    block.input = Arrays.copyOf(block.input, block.input.length * 2);
+                    continue;
+                }
+                if (blockEnd > 0) {
+                    if (pendingBlocks.size() == maxPendingBlocks) {
+                        freeBlocks.addLast(writeBlock(pendingBlocks.removeFirst(), output));
+                    }
+                    pendingBlocks.addLast(new PendingBlock(block, pool.submit(new BlockTask(jsonMasker, block, 0, blockEnd))));
+                    Block nextBlock = freeBlocks.isEmpty() ? new Block(new byte[BLOCK_SIZE]) : freeBlocks.removeFirst();
+                    if (nextBlock.input.length < blockLength - blockEnd) {
+                        nextBlock.input = new byte[blockLength - blockEnd];
+                    }
+                    System.arraycopy(block.input, blockEnd, nextBlock.input, 0, blockLength - blockEnd);
+                    blockLength -= blockEnd;
+                    block = nextBlock;
+                }
+            }
+            while (!pendingBlocks.isEmpty()) {
+                writeBlock(pendingBlocks.removeFirst(), output);
+            }
+        } finally {
+            pendingBlocks.forEach(pendingBlock -> pendingBlock.task.cancel(false));
+        }
+    }
+
+    /**
+     * Waits until the block is masked and writes its chunks to the output.
+     *
+     * @return the block, which can be reused once it has been written
+     */
+    private static Block writeBlock(PendingBlock pendingBlock, OutputStream output) throws IOException {
+        for (MaskedChunk maskedChunk : pendingBlock.task.join()) {
+            output.write(maskedChunk.bytes, 0, maskedChunk.length);
+        }
+        return pendingBlock.block;
+    }
+
+    /**
+     * Masks the lines from the given part of the input as a single chunk, the part must end at a line boundary. The
+     * given output buffer is used if it is large enough for the chunk, otherwise a new one is allocated.
+     */
+    private static MaskedChunk maskChunk(JsonMasker jsonMasker, byte[] input, int from, int to, byte[] output) {
+        if (output.length < to - from + (to - from) / 8) {
+            output = new byte[to - from + (to - from) / 8];
+        }
+        int outputIndex = 0;
+        int lineStart = from;
+        while (lineStart < to) {
+            int lineEnd = StructuralScanner.INSTANCE.indexOfNewline(input, lineStart, to);
+            int written = jsonMasker.mask(input, lineStart, lineEnd - lineStart, output, outputIndex);
+            if (written < 0) {
+                output = Arrays.copyOf(output, Math.max(output.length * 2, outputIndex - written + 1));
+                written = jsonMasker.mask(input, lineStart, lineEnd - lineStart, output, outputIndex);
+            }
+            outputIndex += written;
+            if (lineEnd < to) {
+                if (outputIndex == output.length) {
+                    output = Arrays.copyOf(output, output.length * 2);
+                }
+                output[outputIndex++] = '\n';
+            }
+            lineStart = lineEnd + 1;
+        }
+        return new MaskedChunk(output, outputIndex);
+    }
+
+    /**
+     * Splits the given part of the input into chunks at line boundaries and masks them in parallel. The masked chunks
+     * are returned in the original order.
+     */
+    private static final class BlockTask extends RecursiveTask<List<MaskedChunk>> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient JsonMasker jsonMasker;
+        private final transient Block block;
+        private final int from;
+        private final int to;
+
+        BlockTask(JsonMasker jsonMasker, Block block, int from, int to) {
+            this.jsonMasker = jsonMasker;
+            this.block = block;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<MaskedChunk> compute() {
+            byte[] input = block.input;
+            List<ForkJoinTask<MaskedChunk>> chunkTasks = new ArrayList<>();
+            int chunkStart = from;
+            while (chunkStart < to) {
+                int chunkEnd = Math.min(chunkStart + CHUNK_SIZE, to);
+                if (chunkEnd < to) {
+                    // extend the chunk until the end of the line
+                    chunkEnd = Math.min(StructuralScanner.INSTANCE.indexOfNewline(input, chunkEnd - 1, to) + 1, to);
+                }
+                int chunkIndex = chunkTasks.size();
+                if (chunkIndex == block.chunkOutputs.length) {
+                    block.chunkOutputs = Arrays.copyOf(block.chunkOutputs, Math.max(8, chunkIndex * 2));
+                    Arrays.fill(block.chunkOutputs, chunkIndex, block.chunkOutputs.length, EMPTY_OUTPUT);
+                }
+                int start = chunkStart;
+                int end = chunkEnd;
+                chunkTasks.add(ForkJoinTask.adapt(() -> {
+                    MaskedChunk maskedChunk = maskChunk(jsonMasker, input, start, end, block.chunkOutputs[chunkIndex]);
+                    // each task only replaces its own buffer, the next task for this block runs after this one is joined
+                    block.chunkOutputs[chunkIndex] = maskedChunk.bytes;
+                    return maskedChunk;
+                }));
+                chunkStart = chunkEnd;
+            }
+            if (chunkTasks.size() == 1) {
+                return List.of(chunkTasks.get(0).invoke());
+            }
+            List<MaskedChunk> maskedChunks = new ArrayList<>(chunkTasks.size());
+            for (ForkJoinTask<MaskedChunk> chunkTask : ForkJoinTask.invokeAll(chunkTasks)) {
+                maskedChunks.add(chunkTask.join());
+            }
+            return maskedChunks;
+        }
+    }
+
+    /**
+     * A block of the input together with the output buffers of its chunks, which are reused when the block is reused.
+     */
+    private static final class Block {
+        private byte[] input;
+        private byte[][] chunkOutputs = new byte[0][];
+
+        Block(byte[] input) {
+            this.input = input;
+        }
+    }
+
+    private record PendingBlock(Block block, ForkJoinTask<List<MaskedChunk>> task) {
+    }
+
+    private record MaskedChunk(byte[] bytes, int length) {
+    }
+}
@@ -2,8 +2,23 @@ package dev.blaauwendraad.masker.json;
 
 import dev.blaauwendraad.masker.json.config.JsonMaskingConfig;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Masker that can be used to mask JSON objects and arrays.
@@ -49,4 +64,275 @@ public interface JsonMasker {
     default String mask(String input) {
         return new String(mask(input.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8);
     }
+
+    /**
+     * Masks the JSON input in the given part of the input array and writes the masked output into the output array,
+     * starting at the given output offset.
+     * <p>
+     * This method does not allocate memory for masking, which makes it suitable for hot paths where the input and
+     * output arrays are reused. If the output array does not have enough space for the masked output, nothing useful
+     * is written and the negated required length is returned instead, so that the caller can retry with a larger
+     * output array.
+     *
+     * @param input        the array containing the JSON input
+     * @param offset       the index of the first byte of the JSON input
+     * @param length       the length of the JSON input
+     * @param output       the array to write the masked JSON output into
+     * @param outputOffset the index in the output array to start writing at
+     * @return the number of bytes written into the output array, or a negative number {@code -n} when the output
+     * array requires {@code n} bytes after the output offset to fit the masked JSON output
+     * @throws IndexOutOfBoundsException in case the offsets or the length are out of bounds of the arrays
+     * @throws InvalidJsonException      in case invalid JSON input was provided
+     */
+    default int mask(byte[] input, int offset, int length, byte[] output, int outputOffset) {
+        Objects.checkFromIndexSize(offset, length, input.length);
+        Objects.checkFromToIndex(outputOffset, output.length, output.length);
+        byte[] masked = mask(Arrays.copyOfRange(input, offset, offset + length));
+        if (masked.length > output.length - outputOffset) {
+            return -masked.length;
+        }
+        System.arraycopy(masked, 0, output, outputOffset, masked.length);
+        return masked.length;
+    }
+
+    /**
+     * Creates a new {@link MaskingSession} for masking many messages one after another on the same thread, which reuses
+     * the masking state between invocations.
+     * <p>
+     * The default implementation delegates to this masker without reusing anything.
+     *
+     * @return a new masking session
+     */
+    default MaskingSession newSession() {
+        return new MaskingSession() {
+            @Override
+            public byte[] mask(byte[] input) {
+                return JsonMasker.this.mask(input);
+            }
+
+            @Override
+            public int mask(byte[] input, int offset, int length, byte[] output, int outputOffset) {
+                return JsonMasker.this.mask(input, offset, length, output, outputOffset);
+            }
+        };
+    }
+
+    /**
+     * Masks each of the given JSON inputs the same way as {@link #mask(byte[])}. Masking a batch of small documents at
+     * once is cheaper than masking them one by one, as the masking state is set up once for the whole batch.
+     *
+     * @param inputs the JSON inputs as bytes
+     * @return the masked JSON outputs as bytes, in the same order as the inputs
+     * @throws InvalidJsonException in case any of the inputs is invalid JSON
+     */
+    default List<byte[]> maskAll(List<byte[]> inputs) {
+        List<byte[]> outputs = new ArrayList<>(inputs.size());
+        for (byte[] input : inputs) {
+            outputs.add(mask(input));
+        }
+        return outputs;
+    }
+
+    /**
+     * Masks a batch of JSON documents that are concatenated in a single input array and writes the masked documents
+     * into the output array, one after another, starting at the given output offset.
+     * <p>
+     * Document {@code i} spans from {@code offsets[i]} (inclusive) to {@code offsets[i + 1]} (exclusive), so a batch of
+     * {@code n} documents is described by {@code n + 1} offsets. The same way, the start of every masked document in
+     * the output array is written into {@code outputOffsets}, followed by the end of the last masked document.
+     * <p>
+     * Like {@link #mask(byte[], int, int, byte[], int)}, this method does not allocate memory for masking. If the
+     * output array does not have enough space for all masked documents, the negated required length is returned
+     * instead. The output offsets are still filled in, but describe where the documents would have been written.
+     *
+     * @param input         the array containing the concatenated JSON documents
+     * @param offsets       the boundaries of the documents in the input array
+     * @param output        the array to write the masked JSON documents into
+     * @param outputOffset  the index in the output array to start writing at
+     * @param outputOffsets the array to write the boundaries of the masked documents into, must be at least as long
+     *                      as the offsets array
+     * @return the number of bytes written into the output array, or a negative number {@code -n} when the output
+     * array requires {@code n} bytes after the output offset to fit all masked JSON documents
+     * @throws IndexOutOfBoundsException in case the offsets are out of bounds of the arrays or are not ascending
+     * @throws InvalidJsonException      in case any of the documents is invalid JSON
+     */
+    default int maskBatch(byte[] input, int[] offsets, byte[] output, int outputOffset, int[] outputOffsets) {
+        Objects.checkFromToIndex(0, offsets.length, outputOffsets.length);
+        Objects.checkFromToIndex(outputOffset, output.length, output.length);
+        int outputIndex = outputOffset;
+        boolean overflow = false;
+        for (int i = 0; i + 1 < offsets.length; i++) {
+            Objects.checkFromToIndex(offsets[i], offsets[i + 1], input.length);
+            outputOffsets[i] = outputIndex;
+            int written = mask(input, offsets[i], offsets[i + 1] - offsets[i], output, overflow ? output.length : outputIndex);
+            if (written < 0) {
+                overflow = true;
+                written = -written;
+            }
+            outputIndex += written;
+        }
+        if (offsets.length > 0) {
+            outputOffsets[offsets.length - 1] = outputIndex;
+        }
+        int maskedLength = outputIndex - outputOffset;
+        return overflow ? -maskedLength : maskedLength;
+    }
+
+    /**
+     * Masks the JSON input between the position and the limit of the input {@link ByteBuffer} and writes the masked
+     * output into the output {@link ByteBuffer}, starting at its position. Both heap and direct buffers are supported.
+     * <p>
+     * On success, the position of the input buffer is set to its limit and the position of the output buffer is
+     * advanced by the length of the masked output. If an exception is thrown, the positions of both buffers are left
+     * unchanged, though the content of the output buffer after its position might be overwritten.
+     *
+     * @param input  the JSON input buffer
+     * @param output the buffer to write the masked JSON output into
+     * @throws BufferOverflowException in case the output buffer does not have enough space for the masked JSON output
+     * @throws ReadOnlyBufferException in case the output buffer is read-only
+     * @throws InvalidJsonException    in case invalid JSON input was provided
+     */
+    default void mask(ByteBuffer input, ByteBuffer output) {
+        byte[] bytes = new byte[input.remaining()];
+        input.duplicate().get(bytes);
+        byte[] masked = mask(bytes);
+        if (masked.length > output.remaining()) {
+            throw new BufferOverflowException();
+        }
+        output.put(masked);
+        input.position(input.limit());
+    }
+
+    /**
+     * Masks the JSON input read from the given {@link InputStream} and writes the masked output into the given
+     * {@link OutputStream}.
+     * <p>
+     * The input is masked in a streaming fashion, only a bounded buffer of the input is kept in memory, so that
+     * memory usage does not depend on the size of the JSON. The buffer only grows when a single key or a value that
+     * is being masked does not fit into it. Neither of the streams is closed by this method.
+     *
+     * @param input  the JSON input as a stream of bytes
+     * @param output the stream to write the masked JSON output to
+     * @throws IOException          in case reading from the input or writing to the output fails
+     * @throws InvalidJsonException in case invalid JSON input was provided, the output might contain a part of the
+     *                              masked JSON in that case
+     */
+    default void mask(InputStream input, OutputStream output) throws IOException {
+        output.write(mask(input.readAllBytes()));
+    }
+
+    /**
+     * Masks the JSON input read from the given {@link ReadableByteChannel} and writes the masked output into the given
+     * {@link WritableByteChannel}, the same way as {@link #mask(InputStream, OutputStream)}.
+     * <p>
+     * The size of the input is not limited, which makes it suitable for masking large files, e.g. using a
+     * {@link java.nio.channels.FileChannel} for both the input and the output. The channels must be in blocking mode
+     * and are not closed by this method.
+     *
+     * @param input  the channel to read the JSON input from
+     * @param output the channel to write the masked JSON output to
+     * @throws IOException          in case reading from the input or writing to the output fails
+     * @throws InvalidJsonException in case invalid JSON input was provided, the output might contain a part of the
+     *                              masked JSON in that case
+     */
+    default void mask(ReadableByteChannel input, WritableByteChannel output) throws IOException {
+        mask(Channels.newInputStream(input), Channels.newOutputStream(output));
+    }
+
+    /**
+     * Starts masking a JSON value that is provided chunk by chunk through the returned {@link IncrementalJsonMasker},
+     * the masked output is written into the given {@link OutputStream}.
+     * <p>
+     * The default implementation keeps all chunks in memory and masks them as a whole when the input is finished.
+     *
+     * @param output the stream to write the masked JSON output to
+     * @return the incremental masker to feed the chunks of the JSON input to
+     */
+    default IncrementalJsonMasker maskIncrementally(OutputStream output) {
+        ByteArrayOutputStream input = new ByteArrayOutputStream();
+        return new IncrementalJsonMasker() {
+            private boolean finished = false;
+
+            @Override
+            public void feed(byte[] chunk, int offset, int length) {
+                Objects.checkFromIndexSize(offset, length, chunk.length);
+                if (finished) {
+                    throw new IllegalStateException("Incremental masking has already finished");
+                }
+                input.write(chunk, offset, length);
+            }
+
+            @Override
+            public void finish() throws IOException {
+                if (finished) {
+                    throw new IllegalStateException("Incremental masking has already finished");
+                }
+                finished = true;
+                output.write(mask(input.toByteArray()));
+            }
+
+            @Override
+            public long bufferedBytes() {
+                return finished ? 0 : input.size();
+            }
+        };
+    }
+
+    /**
+     * Masks newline-delimited JSON (JSON Lines), where every line is a separate JSON value, using the common
+     * {@link ForkJoinPool}.
+     *
+     * @param input the newline-delimited JSON input as bytes
+     * @return the masked newline-delimited JSON output as bytes
+     * @throws InvalidJsonException in case any of the lines is invalid JSON
+     * @see #maskJsonLines(byte[], ForkJoinPool)
+     */
+    default byte[] maskJsonLines(byte[] input) {
+        return maskJsonLines(input, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Masks newline-delimited JSON (JSON Lines), where every line is a separate JSON value. The lines are split into
+     * chunks which are masked in parallel in the given {@link ForkJoinPool}, the order of the lines is preserved.
+     * Empty lines and line separators (including carriage returns) are kept as is.
+     *
+     * @param input the newline-delimited JSON input as bytes
+     * @param pool  the pool to mask the chunks in
+     * @return the masked newline-delimited JSON output as bytes
+     * @throws InvalidJsonException in case any of the lines is invalid JSON
+     */
+    default byte[] maskJsonLines(byte[] input, ForkJoinPool pool) {
+        return JsonLinesMasker.mask(this, input, pool);
+    }
+
+    /**
+     * Masks newline-delimited JSON (JSON Lines) read from the given {@link InputStream} and writes the masked output
+     * into the given {@link OutputStream}, using the common {@link ForkJoinPool}.
+     *
+     * @param input  the newline-delimited JSON input as a stream of bytes
+     * @param output the stream to write the masked newline-delimited JSON output to
+     * @throws IOException          in case reading from the input or writing to the output fails
+     * @throws InvalidJsonException in case any of the lines is invalid JSON
+     * @see #maskJsonLines(InputStream, OutputStream, ForkJoinPool)
+     */
+    default void maskJsonLines(InputStream input, OutputStream output) throws IOException {
+        maskJsonLines(input, output, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Masks newline-delimited JSON (JSON Lines) read from the given {@link InputStream} and writes the masked output
+     * into the given {@link OutputStream}. The input is read in blocks which are masked in parallel in the given
+     * {@link ForkJoinPool} and written in the original order. Only a bounded number of blocks is read ahead, so the
+     * memory usage does not depend on the size of the input. Neither of the streams is closed by this method.
+     *
+     * @param input  the newline-delimited JSON input as a stream of bytes
+     * @param output the stream to write the masked newline-delimited JSON output to
+     * @param pool   the pool to mask the blocks in
+     * @throws IOException          in case reading from the input or writing to the output fails
+     * @throws InvalidJsonException in case any of the lines is invalid JSON, the output might contain a part of the
+     *                              masked lines in that case
+     */
+    default void maskJsonLines(InputStream input, OutputStream output, ForkJoinPool pool) throws IOException {
+        JsonLinesMasker.mask(this, input, output, pool);
+    }
 }
@@ -0,0 +1,291 @@
+package dev.blaauwendraad.masker.json;
+
+import dev.blaauwendraad.masker.json.config.JsonMaskingConfig;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link Flow.Processor} that masks a JSON value published as a sequence of {@link ByteBuffer}s, for example a
+ * streamed HTTP body. The buffers are masked incrementally using {@link JsonMasker#maskIncrementally(OutputStream)} and
+ * the masked output is published as soon as it is final, so the body is never collected as a whole.
+ * <p>
+ * Backpressure is respected in both directions: the masked buffers are only published when requested by the
+ * subscriber, and buffers are only requested from the upstream publisher (one at a time) while less than the window
+ * size of masked bytes is waiting to be published. Therefore, at most the window size plus the masked output of a
+ * single buffer is kept in memory, in addition to a key or masked value that is incomplete at the end of a buffer.
+ * Such a key or value must not exceed the window size either, otherwise masking fails with an
+ * {@link InvalidJsonException}. Values that are not masked are published while they are received, regardless of their
+ * size.
+ * <p>
+ * The processor masks a single JSON value and can only be subscribed to by a single subscriber. The published buffers
+ * are not modified.
+ */
+public final class JsonMaskingProcessor implements Flow.Processor<ByteBuffer, ByteBuffer> {
+    /**
+     * The default maximum number of masked bytes that are waiting to be published before requesting more buffers.
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 64 * 1024;
+
+    private final IncrementalJsonMasker incrementalJsonMasker;
+    private final int windowSize;
+    private final Queue<ByteBuffer> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicLong queuedBytes = new AtomicLong();
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicInteger pendingDrains = new AtomicInteger();
+    private volatile Flow.@Nullable Subscription upstream;
+    private volatile Flow.@Nullable Subscriber<? super ByteBuffer> downstream;
+    private volatile boolean downstreamSubscribed = false;
+    private volatile boolean upstreamRequested = false;
+    private volatile boolean done = false;
+    private volatile boolean cancelled = false;
+    private volatile @Nullable Throwable error;
+    private boolean terminated = false;
+    private byte @Nullable [] copyBuffer;
+
+    /**
+     * Creates a processor that masks according to the given {@link JsonMaskingConfig}, with the default window size.
+     *
+     * @param maskingConfig the JSON masker configuration
+     */
+    public JsonMaskingProcessor(JsonMaskingConfig maskingConfig) {
+        this(JsonMasker.getMasker(maskingConfig), DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Creates a processor that masks according to the given {@link JsonMaskingConfig}.
+     *
+     * @param maskingConfig the JSON masker configuration
+     * @param windowSize    the maximum number of masked bytes that are waiting to be published before requesting more
+     *                      buffers from the upstream publisher, and the maximum size of a key or masked value
+     */
+    public JsonMaskingProcessor(JsonMaskingConfig maskingConfig, int windowSize) {
+        this(JsonMasker.getMasker(maskingConfig), windowSize);
+    }
+
+    /**
+     * Creates a processor that masks using the given {@link JsonMasker}, which allows reusing a masker for multiple
+     * processors.
+     *
+     * @param jsonMasker the JSON masker
+     * @param windowSize the maximum number of masked bytes that are waiting to be published before requesting more
+     *                   buffers from the upstream publisher, and the maximum size of a key or masked value
+     */
+    public JsonMaskingProcessor(JsonMasker jsonMasker, int windowSize) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("Window size must be positive, but was " + windowSize);
+        }
+        this.incrementalJsonMasker = jsonMasker.maskIncrementally(new QueueOutputStream());
+        this.windowSize = windowSize;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+        boolean subscribed;
+        synchronized (this) {
+            subscribed = downstream == null;
+            if (subscribed) {
+                downstream = subscriber;
+            }
+        }
+        if (!subscribed) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                    // nothing will be published
+                }
+
+                @Override
+                public void cancel() {
+                    // nothing to cancel
+                }
+            });
+            subscriber.onError(new IllegalStateException("JsonMaskingProcessor only supports a single subscriber"));
+            return;
+        }
+        subscriber.onSubscribe(new DownstreamSubscription());
+        // nothing must be signalled to the subscriber before it is subscribed
+        downstreamSubscribed = true;
+        drain();
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (upstream != null || cancelled) {
+            subscription.cancel();
+            return;
+        }
+        upstream = subscription;
+        drain();
+    }
+
+    @Override
+    public void onNext(ByteBuffer item) {
+        if (done) {
+            return;
+        }
+        upstreamRequested = false;
+        try {
+            if (item.hasArray()) {
+                incrementalJsonMasker.feed(item.array(), item.arrayOffset() + item.position(), item.remaining());
+            } else {
+                byte[] bytes = copyBuffer;
+                if (bytes == null || bytes.length < item.remaining()) {
+                    bytes = new byte[item.remaining()];
+                    copyBuffer = bytes;
+                }
+                item.duplicate().get(bytes, 0, item.remaining());
+                incrementalJsonMasker.feed(bytes, 0, item.remaining());
+            }
+            if (incrementalJsonMasker.bufferedBytes() > windowSize) {
+                throw new InvalidJsonException("Key or masked value of more than %s bytes exceeds the window size"
+                        .formatted(windowSize));
+            }
+        } catch (IOException | RuntimeException e) {
+            failAndCancelUpstream(e);
+            return;
+        }
+        drain();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        if (done) {
+            return;
+        }
+        error = throwable;
+        done = true;
+        drain();
+    }
+
+    @Override
+    public void onComplete() {
+        if (done) {
+            return;
+        }
+        try {
+            incrementalJsonMasker.finish();
+        } catch (IOException | RuntimeException e) {
+            error = e;
+        }
+        done = true;
+        drain();
+    }
+
+    private void failAndCancelUpstream(Throwable throwable) {
+        error = throwable;
+        done = true;
+        Flow.Subscription subscription = upstream;
+        if (subscription != null) {
+            subscription.cancel();
+        }
+        drain();
+    }
+
+    /**
+     * Publishes the queued buffers as far as the demand allows, signals completion and requests more buffers from the
+     * upstream publisher when the queue is below the window size. Only a single thread drains at a time, calls from
+     * other threads (or reentrant calls from the subscriber) are picked up by the draining thread.
+     */
+    private void drain() {
+        if (pendingDrains.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            Flow.Subscriber<? super ByteBuffer> subscriber = downstream;
+            Throwable failure = error;
+            if (subscriber != null && downstreamSubscribed && !terminated) {
+                if (cancelled) {
+                    queue.clear();
+                } else if (failure != null) {
+                    queue.clear();
+                    terminated = true;
+                    subscriber.onError(failure);
+                } else {
+                    publish(subscriber);
+                    if (done && queue.isEmpty()) {
+                        terminated = true;
+                        subscriber.onComplete();
+                    } else {
+                        requestUpstream();
+                    }
+                }
+            }
+            missed = pendingDrains.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void publish(Flow.Subscriber<? super ByteBuffer> subscriber) {
+        while (demand.get() > 0 && !cancelled) {
+            ByteBuffer buffer = queue.poll();
+            if (buffer == null) {
+                return;
+            }
+            queuedBytes.addAndGet(-buffer.remaining());
+            if (demand.get() != Long.MAX_VALUE) {
+                demand.decrementAndGet();
+            }
+            subscriber.onNext(buffer);
+        }
+    }
+
+    private void requestUpstream() {
+        Flow.Subscription subscription = upstream;
+        if (subscription != null && !done && !upstreamRequested && queuedBytes.get() < windowSize) {
+            upstreamRequested = true;
+            subscription.request(1);
+        }
+    }
+
+    /**
+     * Queues the masked output of the incremental masker as buffers to publish.
+     */
+    private final class QueueOutputStream extends OutputStream {
+        @Override
+        public void write(int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            if (len > 0) {
+                queuedBytes.addAndGet(len);
+                queue.offer(ByteBuffer.wrap(Arrays.copyOfRange(b, off, off + len)));
+            }
+        }
+    }
+
+    private final class DownstreamSubscription implements Flow.Subscription {
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                failAndCancelUpstream(new IllegalArgumentException("Requested number of buffers must be positive, but was " + n));
+                return;
+            }
+            demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            Flow.Subscription subscription = upstream;
+            if (subscription != null) {
+                subscription.cancel();
+            }
+            drain();
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package dev.blaauwendraad.masker.json;
+
+import dev.blaauwendraad.masker.json.path.JsonPath;
+import org.jspecify.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Matches the JSONPaths of the values in the JSON against the target JSONPaths for {@link KeyMatcher}.
+ * <p>
+ * Every JSONPath is a sequence of positions, one before each of its segments and one after the last segment, where
+ * the JSONPath matches. While the JSON is traversed, the JSONPath of the current value has reached a set of positions:
+ * stepping into the value of a key advances every position whose next segment is that key or a wildcard, and stepping
+ * into an array advances every position whose next segment is a wildcard. A position before a descendant segment
+ * ({@code ..}) additionally stays in the set at every step, so that the segment after it is matched at any depth.
+ * <p>
+ * All JSONPaths are compiled together into a deterministic automaton whose states are these sets of positions (subset
+ * construction), so the sets are computed once up front. Every state holds the keys it can step on in a small trie of
+ * {@link Transition transitions}, which {@link KeyMatcher} searches byte by byte like the trie of the target keys, so a
+ * step is a single look-up of the key regardless of the number of positions in the set and of the number of JSONPaths,
+ * and never allocates. Once no position is left, the state is {@code null} and the traversal below it costs nothing.
+ * <p>
+ * The automaton is only used when a JSONPath has a descendant segment, other JSONPaths are stored in the trie of the
+ * keys of {@link KeyMatcher}.
+ * <p>
+ * The states are {@link KeyMatcher.TrieNode nodes} themselves, which hold the masking configuration of the JSONPath
+ * that is matched in the state, just like the trie nodes of the keys. When multiple JSONPaths match, the most specific
+ * one is used, see {@link #SPECIFICITY}.
+ */
+final class JsonPathAutomaton {
+    /**
+     * The maximum number of states on top of one state per position, to fail fast on descendant segments that would
+     * blow up the number of states.
+     */
+    private static final int MAX_ADDITIONAL_STATES = 10_000;
+    private static final String WILDCARD = "*";
+    /**
+     * Orders the JSONPaths from the most to the least specific: the most keys first, then the fewest descendant
+     * segments, then the most segments.
+     */
+    private static final Comparator<JsonPath> SPECIFICITY = Comparator
+            .comparingInt((JsonPath jsonPath) -> -countSegments(jsonPath, true))
+            .thenComparingInt(jsonPath -> countSegments(jsonPath, false))
+            .thenComparingInt(jsonPath -> -jsonPath.segments().length);
+
+    @Nullable
+    private final State startState;
+
+    /**
+     * Compiles the given JSONPaths.
+     *
+     * @param jsonPaths     the JSONPaths, of which the earlier ones are preferred over equally specific later ones
+     * @param nodes         the node holding the masking configuration of every JSONPath, with the same index
+     * @param caseSensitive whether the keys are matched case-sensitively
+     * @throws IllegalArgumentException if the JSONPaths are too complex
+     */
+    JsonPathAutomaton(List<JsonPath> jsonPaths, List<KeyMatcher.TrieNode> nodes, boolean caseSensitive) {
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < jsonPaths.size(); i++) {
+            order.add(i);
+        }
+        // stable, so that equally specific JSONPaths keep their order
+        order.sort(Comparator.comparing(jsonPaths::get, SPECIFICITY));
+
+        Positions positions = new Positions();
+        BitSet start = new BitSet();
+        for (int priority = 0; priority < order.size(); priority++) {
+            start.set(positions.addJsonPath(jsonPaths.get(order.get(priority)), nodes.get(order.get(priority))));
+        }
+
+        Map<BitSet, State> states = new HashMap<>();
+        Deque<Unprocessed> unprocessed = new ArrayDeque<>();
+        this.startState = state(start, positions, states, unprocessed);
+        while (!unprocessed.isEmpty()) {
+            Unprocessed next = unprocessed.removeFirst();
+            BitSet set = next.set();
+            State state = next.state();
+            // the positions that are reached by stepping on any key or array, and per key the ones reached by that key
+            BitSet other = new BitSet();
+            Map<String, BitSet> byKey = new LinkedHashMap<>();
+            Map<String, byte[]> keyBytes = new HashMap<>();
+            for (int position = set.nextSetBit(0); position >= 0; position = set.nextSetBit(position + 1)) {
+                if (positions.accepted(position) != null) {
+                    continue;
+                }
+                state.canMatchBelow = true;
+                if (positions.descendant(position)) {
+                    other.set(position);
+                }
+                String key = positions.key(position);
+                if (key == null) {
+                    other.set(position + 1);
+                    continue;
+                }
+                byte[] bytes = caseSensitive ? key.getBytes(StandardCharsets.UTF_8) : CaseFolding.fold(key);
+                // keys that only differ in case are the same key when matching case-insensitively
+                String normalized = new String(bytes, StandardCharsets.UTF_8);
+                byKey.computeIfAbsent(normalized, k -> new BitSet()).set(position + 1);
+                keyBytes.put(normalized, bytes);
+            }
+            state.other = state(other, positions, states, unprocessed);
+            if (!byKey.isEmpty()) {
+                KeyMatcher.TrieNode keys = new KeyMatcher.TrieNode();
+                for (Map.Entry<String, BitSet> entry : byKey.entrySet()) {
+                    BitSet target = entry.getValue();
+                    target.or(other);
+                    insert(keys, keyBytes.get(entry.getKey()), state(target, positions, states, unprocessed));
+                }
+                state.keys = keys;
+            }
+            if (states.size() > positions.count() + MAX_ADDITIONAL_STATES) {
+                throw new IllegalArgumentException("JSONPaths are too complex, they need more than %s states"
+                        .formatted(positions.count() + MAX_ADDITIONAL_STATES));
+            }
+        }
+    }
+
+    /**
+     * Returns the state of the set of positions, creating it if it was not found before.
+     *
+     * @return the state, or null if the set is empty
+     */
+    @Nullable
+    private static State state(BitSet set, Positions positions, Map<BitSet, State> states, Deque<Unprocessed> unprocessed) {
+        if (set.isEmpty()) {
+            return null;
+        }
+        State state = states.get(set);
+        if (state == null) {
+            state = new State();
+            // the positions are numbered in order of priority, so the first accepting one is the most specific
+            for (int position = set.nextSetBit(0); position >= 0; position = set.nextSetBit(position + 1)) {
+                KeyMatcher.TrieNode accepted = positions.accepted(position);
+                if (accepted != null) {
+                    state.endOfWord = true;
+                    state.keyMaskingConfig = accepted.keyMaskingConfig;
+                    state.negativeMatch = accepted.negativeMatch;
+                    break;
+                }
+            }
+            states.put(set, state);
+            unprocessed.add(new Unprocessed(set, state));
+        }
+        return state;
+    }
+
+    /**
+     * Inserts the transition on a key into the trie of the keys of a state.
+     */
+    private static void insert(KeyMatcher.TrieNode keys, byte[] bytes, @Nullable State target) {
+        KeyMatcher.TrieNode node = keys;
+        for (byte b : bytes) {
+            KeyMatcher.TrieNode child = node.child(b);
+            if (child == null) {
+                child = new Transition();
+                node.add(b, child);
+            }
+            node = child;
+        }
+        ((Transition) node).target = target;
+        node.endOfWord = true;
+    }
+
+    private static int countSegments(JsonPath jsonPath, boolean keys) {
+        int count = 0;
+        for (int i = 1; i < jsonPath.segments().length; i++) {
+            String segment = jsonPath.segments()[i];
+            boolean isKey = !segment.equals(WILDCARD) && !segment.equals(JsonPath.DESCENDANT);
+            if (keys ? isKey : segment.equals(JsonPath.DESCENDANT)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the state of the root value, in which only the root JSONPath ({@code $}) can be matched.
+     */
+    @Nullable
+    State startState() {
+        return startState;
+    }
+
+    /**
+     * A state of which the transitions still have to be computed.
+     */
+    private record Unprocessed(BitSet set, State state) {
+    }
+
+    /**
+     * A state of the automaton, the set of positions that the JSONPath of a value has reached.
+     */
+    static final class State extends KeyMatcher.TrieNode {
+        /**
+         * The trie of the keys on which a position continues, of which the {@link Transition transitions} hold the
+         * states that are reached by stepping into the value of the key, null if no position continues with a key.
+         */
+        private KeyMatcher.@Nullable TrieNode keys;
+        /**
+         * The state that is reached by stepping into an array or into the value of any other key.
+         */
+        @Nullable
+        private State other;
+        /**
+         * Whether any position continues below the value, i.e. whether a nested value can be matched.
+         */
+        private boolean canMatchBelow;
+
+        State() {
+            super(false);
+        }
+
+        KeyMatcher.@Nullable TrieNode keys() {
+            return keys;
+        }
+
+        @Nullable
+        State other() {
+            return other;
+        }
+
+        boolean canMatchBelow() {
+            return canMatchBelow;
+        }
+    }
+
+    /**
+     * A node in the trie of the keys of a state, which holds the next state if a key ends at this node.
+     */
+    static final class Transition extends KeyMatcher.TrieNode {
+        @Nullable
+        private State target;
+
+        @Nullable
+        State target() {
+            return target;
+        }
+    }
+
+    /**
+     * The positions of all JSONPaths, numbered in the order of the JSONPaths.
+     */
+    private static final class Positions {
+        /**
+         * The key of the next segment of every position, null for a wildcard or after the last segment.
+         */
+        private final List<@Nullable String> keys = new ArrayList<>();
+        /**
+         * Whether the next segment of every position is matched at any depth.
+         */
+        private final List<Boolean> descendants = new ArrayList<>();
+        /**
+         * The node of the JSONPath that is matched at every position after the last segment, null at other positions.
+         */
+        private final List<KeyMatcher.@Nullable TrieNode> accepted = new ArrayList<>();
+
+        /**
+         * Adds the positions of a JSONPath.
+         *
+         * @return the first position of the JSONPath
+         */
+        int addJsonPath(JsonPath jsonPath, KeyMatcher.TrieNode node) {
+            int first = keys.size();
+            boolean descendant = false;
+            // the first segment is the root ('$')
+            for (int i = 1; i < jsonPath.segments().length; i++) {
+                String segment = jsonPath.segments()[i];
+                if (segment.equals(JsonPath.DESCENDANT)) {
+                    descendant = true;
+                    continue;
+                }
+                keys.add(segment.equals(WILDCARD) ? null : segment);
+                descendants.add(descendant);
+                accepted.add(null);
+                descendant = false;
+            }
+            keys.add(null);
+            descendants.add(false);
+            accepted.add(node);
+            return first;
+        }
+
+        int count() {
+            return keys.size();
+        }
+
+        @Nullable
+        String key(int position) {
+            return keys.get(position);
+        }
+
+        boolean descendant(int position) {
+            return descendants.get(position);
+        }
+
+        KeyMatcher.@Nullable TrieNode accepted(int position) {
+            return accepted.get(position);
+        }
+    }
+}
@@ -4,8 +4,21 @@ import dev.blaauwendraad.masker.json.config.JsonMaskingConfig;
 import dev.blaauwendraad.masker.json.config.KeyMaskingConfig;
 import dev.blaauwendraad.masker.json.util.AsciiCharacter;
 import dev.blaauwendraad.masker.json.util.AsciiJsonUtil;
+import dev.blaauwendraad.masker.json.util.ByteBufferInputStream;
+import dev.blaauwendraad.masker.json.util.ByteBufferOutputStream;
 import org.jspecify.annotations.Nullable;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
 /**
  * Default implementation of the {@link JsonMasker}.
  */
@@ -18,6 +31,17 @@ final class KeyContainsMasker implements JsonMasker {
      * The masking configuration for the JSON masking process.
      */
     private final JsonMaskingConfig maskingConfig;
+    /**
+     * Masking state per thread that is reused when masking into a caller supplied output array, null if disabled by
+     * {@link JsonMaskingConfig#threadLocalMaskingState()}.
+     */
+    @Nullable
+    private final ThreadLocal<MaskingState> reusableMaskingState;
+    /**
+     * Whether objects and arrays that no target JSONPath can match in are stepped over as a whole, which is only
+     * possible in mask mode when all targets are JSONPaths, as target keys can match at any depth.
+     */
+    private final boolean skipUnmatchedSubtrees;
 
     /**
      * Creates an instance of an {@link KeyContainsMasker}
@@ -27,6 +51,12 @@ final class KeyContainsMasker implements JsonMasker {
     KeyContainsMasker(JsonMaskingConfig maskingConfig) {
         this.maskingConfig = maskingConfig;
         this.keyMatcher = new KeyMatcher(maskingConfig);
+        this.reusableMaskingState = maskingConfig.threadLocalMaskingState()
+                ? ThreadLocal.withInitial(this::newMaskingState)
+                : null;
+        this.skipUnmatchedSubtrees = maskingConfig.isInMaskMode()
+                && maskingConfig.getTargetKeys().isEmpty()
+                && maskingConfig.getTargetKeyPatterns().isEmpty();
     }
 
     /**
@@ -39,24 +69,286 @@ final class KeyContainsMasker implements JsonMasker {
      */
     @Override
     public byte[] mask(byte[] input) {
+        if (!keyMatcher.mayContainTargetKey(input, 0, input.length)) {
+            return input;
+        }
         try {
-            MaskingState maskingState = new MaskingState(input, !maskingConfig.getTargetJsonPaths().isEmpty());
+            if (maskingConfig.writeThrough()) {
+                // the masked message usually has about the same length as the input
+                MaskingState maskingState = new MaskingState(input, !maskingConfig.getTargetJsonPaths().isEmpty(), input.length);
 
-            KeyMaskingConfig keyMaskingConfig = maskingConfig.isInAllowMode() ? maskingConfig.getDefaultConfig() : null;
-            if (maskingState.jsonPathEnabled()) {
-                maskingState.expandCurrentJsonPath(keyMatcher.getJsonPathRootNode());
-                keyMaskingConfig = keyMatcher.getMaskConfigIfMatched(maskingState.getMessage(), -1, -1, maskingState.getCurrentJsonPathNode());
+                visitRootValue(maskingState);
+
+                return maskingState.flushGrowingOutputBuffer();
             }
+            MaskingState maskingState = new MaskingState(input, !maskingConfig.getTargetJsonPaths().isEmpty(), maskingConfig.maskInPlace());
 
-            stepOverWhitespaceCharacters(maskingState);
-            visitValue(maskingState, keyMaskingConfig);
+            visitRootValue(maskingState);
 
             return maskingState.flushReplacementOperations();
-        } catch (ArrayIndexOutOfBoundsException | StackOverflowError e) {
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new InvalidJsonException("Invalid JSON input provided: %s".formatted(e.getMessage()), e);
+        }
+    }
+
+    /**
+     * Masks the part of the input the same way as {@link #mask(byte[])}, but writes the masked message directly into
+     * the output array. The masking state is reused for all invocations on the same thread, so that no memory is
+     * allocated, unless the value maskers allocate memory themselves.
+     *
+     * @param input        the array containing the input message for which values might be masked
+     * @param offset       the index of the first byte of the input message
+     * @param length       the length of the input message
+     * @param output       the array to write the masked message into
+     * @param outputOffset the index in the output array to start writing at
+     * @return the number of bytes written or, if the output array is too small, the negated number of bytes required
+     */
+    @Override
+    public int mask(byte[] input, int offset, int length, byte[] output, int outputOffset) {
+        Objects.checkFromIndexSize(offset, length, input.length);
+        Objects.checkFromToIndex(outputOffset, output.length, output.length);
+        return mask(input, offset, length, output, outputOffset, output.length);
+    }
+
+    /**
+     * Masks the input from the input byte buffer into the output byte buffer. Heap buffers are masked the same way as
+     * {@link #mask(byte[], int, int, byte[], int)}, directly on their backing arrays. Otherwise, the input is read
+     * through a bounded buffer the same way as {@link #mask(InputStream, OutputStream)}.
+     *
+     * @param input  the byte buffer containing the input message between its position and limit
+     * @param output the byte buffer to write the masked message into, starting from its position
+     */
+    @Override
+    public void mask(ByteBuffer input, ByteBuffer output) {
+        int inputPosition = input.position();
+        int outputPosition = output.position();
+        if (input.hasArray() && output.hasArray()) {
+            int written = mask(
+                    input.array(),
+                    input.arrayOffset() + inputPosition,
+                    input.remaining(),
+                    output.array(),
+                    output.arrayOffset() + outputPosition,
+                    output.arrayOffset() + output.limit()
+            );
+            if (written < 0) {
+                throw new BufferOverflowException();
+            }
+            input.position(input.limit());
+            output.position(outputPosition + written);
+            return;
+        }
+        try {
+            mask(new ByteBufferInputStream(input), new ByteBufferOutputStream(output));
+        } catch (IOException e) {
+            // byte buffer streams do not throw IOException
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            // leave the buffers the same way as for heap buffers
+            input.position(inputPosition);
+            output.position(outputPosition);
+            throw e;
+        }
+    }
+
+    private int mask(byte[] input, int offset, int length, byte[] output, int outputOffset, int outputLimit) {
+        MaskingState maskingState = acquireMaskingState();
+        try {
+            return mask(maskingState, input, offset, length, output, outputOffset, outputLimit);
+        } finally {
+            maskingState.release();
+        }
+    }
+
+    /**
+     * Creates a session that owns a masking state and an output array, both are reused for all invocations on the
+     * session and only the masked outputs themselves are allocated.
+     *
+     * @return a new masking session
+     */
+    @Override
+    public MaskingSession newSession() {
+        return new ReusableMaskingSession();
+    }
+
+    /**
+     * Masks all inputs using a single {@link #newSession() session}, so that the masking state and the output array
+     * are shared by all inputs.
+     *
+     * @param inputs the input messages for which values might be masked
+     * @return the masked messages
+     */
+    @Override
+    public List<byte[]> maskAll(List<byte[]> inputs) {
+        List<byte[]> outputs = new ArrayList<>(inputs.size());
+        ReusableMaskingSession maskingSession = new ReusableMaskingSession();
+        for (byte[] input : inputs) {
+            outputs.add(maskingSession.mask(input));
+        }
+        return outputs;
+    }
+
+    /**
+     * Masks the batch of documents the same way as {@link #mask(byte[], int, int, byte[], int)}, but uses the same
+     * masking state for all documents in the batch.
+     *
+     * @param input         the array containing the concatenated input messages
+     * @param offsets       the boundaries of the input messages in the input array
+     * @param output        the array to write the masked messages into
+     * @param outputOffset  the index in the output array to start writing at
+     * @param outputOffsets the array to write the boundaries of the masked messages into
+     * @return the number of bytes written or, if the output array is too small, the negated number of bytes required
+     */
+    @Override
+    public int maskBatch(byte[] input, int[] offsets, byte[] output, int outputOffset, int[] outputOffsets) {
+        Objects.checkFromToIndex(0, offsets.length, outputOffsets.length);
+        Objects.checkFromToIndex(outputOffset, output.length, output.length);
+        int outputIndex = outputOffset;
+        MaskingState maskingState = acquireMaskingState();
+        try {
+            for (int i = 0; i + 1 < offsets.length; i++) {
+                Objects.checkFromToIndex(offsets[i], offsets[i + 1], input.length);
+                outputOffsets[i] = outputIndex;
+                // once the output is too small, the next documents are not written, but their length is still counted
+                int written = mask(maskingState, input, offsets[i], offsets[i + 1] - offsets[i], output, outputIndex, output.length);
+                outputIndex += Math.abs(written);
+            }
+        } finally {
+            maskingState.release();
+        }
+        if (offsets.length > 0) {
+            outputOffsets[offsets.length - 1] = outputIndex;
+        }
+        int maskedLength = outputIndex - outputOffset;
+        return outputIndex <= output.length ? maskedLength : -maskedLength;
+    }
+
+    /**
+     * Returns the masking state of the current thread, or a new masking state if the one of the current thread is
+     * already in use or if states are not cached per thread. The returned masking state must be released after
+     * masking.
+     */
+    private MaskingState acquireMaskingState() {
+        if (reusableMaskingState == null) {
+            return newMaskingState();
+        }
+        MaskingState maskingState = reusableMaskingState.get();
+        if (maskingState.inUse()) {
+            // masking is re-entered from a value masker on the same thread, the state cannot be shared
+            maskingState = newMaskingState();
+        }
+        return maskingState;
+    }
+
+    private MaskingState newMaskingState() {
+        return new MaskingState(!maskingConfig.getTargetJsonPaths().isEmpty());
+    }
+
+    private int mask(
+            MaskingState maskingState,
+            byte[] input,
+            int offset,
+            int length,
+            byte[] output,
+            int outputOffset,
+            int outputLimit
+    ) {
+        try {
+            maskingState.reset(input, offset, length, output, outputOffset, outputLimit);
+
+            visitRootValue(maskingState);
+
+            return maskingState.flushOutputBuffer();
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new InvalidJsonException("Invalid JSON input provided: %s".formatted(e.getMessage()), e);
+        }
+    }
+
+    /**
+     * Masks the JSON from the input stream the same way as {@link #mask(byte[])}, but only keeps a bounded buffer of
+     * the input in memory. The masked bytes are written to the output stream as soon as they are no longer needed for
+     * masking.
+     *
+     * @param input  the input stream of the message for which values might be masked
+     * @param output the output stream to write the masked message to
+     */
+    @Override
+    public void mask(InputStream input, OutputStream output) throws IOException {
+        try {
+            StreamingState streamingState = new StreamingState(input, output, !maskingConfig.getTargetJsonPaths().isEmpty());
+
+            visitRootValue(streamingState.maskingState());
+
+            streamingState.flushOutputStream();
+        } catch (ArrayIndexOutOfBoundsException e) {
             throw new InvalidJsonException("Invalid JSON input provided: %s".formatted(e.getMessage()), e);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
     }
 
+    /**
+     * Starts masking the JSON that is fed chunk by chunk. The traversal is resumed from the last checkpoint of the
+     * masking state whenever a chunk is fed, see {@link IncrementalMaskingSession}.
+     *
+     * @param output the output stream to write the masked message to
+     * @return the incremental masker to feed the chunks of the message to
+     */
+    @Override
+    public IncrementalJsonMasker maskIncrementally(OutputStream output) {
+        return new IncrementalMaskingSession(output);
+    }
+
+    /**
+     * Entrypoint of visiting the root value of the JSON, which can be masked as a whole when either the root JSONPath
+     * ({@code $}) is targeted or when in allow mode.
+     *
+     * @param maskingState the current masking state
+     */
+    private void visitRootValue(MaskingState maskingState) {
+        KeyMaskingConfig keyMaskingConfig = maskingConfig.isInAllowMode() ? maskingConfig.getDefaultConfig() : null;
+        if (maskingState.jsonPathEnabled()) {
+            maskingState.expandCurrentJsonPath(keyMatcher.getJsonPathRootNode());
+            keyMaskingConfig = keyMatcher.getMaskConfigIfMatched(maskingState.getMessage(), -1, -1, maskingState.getCurrentJsonPathNode());
+        }
+
+        stepOverWhitespaceCharacters(maskingState);
+        visitValue(maskingState, keyMaskingConfig);
+    }
+
+    /**
+     * Resumes visiting the JSON from the last checkpoint of an incremental masking state. The containers that were
+     * being visited at the checkpoint are restored by the masking state, so the traversal continues in the innermost
+     * one, after which the root value is complete. If the checkpoint is inside a value that is stepped over, the rest
+     * of that value is stepped over first.
+     *
+     * @param streamingState the incremental streaming state, restored to its last checkpoint
+     * @return true if the root value is complete, false if the end of the input appended so far was reached before,
+     * see {@link MaskingState#needsMoreInput()}
+     */
+    private boolean visitFromCheckpoint(StreamingState streamingState) {
+        MaskingState maskingState = streamingState.maskingState();
+        boolean afterValue = streamingState.checkpointAfterValue();
+        if (streamingState.isCheckpointInValue()) {
+            if (streamingState.isCheckpointInString()) {
+                stepOverStringCharacters(maskingState, streamingState.isCheckpointEscaped());
+            }
+            if (streamingState.skippedContainerDepth() > 0 && !maskingState.needsMoreInput()) {
+                stepOverContainer(maskingState, streamingState.skippedContainerOpeningBracket(), streamingState.skippedContainerDepth());
+            }
+            afterValue = true;
+        }
+        if (maskingState.needsMoreInput()) {
+            return false;
+        }
+        if (maskingState.containerCount() > 0) {
+            visitContainers(maskingState, afterValue);
+        } else if (!afterValue) {
+            visitRootValue(maskingState);
+        }
+        return !maskingState.needsMoreInput();
+    }
+
     /**
      * Entrypoint of visiting any value (object, array or primitive) in the JSON.
      *
@@ -65,13 +357,43 @@ final class KeyContainsMasker implements JsonMasker {
      *                         being masked
      */
     private void visitValue(MaskingState maskingState, @Nullable KeyMaskingConfig keyMaskingConfig) {
+        if (visitPrimitiveOrEnterContainer(maskingState, keyMaskingConfig)) {
+            visitContainers(maskingState, false);
+        }
+    }
+
+    /**
+     * Visits a primitive value, or enters an object or array, in which case its members are visited by
+     * {@link #visitContainers(MaskingState, boolean)}.
+     *
+     * @param maskingState     the current masking state
+     * @param keyMaskingConfig if not null it means that the current value is being masked otherwise the value is not
+     *                         being masked
+     * @return true if an object or array was entered, false if the value has been visited
+     */
+    private boolean visitPrimitiveOrEnterContainer(MaskingState maskingState, @Nullable KeyMaskingConfig keyMaskingConfig) {
         if (maskingState.endOfJson()) {
-            return;
+            return false;
         }
         // using switch-case over 'if'-statements to improve performance by ~20% (measured in benchmarks)
         switch (maskingState.byteAtCurrentIndex()) {
-            case '[' -> visitArray(maskingState, keyMaskingConfig);
-            case '{' -> visitObject(maskingState, keyMaskingConfig);
+            case '[' -> {
+                if (isUnmatchedSubtree(maskingState, keyMaskingConfig)) {
+                    stepOverArray(maskingState);
+                    return false;
+                }
+                maskingState.expandCurrentJsonPath(keyMatcher.traverseJsonPathSegment(maskingState.getMessage(), maskingState.getCurrentJsonPathNode(), -1, -1));
+                maskingState.enterContainer(false, keyMaskingConfig, maskingConfig.getMaxDepth());
+                return true;
+            }
+            case '{' -> {
+                if (isUnmatchedSubtree(maskingState, keyMaskingConfig)) {
+                    stepOverObject(maskingState);
+                    return false;
+                }
+                maskingState.enterContainer(true, keyMaskingConfig, maskingConfig.getMaxDepth());
+                return true;
+            }
             case '-', '0', '1', '2', '3', '4', '5', '6', '7', '8', '9' -> {
                 if (keyMaskingConfig != null) {
                     maskNumber(maskingState, keyMaskingConfig);
@@ -103,78 +425,76 @@ final class KeyContainsMasker implements JsonMasker {
             case 'n' -> maskingState.incrementIndex(4);
             default -> { /* return */ }
         }
+        return false;
     }
 
     /**
-     * Visits an array of unknown values (or empty) and invokes {@link #visitValue(MaskingState, KeyMaskingConfig)} on
-     * each element while propagating the {@link KeyMaskingConfig}.
+     * Checks whether the object or array at the current index can be stepped over as a whole, because it is not being
+     * masked and no target JSONPath continues below the current JSONPath.
      *
-     * @param maskingState     the current {@link MaskingState}
-     * @param keyMaskingConfig if not null it means that the current value is being masked according to the
-     *                         {@link KeyMaskingConfig}. Otherwise, the value is not masked
+     * @param maskingState     the current masking state
+     * @param keyMaskingConfig the config the object or array is masked with, if any
+     * @return true if the object or array can be stepped over
      */
-    private void visitArray(MaskingState maskingState, @Nullable KeyMaskingConfig keyMaskingConfig) {
-        maskingState.expandCurrentJsonPath(keyMatcher.traverseJsonPathSegment(maskingState.getMessage(), maskingState.getCurrentJsonPathNode(), -1, -1));
-        while (maskingState.next()) {
-            stepOverWhitespaceCharacters(maskingState);
-            // check if we're in an empty array
-            if (maskingState.byteAtCurrentIndex() == ']') {
-                break;
-            }
-
-            visitValue(maskingState, keyMaskingConfig);
-
-            stepOverWhitespaceCharacters(maskingState);
-            // check if we're at the end of a (non-empty) array
-            if (maskingState.endOfJson() || maskingState.byteAtCurrentIndex() == ']') {
-                break;
-            }
-        }
-        maskingState.next(); // step over array closing square bracket
-        maskingState.backtrackCurrentJsonPath();
+    private boolean isUnmatchedSubtree(MaskingState maskingState, @Nullable KeyMaskingConfig keyMaskingConfig) {
+        return skipUnmatchedSubtrees
+                && keyMaskingConfig == null
+                && !keyMatcher.canMatchJsonPathBelow(maskingState.getCurrentJsonPathNode());
     }
 
     /**
-     * Visits an object, iterates over the keys and checks whether key needs to be masked (if
-     * {@link JsonMaskingConfig.TargetKeyMode#MASK}) or allowed (if {@link JsonMaskingConfig.TargetKeyMode#ALLOW}). For
-     * each value, invokes {@link #visitValue(MaskingState, KeyMaskingConfig)} with a non-null {@link KeyMaskingConfig}
-     * (when key needs to be masked) or {@code null} (when key is allowed). Whenever 'parentKeyMaskingConfig' is
-     * supplied, it means that the object with all its keys is being masked. The only situation when the individual
-     * values do not need to be masked is when the key is explicitly allowed (in allow mode).
+     * Visits the members of the objects and the elements of the arrays that are currently being visited, until all of
+     * them have ended. Instead of recursing into nested objects and arrays, they are tracked by the masking state (see
+     * {@link MaskingState#enterContainer(boolean, KeyMaskingConfig, int)}), so that the depth of the JSON is not
+     * limited by the size of the call stack.
+     * <p>
+     * For each value in an array, the {@link KeyMaskingConfig} of the array is propagated. For each value in an object,
+     * checks whether key needs to be masked (if {@link JsonMaskingConfig.TargetKeyMode#MASK}) or allowed (if
+     * {@link JsonMaskingConfig.TargetKeyMode#ALLOW}), see {@link #visitKey(MaskingState)}. Whenever the object has a
+     * {@link KeyMaskingConfig}, it means that the object with all its keys is being masked. The only situation when the
+     * individual values do not need to be masked is when the key is explicitly allowed (in allow mode).
+     * <p>
+     * Stops as soon as the masking state {@link MaskingState#needsMoreInput() needs more input}, before anything that
+     * was recorded at the last checkpoint is changed, so that the traversal can be resumed from there.
      *
-     * @param maskingState           the current {@link MaskingState}
-     * @param parentKeyMaskingConfig if not null it means that the current value is being masked according to the
-     *                               {@link KeyMaskingConfig}. Otherwise, the value is not being masked
+     * @param maskingState the current {@link MaskingState}
+     * @param afterValue   whether the current index is right after a value of the innermost container
      */
-    private void visitObject(MaskingState maskingState, @Nullable KeyMaskingConfig parentKeyMaskingConfig) {
-        while (maskingState.next()) {
-            stepOverWhitespaceCharacters(maskingState);
-            // check if we're in an empty object
-            if (maskingState.byteAtCurrentIndex() == '}') {
-                break;
+    private void visitContainers(MaskingState maskingState, boolean afterValue) {
+        while (maskingState.containerCount() > 0 && !maskingState.needsMoreInput()) {
+            int depth = maskingState.containerCount() - 1;
+            boolean isObject = maskingState.containerIsObject(depth);
+            KeyMaskingConfig keyMaskingConfig = maskingState.containerKeyMaskingConfig(depth);
+            boolean hasNextValue = isObject
+                    ? stepToNextMember(maskingState, afterValue)
+                    : stepToNextElement(maskingState, afterValue);
+            if (maskingState.needsMoreInput()) {
+                return;
             }
-            // In case target keys should be considered as allow list, we need to NOT mask certain keys
-            int openingQuoteIndex = maskingState.currentIndex();
-
-            stepOverStringValue(maskingState);
-
-            int afterClosingQuoteIndex = maskingState.currentIndex();
-            int keyLength = afterClosingQuoteIndex - openingQuoteIndex - 2; // minus the opening and closing quotes
-            maskingState.expandCurrentJsonPath(keyMatcher.traverseJsonPathSegment(maskingState.getMessage(), maskingState.getCurrentJsonPathNode(), openingQuoteIndex + 1, keyLength));
-            KeyMaskingConfig keyMaskingConfig = keyMatcher.getMaskConfigIfMatched(maskingState.getMessage(), openingQuoteIndex + 1, // plus one for the opening quote
-                    keyLength, maskingState.getCurrentJsonPathNode());
-            stepOverWhitespaceCharacters(maskingState);
-            // step over the colon ':'
-            maskingState.next();
-            stepOverWhitespaceCharacters(maskingState);
-
-            // if we're in the allow mode, then getting a null as config, means that the key has been explicitly
-            // allowed and must not be masked, even if enclosing object is being masked
-            boolean valueAllowed = maskingConfig.isInAllowMode() && keyMaskingConfig == null;
-            if (valueAllowed) {
-                stepOverValue(maskingState);
-            } else {
-                // this is where it might get confusing - this method is called when the whole object is being masked
+            if (!hasNextValue) {
+                // step over the closing bracket ending the object or array, the byte after it is not needed yet
+                maskingState.incrementIndex(1);
+                if (!isObject) {
+                    maskingState.backtrackCurrentJsonPath();
+                }
+                maskingState.exitContainer();
+                afterValue = true;
+                continue;
+            }
+            if (isObject) {
+                KeyMaskingConfig parentKeyMaskingConfig = keyMaskingConfig;
+                keyMaskingConfig = visitKey(maskingState);
+                if (maskingState.needsMoreInput()) {
+                    return;
+                }
+                // if we're in the allow mode, then getting a null as config, means that the key has been explicitly
+                // allowed and must not be masked, even if enclosing object is being masked
+                if (maskingConfig.isInAllowMode() && keyMaskingConfig == null) {
+                    stepOverValue(maskingState);
+                    afterValue = true;
+                    continue;
+                }
+                // this is where it might get confusing - this is when the whole object is being masked
                 // if we got a maskingConfig for the key - we need to mask this key with that config. However, if the config
                 // we got was the default config, then it means that the key doesn't have a specific configuration and
                 // we should fall back to key specific config that the object is being masked with.
@@ -182,18 +502,98 @@ final class KeyContainsMasker implements JsonMasker {
                 if (parentKeyMaskingConfig != null && (keyMaskingConfig == null || keyMaskingConfig == maskingConfig.getDefaultConfig())) {
                     keyMaskingConfig = parentKeyMaskingConfig;
                 }
-                visitValue(maskingState, keyMaskingConfig);
             }
+            afterValue = !visitPrimitiveOrEnterContainer(maskingState, keyMaskingConfig);
+        }
+    }
+
+    /**
+     * Steps to the next element of an array, starting either at the opening square bracket or at the comma before the
+     * next element, or right after an element.
+     *
+     * @param maskingState the current {@link MaskingState}
+     * @param afterElement whether the current index is right after an element
+     * @return true if the current index is at the next element, false if the array has ended
+     */
+    private static boolean stepToNextElement(MaskingState maskingState, boolean afterElement) {
+        if (afterElement) {
+            maskingState.checkpoint(true);
+            stepOverWhitespaceCharacters(maskingState);
+            // check if we're at the end of a (non-empty) array
+            if (maskingState.endOfJson() || maskingState.byteAtCurrentIndex() == ']') {
+                return false;
+            }
+        }
+        maskingState.checkpoint(false);
+        // step over the opening square bracket or the comma
+        if (!maskingState.next()) {
+            return false;
+        }
+        stepOverWhitespaceCharacters(maskingState);
+        // check if we're in an empty array
+        return maskingState.byteAtCurrentIndex() != ']';
+    }
+
+    /**
+     * Steps to the key of the next member of an object, starting either at the opening curly bracket or at the comma
+     * before the next member, or right after the value of a member.
+     *
+     * @param maskingState the current {@link MaskingState}
+     * @param afterValue   whether the current index is right after the value of a member
+     * @return true if the current index is at the next key, false if the object has ended
+     */
+    private static boolean stepToNextMember(MaskingState maskingState, boolean afterValue) {
+        if (afterValue) {
+            maskingState.checkpoint(true);
             maskingState.backtrackCurrentJsonPath();
 
             stepOverWhitespaceCharacters(maskingState);
             // check if we're at the end of a (non-empty) object
             if (maskingState.endOfJson() || maskingState.byteAtCurrentIndex() == '}') {
-                break;
+                return false;
             }
         }
-        // step over closing curly bracket ending the object
+        maskingState.checkpoint(false);
+        // step over the opening curly bracket or the comma
+        if (!maskingState.next()) {
+            return false;
+        }
+        stepOverWhitespaceCharacters(maskingState);
+        // check if we're in an empty object
+        return maskingState.byteAtCurrentIndex() != '}';
+    }
+
+    /**
+     * Visits the key of an object member and steps over the colon after it, expanding the current JSONPath with the
+     * key.
+     *
+     * @param maskingState the current {@link MaskingState} for which the current index must correspond to the opening
+     *                     quote of the key
+     * @return the {@link KeyMaskingConfig} the key is matched with, if any
+     */
+    private @Nullable KeyMaskingConfig visitKey(MaskingState maskingState) {
+        // In case target keys should be considered as allow list, we need to NOT mask certain keys
+        maskingState.registerKeyStartIndex();
+
+        stepOverStringValue(maskingState);
+        if (maskingState.needsMoreInput()) {
+            // the key is matched once it is complete
+            return null;
+        }
+
+        // the key start index has to be read after stepping over the key, as the buffer might have been shifted
+        int openingQuoteIndex = maskingState.getCurrentKeyStartIndex();
+        int afterClosingQuoteIndex = maskingState.currentIndex();
+        int keyLength = afterClosingQuoteIndex - openingQuoteIndex - 2; // minus the opening and closing quotes
+        maskingState.expandCurrentJsonPath(keyMatcher.traverseJsonPathSegment(maskingState.getMessage(), maskingState.getCurrentJsonPathNode(), openingQuoteIndex + 1, keyLength));
+        KeyMaskingConfig keyMaskingConfig = keyMatcher.getMaskConfigIfMatched(maskingState.getMessage(), openingQuoteIndex + 1, // plus one for the opening quote
+                keyLength, maskingState.getCurrentJsonPathNode());
+        maskingState.clearKeyStartIndex();
+        stepOverWhitespaceCharacters(maskingState);
+        // step over the colon ':'
         maskingState.next();
+        stepOverWhitespaceCharacters(maskingState);
+        return keyMaskingConfig;
     }
 
     /**
@@ -210,6 +610,10 @@ final class KeyContainsMasker implements JsonMasker {
     private void maskString(MaskingState maskingState, KeyMaskingConfig keyMaskingConfig) {
         maskingState.registerValueStartIndex();
         stepOverStringValue(maskingState);
+        if (maskingState.needsMoreInput()) {
+            // the value is masked once it is complete
+            return;
+        }
 
         keyMaskingConfig.getStringValueMasker().maskValue(maskingState);
 
@@ -231,6 +635,9 @@ final class KeyContainsMasker implements JsonMasker {
         // This block deals with numeric values
         maskingState.registerValueStartIndex();
         stepOverNumericValue(maskingState);
+        if (maskingState.needsMoreInput()) {
+            return;
+        }
 
         keyMaskingConfig.getNumberValueMasker().maskValue(maskingState);
 
@@ -248,6 +655,9 @@ final class KeyContainsMasker implements JsonMasker {
     private void maskBoolean(MaskingState maskingState, KeyMaskingConfig keyMaskingConfig) {
         maskingState.registerValueStartIndex();
         maskingState.incrementIndex(AsciiCharacter.isLowercaseT(maskingState.byteAtCurrentIndex()) ? 4 : 5);
+        if (maskingState.needsMoreInput()) {
+            return;
+        }
 
         keyMaskingConfig.getBooleanValueMasker().maskValue(maskingState);
 
@@ -307,13 +717,39 @@ final class KeyContainsMasker implements JsonMasker {
      */
     private static void stepOverStringValue(MaskingState maskingState) {
         boolean isEscapeCharacter = false;
-        while (maskingState.next()) {
-            if (!isEscapeCharacter && maskingState.byteAtCurrentIndex() == '"') {
-                maskingState.next();  // step over the closing quote
-                break;
+        if (maskingState.resumeScannedString()) {
+            // the string was stepped over up to the end of the input before resuming from the last checkpoint
+            isEscapeCharacter = maskingState.scannedStringEscaped();
+        } else if (!maskingState.next()) {
+            return;
+        }
+        stepOverStringCharacters(maskingState, isEscapeCharacter);
+    }
+
+    /**
+     * Increments the current index in the masking state, which is in a string, until the current index is one position
+     * after the closing quote of the string. Whenever the end of the input of an incremental masking state is reached,
+     * a checkpoint is recorded in the string, see {@link StreamingState#checkpointInString(boolean)}.
+     *
+     * @param maskingState      the current {@link MaskingState}
+     * @param isEscapeCharacter whether the byte at the current index is escaped
+     */
+    private static void stepOverStringCharacters(MaskingState maskingState, boolean isEscapeCharacter) {
+        if (maskingState.endOfJson()) {
+            return;
+        }
+        do {
+            if (!isEscapeCharacter) {
+                // only a quote or a backslash can change anything, so jump to the next one at once
+                maskingState.stepOverPlainStringCharacters();
+                if (maskingState.byteAtCurrentIndex() == '"') {
+                    maskingState.next();  // step over the closing quote
+                    return;
+                }
             }
             isEscapeCharacter = !isEscapeCharacter && maskingState.byteAtCurrentIndex() == '\\';
-        }
+            maskingState.checkpointInString(isEscapeCharacter);
+        } while (maskingState.next());
     }
 
     /**
@@ -324,23 +760,7 @@ final class KeyContainsMasker implements JsonMasker {
     private static void stepOverObject(MaskingState maskingState) {
         // step over opening curly bracket
         maskingState.next();
-        int objectDepth = 1;
-        while (objectDepth > 0) {
-            // We need to specifically step over strings to not consider curly brackets which are part of a string
-            // this will expand until the end of unescaped double quote, so we're guaranteed to never have unescaped
-            // quote in this condition
-            if (AsciiCharacter.isDoubleQuote(maskingState.byteAtCurrentIndex())) {
-                // this makes sure that we step over curly brackets (open and close) which are part of strings
-                stepOverStringValue(maskingState);
-            } else {
-                if (AsciiCharacter.isCurlyBracketOpen(maskingState.byteAtCurrentIndex())) {
-                    objectDepth++;
-                } else if (AsciiCharacter.isCurlyBracketClose(maskingState.byteAtCurrentIndex())) {
-                    objectDepth--;
-                }
-                maskingState.next();
-            }
-        }
+        stepOverContainer(maskingState, (byte) '{', 1);
     }
 
     /**
@@ -351,21 +771,158 @@ final class KeyContainsMasker implements JsonMasker {
     private static void stepOverArray(MaskingState maskingState) {
         // step over opening square bracket
         maskingState.next();
-        int arrayDepth = 1;
-        while (arrayDepth > 0) {
-            // We need to specifically step over strings to not consider square brackets which are part of a string
+        stepOverContainer(maskingState, (byte) '[', 1);
+    }
+
+    /**
+     * Increments the current index in the masking state, which is in an object or array, until the current index is
+     * one position after the closing bracket of the object or array. The depth is registered in the masking state
+     * while stepping over, so that an incremental masking state can record checkpoints inside the object or array,
+     * see {@link StreamingState#checkpointInSkippedContainer()}.
+     *
+     * @param maskingState   the current {@link MaskingState}
+     * @param openingBracket the opening bracket of the object or array
+     * @param depth          the number of objects or arrays (with the same opening bracket) that the current index
+     *                       is in
+     */
+    private static void stepOverContainer(MaskingState maskingState, byte openingBracket, int depth) {
+        byte closingBracket = openingBracket == '{' ? (byte) '}' : (byte) ']';
+        while (depth > 0 && !maskingState.needsMoreInput()) {
+            // only quotes and brackets can change anything, so jump to the next one at once
+            maskingState.stepToQuoteOrBracket(openingBracket, closingBracket);
+            maskingState.setSkippedContainer(openingBracket, depth);
+            // We need to specifically step over strings to not consider brackets which are part of a string
             // this will expand until the end of unescaped double quote, so we're guaranteed to never have unescaped
             // quote in this condition
-            if (AsciiCharacter.isDoubleQuote(maskingState.byteAtCurrentIndex())) {
+            byte currentByte = maskingState.byteAtCurrentIndex();
+            if (AsciiCharacter.isDoubleQuote(currentByte)) {
                 stepOverStringValue(maskingState);
             } else {
-                if (AsciiCharacter.isSquareBracketOpen(maskingState.byteAtCurrentIndex())) {
-                    arrayDepth++;
-                } else if (AsciiCharacter.isSquareBracketClose(maskingState.byteAtCurrentIndex())) {
-                    arrayDepth--;
+                if (currentByte == openingBracket) {
+                    depth++;
+                } else if (currentByte == closingBracket) {
+                    depth--;
                 }
+                maskingState.setSkippedContainer(openingBracket, depth);
+                maskingState.checkpointInSkippedContainer();
                 maskingState.next();
             }
         }
     }
+
+    /**
+     * Masking session that owns a masking state and an output array which grows to the largest masked message, so
+     * that masking a message only allocates the returned copy of the masked message. A message in which no value is
+     * masked is returned as is, the same way as by {@link #mask(byte[])}.
+     */
+    private final class ReusableMaskingSession implements MaskingSession {
+        private final MaskingState maskingState = newMaskingState();
+        private byte[] output = new byte[0];
+
+        @Override
+        public byte[] mask(byte[] input) {
+            if (!keyMatcher.mayContainTargetKey(input, 0, input.length)) {
+                return input;
+            }
+            if (output.length < input.length) {
+                // leave some room for masks that are longer than the values, so that the output rarely has to grow
+                output = new byte[input.length + input.length / 4 + 16];
+            }
+            MaskingState state = acquire();
+            try {
+                int written = KeyContainsMasker.this.mask(state, input, 0, input.length, output, 0, output.length);
+                if (written < 0) {
+                    output = new byte[Math.max(-written, output.length * 2)];
+                    written = KeyContainsMasker.this.mask(state, input, 0, input.length, output, 0, output.length);
+                }
+                // the output only differs from the input if a value was masked
+                return state.hasReplacedValues() ? Arrays.copyOf(output, written) : input;
+            } finally {
+                state.release();
+            }
+        }
+
+        @Override
+        public int mask(byte[] input, int offset, int length, byte[] output, int outputOffset) {
+            Objects.checkFromIndexSize(offset, length, input.length);
+            Objects.checkFromToIndex(outputOffset, output.length, output.length);
+            MaskingState state = acquire();
+            try {
+                return KeyContainsMasker.this.mask(state, input, offset, length, output, outputOffset, output.length);
+            } finally {
+                state.release();
+            }
+        }
+
+        private MaskingState acquire() {
+            // the session is re-entered from a value masker, the state cannot be shared
+            return maskingState.inUse() ? newMaskingState() : maskingState;
+        }
+    }
+
+    /**
+     * Masks a message that is fed chunk by chunk. Every chunk is appended to the incremental masking state, after which
+     * the traversal is resumed from the last checkpoint until the end of the input fed so far is reached. The output up
+     * to the last checkpoint is final and written to the output stream, the rest is produced again when the traversal
+     * is resumed with the next chunk.
+     */
+    private final class IncrementalMaskingSession implements IncrementalJsonMasker {
+        private final StreamingState streamingState = new StreamingState(!maskingConfig.getTargetJsonPaths().isEmpty());
+        private final OutputStream output;
+        private boolean rootValueVisited = false;
+        private boolean finished = false;
+
+        IncrementalMaskingSession(OutputStream output) {
+            this.output = output;
+        }
+
+        @Override
+        public void feed(byte[] chunk, int offset, int length) throws IOException {
+            Objects.checkFromIndexSize(offset, length, chunk.length);
+            if (finished) {
+                throw new IllegalStateException("Incremental masking has already finished");
+            }
+            if (rootValueVisited) {
+                // everything after the end of the JSON value is copied as is
+                output.write(chunk, offset, length);
+                return;
+            }
+            streamingState.appendInput(chunk, offset, length);
+            visitFromCheckpoint();
+        }
+
+        @Override
+        public void finish() throws IOException {
+            if (finished) {
+                throw new IllegalStateException("Incremental masking has already finished");
+            }
+            if (!rootValueVisited) {
+                streamingState.finishInput();
+                visitFromCheckpoint();
+            }
+            finished = true;
+        }
+
+        @Override
+        public long bufferedBytes() {
+            return finished || rootValueVisited ? 0 : streamingState.bufferedInputLength();
+        }
+
+        private void visitFromCheckpoint() throws IOException {
+            try {
+                if (KeyContainsMasker.this.visitFromCheckpoint(streamingState)) {
+                    streamingState.flushRemainingInput();
+                    rootValueVisited = true;
+                }
+                // otherwise wait for the next chunk, the output up to the last checkpoint is written below
+            } catch (ArrayIndexOutOfBoundsException e) {
+                finished = true;
+                throw new InvalidJsonException("Invalid JSON input provided: %s".formatted(e.getMessage()), e);
+            } catch (RuntimeException e) {
+                finished = true;
+                throw e;
+            }
+            streamingState.writeCheckpointOutput(output);
+        }
+    }
 }
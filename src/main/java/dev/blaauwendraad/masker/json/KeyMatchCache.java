@@ -0,0 +1,144 @@
+package dev.blaauwendraad.masker.json;
+
+import org.jspecify.annotations.Nullable;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Bounded cache of the results of {@link KeyMatcher} look-ups, see
+ * {@link dev.blaauwendraad.masker.json.config.JsonMaskingConfig.Builder#cacheKeyMatches(int)}.
+ * <p>
+ * The cache is a 2-way set-associative table: every key can be in one of the two slots of the set chosen by the hash of
+ * the key, and a new key replaces the older of the two, so that of the keys in the same set, the two most recently
+ * cached ones are kept. All slots are allocated up front as primitive arrays, the hash, the length and the result of
+ * every slot, and the key bytes of every slot in a slab of {@link #MAX_KEY_LENGTH} bytes per slot, so caching a key
+ * never allocates.
+ * <p>
+ * The cache is shared by all threads without locking. Every set has a version that is odd while the set is being
+ * written: a writer claims the set by incrementing the version, and gives up if another writer holds it, which only
+ * results in a cache miss later on. A reader reads the version before and after reading a slot, and ignores what it
+ * read if the version is odd or has changed in the meantime, so it never uses a partially written slot.
+ */
+final class KeyMatchCache {
+    /**
+     * The maximum length of a cached key in bytes, longer keys are rare and would make the cache use a lot of memory.
+     */
+    static final int MAX_KEY_LENGTH = 64;
+    /**
+     * Returned by {@link #get(byte[], int, int, int)} for a key that is not cached, as {@code null} is the cached
+     * result for a key that does not match.
+     */
+    static final KeyMatcher.TrieNode NOT_CACHED = new KeyMatcher.TrieNode();
+    private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle VERSIONS = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final long MULTIPLIER = 0x9e3779b97f4a7c15L;
+    private static final int MAX_SLOTS = 1 << 24;
+
+    /**
+     * The version of every set, incremented by one when a writer claims the set and by one more when it is done, so
+     * that every completed write adds two. Bit 1 of the version is the way that is written next.
+     */
+    private final int[] versions;
+    private final int[] hashes;
+    /**
+     * The length of the key in every slot, -1 for an empty slot.
+     */
+    private final int[] lengths;
+    private final KeyMatcher.@Nullable TrieNode[] nodes;
+    /**
+     * The key bytes of the slot {@code i} start at {@code i * MAX_KEY_LENGTH}.
+     */
+    private final byte[] keys;
+    private final int setMask;
+
+    /**
+     * Creates a cache.
+     *
+     * @param capacity the number of keys to cache, rounded up to a power of two
+     */
+    KeyMatchCache(int capacity) {
+        int slots = capacity <= 2 ? 2 : Integer.highestOneBit(Math.min(capacity, MAX_SLOTS) - 1) << 1;
+        this.versions = new int[slots / 2];
+        this.hashes = new int[slots];
+        this.lengths = new int[slots];
+        Arrays.fill(lengths, -1);
+        this.nodes = new KeyMatcher.TrieNode[slots];
+        this.keys = new byte[slots * MAX_KEY_LENGTH];
+        this.setMask = slots / 2 - 1;
+    }
+
+    /**
+     * Hashes a key, reading 8 bytes at a time.
+     */
+    static int hash(byte[] bytes, int offset, int length) {
+        long hash = length;
+        int i = offset;
+        int end = offset + length;
+        for (; i <= end - 8; i += 8) {
+            hash = (hash ^ (long) LONG_VIEW.get(bytes, i)) * MULTIPLIER;
+        }
+        for (; i < end; i++) {
+            hash = (hash ^ bytes[i]) * MULTIPLIER;
+        }
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    /**
+     * Finds the cached result for a key.
+     *
+     * @param bytes  the bytes containing the key
+     * @param offset the offset of the key
+     * @param length the length of the key
+     * @param hash   the {@link #hash(byte[], int, int) hash} of the key
+     * @return the node that was found for the key, null if the key does not match, or {@link #NOT_CACHED} if the key
+     * is not cached
+     */
+    KeyMatcher.@Nullable TrieNode get(byte[] bytes, int offset, int length, int hash) {
+        int set = hash & setMask;
+        int version = (int) VERSIONS.getAcquire(versions, set);
+        if ((version & 1) != 0) {
+            return NOT_CACHED;
+        }
+        int slot = set << 1;
+        if (!matches(slot, bytes, offset, length, hash) && !matches(++slot, bytes, offset, length, hash)) {
+            return NOT_CACHED;
+        }
+        KeyMatcher.TrieNode node = nodes[slot];
+        // the slot must not have been written to while it was read
+        VarHandle.acquireFence();
+        return (int) VERSIONS.getOpaque(versions, set) == version ? node : NOT_CACHED;
+    }
+
+    private boolean matches(int slot, byte[] bytes, int offset, int length, int hash) {
+        int keyOffset = slot * MAX_KEY_LENGTH;
+        return hashes[slot] == hash
+                && lengths[slot] == length
+                && Arrays.equals(keys, keyOffset, keyOffset + length, bytes, offset, offset + length);
+    }
+
+    /**
+     * Caches the result for a key, unless another thread is caching a key in the same set at the same time.
+     *
+     * @param bytes  the bytes containing the key
+     * @param offset the offset of the key
+     * @param length the length of the key, at most {@link #MAX_KEY_LENGTH}
+     * @param hash   the {@link #hash(byte[], int, int) hash} of the key
+     * @param node   the node that was found for the key, or null if the key does not match
+     */
+    void put(byte[] bytes, int offset, int length, int hash, KeyMatcher.@Nullable TrieNode node) {
+        int set = hash & setMask;
+        int version = (int) VERSIONS.getVolatile(versions, set);
+        if ((version & 1) != 0 || !VERSIONS.compareAndSet(versions, set, version, version + 1)) {
+            return;
+        }
+        int slot = (set << 1) | ((version >>> 1) & 1);
+        hashes[slot] = hash;
+        lengths[slot] = length;
+        nodes[slot] = node;
+        System.arraycopy(bytes, offset, keys, slot * MAX_KEY_LENGTH, length);
+        VERSIONS.setRelease(versions, set, version + 2);
+    }
+}
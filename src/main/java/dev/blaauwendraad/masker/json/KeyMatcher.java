@@ -2,11 +2,18 @@ package dev.blaauwendraad.masker.json;
 
 import dev.blaauwendraad.masker.json.config.JsonMaskingConfig;
 import dev.blaauwendraad.masker.json.config.KeyMaskingConfig;
+import dev.blaauwendraad.masker.json.path.JsonPath;
+import dev.blaauwendraad.masker.json.path.JsonPathParser;
 import dev.blaauwendraad.masker.json.util.Utf8Util;
 import org.jspecify.annotations.Nullable;
 
 import java.nio.charset.StandardCharsets;
-import java.util.Objects;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * This key matcher is build using a byte trie structure to optimize the look-ups for JSON keys in the target key set.
@@ -26,35 +33,338 @@ import java.util.Objects;
  * </ul>
  *
  * <p> For masking, we only care whether the key matched or not, so we can use a Trie to optimize the look-ups.
- * <p> Further, at initialization time we can construct a Trie that is case-insensitive, so that for we can avoid any
- * transformations on the incoming keys during the search.
+ * <p> Further, when matching case-insensitively, the Trie only contains the folded keys (see {@link CaseFolding}), and
+ * the incoming keys are folded byte by byte during the search, which for ASCII is a single table lookup.
  * <p> We can also make a Trie that looks at bytes instead of characters, so that we can use the bytes and offsets
  * directly in the incoming JSON for comparison and make sure there are no allocations at all.
  * <p> And lastly, we can make a small optimization to remember all the distinct lengths of the target keys, so that
- * we can fail fast if the incoming key is not of the same length.
+ * we can fail fast if the incoming key is not of the same length. Along with the lengths we remember the first and last
+ * bytes of the target keys, which rejects most of the remaining keys before touching the trie.
+ * <p> For large numbers of target keys (see {@link #HASHED_KEYS_THRESHOLD}) the trie would consist of many nodes, so
+ * the keys are stored in a {@link HashedKeySet} instead, only the JSONPaths are then stored in the trie.
+ * <p> JSONPaths with descendant segments ({@code ..}) cannot be stored in the trie, as the segment after a descendant
+ * segment can be at any depth. When there are such JSONPaths, all JSONPaths are matched by a {@link JsonPathAutomaton}
+ * instead, which is advanced for every key and array while traversing the JSON.
  */
 final class KeyMatcher {
     private static final int BYTE_OFFSET = -1 * Byte.MIN_VALUE;
     private static final int SKIP_KEY_LOOKUP = -1;
+    /**
+     * The number of keys above which the keys are stored in a {@link HashedKeySet} instead of the trie.
+     */
+    static final int HASHED_KEYS_THRESHOLD = 1000;
+    private static final JsonPathParser JSON_PATH_PARSER = new JsonPathParser();
     private final JsonMaskingConfig maskingConfig;
+    private final boolean caseInsensitive;
+    /**
+     * Whether the separators {@code '_'}, {@code '-'} and {@code '.'} in keys are ignored, see
+     * {@link JsonMaskingConfig.Builder#normalizeTargetKeys()}.
+     */
+    private final boolean ignoreKeySeparators;
     private final TrieNode root;
+    /**
+     * Whether there are target keys to look up, if all targets are JSONPaths only the JSONPath has to be matched.
+     */
+    private final boolean hasTargetKeys;
+    /**
+     * Trie of the keys the input is searched for before masking, see {@link #mayContainTargetKey(byte[], int, int)},
+     * null if the input is not prefiltered.
+     */
+    @Nullable
+    private final TrieNode prefilterRoot;
+    /**
+     * The target keys (and in allow mode the keys with a specific configuration) when there are too many of them to
+     * store in the trie, null if the keys are in the trie.
+     */
+    @Nullable
+    private final HashedKeySet hashedKeys;
+    /**
+     * The automaton of the target key patterns (and in allow mode the key patterns with a specific configuration),
+     * null if there are no key patterns.
+     */
+    @Nullable
+    private final KeyPatternAutomaton keyPatterns;
+    /**
+     * The automaton of the target JSONPaths (and in allow mode the JSONPaths with a specific configuration), null if
+     * none of the JSONPaths has a descendant segment, in which case the JSONPaths are stored in the trie.
+     */
+    @Nullable
+    private final JsonPathAutomaton jsonPaths;
+    /**
+     * The cache of the results of {@link #searchKey(byte[], int, int)}, null if the results are not cached.
+     */
+    @Nullable
+    private final KeyMatchCache keyMatchCache;
+    /**
+     * Bit set of the lengths (in bytes) of all keys that can be searched for, see {@link #mayBeKey(byte[], int, int)}.
+     */
+    private final long[] keyLengths;
+    /**
+     * The smallest length (in bytes) of all keys that can be searched for, or {@link Integer#MAX_VALUE} if there are
+     * none.
+     */
+    private final int minKeyLength;
+    /**
+     * Bit sets of the first and last bytes of all keys that can be searched for, of the folded keys when matching
+     * case-insensitively.
+     */
+    private final long[] firstKeyBytes = new long[4];
+    private final long[] lastKeyBytes = new long[4];
 
     public KeyMatcher(JsonMaskingConfig maskingConfig) {
+        this(maskingConfig, keyCount(maskingConfig) > HASHED_KEYS_THRESHOLD);
+    }
+
+    /**
+     * Creates a key matcher.
+     *
+     * @param maskingConfig the masking configuration
+     * @param hashKeys      whether to store the keys in a {@link HashedKeySet} instead of the trie, which uses less
+     *                      memory for large numbers of keys
+     */
+    KeyMatcher(JsonMaskingConfig maskingConfig, boolean hashKeys) {
         this.maskingConfig = maskingConfig;
-        this.root = new TrieNode();
-        maskingConfig.getTargetKeys().forEach(key -> insert(key, false));
-        maskingConfig.getTargetJsonPaths().forEach(jsonPath -> insert(jsonPath.toString(), false));
+        this.caseInsensitive = !maskingConfig.caseSensitiveTargetKeys();
+        this.ignoreKeySeparators = maskingConfig.normalizeTargetKeys();
+        this.root = new TrieNode(true);
+        this.hasTargetKeys = !maskingConfig.getTargetKeys().isEmpty() || !maskingConfig.getTargetKeyPatterns().isEmpty();
+        this.jsonPaths = createJsonPathAutomaton();
+        List<byte[]> hashableKeys = new ArrayList<>();
+        List<TrieNode> hashableKeyNodes = new ArrayList<>();
+        // the nodes of hashed keys only hold the masking configuration, so keys with the same one share a node
+        Map<KeyMaskingConfig, TrieNode> keyNodes = new IdentityHashMap<>();
+        Map<KeyMaskingConfig, TrieNode> negativeMatchKeyNodes = new IdentityHashMap<>();
+        for (String key : maskingConfig.getTargetKeys()) {
+            if (hashKeys) {
+                hashableKeys.add(keyBytes(key));
+                hashableKeyNodes.add(keyNodes.computeIfAbsent(maskingConfig.getConfig(key), config -> createKeyNode(config, false)));
+            } else {
+                insert(root, key, keyBytes(key), false);
+            }
+        }
+        if (jsonPaths == null) {
+            maskingConfig.getTargetJsonPaths().forEach(jsonPath -> insert(root, jsonPath.toString(), jsonPathBytes(jsonPath), false));
+            // the JSONPaths with a specific configuration in allow mode are inserted as JSONPaths as well, as they would
+            // not be found when their separators are ignored or when they are hashed like the other keys
+            jsonPathConfigs().forEach((key, jsonPath) -> insert(root, key, jsonPathBytes(jsonPath), true));
+        }
         if (maskingConfig.isInAllowMode()) {
             // in allow mode we might have a specific configuration for the masking key
             // see ByteTrie#insert documentation for more details
-            maskingConfig.getKeyConfigs().keySet().forEach(key -> insert(key, true));
+            for (String key : maskingConfig.getKeyConfigs().keySet()) {
+                if (hashKeys) {
+                    hashableKeys.add(keyBytes(key));
+                    hashableKeyNodes.add(negativeMatchKeyNodes.computeIfAbsent(maskingConfig.getConfig(key), config -> createKeyNode(config, true)));
+                } else {
+                    insert(root, key, keyBytes(key), true);
+                }
+            }
+        }
+        this.hashedKeys = hashKeys
+                ? new HashedKeySet(hashableKeys.toArray(new byte[0][]), hashableKeyNodes.toArray(new TrieNode[0]), maskingConfig.caseSensitiveTargetKeys(), ignoreKeySeparators)
+                : null;
+        this.keyPatterns = createKeyPatternAutomaton(keyNodes, negativeMatchKeyNodes);
+
+        // the JSONPaths in the trie can be found as keys too
+        List<byte[]> keyBytes = new ArrayList<>();
+        maskingConfig.getTargetKeys().forEach(key -> keyBytes.add(keyBytes(key)));
+        if (jsonPaths == null) {
+            maskingConfig.getTargetJsonPaths().forEach(jsonPath -> keyBytes.add(jsonPathBytes(jsonPath)));
+        }
+        if (maskingConfig.isInAllowMode()) {
+            maskingConfig.getKeyConfigs().keySet().forEach(key -> keyBytes.add(keyBytes(key)));
+        }
+        int minKeyLength = Integer.MAX_VALUE;
+        int maxKeyLength = 0;
+        for (byte[] bytes : keyBytes) {
+            minKeyLength = Math.min(minKeyLength, bytes.length);
+            maxKeyLength = Math.max(maxKeyLength, bytes.length);
+        }
+        this.minKeyLength = minKeyLength;
+        this.keyLengths = new long[(maxKeyLength >>> 6) + 1];
+        keyBytes.forEach(this::addKeyShape);
+        this.prefilterRoot = maskingConfig.prefilterTargetKeys() ? createPrefilterTrie() : null;
+        this.keyMatchCache = maskingConfig.getKeyMatchCacheCapacity() > 0
+                ? new KeyMatchCache(maskingConfig.getKeyMatchCacheCapacity())
+                : null;
+    }
+
+    /**
+     * Compiles the key patterns into an automaton. The patterns with a specific configuration come first, so that they
+     * take precedence over the other patterns when a key matches multiple patterns.
+     *
+     * @param keyNodes              the nodes of the keys per masking configuration, to share with the patterns
+     * @param negativeMatchKeyNodes the nodes of the keys per masking configuration in allow mode
+     * @return the automaton, or null if there are no key patterns
+     */
+    @Nullable
+    private KeyPatternAutomaton createKeyPatternAutomaton(Map<KeyMaskingConfig, TrieNode> keyNodes, Map<KeyMaskingConfig, TrieNode> negativeMatchKeyNodes) {
+        Map<KeyMaskingConfig, TrieNode> configNodes = maskingConfig.isInAllowMode() ? negativeMatchKeyNodes : keyNodes;
+        List<String> patterns = new ArrayList<>();
+        List<TrieNode> patternNodes = new ArrayList<>();
+        maskingConfig.getKeyPatternConfigs().forEach((pattern, config) -> {
+            patterns.add(pattern);
+            patternNodes.add(configNodes.computeIfAbsent(config, c -> createKeyNode(c, maskingConfig.isInAllowMode())));
+        });
+        for (String pattern : maskingConfig.getTargetKeyPatterns()) {
+            if (!maskingConfig.getKeyPatternConfigs().containsKey(pattern)) {
+                patterns.add(pattern);
+                patternNodes.add(keyNodes.computeIfAbsent(maskingConfig.getDefaultConfig(), c -> createKeyNode(c, false)));
+            }
+        }
+        if (patterns.isEmpty()) {
+            return null;
+        }
+        return new KeyPatternAutomaton(patterns.toArray(new String[0]), patternNodes.toArray(new TrieNode[0]), maskingConfig.caseSensitiveTargetKeys());
+    }
+
+    /**
+     * Compiles the JSONPaths into an automaton if any of them has a descendant segment. In allow mode, the JSONPaths
+     * with a specific configuration are stored with the configurations of the keys and are masked with that
+     * configuration, they come first, so that they take precedence over an allowed JSONPath that is just as specific.
+     *
+     * @return the automaton, or null if none of the JSONPaths has a descendant segment
+     */
+    @Nullable
+    private JsonPathAutomaton createJsonPathAutomaton() {
+        List<JsonPath> jsonPaths = new ArrayList<>();
+        List<TrieNode> jsonPathNodes = new ArrayList<>();
+        jsonPathConfigs().forEach((key, jsonPath) -> {
+            jsonPaths.add(jsonPath);
+            jsonPathNodes.add(createKeyNode(maskingConfig.getConfig(key), true));
+        });
+        for (JsonPath jsonPath : maskingConfig.getTargetJsonPaths()) {
+            jsonPaths.add(jsonPath);
+            jsonPathNodes.add(createKeyNode(maskingConfig.getConfig(jsonPath.toString()), false));
+        }
+        if (jsonPaths.stream().noneMatch(JsonPath::hasDescendantSegment)) {
+            return null;
+        }
+        return new JsonPathAutomaton(jsonPaths, jsonPathNodes, maskingConfig.caseSensitiveTargetKeys());
+    }
+
+    /**
+     * Returns the JSONPaths with a specific configuration in allow mode by the key they are configured with.
+     *
+     * @return the JSONPaths, empty in mask mode
+     */
+    private Map<String, JsonPath> jsonPathConfigs() {
+        Map<String, JsonPath> jsonPathConfigs = new LinkedHashMap<>();
+        if (maskingConfig.isInAllowMode()) {
+            for (String key : maskingConfig.getKeyConfigs().keySet()) {
+                JsonPath jsonPath = key.startsWith("$") ? JSON_PATH_PARSER.tryParse(key) : null;
+                if (jsonPath != null) {
+                    jsonPathConfigs.put(key, jsonPath);
+                }
+            }
+        }
+        return jsonPathConfigs;
+    }
+
+    /**
+     * Returns the bytes of a key as they are stored in the trie: the UTF-8 bytes of the key, or of the folded key when
+     * matching case-insensitively, without the separators when they are ignored.
+     */
+    private byte[] keyBytes(String key) {
+        byte[] bytes = caseInsensitive ? CaseFolding.fold(key) : key.getBytes(StandardCharsets.UTF_8);
+        if (!ignoreKeySeparators) {
+            return bytes;
+        }
+        int length = 0;
+        for (byte b : bytes) {
+            if (!isKeySeparator(b)) {
+                bytes[length++] = b;
+            }
+        }
+        return Arrays.copyOf(bytes, length);
+    }
+
+    /**
+     * Returns the bytes of a JSONPath as they are stored in the trie. The separators are part of the JSONPath syntax,
+     * so unlike for keys they are never ignored.
+     */
+    private byte[] jsonPathBytes(JsonPath jsonPath) {
+        String path = jsonPath.toString();
+        return caseInsensitive ? CaseFolding.fold(path) : path.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Checks whether a byte is one of the separators that are ignored in keys when the target keys are normalized.
+     */
+    static boolean isKeySeparator(byte b) {
+        return b == '_' || b == '-' || b == '.';
+    }
+
+    /**
+     * Adds the length and the first and last bytes of a key to the bit sets used by
+     * {@link #mayBeKey(byte[], int, int)}.
+     */
+    private void addKeyShape(byte[] bytes) {
+        keyLengths[bytes.length >>> 6] |= 1L << bytes.length;
+        if (bytes.length == 0) {
+            return;
+        }
+        int first = bytes[0] & 0xff;
+        int last = bytes[bytes.length - 1] & 0xff;
+        firstKeyBytes[first >>> 6] |= 1L << first;
+        lastKeyBytes[last >>> 6] |= 1L << last;
+    }
+
+    private static int keyCount(JsonMaskingConfig maskingConfig) {
+        int keyCount = maskingConfig.getTargetKeys().size();
+        if (maskingConfig.isInAllowMode()) {
+            keyCount += maskingConfig.getKeyConfigs().size();
+        }
+        return keyCount;
+    }
+
+    /**
+     * Creates a node for hashed keys, like the node a key ends at in the trie.
+     */
+    private static TrieNode createKeyNode(KeyMaskingConfig keyMaskingConfig, boolean negativeMatch) {
+        TrieNode node = new TrieNode();
+        node.keyMaskingConfig = keyMaskingConfig;
+        node.endOfWord = true;
+        node.negativeMatch = negativeMatch;
+        return node;
+    }
+
+    /**
+     * Creates the trie of keys for the prefilter: the target keys and the last key of every target JSONPath, as a
+     * JSONPath can only match if its last key is present. When the target keys are hashed, the hashed keys are matched
+     * separately and are not in the trie.
+     *
+     * @return the trie, or null if there is a JSONPath without any key, which can match without any key being present
+     */
+    @Nullable
+    private TrieNode createPrefilterTrie() {
+        TrieNode prefilterTrie = new TrieNode(true);
+        for (String key : maskingConfig.getTargetKeys()) {
+            if (hashedKeys == null) {
+                insert(prefilterTrie, key, keyBytes(key), false);
+            }
+        }
+        for (JsonPath jsonPath : maskingConfig.getTargetJsonPaths()) {
+            String[] segments = jsonPath.segments();
+            int lastKeyIndex = segments.length - 1;
+            while (lastKeyIndex > 0 && (segments[lastKeyIndex].equals("*") || segments[lastKeyIndex].equals(JsonPath.DESCENDANT))) {
+                lastKeyIndex--;
+            }
+            if (lastKeyIndex == 0) {
+                // only the root segment ('$'), wildcards and descendant segments
+                return null;
+            }
+            insert(prefilterTrie, segments[lastKeyIndex], keyBytes(segments[lastKeyIndex]), false);
         }
+        return prefilterTrie;
     }
 
     /**
      * Inserts a word into the trie.
      *
+     * @param root          the root of the trie to insert the word into.
      * @param word          the word to insert.
+     * @param bytes         the bytes of the word as they are searched for, see {@link #keyBytes(String)}.
      * @param negativeMatch if true, the key is not allowed and the trie is in ALLOW mode.
      *                      for example config
      *                      {@code
@@ -66,53 +376,15 @@ final class KeyMatcher {
      *                      insert a "negative match" node, that would not be treated as a target key, but provide
      *                      a fast lookup for the configuration
      */
-    private void insert(String word, boolean negativeMatch) {
-        boolean caseInsensitive = !maskingConfig.caseSensitiveTargetKeys();
-        byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
-        byte[] lowerBytes = null;
-        byte[] upperBytes = null;
-        if (caseInsensitive) {
-            lowerBytes = word.toLowerCase().getBytes(StandardCharsets.UTF_8);
-            upperBytes = word.toUpperCase().getBytes(StandardCharsets.UTF_8);
-
-            /*
-             from inspecting the code, it looks like lower casing a character does not change the byte length
-             on the same encoding, however the documentation explicitly mentions that resulting length might be
-             different
-             so better to fail fast if instead of ignoring that.
-
-             Given that we're doing that only for target keys, the idea that it's going to have different lengths
-             is quite unlikely
-            */
-            if (bytes.length != lowerBytes.length || bytes.length != upperBytes.length) {
-                throw new IllegalArgumentException("Case insensitive trie does not support all characters in " + word);
-            }
-        }
+    private void insert(TrieNode root, String word, byte[] bytes, boolean negativeMatch) {
+        // when case-insensitive only the folded word is inserted, and the keys are folded while searching, so that
+        // there is a single path for all case variants of the word: h -> e -> l -> l -> o
         TrieNode node = root;
-        for (int i = 0; i < bytes.length; i++) {
-            byte b = bytes[i];
+        for (byte b : bytes) {
             TrieNode child = node.child(b);
             if (child == null) {
                 child = new TrieNode();
                 node.add(b, child);
-                if (caseInsensitive) {
-                    Objects.requireNonNull(lowerBytes);
-                    Objects.requireNonNull(upperBytes);
-                    /*
-                      when case-insensitive we need to keep track of siblings to be able to find the correct node
-                      so that we have this structure:
-                      <p>
-                      (h | H) -> (e | E) -> (l | L) -> (l | L) -> (o | O)
-                      <p>
-                      and we can travel the tree forward and kinda sideways
-
-                      Also using both toLowerCase and toUpperCase due to
-                        1. Locale issues (see String#equalsIgnoreCase)
-                        2. So we don't have to convert when searching
-                     */
-                    node.add(lowerBytes[i], child);
-                    node.add(upperBytes[i], child);
-                }
             }
             node = child;
         }
@@ -142,9 +414,9 @@ final class KeyMatcher {
             // if not found - do not mask
             if (node != null && node.endOfWord && !node.negativeMatch) {
                 return node.keyMaskingConfig;
-            } else if (keyLength != SKIP_KEY_LOOKUP) {
+            } else if (keyLength != SKIP_KEY_LOOKUP && hasTargetKeys) {
                 // also check regular key
-                node = searchNode(bytes, keyOffset, keyLength);
+                node = searchKey(bytes, keyOffset, keyLength);
                 if (node != null && !node.negativeMatch) {
                     return node.keyMaskingConfig;
                 }
@@ -162,7 +434,7 @@ final class KeyMatcher {
                 return null;
             } else if (keyLength != SKIP_KEY_LOOKUP) {
                 // also check regular key
-                node = searchNode(bytes, keyOffset, keyLength);
+                node = searchKey(bytes, keyOffset, keyLength);
                 if (node != null) {
                     if (node.negativeMatch) {
                         return node.keyMaskingConfig;
@@ -174,11 +446,116 @@ final class KeyMatcher {
         }
     }
 
+    /**
+     * Searches for a target key (or in allow mode a key with a specific configuration), in the hashed key set if the
+     * keys are hashed or in the trie otherwise. If none of the keys matches, the key is matched against the key
+     * patterns. The result is cached if a {@link KeyMatchCache} is configured, unless the key is rejected by
+     * {@link #mayBeKey(byte[], int, int)} already, which is cheaper than hashing the key.
+     */
     @Nullable
-    private TrieNode searchNode(byte[] bytes, int offset, int length) {
-        TrieNode node = root;
+    private TrieNode searchKey(byte[] bytes, int offset, int length) {
+        KeyMatchCache keyMatchCache = this.keyMatchCache;
+        if (keyMatchCache == null || length > KeyMatchCache.MAX_KEY_LENGTH) {
+            return matchKey(bytes, offset, length);
+        }
+        if (keyPatterns == null && !mayBeKey(bytes, offset, length)) {
+            return null;
+        }
+        int hash = KeyMatchCache.hash(bytes, offset, length);
+        TrieNode cached = keyMatchCache.get(bytes, offset, length, hash);
+        if (cached != KeyMatchCache.NOT_CACHED) {
+            return cached;
+        }
+        TrieNode node = matchKey(bytes, offset, length);
+        keyMatchCache.put(bytes, offset, length, hash, node);
+        return node;
+    }
+
+    @Nullable
+    private TrieNode matchKey(byte[] bytes, int offset, int length) {
+        TrieNode node = mayBeKey(bytes, offset, length) ? searchExactKey(bytes, offset, length) : null;
+        KeyPatternAutomaton keyPatterns = this.keyPatterns;
+        if (node == null && keyPatterns != null) {
+            node = keyPatterns.match(bytes, offset, length);
+        }
+        return node;
+    }
 
-        for (int i = offset; i < offset + length; i++) {
+    @Nullable
+    private TrieNode searchExactKey(byte[] bytes, int offset, int length) {
+        HashedKeySet hashedKeys = this.hashedKeys;
+        if (hashedKeys == null) {
+            return searchNode(root, bytes, offset, length, ignoreKeySeparators);
+        }
+        return hashedKeys.get(bytes, offset, length);
+    }
+
+    /**
+     * Checks whether the length and the first and last bytes of a key match any of the keys that can be searched for.
+     * <p>
+     * A key in the JSON can contain unicode escapes ({@code \\uXXXX}), which are decoded before matching, so the raw
+     * first and last bytes are only compared if they are not part of an escape, and a key with a length that does not
+     * match might still match when it contains an escape, as decoding only shortens the key. The same holds for
+     * multibyte characters when matching case-insensitively, except that folding can also lengthen the key, and for
+     * separators when they are ignored.
+     *
+     * @return false if the key is certainly not one of the keys, true if it might be
+     */
+    private boolean mayBeKey(byte[] bytes, int offset, int length) {
+        if (length == 0) {
+            return (keyLengths[0] & 1L) != 0;
+        }
+        int end = offset + length;
+        int first = foldedByte(bytes[offset]);
+        if (first != '\\' && first >= 0 && (firstKeyBytes[first >>> 6] & (1L << first)) == 0) {
+            return false;
+        }
+        int last = foldedByte(bytes[end - 1]);
+        boolean lastCharacterEscaped = length >= 6 && bytes[end - 6] == '\\' && bytes[end - 5] == 'u';
+        if (!lastCharacterEscaped && last >= 0 && (lastKeyBytes[last >>> 6] & (1L << last)) == 0) {
+            return false;
+        }
+        if ((length >>> 6) < keyLengths.length && (keyLengths[length >>> 6] & (1L << length)) != 0) {
+            return true;
+        }
+        if (!caseInsensitive && length < minKeyLength) {
+            return false;
+        }
+        for (int i = offset; i < end; i++) {
+            if (bytes[i] == '\\' || (caseInsensitive && bytes[i] < 0) || (ignoreKeySeparators && isKeySeparator(bytes[i]))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the byte to compare with the first and last bytes of the keys: the unsigned byte itself, or when matching
+     * case-insensitively the folded ASCII byte, or -1 for a byte of a multibyte character, which folds with the rest of
+     * the character, and for an ignored separator.
+     */
+    private int foldedByte(byte b) {
+        if (!caseInsensitive) {
+            return b & 0xff;
+        }
+        if (ignoreKeySeparators && isKeySeparator(b)) {
+            return -1;
+        }
+        return b >= 0 ? CaseFolding.foldAscii(b) : -1;
+    }
+
+    /**
+     * Searches the trie from the given root for a key, see {@link #keyBytes(String)} for how the key is matched.
+     *
+     * @param ignoreSeparators whether the separators in the key are ignored, which is never the case for the keys of
+     *                         JSONPaths
+     * @return the node where the key ends, or null if the key is not in the trie
+     */
+    @Nullable
+    private TrieNode searchNode(TrieNode root, byte[] bytes, int offset, int length, boolean ignoreSeparators) {
+        TrieNode node = root;
+        int end = offset + length;
+        for (int i = offset; i < end && node != null; i++) {
             byte b = bytes[i];
             // every character of the input key can be escaped \\uXXXX, but since the KeyMatcher uses byte
             // representation of non-escaped characters of the key (e.g. 'key' -> [107, 101, 121]) in UTF-16 format,
@@ -186,95 +563,205 @@ final class KeyMatcher {
             // the trie.
             // Any escaped character (6 bytes from the input) represents 1 to 4 bytes of unescaped key,
             // each of the bytes has to be matched against the trie to return a TrieNode
-            if (b == '\\' && bytes[i + 1] == 'u' && i <= offset + length - 6) {
+            if (b == '\\' && i <= end - 6 && bytes[i + 1] == 'u') {
                 char unicodeHexBytesAsChar = Utf8Util.unicodeHexToChar(bytes, i + 2);
-                i += 6;
-                if (unicodeHexBytesAsChar < 0x80) {
-                    // < 128 (in decimal) fits in 7 bits which is 1 byte of data in UTF-8
-                    node = node.child((byte) unicodeHexBytesAsChar); // check 1st byte
-                } else if (unicodeHexBytesAsChar < 0x800) { // 2048 in decimal,
-                    // < 2048 (in decimal) fits in 11 bits which is 2 bytes of data in UTF-8
-                    node = node.child((byte) (0xc0 | (unicodeHexBytesAsChar >> 6))); // check 1st byte
-                    if (node == null) {
-                        return null;
-                    }
-                    node = node.child((byte) (0x80 | (unicodeHexBytesAsChar & 0x3f))); // check 2nd byte
-                } else if (!Character.isSurrogate(unicodeHexBytesAsChar)) {
-                    // dealing with characters with values between 2048 and 65536 which
-                    // equals to 2^16 or 16 bits, which is 3 bytes of data in UTF-8 encoding
-                    node = node.child((byte) (0xe0 | (unicodeHexBytesAsChar >> 12))); // check 1st byte
-                    if (node == null) {
-                        return null;
-                    }
-                    node = node.child((byte) (0x80 | ((unicodeHexBytesAsChar >> 6) & 0x3f))); // check 2nd byte
-                    if (node == null) {
-                        return null;
-                    }
-                    node = node.child((byte) (0x80 | (unicodeHexBytesAsChar & 0x3f))); // check 3rd byte
-                } else {
+                i += 5; // the loop increment steps over the last hex digit
+                int codePoint = unicodeHexBytesAsChar;
+                if (Character.isSurrogate(unicodeHexBytesAsChar)) {
                     // decoding non-BMP characters in UTF-16 using a pair of high and low
                     // surrogates which together form one unicode character.
-                    int codePoint = -1;
+                    codePoint = -1;
                     if (Character.isHighSurrogate(unicodeHexBytesAsChar) // first surrogate must be the high surrogate
-                        && i <= offset + length - 6 /* -6 for all bytes of the byte encoded unicode character (\\u + 4 hex bytes) to prevent possible ArrayIndexOutOfBoundsExceptions */
-                        && bytes[i] == '\\' // the high surrogate must be followed by a low surrogate (starting with \\u)
-                        && bytes[i + 1] == 'u'
+                        && i + 1 <= end - 6 /* -6 for all bytes of the byte encoded unicode character (\\u + 4 hex bytes) to prevent possible ArrayIndexOutOfBoundsExceptions */
+                        && bytes[i + 1] == '\\' // the high surrogate must be followed by a low surrogate (starting with \\u)
+                        && bytes[i + 2] == 'u'
                     ) {
-                        char lowSurrogate = Utf8Util.unicodeHexToChar(bytes, i + 2);
+                        char lowSurrogate = Utf8Util.unicodeHexToChar(bytes, i + 3);
                         if (Character.isLowSurrogate(lowSurrogate)) {
                             codePoint = Character.toCodePoint(unicodeHexBytesAsChar, lowSurrogate);
+                            i += 6;
                         }
                     }
                     if (codePoint < 0) {
                         // the key contains invalid surrogate pair and won't be matched
                         return null;
-                    } else {
-                        node = node.child((byte) (0xf0 | (codePoint >> 18))); // check 1st byte
-                        if (node == null) {
-                            return null;
-                        }
-                        node = node.child((byte) (0x80 | ((codePoint >> 12) & 0x3f))); // check 2nd byte
-                        if (node == null) {
-                            return null;
-                        }
-                        node = node.child((byte) (0x80 | ((codePoint >> 6) & 0x3f))); // check 3rd byte
-                        if (node == null) {
-                            return null;
-                        }
-                        node = node.child((byte) (0x80 | (codePoint & 0x3f))); // check 4th byte
                     }
-                    i += 6;
                 }
-                i--; // to offset loop increment
-            } else {
+                if (ignoreSeparators && codePoint < 0x80 && isKeySeparator((byte) codePoint)) {
+                    continue;
+                }
+                node = codePointChild(node, codePoint);
+            } else if (b == '\\' && i < end - 1) {
+                // any other escape, e.g. an escaped backslash, is matched as is, and the escaped character must not be
+                // taken for the start of an escape
                 node = node.child(b);
-            }
-
-            if (node == null) {
-                return null;
+                if (node != null) {
+                    byte escaped = bytes[++i];
+                    node = node.child(caseInsensitive ? CaseFolding.foldAscii(escaped) : escaped);
+                }
+            } else if (ignoreSeparators && isKeySeparator(b)) {
+                continue;
+            } else if (b >= 0 || !caseInsensitive) {
+                node = node.child(caseInsensitive ? CaseFolding.foldAscii(b) : b);
+            } else {
+                // a multibyte character is folded as a whole, as its case variants can differ in any of its bytes
+                // and can even have a different length
+                int codePoint = CaseFolding.decodeCodePoint(bytes, i, end);
+                if (codePoint < 0) {
+                    // not valid UTF-8, so it can only match as is
+                    node = node.child(b);
+                } else {
+                    node = codePointChild(node, codePoint);
+                    i += CaseFolding.codePointLength(codePoint) - 1;
+                }
             }
         }
 
-        if (!node.endOfWord) {
+        if (node == null || !node.endOfWord) {
             return null;
         }
 
         return node;
     }
 
+    /**
+     * Traverses the trie along the UTF-8 bytes of a character, or of the folded character when matching
+     * case-insensitively.
+     *
+     * @return the node after the last byte of the character, or null if the character is not in the trie
+     */
+    @Nullable
+    private TrieNode codePointChild(TrieNode node, int codePoint) {
+        if (caseInsensitive) {
+            if (codePoint < 0x80) {
+                return node.child(CaseFolding.foldAscii((byte) codePoint));
+            }
+            byte[] folded = CaseFolding.precomputedFold(codePoint);
+            if (folded == null) {
+                // folds to a single character, which is traversed like any other character
+                codePoint = CaseFolding.foldSingleCharacter(codePoint);
+            } else {
+                TrieNode current = node;
+                for (byte b : folded) {
+                    current = current.child(b);
+                    if (current == null) {
+                        return null;
+                    }
+                }
+                return current;
+            }
+        }
+        int length = CaseFolding.codePointLength(codePoint);
+        if (length == 1) {
+            return node.child((byte) codePoint);
+        }
+        // the first byte holds the length followed by the highest bits, the other bytes hold 6 bits each
+        int shift = 6 * (length - 1);
+        TrieNode current = node.child((byte) ((0xff00 >> length) | (codePoint >> shift)));
+        while (current != null && shift > 0) {
+            shift -= 6;
+            current = current.child((byte) (0x80 | ((codePoint >> shift) & 0x3f)));
+        }
+        return current;
+    }
+
+    /**
+     * Checks whether the given part of the input might contain one of the target keys, without parsing the input: the
+     * strings are found by only looking at quotes and backslashes, and every string is matched against the target
+     * keys, whether it is a key or not. Unicode escapes are decoded the same way as when matching the keys during
+     * masking.
+     *
+     * @param bytes  the input
+     * @param offset the offset of the JSON in the input
+     * @param length the length of the JSON in the input
+     * @return false if the input certainly does not contain any of the target keys, or true if it might or if the
+     * input is not prefiltered
+     */
+    boolean mayContainTargetKey(byte[] bytes, int offset, int length) {
+        TrieNode prefilterRoot = this.prefilterRoot;
+        if (prefilterRoot == null) {
+            return true;
+        }
+        int end = offset + length;
+        int index = offset;
+        while (true) {
+            // outside of strings only quotes matter, a backslash would make the JSON invalid
+            index = StructuralScanner.INSTANCE.indexOfQuoteOrBackslash(bytes, index, end);
+            if (index >= end) {
+                return false;
+            }
+            if (bytes[index] != '"') {
+                index++;
+                continue;
+            }
+            int stringStart = index + 1;
+            index = stringStart;
+            while (true) {
+                index = StructuralScanner.INSTANCE.indexOfQuoteOrBackslash(bytes, index, end);
+                if (index >= end) {
+                    // the string is not terminated, so it cannot be a key
+                    return false;
+                }
+                if (bytes[index] == '"') {
+                    break;
+                }
+                index += 2; // step over the backslash and the escaped character
+            }
+            try {
+                if (searchNode(prefilterRoot, bytes, stringStart, index - stringStart, ignoreKeySeparators) != null) {
+                    return true;
+                }
+                HashedKeySet hashedKeys = this.hashedKeys;
+                if (hashedKeys != null && hashedKeys.get(bytes, stringStart, index - stringStart) != null) {
+                    return true;
+                }
+                KeyPatternAutomaton keyPatterns = this.keyPatterns;
+                if (keyPatterns != null && keyPatterns.match(bytes, stringStart, index - stringStart) != null) {
+                    return true;
+                }
+            } catch (IllegalArgumentException e) {
+                // an invalid unicode escape, let the masking decide whether it's a key
+                return true;
+            }
+            index++; // step over the closing quote
+        }
+    }
+
     @Nullable
     TrieNode getJsonPathRootNode() {
+        JsonPathAutomaton jsonPaths = this.jsonPaths;
+        if (jsonPaths != null) {
+            return jsonPaths.startState();
+        }
         return root.child((byte) '$');
     }
 
     /**
-     * Traverses the trie along the passed JSONPath segment starting from {@code begin} node.
+     * Checks whether a target JSONPath continues below the given JSONPath node, i.e. whether any value nested in the
+     * value at the node can be matched by a JSONPath.
+     *
+     * @param node the JSONPath node of the value, {@code null} if the value does not match any JSONPath prefix
+     * @return true if a JSONPath continues below the node
+     */
+    boolean canMatchJsonPathBelow(@Nullable TrieNode node) {
+        if (node == null) {
+            return false;
+        }
+        if (jsonPaths != null) {
+            return ((JsonPathAutomaton.State) node).canMatchBelow();
+        }
+        return node.child((byte) '.') != null;
+    }
+
+    /**
+     * Traverses the trie along the passed JSONPath segment starting from {@code begin} node, or when the JSONPaths are
+     * matched by the {@link JsonPathAutomaton} advances the state {@code begin}.
      * The passed segment is represented as a key {@code (keyOffset, keyLength)} reference in {@code bytes} array.
      *
      * @param bytes     the message bytes.
      * @param begin     a TrieNode from which the traversal begins.
      * @param keyOffset the offset in {@code bytes} of the segment.
-     * @param keyLength the length of the segment.
+     * @param keyLength the length of the segment, -1 when stepping into an array.
      * @return a TrieNode of the last symbol of the segment. {@code null} if the segment is not in the trie.
      */
     @Nullable
@@ -282,6 +769,9 @@ final class KeyMatcher {
         if (begin == null) {
             return null;
         }
+        if (jsonPaths != null) {
+            return stepJsonPathState((JsonPathAutomaton.State) begin, bytes, keyOffset, keyLength);
+        }
         TrieNode current = begin.child((byte) '.');
         if (current == null) {
             return null;
@@ -290,23 +780,76 @@ final class KeyMatcher {
         if (wildcardLookAhead != null && (wildcardLookAhead.endOfWord || wildcardLookAhead.child((byte) '.') != null)) {
             return wildcardLookAhead;
         }
-        for (int i = keyOffset; i < keyOffset + keyLength; i++) {
+        int end = keyOffset + keyLength;
+        for (int i = keyOffset; i < end && current != null; i++) {
             byte b = bytes[i];
-            current = current.child(b);
-            if (current == null) {
-                return null;
+            if (b >= 0 || !caseInsensitive) {
+                current = current.child(caseInsensitive ? CaseFolding.foldAscii(b) : b);
+                continue;
+            }
+            int codePoint = CaseFolding.decodeCodePoint(bytes, i, end);
+            if (codePoint < 0) {
+                current = current.child(b);
+            } else {
+                current = codePointChild(current, codePoint);
+                i += CaseFolding.codePointLength(codePoint) - 1;
             }
         }
         return current;
     }
 
+    /**
+     * Steps from a state of the {@link JsonPathAutomaton} into the value of a key, or into an array. The key is
+     * matched against the keys of the state in the same way as the target keys are matched in the trie, so the step
+     * does not allocate.
+     *
+     * @return the next state, or null if no JSONPath can match anymore
+     */
+    @Nullable
+    private TrieNode stepJsonPathState(JsonPathAutomaton.State state, byte[] bytes, int keyOffset, int keyLength) {
+        TrieNode keys = state.keys();
+        if (keyLength >= 0 && keys != null) {
+            TrieNode transition = searchNode(keys, bytes, keyOffset, keyLength, false);
+            if (transition != null) {
+                return ((JsonPathAutomaton.Transition) transition).target();
+            }
+        }
+        return state.other();
+    }
+
     /**
      * A node in the Trie, represents part of the character (if character is ASCII, then represents a single character).
-     * A padding of 128 is used to store references to the next positive and negative bytes (which range from -128 to
-     * 128, hence the padding).
+     * <p>
+     * Most nodes have only one child, which is stored in fields of the node itself. Further children are stored
+     * compactly as parallel arrays of byte labels and child nodes that are searched linearly. Only nodes with many
+     * children, typically the first levels of the trie, switch to a dense table of 256 children, in which a padding of
+     * 128 is used to store references to the next positive and negative bytes (which range from -128 to 128, hence the
+     * padding).
      */
     static class TrieNode {
-        final TrieNode[] children = new TrieNode[256];
+        /**
+         * The number of children above which a dense table is used.
+         */
+        private static final int MAX_SPARSE_CHILDREN = 16;
+        private static final byte[] NO_LABELS = new byte[0];
+        private static final TrieNode[] NO_CHILDREN = new TrieNode[0];
+
+        /**
+         * The byte value of the first child, only valid if {@link #firstChild} is set.
+         */
+        private byte firstLabel;
+        @Nullable
+        private TrieNode firstChild;
+        /**
+         * The children after the first child.
+         */
+        private byte[] labels = NO_LABELS;
+        private TrieNode[] children = NO_CHILDREN;
+        /**
+         * All children indexed by byte, or null if the children are stored in {@link #firstChild}, {@link #labels} and
+         * {@link #children}.
+         */
+        private TrieNode @Nullable [] denseChildren;
         /**
          * A marker that the character indicates that the key ends at this node.
          */
@@ -321,19 +864,76 @@ final class KeyMatcher {
          */
         boolean negativeMatch = false;
 
+        TrieNode() {
+            this(false);
+        }
+
+        /**
+         * Creates a node, with a dense table of children if the node is expected to have many children or is looked up
+         * very often, such as the root of the trie.
+         */
+        TrieNode(boolean dense) {
+            this.denseChildren = dense ? new TrieNode[256] : null;
+        }
+
         /**
          * Retrieves a child node by the byte value. Returns {@code null}, if the trie has no matches.
          */
         @Nullable
         TrieNode child(byte b) {
-            return children[b + BYTE_OFFSET];
+            TrieNode[] dense = denseChildren;
+            if (dense != null) {
+                return dense[b + BYTE_OFFSET];
+            }
+            if (firstLabel == b) {
+                return firstChild;
+            }
+            byte[] labels = this.labels;
+            for (int i = 0; i < labels.length; i++) {
+                if (labels[i] == b) {
+                    return children[i];
+                }
+            }
+            return null;
         }
 
         /**
-         * Adds a new child to the trie.
+         * Adds a new child to the trie, replacing the child with the same byte value if there is one.
          */
         void add(byte b, TrieNode child) {
-            children[b + BYTE_OFFSET] = child;
+            TrieNode[] dense = denseChildren;
+            if (dense != null) {
+                dense[b + BYTE_OFFSET] = child;
+                return;
+            }
+            if (firstChild == null || firstLabel == b) {
+                firstLabel = b;
+                firstChild = child;
+                return;
+            }
+            for (int i = 0; i < labels.length; i++) {
+                if (labels[i] == b) {
+                    children[i] = child;
+                    return;
+                }
+            }
+            if (labels.length == MAX_SPARSE_CHILDREN - 1) {
+                dense = new TrieNode[256];
+                dense[firstLabel + BYTE_OFFSET] = firstChild;
+                for (int i = 0; i < labels.length; i++) {
+                    dense[labels[i] + BYTE_OFFSET] = children[i];
+                }
+                dense[b + BYTE_OFFSET] = child;
+                denseChildren = dense;
+                firstChild = null;
+                labels = NO_LABELS;
+                children = NO_CHILDREN;
+                return;
+            }
+            labels = Arrays.copyOf(labels, labels.length + 1);
+            children = Arrays.copyOf(children, children.length + 1);
+            labels[labels.length - 1] = b;
+            children[children.length - 1] = child;
         }
     }
 }
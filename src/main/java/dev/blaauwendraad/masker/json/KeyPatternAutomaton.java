@@ -0,0 +1,432 @@
+package dev.blaauwendraad.masker.json;
+
+import dev.blaauwendraad.masker.json.util.Utf8Util;
+import org.jspecify.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Matches keys against key patterns, such as {@code *password*}, {@code secret*} or {@code api?key}, for
+ * {@link KeyMatcher}.
+ * <p>
+ * All patterns are compiled together into a single deterministic finite automaton over the UTF-8 bytes of the keys, so
+ * a key is matched against all patterns at once by a single pass over its bytes, without any allocations. To keep the
+ * transition table small, the bytes are grouped into classes of bytes that no pattern distinguishes between, e.g. all
+ * bytes that are not mentioned in any of the patterns.
+ * <p>
+ * The patterns support the following syntax:
+ * <ul>
+ *   <li>{@code *} matches any number of characters</li>
+ *   <li>{@code ?} matches exactly one character</li>
+ *   <li>{@code [abc]} matches one of the listed characters, {@code [a-z]} one of the characters in the range and
+ *   {@code [!abc]} any character but the listed ones, only ASCII characters can be listed</li>
+ *   <li>{@code \} escapes the next character, e.g. {@code \*} only matches a star</li>
+ * </ul>
+ * Any other character matches itself, or when matching case-insensitively, also its lower and upper case variants and
+ * its folded form (see {@link CaseFolding}), so that e.g. {@code ß} also matches {@code ss}.
+ */
+final class KeyPatternAutomaton {
+    /**
+     * The maximum number of states of the automaton, to fail fast on patterns that would blow up the transition table.
+     */
+    private static final int MAX_STATES = 10_000;
+    /**
+     * The state that is reached once a key cannot match any of the patterns anymore.
+     */
+    private static final int DEAD_STATE = 0;
+    private static final long[] ALL_BYTES = byteRange(0x00, 0xff);
+    private static final long[] ASCII_BYTES = byteRange(0x00, 0x7f);
+    private static final long[] CONTINUATION_BYTES = byteRange(0x80, 0xbf);
+    private static final long[] TWO_BYTE_LEADING_BYTES = byteRange(0xc2, 0xdf);
+    private static final long[] THREE_BYTE_LEADING_BYTES = byteRange(0xe0, 0xef);
+    private static final long[] FOUR_BYTE_LEADING_BYTES = byteRange(0xf0, 0xf4);
+
+    /**
+     * The class of every byte, indexed by the unsigned byte value.
+     */
+    private final int[] byteClasses = new int[256];
+    private final int classCount;
+    /**
+     * The transition table, a row of {@link #classCount} transitions per state. The states are represented by the
+     * offset of their row, so that a transition is a single look-up.
+     */
+    private final int[] transitions;
+    private final int startState;
+    /**
+     * The node of the pattern that is matched when a key ends in the state, indexed by the state number (row offset
+     * divided by {@link #classCount}), null if the state is not accepting.
+     */
+    private final KeyMatcher.@Nullable TrieNode[] acceptNodes;
+
+    /**
+     * Compiles the given patterns.
+     *
+     * @param patterns      the patterns, in order of priority
+     * @param nodes         the node to return when a key matches the pattern, with the same index as the pattern
+     * @param caseSensitive whether the patterns are matched case-sensitively
+     * @throws IllegalArgumentException if a pattern is invalid or the patterns are too complex
+     */
+    KeyPatternAutomaton(String[] patterns, KeyMatcher.TrieNode[] nodes, boolean caseSensitive) {
+        Nfa nfa = new Nfa();
+        int[] startStates = new int[patterns.length];
+        for (int i = 0; i < patterns.length; i++) {
+            startStates[i] = nfa.addPattern(patterns[i], i, caseSensitive);
+        }
+
+        // group the bytes that all transitions treat the same
+        List<long[]> distinctByteSets = nfa.distinctByteSets();
+        Map<BitSet, Integer> classBySignature = new HashMap<>();
+        int[] classRepresentatives = new int[256];
+        for (int b = 0; b < 256; b++) {
+            BitSet signature = new BitSet();
+            for (int i = 0; i < distinctByteSets.size(); i++) {
+                if (contains(distinctByteSets.get(i), b)) {
+                    signature.set(i);
+                }
+            }
+            Integer byteClass = classBySignature.get(signature);
+            if (byteClass == null) {
+                byteClass = classBySignature.size();
+                classBySignature.put(signature, byteClass);
+                classRepresentatives[byteClass] = b;
+            }
+            byteClasses[b] = byteClass;
+        }
+        this.classCount = classBySignature.size();
+
+        // subset construction, every state of the automaton is a set of states of the non-deterministic automaton,
+        // the states are numbered in the order they are found, which is also the order they are processed in
+        List<BitSet> states = new ArrayList<>();
+        Map<BitSet, Integer> stateNumbers = new HashMap<>();
+        BitSet deadState = new BitSet();
+        states.add(deadState);
+        stateNumbers.put(deadState, DEAD_STATE);
+        BitSet startState = new BitSet();
+        for (int state : startStates) {
+            startState.set(state);
+        }
+        int startStateNumber = stateNumber(startState, states, stateNumbers);
+        List<int[]> rows = new ArrayList<>();
+        for (int i = 0; i < states.size(); i++) {
+            int[] row = new int[classCount];
+            for (int byteClass = 0; byteClass < classCount; byteClass++) {
+                BitSet target = nfa.step(states.get(i), classRepresentatives[byteClass]);
+                row[byteClass] = stateNumber(target, states, stateNumbers) * classCount;
+            }
+            rows.add(row);
+        }
+
+        this.transitions = new int[states.size() * classCount];
+        this.acceptNodes = new KeyMatcher.TrieNode[states.size()];
+        for (int i = 0; i < states.size(); i++) {
+            System.arraycopy(rows.get(i), 0, transitions, i * classCount, classCount);
+            int acceptedPattern = nfa.acceptedPattern(states.get(i));
+            if (acceptedPattern >= 0) {
+                acceptNodes[i] = nodes[acceptedPattern];
+            }
+        }
+        this.startState = startStateNumber * classCount;
+    }
+
+    /**
+     * Returns the number of the state, numbering it if it was not found before.
+     */
+    private static int stateNumber(BitSet state, List<BitSet> states, Map<BitSet, Integer> stateNumbers) {
+        Integer stateNumber = stateNumbers.get(state);
+        if (stateNumber == null) {
+            stateNumber = states.size();
+            if (stateNumber >= MAX_STATES) {
+                throw new IllegalArgumentException("Key patterns are too complex, they need more than %s states"
+                        .formatted(MAX_STATES));
+            }
+            states.add(state);
+            stateNumbers.put(state, stateNumber);
+        }
+        return stateNumber;
+    }
+
+    /**
+     * Matches the key in the given part of the byte array against the patterns.
+     *
+     * @param bytes  the bytes containing the key
+     * @param offset the offset of the key
+     * @param length the length of the key, possibly with unicode escapes
+     * @return the node of the first pattern that matches the key, or null if none of the patterns matches
+     */
+    KeyMatcher.@Nullable TrieNode match(byte[] bytes, int offset, int length) {
+        int state = startState;
+        int end = offset + length;
+        for (int i = offset; i < end && state != DEAD_STATE; i++) {
+            byte b = bytes[i];
+            // unicode escapes are matched as the UTF-8 bytes of the escaped character, the same way the trie does
+            if (b == '\\' && i <= end - 6 && bytes[i + 1] == 'u') {
+                char unicodeHexBytesAsChar = Utf8Util.unicodeHexToChar(bytes, i + 2);
+                i += 5; // the loop increment steps over the last hex digit
+                int codePoint = unicodeHexBytesAsChar;
+                if (Character.isSurrogate(unicodeHexBytesAsChar)) {
+                    codePoint = -1;
+                    if (Character.isHighSurrogate(unicodeHexBytesAsChar)
+                            && i + 1 <= end - 6
+                            && bytes[i + 1] == '\\'
+                            && bytes[i + 2] == 'u') {
+                        char lowSurrogate = Utf8Util.unicodeHexToChar(bytes, i + 3);
+                        if (Character.isLowSurrogate(lowSurrogate)) {
+                            codePoint = Character.toCodePoint(unicodeHexBytesAsChar, lowSurrogate);
+                            i += 6;
+                        }
+                    }
+                    if (codePoint < 0) {
+                        // the key contains invalid surrogate pair and won't be matched
+                        return null;
+                    }
+                }
+                state = step(state, codePoint);
+            } else if (b == '\\' && i < end - 1) {
+                // any other escape, e.g. an escaped backslash, is matched as is, and the escaped character must not be
+                // taken for the start of an escape
+                state = transitions[state + byteClasses[b & 0xff]];
+                state = transitions[state + byteClasses[bytes[++i] & 0xff]];
+            } else {
+                state = transitions[state + byteClasses[b & 0xff]];
+            }
+        }
+        return acceptNodes[state / classCount];
+    }
+
+    /**
+     * Steps over the UTF-8 bytes of a code point.
+     */
+    private int step(int state, int codePoint) {
+        if (codePoint < 0x80) {
+            return transitions[state + byteClasses[codePoint]];
+        } else if (codePoint < 0x800) {
+            state = transitions[state + byteClasses[0xc0 | (codePoint >> 6)]];
+        } else if (codePoint < 0x10000) {
+            state = transitions[state + byteClasses[0xe0 | (codePoint >> 12)]];
+            state = transitions[state + byteClasses[0x80 | ((codePoint >> 6) & 0x3f)]];
+        } else {
+            state = transitions[state + byteClasses[0xf0 | (codePoint >> 18)]];
+            state = transitions[state + byteClasses[0x80 | ((codePoint >> 12) & 0x3f)]];
+            state = transitions[state + byteClasses[0x80 | ((codePoint >> 6) & 0x3f)]];
+        }
+        return transitions[state + byteClasses[0x80 | (codePoint & 0x3f)]];
+    }
+
+    private static long[] byteRange(int from, int to) {
+        long[] bytes = new long[4];
+        for (int b = from; b <= to; b++) {
+            bytes[b >>> 6] |= 1L << b;
+        }
+        return bytes;
+    }
+
+    private static boolean contains(long[] bytes, int b) {
+        return (bytes[b >>> 6] & (1L << b)) != 0;
+    }
+
+    /**
+     * A transition of the non-deterministic automaton on any of the given bytes.
+     */
+    private record Transition(long[] bytes, int target) {
+    }
+
+    /**
+     * The non-deterministic automaton of the patterns, which has a path of states per pattern.
+     */
+    private static final class Nfa {
+        private final List<List<Transition>> transitions = new ArrayList<>();
+        /**
+         * The index of the pattern that is matched in a state, -1 if the state is not accepting.
+         */
+        private final List<Integer> acceptedPatterns = new ArrayList<>();
+
+        private int addState() {
+            transitions.add(new ArrayList<>());
+            acceptedPatterns.add(-1);
+            return transitions.size() - 1;
+        }
+
+        private void addTransition(int from, long[] bytes, int to) {
+            transitions.get(from).add(new Transition(bytes, to));
+        }
+
+        /**
+         * Adds a path of states for the pattern.
+         *
+         * @return the start state of the pattern
+         */
+        int addPattern(String pattern, int patternIndex, boolean caseSensitive) {
+            int startState = addState();
+            int state = startState;
+            int i = 0;
+            while (i < pattern.length()) {
+                int codePoint = pattern.codePointAt(i);
+                i += Character.charCount(codePoint);
+                switch (codePoint) {
+                    case '*' -> addTransition(state, ALL_BYTES, state);
+                    case '?' -> {
+                        int next = addState();
+                        addAnyMultiByteCharacter(state, next);
+                        addTransition(state, ASCII_BYTES, next);
+                        state = next;
+                    }
+                    case '[' -> {
+                        int classEnd = pattern.indexOf(']', i);
+                        if (classEnd < 0) {
+                            throw new IllegalArgumentException("Unclosed character class in key pattern '%s'".formatted(pattern));
+                        }
+                        int next = addState();
+                        addCharacterClass(pattern, pattern.substring(i, classEnd), caseSensitive, state, next);
+                        state = next;
+                        i = classEnd + 1;
+                    }
+                    default -> {
+                        if (codePoint == '\\') {
+                            if (i == pattern.length()) {
+                                throw new IllegalArgumentException("Key pattern '%s' ends with an escape character".formatted(pattern));
+                            }
+                            codePoint = pattern.codePointAt(i);
+                            i += Character.charCount(codePoint);
+                        }
+                        int next = addState();
+                        addCharacter(codePoint, caseSensitive, state, next);
+                        state = next;
+                    }
+                }
+            }
+            acceptedPatterns.set(state, patternIndex);
+            return startState;
+        }
+
+        private void addCharacter(int codePoint, boolean caseSensitive, int from, int to) {
+            String character = new String(Character.toChars(codePoint));
+            Set<String> variants = new LinkedHashSet<>();
+            variants.add(character);
+            if (!caseSensitive) {
+                variants.add(character.toLowerCase());
+                variants.add(character.toUpperCase());
+                // the folded character, which the exact keys are matched by
+                variants.add(new String(CaseFolding.foldCodePoint(codePoint), StandardCharsets.UTF_8));
+            }
+            for (String variant : variants) {
+                byte[] bytes = variant.getBytes(StandardCharsets.UTF_8);
+                int state = from;
+                for (int i = 0; i < bytes.length; i++) {
+                    int next = i == bytes.length - 1 ? to : addState();
+                    addTransition(state, byteRange(bytes[i] & 0xff, bytes[i] & 0xff), next);
+                    state = next;
+                }
+            }
+        }
+
+        private void addCharacterClass(String pattern, String characterClass, boolean caseSensitive, int from, int to) {
+            boolean negated = characterClass.startsWith("!") || characterClass.startsWith("^");
+            if (negated) {
+                characterClass = characterClass.substring(1);
+            }
+            if (characterClass.isEmpty()) {
+                throw new IllegalArgumentException("Empty character class in key pattern '%s'".formatted(pattern));
+            }
+            long[] bytes = new long[4];
+            for (int i = 0; i < characterClass.length(); i++) {
+                char first = characterClass.charAt(i);
+                char last = first;
+                if (i + 2 < characterClass.length() && characterClass.charAt(i + 1) == '-') {
+                    last = characterClass.charAt(i + 2);
+                    i += 2;
+                }
+                if (first > 0x7f || last > 0x7f) {
+                    throw new IllegalArgumentException("Only ASCII characters are supported in character classes of key pattern '%s'".formatted(pattern));
+                }
+                if (first > last) {
+                    throw new IllegalArgumentException("Invalid character range in key pattern '%s'".formatted(pattern));
+                }
+                for (char c = first; c <= last; c++) {
+                    bytes[c >>> 6] |= 1L << c;
+                    if (!caseSensitive && Character.isLetter(c)) {
+                        char lower = Character.toLowerCase(c);
+                        char upper = Character.toUpperCase(c);
+                        bytes[lower >>> 6] |= 1L << lower;
+                        bytes[upper >>> 6] |= 1L << upper;
+                    }
+                }
+            }
+            if (negated) {
+                for (int i = 0; i < 2; i++) {
+                    bytes[i] = ~bytes[i];
+                }
+                addAnyMultiByteCharacter(from, to);
+            }
+            addTransition(from, bytes, to);
+        }
+
+        /**
+         * Adds the transitions over any UTF-8 encoded character of two to four bytes.
+         */
+        private void addAnyMultiByteCharacter(int from, int to) {
+            int twoBytes = addState();
+            addTransition(from, TWO_BYTE_LEADING_BYTES, twoBytes);
+            addTransition(twoBytes, CONTINUATION_BYTES, to);
+            int threeBytes = addState();
+            addTransition(from, THREE_BYTE_LEADING_BYTES, threeBytes);
+            int threeBytesSecond = addState();
+            addTransition(threeBytes, CONTINUATION_BYTES, threeBytesSecond);
+            addTransition(threeBytesSecond, CONTINUATION_BYTES, to);
+            int fourBytes = addState();
+            addTransition(from, FOUR_BYTE_LEADING_BYTES, fourBytes);
+            int fourBytesSecond = addState();
+            addTransition(fourBytes, CONTINUATION_BYTES, fourBytesSecond);
+            int fourBytesThird = addState();
+            addTransition(fourBytesSecond, CONTINUATION_BYTES, fourBytesThird);
+            addTransition(fourBytesThird, CONTINUATION_BYTES, to);
+        }
+
+        List<long[]> distinctByteSets() {
+            Set<List<Long>> seen = new LinkedHashSet<>();
+            List<long[]> distinct = new ArrayList<>();
+            for (List<Transition> stateTransitions : transitions) {
+                for (Transition transition : stateTransitions) {
+                    long[] bytes = transition.bytes();
+                    if (seen.add(List.of(bytes[0], bytes[1], bytes[2], bytes[3]))) {
+                        distinct.add(bytes);
+                    }
+                }
+            }
+            return distinct;
+        }
+
+        BitSet step(BitSet states, int b) {
+            BitSet targets = new BitSet();
+            for (int state = states.nextSetBit(0); state >= 0; state = states.nextSetBit(state + 1)) {
+                for (Transition transition : transitions.get(state)) {
+                    if (contains(transition.bytes(), b)) {
+                        targets.set(transition.target());
+                    }
+                }
+            }
+            return targets;
+        }
+
+        /**
+         * Returns the index of the pattern with the highest priority that is matched in any of the states, or -1 if
+         * none of the states is accepting.
+         */
+        int acceptedPattern(BitSet states) {
+            int acceptedPattern = -1;
+            for (int state = states.nextSetBit(0); state >= 0; state = states.nextSetBit(state + 1)) {
+                int pattern = acceptedPatterns.get(state);
+                if (pattern >= 0 && (acceptedPattern < 0 || pattern < acceptedPattern)) {
+                    acceptedPattern = pattern;
+                }
+            }
+            return acceptedPattern;
+        }
+    }
+}
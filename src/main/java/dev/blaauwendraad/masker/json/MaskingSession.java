@@ -0,0 +1,52 @@
+package dev.blaauwendraad.masker.json;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A session for masking many messages one after another with the same {@link JsonMasker}, created with
+ * {@link JsonMasker#newSession()}. The session keeps the state that is needed for masking between invocations, which
+ * grows to the largest message masked so far, so that masking does not allocate anything but the masked output.
+ * <p>
+ * Sessions are explicitly owned by the caller, e.g. a request handler or a worker, which makes them a good fit for
+ * virtual threads where a thread-local state would be created for every (short-lived) thread. A session is not
+ * thread-safe and must not be used by multiple threads at the same time.
+ */
+public interface MaskingSession {
+
+    /**
+     * Masks the given JSON input and returns the masked output, the same way as {@link JsonMasker#mask(byte[])}. The
+     * input array is never modified, and is returned itself if no value in it is masked.
+     *
+     * @param input the JSON input as bytes
+     * @return the masked JSON output as bytes, or the input if no value is masked
+     * @throws InvalidJsonException in case invalid JSON input was provided
+     */
+    byte[] mask(byte[] input);
+
+    /**
+     * Masks the given JSON input and returns the masked output, the same way as {@link JsonMasker#mask(String)}.
+     *
+     * @param input the JSON input as String
+     * @return the masked JSON output String
+     * @throws InvalidJsonException in case invalid JSON input was provided
+     */
+    default String mask(String input) {
+        return new String(mask(input.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Masks the JSON input in the given part of the input array and writes the masked output into the output array,
+     * the same way as {@link JsonMasker#mask(byte[], int, int, byte[], int)}.
+     *
+     * @param input        the array containing the JSON input
+     * @param offset       the index of the first byte of the JSON input
+     * @param length       the length of the JSON input
+     * @param output       the array to write the masked JSON output into
+     * @param outputOffset the index in the output array to start writing at
+     * @return the number of bytes written into the output array, or a negative number {@code -n} when the output
+     * array requires {@code n} bytes after the output offset to fit the masked JSON output
+     * @throws IndexOutOfBoundsException in case the offsets or the length are out of bounds of the arrays
+     * @throws InvalidJsonException      in case invalid JSON input was provided
+     */
+    int mask(byte[] input, int offset, int length, byte[] output, int outputOffset);
+}
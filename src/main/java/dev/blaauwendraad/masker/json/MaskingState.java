@@ -1,53 +1,326 @@
 package dev.blaauwendraad.masker.json;
 
+import dev.blaauwendraad.masker.json.config.KeyMaskingConfig;
 import dev.blaauwendraad.masker.json.util.Utf8Util;
 import org.jspecify.annotations.Nullable;
 
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 
 /**
  * Represents the state of the {@link JsonMasker} at a given point in time during the {@link JsonMasker#mask(byte[])}
  * operation.
+ * <p>
+ * When created for writing through, the masked message is written into an output buffer that grows as needed while
+ * the message is traversed, rather than recording the replacements and applying them once the message has been
+ * traversed (see {@link #flushReplacementOperations()}).
+ * <p>
+ * When created for a caller supplied output array, the masked message is written directly into that array. Such a
+ * state can be reused for multiple messages (see {@link #reset(byte[], int, int, byte[], int, int)}), so that masking does
+ * not allocate anything.
+ * <p>
+ * When masking an {@link java.io.InputStream} or input that is appended chunk by chunk, the message is a buffer that is
+ * managed by a {@link StreamingState}. It is only consulted once the end of the buffer is reached, to read more input
+ * or to find out that more input needs to be appended first (see {@link #needsMoreInput()}), and to record the
+ * checkpoints to resume masking from. A message that is masked in memory has no streaming state, so reaching its end
+ * means that the JSON has ended.
  */
 final class MaskingState implements ValueMaskerContext {
     private static final int INITIAL_JSONPATH_STACK_CAPACITY = 16; // an initial size of the jsonpath array
-    private final byte[] message;
-    private int currentIndex = 0;
-    private final List<ReplacementOperation> replacementOperations = new ArrayList<>();
+    private static final int INITIAL_CONTAINER_STACK_CAPACITY = 16; // an initial size of the container arrays
+    private static final int INITIAL_REPLACEMENTS_CAPACITY = 16; // an initial size of the replacement operation arrays
+    private static final int MIN_TRAVERSED_FRACTION_FOR_ESTIMATE = 32; // the replacements are estimated after 1/32 of the message
+    private static final byte[] EMPTY_MESSAGE = new byte[0];
+    private static final int[] EMPTY_REPLACEMENTS = new int[0];
+    private static final byte[][] EMPTY_REPLACEMENT_MASKS = new byte[0][];
+    private static final boolean[] EMPTY_CONTAINERS = new boolean[0];
+    private static final @Nullable KeyMaskingConfig[] EMPTY_CONTAINER_KEY_MASKING_CONFIGS = new KeyMaskingConfig[0];
+    byte[] message;
+    /**
+     * The index in the message array at which the input starts, only non-zero when masking a part of an array.
+     */
+    private int messageOffset = 0;
+    /**
+     * The index in the message array after the last byte that belongs to the input. Equal to the length of the message
+     * array, unless the message is a part of an array or a buffer over an input stream.
+     */
+    int messageLength;
+    int currentIndex = 0;
+
+    /**
+     * Delayed replacements that require resizing of the message byte array. In order to avoid resizing on every mask,
+     * the replacement operations are recorded and applied all at once at the end, thus making only a single resize
+     * operation, see {@link #flushReplacementOperations()}.
+     * <p>
+     * The operations are stored as parallel arrays rather than as an object per operation, so that masking many values
+     * does not allocate anything but the growth of the arrays, see {@link #growReplacementOperations(int)}. For every
+     * operation the index from which to start replacing, the length of the target value, the mask to replace the value
+     * with and the number of times to repeat the mask (for cases when every character or digit is masked) are
+     * recorded. The masks are the byte arrays provided by the value maskers and are referenced, not copied.
+     */
+    private int[] replacementStartIndices = EMPTY_REPLACEMENTS;
+    private int[] replacementLengths = EMPTY_REPLACEMENTS;
+    private int[] replacementMaskRepeats = EMPTY_REPLACEMENTS;
+    private byte[][] replacementMasks = EMPTY_REPLACEMENT_MASKS;
+    private int replacementCount = 0;
     private int replacementOperationsTotalDifference = 0;
 
     /**
      * Current JSONPath is represented by a stack of segment references.
-     * A stack is implemented with an array of the trie nodes that reference the end of the segment
+     * A stack is implemented with an array of the trie nodes that reference the end of the segment, or of the
+     * {@link JsonPathAutomaton} states after every segment when a JSONPath has descendant segments
      */
-    private KeyMatcher.@Nullable TrieNode @Nullable [] currentJsonPath = null;
-    private int currentJsonPathHeadIndex = -1;
-    private int currentValueStartIndex = -1;
+    KeyMatcher.@Nullable TrieNode @Nullable [] currentJsonPath = null;
+    int currentJsonPathHeadIndex = -1;
+    int currentValueStartIndex = -1;
+    int currentKeyStartIndex = -1;
+
+    /**
+     * Write-through state, only used when writing into a growing output buffer, into a caller supplied output array or
+     * into an {@link java.io.OutputStream}. In that case the replacements are not recorded, but written directly into
+     * the output together with the bytes preceding them. When streaming, the output buffer is an intermediate buffer
+     * for the output stream.
+     */
+    byte @Nullable [] outputBuffer;
+    private int outputBufferOffset = 0;
+    /**
+     * The index in the output buffer after the last byte that can be written, when writing into a caller supplied
+     * array.
+     */
+    private int outputBufferLimit = 0;
+    /**
+     * Whether the output buffer grows when it is full, rather than being flushed to the output stream or only tracking
+     * the required length for a caller supplied array.
+     */
+    private final boolean growOutputBuffer;
+    /**
+     * The index in the output buffer to write the next byte to. When writing into a caller supplied array that is too
+     * small, the index keeps being incremented past the end of the array to compute the required length.
+     */
+    int outputBufferIndex = 0;
+    /**
+     * The index in the message up to which all bytes have been written to the output.
+     */
+    int flushedIndex = 0;
+    /**
+     * Whether any value was written through as masked since the last reset, in which case the output differs from the
+     * input.
+     */
+    private boolean valuesReplaced = false;
+    /**
+     * The number of bytes of a streamed input that were discarded from the buffer. Used to report the position in
+     * the input rather than the position in the buffer.
+     */
+    long discardedBytes = 0;
+    private boolean inUse = false;
+    /**
+     * The state of the streamed or incrementally appended input, null when the whole message is in memory.
+     */
+    @Nullable
+    private final StreamingState streamingState;
+    /**
+     * Whether the end of the input appended so far was reached before the end of the JSON, set by the streaming state.
+     */
+    boolean needsMoreInput = false;
+    /**
+     * Whether replacements of the same length as the value are written directly into the message.
+     */
+    private final boolean maskInPlace;
+
+    /**
+     * The containers (objects and arrays) that are currently being visited, from the outermost to the innermost one,
+     * which replace the call stack of a recursive traversal. For every container it is tracked whether it is an object
+     * or an array and the {@link KeyMaskingConfig} its values are masked with, if any.
+     */
+    private boolean[] containerIsObject = EMPTY_CONTAINERS;
+    private @Nullable KeyMaskingConfig[] containerKeyMaskingConfigs = EMPTY_CONTAINER_KEY_MASKING_CONFIGS;
+    int containerCount = 0;
 
     public MaskingState(byte[] message, boolean trackJsonPath) {
+        this(message, trackJsonPath, false);
+    }
+
+    public MaskingState(byte[] message, boolean trackJsonPath, boolean maskInPlace) {
+        this.message = message;
+        this.maskInPlace = maskInPlace;
+        this.growOutputBuffer = false;
+        this.messageLength = message.length;
+        this.streamingState = null;
+        if (trackJsonPath) {
+            currentJsonPath = new KeyMatcher.TrieNode[INITIAL_JSONPATH_STACK_CAPACITY];
+        }
+    }
+
+    /**
+     * Creates a masking state that writes the masked message through into a growing output buffer, which is returned
+     * by {@link #flushGrowingOutputBuffer()}.
+     *
+     * @param message        the message to mask
+     * @param trackJsonPath  whether the JSONPath of the values needs to be tracked
+     * @param outputCapacity the initial capacity of the output buffer
+     */
+    public MaskingState(byte[] message, boolean trackJsonPath, int outputCapacity) {
         this.message = message;
+        this.maskInPlace = false;
+        this.growOutputBuffer = true;
+        this.messageLength = message.length;
+        this.streamingState = null;
+        this.outputBuffer = new byte[outputCapacity];
+        this.outputBufferLimit = Integer.MAX_VALUE;
         if (trackJsonPath) {
             currentJsonPath = new KeyMatcher.TrieNode[INITIAL_JSONPATH_STACK_CAPACITY];
         }
     }
 
+    /**
+     * Creates a reusable masking state that writes the masked message into a caller supplied output array, must be
+     * {@link #reset(byte[], int, int, byte[], int, int) reset} before every use.
+     */
+    public MaskingState(boolean trackJsonPath) {
+        this.message = EMPTY_MESSAGE;
+        this.messageLength = 0;
+        this.maskInPlace = false;
+        this.growOutputBuffer = false;
+        this.streamingState = null;
+        if (trackJsonPath) {
+            currentJsonPath = new KeyMatcher.TrieNode[INITIAL_JSONPATH_STACK_CAPACITY];
+        }
+    }
+
+    /**
+     * Creates a masking state over an input buffer that is managed by the streaming state.
+     *
+     * @param streamingState   the streaming state that fills the input buffer
+     * @param buffer           the initially empty input buffer
+     * @param outputBuffer     the output buffer
+     * @param growOutputBuffer whether the output buffer grows when it is full, rather than being flushed
+     * @param trackJsonPath    whether the JSONPath of the values needs to be tracked
+     */
+    MaskingState(StreamingState streamingState, byte[] buffer, byte[] outputBuffer, boolean growOutputBuffer, boolean trackJsonPath) {
+        this.streamingState = streamingState;
+        this.message = buffer;
+        this.messageLength = 0;
+        this.outputBuffer = outputBuffer;
+        this.maskInPlace = false;
+        this.growOutputBuffer = growOutputBuffer;
+        if (trackJsonPath) {
+            currentJsonPath = new KeyMatcher.TrieNode[INITIAL_JSONPATH_STACK_CAPACITY];
+        }
+    }
+
+    /**
+     * Prepares the reusable masking state for masking the given part of the message into the output array.
+     *
+     * @param message      the array containing the message
+     * @param offset       the index of the first byte of the message
+     * @param length       the length of the message
+     * @param output       the array to write the masked message into
+     * @param outputOffset the index in the output array to start writing at
+     * @param outputLimit  the index in the output array after the last byte that can be written
+     */
+    public void reset(byte[] message, int offset, int length, byte[] output, int outputOffset, int outputLimit) {
+        this.message = message;
+        this.messageOffset = offset;
+        this.messageLength = offset + length;
+        this.currentIndex = offset;
+        this.flushedIndex = offset;
+        this.outputBuffer = output;
+        this.outputBufferOffset = outputOffset;
+        this.outputBufferIndex = outputOffset;
+        this.outputBufferLimit = outputLimit;
+        this.currentJsonPathHeadIndex = -1;
+        this.currentValueStartIndex = -1;
+        this.currentKeyStartIndex = -1;
+        this.containerCount = 0;
+        this.valuesReplaced = false;
+        this.inUse = true;
+    }
+
+    /**
+     * Releases the references to the message and output arrays, so that the reusable masking state does not keep
+     * them from being garbage collected.
+     */
+    public void release() {
+        this.message = EMPTY_MESSAGE;
+        this.messageLength = 0;
+        this.outputBuffer = null;
+        this.inUse = false;
+    }
+
+    /**
+     * Checks if the reusable masking state is currently used, e.g. when a value masker masks JSON itself using the
+     * same {@link JsonMasker}.
+     *
+     * @return true if the masking state is in use, false otherwise
+     */
+    public boolean inUse() {
+        return inUse;
+    }
+
     public boolean next() {
-        return ++currentIndex < message.length;
+        return ++currentIndex < messageLength || streamingState != null && streamingState.readMore();
     }
 
     public void incrementIndex(int length) {
         currentIndex += length;
+        if (currentIndex > messageLength && streamingState != null) {
+            // make sure the bytes that were stepped over are available for masking
+            streamingState.readMore();
+        }
     }
 
     public byte byteAtCurrentIndex() {
+        if (currentIndex >= messageLength && (streamingState == null || !streamingState.readMore())) {
+            if (needsMoreInput) {
+                // the traversal stops at the next check of needsMoreInput() without looking at the byte
+                return 0;
+            }
+            // the message might be a part of an array or a buffer, so the bounds check has to be explicit
+            throw new ArrayIndexOutOfBoundsException("Index %s out of bounds for length %s".formatted(currentIndex, messageLength));
+        }
         return message[currentIndex];
     }
 
     public boolean endOfJson() {
-        return currentIndex >= message.length;
+        return currentIndex >= messageLength && (streamingState == null || !streamingState.readMore());
+    }
+
+    /**
+     * Whether the end of the input appended so far was reached before the end of the JSON. The traversal stops as soon
+     * as it checks this, and is resumed from the last checkpoint once more input is appended, see
+     * {@link StreamingState#appendInput(byte[], int, int)}. Until then, nothing that was recorded at the last
+     * checkpoint is changed anymore and no new checkpoint is recorded. Always false when the whole message is in
+     * memory or read from an input stream.
+     *
+     * @return true if the traversal has to stop until more input is appended, false otherwise
+     */
+    public boolean needsMoreInput() {
+        return needsMoreInput;
+    }
+
+    /**
+     * Steps over the plain characters of a string value, up to the next double quote or backslash. If there is none
+     * in the part of the message that is available, steps to the last available byte, so that the next call to
+     * {@link #next()} reads more input if needed. The byte at the current index must be available.
+     */
+    public void stepOverPlainStringCharacters() {
+        int index = StructuralScanner.INSTANCE.indexOfQuoteOrBackslash(message, currentIndex, messageLength);
+        currentIndex = index < messageLength ? index : messageLength - 1;
+    }
+
+    /**
+     * Steps over the bytes of an object or array that do not change the nesting depth, up to the next double quote or
+     * given bracket. If there is none in the part of the message that is available, steps to the last available byte,
+     * so that the next call to {@link #next()} reads more input if needed.
+     *
+     * @param openingBracket the opening bracket of the object or array
+     * @param closingBracket the closing bracket of the object or array
+     */
+    public void stepToQuoteOrBracket(byte openingBracket, byte closingBracket) {
+        if (currentIndex < messageLength) {
+            int index = StructuralScanner.INSTANCE.indexOfQuoteOrBracket(message, currentIndex, messageLength, openingBracket, closingBracket);
+            currentIndex = index < messageLength ? index : messageLength - 1;
+        }
     }
 
     public int currentIndex() {
@@ -59,31 +332,85 @@ final class MaskingState implements ValueMaskerContext {
     }
 
     /**
-     * Replaces a target value (byte slice) with a mask byte. If lengths of both target value and mask are equal, the
-     * replacement is done in-place, otherwise a replacement operation is recorded to be performed as a batch using
-     * {@link #flushReplacementOperations}.
-     *
-     * @see ReplacementOperation
+     * Replaces a target value (byte slice) with a mask byte. If lengths of both target value and mask are equal and
+     * masking in-place is enabled, the replacement is done in-place, otherwise a replacement operation is recorded to
+     * be performed as a batch using {@link #flushReplacementOperations}.
      */
     public void replaceTargetValueWith(int startIndex, int length, byte[] mask, int maskRepeat) {
-        ReplacementOperation replacementOperation = new ReplacementOperation(startIndex, length, mask, maskRepeat);
-        replacementOperations.add(replacementOperation);
-        replacementOperationsTotalDifference += replacementOperation.difference();
+        if (outputBuffer != null) {
+            // when writing through, everything up until the value can be written out right away
+            writeOutput(message, flushedIndex, startIndex - flushedIndex);
+            for (int i = 0; i < maskRepeat; i++) {
+                writeOutput(mask, 0, mask.length);
+            }
+            flushedIndex = startIndex + length;
+            valuesReplaced = true;
+            return;
+        }
+        if (maskInPlace && mask.length * maskRepeat == length) {
+            // the indices of the following bytes are not affected, so the replacement does not need to be recorded
+            for (int i = 0; i < maskRepeat; i++) {
+                System.arraycopy(mask, 0, message, startIndex + i * mask.length, mask.length);
+            }
+            return;
+        }
+        if (replacementCount == replacementStartIndices.length) {
+            growReplacementOperations(startIndex);
+        }
+        replacementStartIndices[replacementCount] = startIndex;
+        replacementLengths[replacementCount] = length;
+        replacementMaskRepeats[replacementCount] = maskRepeat;
+        replacementMasks[replacementCount] = mask;
+        replacementCount++;
+        // the difference between the mask length and the length of the target value, used to compute the length of
+        // the masked message and to keep track of the offset during replacements
+        replacementOperationsTotalDifference += mask.length * maskRepeat - length;
+    }
+
+    /**
+     * Grows the replacement operation arrays when they are full. Once a large enough part of the message has been
+     * traversed, the number of operations in the whole message is estimated from the number of operations recorded
+     * so far, so that the arrays are grown only once or twice more and end up close to the size that is needed, rather
+     * than doubling them up to twice that size. Before that, the masked values seen so far are too few to tell their
+     * density, as they are often clustered, and the arrays are doubled.
+     *
+     * @param index the index in the message of the operation that is about to be recorded
+     */
+    private void growReplacementOperations(int index) {
+        int capacity;
+        int traversed = index - messageOffset;
+        int length = messageLength - messageOffset;
+        if (replacementCount == 0) {
+            capacity = INITIAL_REPLACEMENTS_CAPACITY;
+        } else if (traversed < length / MIN_TRAVERSED_FRACTION_FOR_ESTIMATE) {
+            capacity = replacementCount * 2;
+        } else {
+            long estimated = (long) replacementCount * length / Math.max(1, traversed);
+            // a bit of headroom, so that a slightly higher density in the rest of the message does not grow the arrays
+            estimated += estimated >> 4;
+            // at least by half, so that a message with most of its masked values near the end is not grown too often
+            capacity = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(estimated, replacementCount + (replacementCount >> 1)));
+        }
+        replacementStartIndices = Arrays.copyOf(replacementStartIndices, capacity);
+        replacementLengths = Arrays.copyOf(replacementLengths, capacity);
+        replacementMaskRepeats = Arrays.copyOf(replacementMaskRepeats, capacity);
+        replacementMasks = Arrays.copyOf(replacementMasks, capacity);
     }
 
     /**
      * Performs all replacement operations to the message array, must be called at the end of the replacements.
      * <p>
      * For every operation that required resizing of the original array, to avoid copying the array multiple times,
-     * those operations were stored in a list and can be performed in one go, thus resizing the array only once.
+     * those operations were recorded and can be performed in one go, thus resizing the array only once.
      * <p>
-     * Replacement operation is only recorded if the length of the target value is different from the length of the mask,
-     * otherwise the replacement must have been done in-place.
+     * When masking in-place, replacement operation is only recorded if the length of the target value is different
+     * from the length of the mask, otherwise the replacement must have been done in-place. If no replacement operation
+     * was recorded, the message array itself is returned.
      *
      * @return the message array with all replacement operations performed.
      */
     public byte[] flushReplacementOperations() {
-        if (replacementOperations.isEmpty()) {
+        if (replacementCount == 0) {
             return message;
         }
 
@@ -97,29 +424,32 @@ final class MaskingState implements ValueMaskerContext {
         // Offset is the difference between the original and new array indices, we need it to calculate indices
         // in the new message array using startIndex and endIndex, which are indices in the original array
         int offset = 0;
-        for (ReplacementOperation replacementOperation : replacementOperations) {
+        for (int r = 0; r < replacementCount; r++) {
+            int startIndex = replacementStartIndices[r];
+            byte[] mask = replacementMasks[r];
+            int maskRepeat = replacementMaskRepeats[r];
             // Copy everything from message up until replacement operation start index
             System.arraycopy(
                     message,
                     index,
                     newMessage,
                     index + offset,
-                    replacementOperation.startIndex - index
+                    startIndex - index
             );
             // Insert the mask bytes
-            int length = replacementOperation.mask.length;
-            for (int i = 0; i < replacementOperation.maskRepeat; i++) {
+            int length = mask.length;
+            for (int i = 0; i < maskRepeat; i++) {
                 System.arraycopy(
-                        replacementOperation.mask,
+                        mask,
                         0,
                         newMessage,
-                        replacementOperation.startIndex + offset + i * length,
+                        startIndex + offset + i * length,
                         length
                 );
             }
             // Adjust index and offset to continue copying from the end of the replacement operation
-            index = replacementOperation.startIndex + replacementOperation.length;
-            offset += replacementOperation.difference();
+            index = startIndex + replacementLengths[r];
+            offset += length * maskRepeat - replacementLengths[r];
         }
 
         // Copy the remainder of the original array
@@ -137,6 +467,191 @@ final class MaskingState implements ValueMaskerContext {
         return newMessage;
     }
 
+    /**
+     * Writes the remainder of the message into the output array, must be called at the end of the replacements when
+     * masking into a caller supplied output array.
+     *
+     * @return the number of bytes written into the output array or, if the masked message did not fit, the negated
+     * number of bytes that the masked message requires
+     */
+    public int flushOutputBuffer() {
+        if (growOutputBuffer || streamingState != null || outputBuffer == null) {
+            throw new IllegalStateException("Masking state is not writing into an output array");
+        }
+        writeOutput(message, flushedIndex, messageLength - flushedIndex);
+        flushedIndex = messageLength;
+
+        // make sure no operations are performed after this
+        this.currentIndex = Integer.MAX_VALUE;
+
+        int maskedLength = outputBufferIndex - outputBufferOffset;
+        return outputBufferIndex <= outputBufferLimit ? maskedLength : -maskedLength;
+    }
+
+    /**
+     * Checks whether any value was masked while writing through, i.e. whether the output written so far differs from
+     * the input.
+     *
+     * @return true if at least one value was written into the output as masked, false otherwise
+     */
+    public boolean hasReplacedValues() {
+        return valuesReplaced;
+    }
+
+    /**
+     * Writes the remainder of the message into the growing output buffer, must be called at the end of the
+     * replacements when writing through.
+     *
+     * @return the masked message, which is the output buffer itself if it has exactly the length of the masked message
+     */
+    public byte[] flushGrowingOutputBuffer() {
+        if (!growOutputBuffer || streamingState != null || outputBuffer == null) {
+            throw new IllegalStateException("Masking state is not writing through into a growing output buffer");
+        }
+        writeOutput(message, flushedIndex, messageLength - flushedIndex);
+        flushedIndex = messageLength;
+
+        // make sure no operations are performed after this
+        this.currentIndex = Integer.MAX_VALUE;
+
+        return outputBufferIndex == outputBuffer.length ? outputBuffer : Arrays.copyOf(outputBuffer, outputBufferIndex);
+    }
+
+    /**
+     * Writes the bytes into the output array or into the output stream through the output buffer, so that masks that
+     * are repeated per character do not result in a write per character.
+     */
+    void writeOutput(byte[] bytes, int offset, int length) {
+        if (outputBuffer == null) {
+            throw new IllegalStateException("Masking state is not writing through");
+        }
+        if (growOutputBuffer) {
+            if (outputBufferIndex + length > outputBuffer.length) {
+                outputBuffer = Arrays.copyOf(outputBuffer, Math.max(outputBuffer.length * 2, outputBufferIndex + length));
+            }
+            System.arraycopy(bytes, offset, outputBuffer, outputBufferIndex, length);
+            outputBufferIndex += length;
+            return;
+        }
+        if (streamingState != null) {
+            streamingState.writeOutput(bytes, offset, length);
+            return;
+        }
+        // once the output array is full, only the required length is tracked
+        if (outputBufferIndex + length <= outputBufferLimit) {
+            System.arraycopy(bytes, offset, outputBuffer, outputBufferIndex, length);
+        }
+        outputBufferIndex += length;
+    }
+
+    /**
+     * Records the current state as the point to resume masking from, see {@link StreamingState#checkpoint(boolean)}.
+     * Does nothing when the whole message is in memory.
+     *
+     * @param afterValue whether the checkpoint is after a value rather than before the next value
+     */
+    public void checkpoint(boolean afterValue) {
+        if (streamingState != null) {
+            streamingState.checkpoint(afterValue);
+        }
+    }
+
+    /**
+     * Records a checkpoint inside a string, see {@link StreamingState#checkpointInString(boolean)}. Does nothing when
+     * the whole message is in memory.
+     *
+     * @param escaped whether the byte after the current index is escaped
+     */
+    public void checkpointInString(boolean escaped) {
+        if (streamingState != null) {
+            streamingState.checkpointInString(escaped);
+        }
+    }
+
+    /**
+     * Records a checkpoint inside an object or array that is stepped over, see
+     * {@link StreamingState#checkpointInSkippedContainer()}. Does nothing when the whole message is in memory.
+     */
+    public void checkpointInSkippedContainer() {
+        if (streamingState != null) {
+            streamingState.checkpointInSkippedContainer();
+        }
+    }
+
+    /**
+     * Registers the object or array that is stepped over as a whole, so that a checkpoint can be recorded inside it,
+     * see {@link StreamingState#setSkippedContainer(byte, int)}. Does nothing when the whole message is in memory.
+     *
+     * @param openingBracket the opening bracket of the object or array
+     * @param depth          the number of its objects or arrays that the current index is in, zero after it ended
+     */
+    public void setSkippedContainer(byte openingBracket, int depth) {
+        if (streamingState != null) {
+            streamingState.setSkippedContainer(openingBracket, depth);
+        }
+    }
+
+    /**
+     * Continues stepping over the string at the current index from where it stopped before resuming from the last
+     * checkpoint, see {@link StreamingState#resumeScannedString()}. A string in memory is stepped over only once.
+     *
+     * @return true if the current index is moved into the string, false if the string has to be stepped over from
+     * its opening quote
+     */
+    public boolean resumeScannedString() {
+        return streamingState != null && streamingState.resumeScannedString();
+    }
+
+    /**
+     * Whether the byte at the index to which {@link #resumeScannedString()} moved is escaped.
+     */
+    public boolean scannedStringEscaped() {
+        return streamingState != null && streamingState.scannedStringEscaped();
+    }
+
+    /**
+     * Registers that an object or an array is being visited, nested in the containers that are currently being
+     * visited.
+     *
+     * @param isObject         whether the container is an object or an array
+     * @param keyMaskingConfig the {@link KeyMaskingConfig} the values in the container are masked with, if any
+     * @param maxDepth         the maximum number of nested containers
+     * @throws InvalidJsonException if the container would exceed the maximum depth
+     */
+    public void enterContainer(boolean isObject, @Nullable KeyMaskingConfig keyMaskingConfig, int maxDepth) {
+        if (containerCount == maxDepth) {
+            long offset = discardedBytes + currentIndex - messageOffset;
+            throw new InvalidJsonException("Maximum depth of %s exceeded at index %s".formatted(maxDepth, offset));
+        }
+        if (containerCount == containerIsObject.length) {
+            int capacity = Math.max(INITIAL_CONTAINER_STACK_CAPACITY, containerCount * 2);
+            containerIsObject = Arrays.copyOf(containerIsObject, capacity);
+            containerKeyMaskingConfigs = Arrays.copyOf(containerKeyMaskingConfigs, capacity);
+        }
+        containerIsObject[containerCount] = isObject;
+        containerKeyMaskingConfigs[containerCount] = keyMaskingConfig;
+        containerCount++;
+    }
+
+    /**
+     * Registers that the innermost object or array that is being visited has ended.
+     */
+    public void exitContainer() {
+        containerKeyMaskingConfigs[--containerCount] = null;
+    }
+
+    public int containerCount() {
+        return containerCount;
+    }
+
+    public boolean containerIsObject(int depth) {
+        return containerIsObject[depth];
+    }
+
+    public @Nullable KeyMaskingConfig containerKeyMaskingConfig(int depth) {
+        return containerKeyMaskingConfigs[depth];
+    }
+
     /**
      * Checks if jsonpath masking is enabled.
      * @return true if jsonpath masking is enabled, false otherwise
@@ -201,6 +716,28 @@ final class MaskingState implements ValueMaskerContext {
         this.currentValueStartIndex = -1;
     }
 
+    public int getCurrentKeyStartIndex() {
+        if (currentKeyStartIndex == -1) {
+            throw new IllegalStateException("No current key index set to match");
+        }
+        return currentKeyStartIndex;
+    }
+
+    /**
+     * Register the current index as the start index of the key to be matched, the bytes of the key must be kept in
+     * the message until the key start index is cleared.
+     */
+    public void registerKeyStartIndex() {
+        this.currentKeyStartIndex = currentIndex;
+    }
+
+    /**
+     * Clears the previous registered key start index.
+     */
+    public void clearKeyStartIndex() {
+        this.currentKeyStartIndex = -1;
+    }
+
     @Override
     public byte getByte(int index) {
         checkCurrentValueBounds(index);
@@ -209,7 +746,7 @@ final class MaskingState implements ValueMaskerContext {
 
     @Override
     public int byteLength() {
-        return Math.min(currentIndex, message.length) - getCurrentValueStartIndex();
+        return Math.min(currentIndex, messageLength) - getCurrentValueStartIndex();
     }
 
     @Override
@@ -240,7 +777,7 @@ final class MaskingState implements ValueMaskerContext {
 
     @Override
     public InvalidJsonException invalidJson(String message, int index) {
-        int offset = getCurrentValueStartIndex();
+        long offset = discardedBytes + getCurrentValueStartIndex() - messageOffset;
         return new InvalidJsonException("%s at index %s".formatted(message, offset + index));
     }
 
@@ -254,42 +791,17 @@ final class MaskingState implements ValueMaskerContext {
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
-        sb.append(new String(message, Math.max(0, currentIndex - 10), Math.min(10, currentIndex)));
+        sb.append(new String(message, Math.max(messageOffset, currentIndex - 10), Math.min(10, currentIndex - messageOffset)));
         sb.append(">");
         if (endOfJson()) {
             sb.append("<end of json>");
         } else {
             sb.append((char) message[currentIndex]);
-            if (currentIndex + 1 < message.length) {
+            if (currentIndex + 1 < messageLength) {
                 sb.append("<");
-                sb.append(new String(message, currentIndex + 1, Math.min(10, message.length - currentIndex - 1)));
+                sb.append(new String(message, currentIndex + 1, Math.min(10, messageLength - currentIndex - 1)));
             }
         }
         return sb.toString();
     }
-
-    /**
-     * Represents a delayed replacement that requires resizing of the message byte array. In order to avoid resizing on
-     * every mask, we store the replacement operations in a list and apply them all at once at the end, thus making only
-     * a single resize operation.
-     *
-     * @param startIndex index from which to start replacing
-     * @param length     the length of the target value slice
-     * @param mask       byte array mask to use as replacement for the value
-     * @param maskRepeat number of times to repeat the mask (for cases when every character or digit is masked)
-     *
-     * @see #flushReplacementOperations()
-     */
-    @SuppressWarnings("java:S6218") // never used for comparison
-    private record ReplacementOperation(int startIndex, int length, byte[] mask, int maskRepeat) {
-
-        /**
-         * The difference between the mask length and the length of the target value to replace.
-         * Used to calculate keep track of the offset during replacements.
-         */
-        public int difference() {
-            return mask.length * maskRepeat - length;
-        }
-    }
-
 }
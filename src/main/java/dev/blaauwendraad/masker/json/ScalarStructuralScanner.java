@@ -0,0 +1,29 @@
+package dev.blaauwendraad.masker.json;
+
+import dev.blaauwendraad.masker.json.util.AsciiJsonUtil;
+
+/**
+ * {@link StructuralScanner} that compares 8 bytes at a time using plain long arithmetic, used when the Vector API is
+ * not available.
+ */
+final class ScalarStructuralScanner implements StructuralScanner {
+    @Override
+    public int indexOfQuoteOrBackslash(byte[] bytes, int fromIndex, int toIndex) {
+        return AsciiJsonUtil.indexOfQuoteOrBackslash(bytes, fromIndex, toIndex);
+    }
+
+    @Override
+    public int indexOfQuoteOrBracket(byte[] bytes, int fromIndex, int toIndex, byte openingBracket, byte closingBracket) {
+        return AsciiJsonUtil.indexOfQuoteOrBracket(bytes, fromIndex, toIndex, openingBracket, closingBracket);
+    }
+
+    @Override
+    public int indexOfNewline(byte[] bytes, int fromIndex, int toIndex) {
+        return AsciiJsonUtil.indexOfNewline(bytes, fromIndex, toIndex);
+    }
+
+    @Override
+    public int lastIndexOfNewline(byte[] bytes, int fromIndex, int toIndex) {
+        return AsciiJsonUtil.lastIndexOfNewline(bytes, fromIndex, toIndex);
+    }
+}
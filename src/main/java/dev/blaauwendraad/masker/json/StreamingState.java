@@ -0,0 +1,477 @@
+package dev.blaauwendraad.masker.json;
+
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * Represents the part of the state of the {@link JsonMasker} that is only needed when masking input of which only a
+ * part is available at a time. The {@link MaskingState} of the traversal masks a buffer of the input, and consults the
+ * streaming state once the end of the buffer is reached.
+ * <p>
+ * When created for an {@link InputStream}, the message is a sliding buffer over the stream: bytes that were already
+ * processed are written to the {@link OutputStream} (with the masks applied) and discarded from the buffer whenever
+ * more input needs to be read, see {@link #readMore()}.
+ * <p>
+ * When created for incremental masking, the input is appended chunk by chunk (see
+ * {@link #appendInput(byte[], int, int)}). Reaching the end of the input appended so far makes
+ * {@link MaskingState#needsMoreInput()} return true, after which the traversal stops and is resumed from the last
+ * {@link #checkpoint(boolean) checkpoint} once more input is available. Only the output up to the last checkpoint is
+ * final. Checkpoints are also recorded inside values that are stepped over rather than masked (see
+ * {@link #checkpointInString(boolean)}), so that neither the memory nor the work per chunk depends on the size of such
+ * a value.
+ */
+final class StreamingState {
+    private static final int STREAM_BUFFER_SIZE = 8192; // an initial size of the input and output buffers for streams
+    private final MaskingState maskingState;
+    /**
+     * The input stream to read the message from, null when the input is appended chunk by chunk.
+     */
+    @Nullable
+    private final InputStream inputStream;
+    @Nullable
+    private final OutputStream outputStream;
+    private boolean endOfStream = false;
+
+    /**
+     * Incremental state, only used when the input is appended in chunks, so that the traversal can be resumed from the
+     * last checkpoint.
+     */
+    private int checkpointIndex = 0;
+    private int checkpointFlushedIndex = 0;
+    private int checkpointOutputIndex = 0;
+    private int checkpointJsonPathHeadIndex = -1;
+    private KeyMatcher.@Nullable TrieNode checkpointJsonPathNode = null;
+    private int checkpointContainerCount = 0;
+    private boolean checkpointAfterValue = false;
+    /**
+     * Whether the last checkpoint is inside a value that is stepped over, in which case it is inside a string if
+     * {@link #checkpointInString}, with the byte at the checkpoint being escaped if {@link #checkpointEscaped}, and
+     * inside the object or array that is stepped over if {@link #checkpointSkippedContainerDepth} is not zero.
+     */
+    private boolean checkpointInValue = false;
+    private boolean checkpointInString = false;
+    private boolean checkpointEscaped = false;
+    private byte checkpointSkippedContainerOpeningBracket = 0;
+    private int checkpointSkippedContainerDepth = 0;
+    /**
+     * The object or array that is stepped over as a whole, if any: its opening bracket and the number of its objects
+     * or arrays that the current index is in, zero if none. Tracked so that a checkpoint can be recorded inside it.
+     */
+    private byte skippedContainerOpeningBracket = 0;
+    private int skippedContainerDepth = 0;
+    /**
+     * The string of a key or of a masked value that was stepped over up to the end of the input appended so far, if
+     * any: the index of its opening quote, the index up to which it was stepped over and whether the byte at that
+     * index is escaped. Its bytes are needed as a whole, so masking is resumed from the checkpoint before it, but
+     * stepping over it again continues from where it stopped, so that a long string is not stepped over again for
+     * every chunk.
+     */
+    private int scannedStringStartIndex = -1;
+    private int scannedStringIndex = -1;
+    private boolean scannedStringEscaped = false;
+
+    public StreamingState(InputStream inputStream, OutputStream outputStream, boolean trackJsonPath) {
+        this.inputStream = inputStream;
+        this.outputStream = outputStream;
+        this.maskingState = new MaskingState(this, new byte[STREAM_BUFFER_SIZE], new byte[STREAM_BUFFER_SIZE], false, trackJsonPath);
+        readMore();
+    }
+
+    /**
+     * Creates an incremental streaming state, which masks the input that is appended chunk by chunk into a growing
+     * output buffer.
+     */
+    public StreamingState(boolean trackJsonPath) {
+        this.inputStream = null;
+        this.outputStream = null;
+        this.maskingState = new MaskingState(this, new byte[STREAM_BUFFER_SIZE], new byte[STREAM_BUFFER_SIZE], true, trackJsonPath);
+    }
+
+    /**
+     * Returns the masking state that masks the buffer of the input.
+     */
+    public MaskingState maskingState() {
+        return maskingState;
+    }
+
+    /**
+     * Reads more bytes from the input stream into the buffer, until the byte at the current index is available.
+     * <p>
+     * Before reading, all bytes that precede the current index, the key being matched and the value being masked are
+     * written to the output stream and discarded from the buffer. The buffer only grows when a single key or value
+     * does not fit into it, so the memory used for masking stays constant regardless of the size of the input.
+     * <p>
+     * When the input is appended chunk by chunk, nothing can be read, and reaching the end of the input appended so
+     * far means that more input is needed, unless the input is finished, see {@link MaskingState#needsMoreInput()}.
+     *
+     * @return true if the byte at the current index is available, false if the end of the input is reached
+     */
+    boolean readMore() {
+        MaskingState state = maskingState;
+        if (inputStream == null) {
+            state.needsMoreInput = !endOfStream;
+            return false;
+        }
+        if (endOfStream) {
+            return false;
+        }
+        int discardUpToIndex = Math.min(state.currentIndex, state.messageLength);
+        if (state.currentKeyStartIndex != -1) {
+            discardUpToIndex = Math.min(discardUpToIndex, state.currentKeyStartIndex);
+        }
+        if (state.currentValueStartIndex != -1) {
+            discardUpToIndex = Math.min(discardUpToIndex, state.currentValueStartIndex);
+        }
+        state.writeOutput(state.message, state.flushedIndex, discardUpToIndex - state.flushedIndex);
+        System.arraycopy(state.message, discardUpToIndex, state.message, 0, state.messageLength - discardUpToIndex);
+        state.messageLength -= discardUpToIndex;
+        state.currentIndex -= discardUpToIndex;
+        state.flushedIndex = 0;
+        if (state.currentKeyStartIndex != -1) {
+            state.currentKeyStartIndex -= discardUpToIndex;
+        }
+        if (state.currentValueStartIndex != -1) {
+            state.currentValueStartIndex -= discardUpToIndex;
+        }
+        state.discardedBytes += discardUpToIndex;
+        try {
+            while (state.currentIndex >= state.messageLength) {
+                if (state.messageLength == state.message.length) {
+                    state.message = Arrays.copyOf(state.message, state.message.length * 2);
+                }
+                int read = inputStream.read(state.message, state.messageLength, state.message.length - state.messageLength);
+                if (read == -1) {
+                    endOfStream = true;
+                    return false;
+                }
+                state.messageLength += read;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return true;
+    }
+
+    /**
+     * Writes the bytes into the output stream through the output buffer of the masking state.
+     */
+    void writeOutput(byte[] bytes, int offset, int length) {
+        byte[] outputBuffer = maskingState.outputBuffer;
+        if (outputStream == null || outputBuffer == null) {
+            throw new IllegalStateException("Masking state is not streaming");
+        }
+        try {
+            if (maskingState.outputBufferIndex + length > outputBuffer.length) {
+                outputStream.write(outputBuffer, 0, maskingState.outputBufferIndex);
+                maskingState.outputBufferIndex = 0;
+            }
+            if (length > outputBuffer.length) {
+                outputStream.write(bytes, offset, length);
+            } else {
+                System.arraycopy(bytes, offset, outputBuffer, maskingState.outputBufferIndex, length);
+                maskingState.outputBufferIndex += length;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the remainder of the input into the output stream, must be called at the end of the replacements when
+     * masking from an {@link InputStream}.
+     * <p>
+     * Everything after the end of the JSON value (e.g. trailing whitespaces) is copied to the output as is, the same
+     * way as it is done by {@link MaskingState#flushReplacementOperations()}.
+     */
+    public void flushOutputStream() {
+        MaskingState state = maskingState;
+        byte[] outputBuffer = state.outputBuffer;
+        if (inputStream == null || outputStream == null || outputBuffer == null) {
+            throw new IllegalStateException("Masking state is not streaming");
+        }
+        state.writeOutput(state.message, state.flushedIndex, state.messageLength - state.flushedIndex);
+        state.flushedIndex = state.messageLength;
+        try {
+            outputStream.write(outputBuffer, 0, state.outputBufferIndex);
+            state.outputBufferIndex = 0;
+            if (!endOfStream) {
+                inputStream.transferTo(outputStream);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        // make sure no operations are performed after this
+        state.currentIndex = Integer.MAX_VALUE;
+    }
+
+    /**
+     * Appends the chunk to the input of an incremental masking state. Everything that precedes the last checkpoint and
+     * was written to the output already is discarded from the buffer, and the state is restored to the last
+     * checkpoint, so that masking can be resumed from there.
+     *
+     * @param chunk  the array containing the chunk
+     * @param offset the index of the first byte of the chunk
+     * @param length the length of the chunk
+     */
+    public void appendInput(byte[] chunk, int offset, int length) {
+        if (inputStream != null) {
+            throw new IllegalStateException("Masking state is not incremental");
+        }
+        MaskingState state = maskingState;
+        int discardUpToIndex = checkpointFlushedIndex;
+        if (discardUpToIndex > 0) {
+            // nothing is discarded while a key or masked value is incomplete, so it is not moved for every chunk
+            System.arraycopy(state.message, discardUpToIndex, state.message, 0, state.messageLength - discardUpToIndex);
+        }
+        state.messageLength -= discardUpToIndex;
+        checkpointIndex -= discardUpToIndex;
+        checkpointFlushedIndex = 0;
+        if (scannedStringStartIndex != -1) {
+            scannedStringStartIndex -= discardUpToIndex;
+            scannedStringIndex -= discardUpToIndex;
+        }
+        state.discardedBytes += discardUpToIndex;
+        if (state.messageLength + length > state.message.length) {
+            state.message = Arrays.copyOf(state.message, Math.max(state.message.length * 2, state.messageLength + length));
+        }
+        System.arraycopy(chunk, offset, state.message, state.messageLength, length);
+        state.messageLength += length;
+        restoreCheckpoint();
+    }
+
+    /**
+     * Marks the end of the input of an incremental masking state and restores the state to the last checkpoint, so
+     * that masking can be completed from there.
+     */
+    public void finishInput() {
+        if (inputStream != null) {
+            throw new IllegalStateException("Masking state is not incremental");
+        }
+        endOfStream = true;
+        restoreCheckpoint();
+    }
+
+    /**
+     * Records the current state as the point to resume masking from when the end of the input that was appended so far
+     * is reached, everything before the current index is written to the output. Must only be called when neither a
+     * key nor a value is being processed, i.e. before or after a value in the innermost container, or before or after
+     * the root value when no container is being visited. Does nothing when the masking state is not incremental or
+     * {@link MaskingState#needsMoreInput() needs more input}.
+     *
+     * @param afterValue whether the checkpoint is after a value rather than before the next value
+     */
+    public void checkpoint(boolean afterValue) {
+        if (inputStream != null || maskingState.needsMoreInput) {
+            return;
+        }
+        recordCheckpoint(maskingState.currentIndex);
+        checkpointAfterValue = afterValue;
+    }
+
+    /**
+     * Records a checkpoint after the byte at the current index, which is inside a string, if it is the last byte of
+     * the input that was appended so far. Masking is then resumed inside the string once more input is appended.
+     * <p>
+     * Only strings that are stepped over rather than masked can be resumed inside, as keys and masked values are
+     * processed as a whole. For those, masking is resumed from the last checkpoint before them, but the string is
+     * stepped over from where it stopped, see {@link #resumeScannedString()}. Does nothing when the masking state is
+     * not incremental.
+     *
+     * @param escaped whether the byte after the current index is escaped
+     */
+    public void checkpointInString(boolean escaped) {
+        MaskingState state = maskingState;
+        if (inputStream != null || state.needsMoreInput || state.currentIndex != state.messageLength - 1) {
+            return;
+        }
+        if (state.currentKeyStartIndex != -1 || state.currentValueStartIndex != -1) {
+            scannedStringStartIndex = Math.max(state.currentKeyStartIndex, state.currentValueStartIndex);
+            scannedStringIndex = state.messageLength;
+            scannedStringEscaped = escaped;
+            return;
+        }
+        recordCheckpointInValue(true, escaped);
+    }
+
+    /**
+     * Records a checkpoint after the byte at the current index, which is inside an object or array that is stepped
+     * over as a whole (see {@link #setSkippedContainer(byte, int)}), but not inside a string, if it is the last byte
+     * of the input that was appended so far. Masking is then resumed inside the object or array once more input is
+     * appended. Does nothing when the masking state is not incremental.
+     */
+    public void checkpointInSkippedContainer() {
+        MaskingState state = maskingState;
+        if (inputStream != null
+                || state.needsMoreInput
+                || state.currentIndex != state.messageLength - 1
+                || state.currentKeyStartIndex != -1
+                || state.currentValueStartIndex != -1) {
+            return;
+        }
+        recordCheckpointInValue(false, false);
+    }
+
+    private void recordCheckpointInValue(boolean inString, boolean escaped) {
+        recordCheckpoint(maskingState.messageLength);
+        checkpointAfterValue = false;
+        checkpointInValue = true;
+        checkpointInString = inString;
+        checkpointEscaped = escaped;
+        checkpointSkippedContainerOpeningBracket = skippedContainerOpeningBracket;
+        checkpointSkippedContainerDepth = skippedContainerDepth;
+    }
+
+    private void recordCheckpoint(int index) {
+        MaskingState state = maskingState;
+        // nothing before the checkpoint can be masked anymore, so it is final
+        int finalIndex = Math.min(index, state.messageLength);
+        state.writeOutput(state.message, state.flushedIndex, finalIndex - state.flushedIndex);
+        state.flushedIndex = finalIndex;
+        checkpointIndex = index;
+        checkpointFlushedIndex = state.flushedIndex;
+        checkpointOutputIndex = state.outputBufferIndex;
+        checkpointJsonPathHeadIndex = state.currentJsonPathHeadIndex;
+        checkpointJsonPathNode = state.getCurrentJsonPathNode();
+        checkpointContainerCount = state.containerCount;
+        checkpointInValue = false;
+        if (scannedStringStartIndex < index) {
+            // the string that was stepped over precedes the checkpoint, so it is not stepped over again
+            scannedStringStartIndex = -1;
+        }
+    }
+
+    private void restoreCheckpoint() {
+        MaskingState state = maskingState;
+        state.needsMoreInput = false;
+        state.currentIndex = checkpointIndex;
+        state.flushedIndex = checkpointFlushedIndex;
+        state.outputBufferIndex = checkpointOutputIndex;
+        state.currentJsonPathHeadIndex = checkpointJsonPathHeadIndex;
+        if (state.currentJsonPath != null && state.currentJsonPathHeadIndex != -1) {
+            // the last segment might have been backtracked after the checkpoint
+            state.currentJsonPath[state.currentJsonPathHeadIndex] = checkpointJsonPathNode;
+        }
+        state.containerCount = checkpointContainerCount;
+        state.currentKeyStartIndex = -1;
+        state.currentValueStartIndex = -1;
+        skippedContainerOpeningBracket = checkpointSkippedContainerOpeningBracket;
+        skippedContainerDepth = checkpointInValue ? checkpointSkippedContainerDepth : 0;
+    }
+
+    /**
+     * Continues stepping over the string at the current index from where the end of the input was reached before
+     * resuming from the last checkpoint, if it is the string of a key or a masked value that was stepped over up to
+     * there, see {@link #checkpointInString(boolean)}.
+     *
+     * @return true if the current index is moved into the string, false if the string has to be stepped over from
+     * its opening quote
+     */
+    public boolean resumeScannedString() {
+        if (maskingState.currentIndex != scannedStringStartIndex) {
+            return false;
+        }
+        maskingState.currentIndex = scannedStringIndex;
+        return true;
+    }
+
+    /**
+     * Whether the byte at the index to which {@link #resumeScannedString()} moved is escaped.
+     */
+    public boolean scannedStringEscaped() {
+        return scannedStringEscaped;
+    }
+
+    /**
+     * Registers the object or array that is stepped over as a whole, so that a checkpoint can be recorded inside it.
+     *
+     * @param openingBracket the opening bracket of the object or array
+     * @param depth          the number of its objects or arrays that the current index is in, zero after it ended
+     */
+    public void setSkippedContainer(byte openingBracket, int depth) {
+        skippedContainerOpeningBracket = openingBracket;
+        skippedContainerDepth = depth;
+    }
+
+    public byte skippedContainerOpeningBracket() {
+        return skippedContainerOpeningBracket;
+    }
+
+    public int skippedContainerDepth() {
+        return skippedContainerDepth;
+    }
+
+    /**
+     * Whether the last checkpoint is inside a value that is stepped over, see {@link #checkpointInString(boolean)}
+     * and {@link #checkpointInSkippedContainer()}, in which case the rest of that value has to be stepped over when
+     * masking is resumed.
+     */
+    public boolean isCheckpointInValue() {
+        return checkpointInValue;
+    }
+
+    /**
+     * Whether the last checkpoint is inside a string, see {@link #checkpointInString(boolean)}.
+     */
+    public boolean isCheckpointInString() {
+        return checkpointInString;
+    }
+
+    /**
+     * Whether the byte at the last checkpoint is escaped, if the checkpoint is inside a string.
+     */
+    public boolean isCheckpointEscaped() {
+        return checkpointEscaped;
+    }
+
+    /**
+     * Returns the number of bytes of the input that are kept because masking resumes from the last checkpoint before
+     * them, i.e. the part of a key or a masked value that is incomplete at the end of the input appended so far.
+     */
+    public int bufferedInputLength() {
+        return maskingState.messageLength - checkpointFlushedIndex;
+    }
+
+    /**
+     * Whether the last checkpoint is after a value rather than before the next value.
+     */
+    public boolean checkpointAfterValue() {
+        return checkpointAfterValue;
+    }
+
+    /**
+     * Writes the output up to the last checkpoint of an incremental masking state to the output stream, the output
+     * after the last checkpoint is discarded, as it is written again when masking is resumed.
+     *
+     * @param output the output stream to write to
+     */
+    public void writeCheckpointOutput(OutputStream output) throws IOException {
+        byte[] outputBuffer = maskingState.outputBuffer;
+        if (inputStream != null || outputBuffer == null) {
+            throw new IllegalStateException("Masking state is not incremental");
+        }
+        output.write(outputBuffer, 0, checkpointOutputIndex);
+        maskingState.outputBufferIndex = 0;
+        checkpointOutputIndex = 0;
+    }
+
+    /**
+     * Writes the remainder of the input of an incremental masking state to the output and records a checkpoint after
+     * it, must be called at the end of the replacements.
+     * <p>
+     * Everything after the end of the JSON value (e.g. trailing whitespaces) is copied to the output as is, the same
+     * way as it is done by {@link MaskingState#flushReplacementOperations()}.
+     */
+    public void flushRemainingInput() {
+        MaskingState state = maskingState;
+        state.writeOutput(state.message, state.flushedIndex, state.messageLength - state.flushedIndex);
+        state.flushedIndex = state.messageLength;
+        state.currentIndex = state.messageLength;
+        checkpoint(true);
+    }
+}
@@ -0,0 +1,75 @@
+package dev.blaauwendraad.masker.json;
+
+/**
+ * Finds the bytes that end a run of bytes the {@link KeyContainsMasker} can step over at once: the end of the plain
+ * characters of a string and the next string or bracket when stepping over an object or array. It also finds the line
+ * feeds that separate the values of newline-delimited JSON for the {@link JsonLinesMasker}.
+ * <p>
+ * There are two engines: {@link ScalarStructuralScanner}, which compares 8 bytes at a time, and
+ * {@link VectorStructuralScanner}, which uses the Vector API to compare 32 or 64 bytes at a time. As the Vector API is
+ * an incubator module in Java 17, the vector engine is only used when the {@code jdk.incubator.vector} module is
+ * present (e.g. {@code --add-modules jdk.incubator.vector}) and the CPU supports vectors of at least 256 bits. The
+ * engine is chosen once per JVM, otherwise the scalar engine is used.
+ */
+interface StructuralScanner {
+    /**
+     * The scanner used for masking.
+     */
+    StructuralScanner INSTANCE = create();
+
+    /**
+     * Finds the first double quote or backslash in the given range of the byte array.
+     *
+     * @param bytes     the array to search in
+     * @param fromIndex the index to start searching from (inclusive)
+     * @param toIndex   the index to stop searching at (exclusive)
+     * @return the index of the first double quote or backslash, or {@code toIndex} if there is none
+     */
+    int indexOfQuoteOrBackslash(byte[] bytes, int fromIndex, int toIndex);
+
+    /**
+     * Finds the first double quote, opening bracket or closing bracket in the given range of the byte array.
+     *
+     * @param bytes          the array to search in
+     * @param fromIndex      the index to start searching from (inclusive)
+     * @param toIndex        the index to stop searching at (exclusive)
+     * @param openingBracket the opening bracket to search for, either <code>{</code> or <code>[</code>
+     * @param closingBracket the closing bracket to search for, either <code>}</code> or <code>]</code>
+     * @return the index of the first double quote or bracket, or {@code toIndex} if there is none
+     */
+    int indexOfQuoteOrBracket(byte[] bytes, int fromIndex, int toIndex, byte openingBracket, byte closingBracket);
+
+    /**
+     * Finds the first line feed in the given range of the byte array.
+     *
+     * @param bytes     the array to search in
+     * @param fromIndex the index to start searching from (inclusive)
+     * @param toIndex   the index to stop searching at (exclusive)
+     * @return the index of the first line feed, or {@code toIndex} if there is none
+     */
+    int indexOfNewline(byte[] bytes, int fromIndex, int toIndex);
+
+    /**
+     * Finds the last line feed in the given range of the byte array.
+     *
+     * @param bytes     the array to search in
+     * @param fromIndex the index to stop searching at (inclusive)
+     * @param toIndex   the index to start searching backwards from (exclusive)
+     * @return the index of the last line feed, or {@code fromIndex - 1} if there is none
+     */
+    int lastIndexOfNewline(byte[] bytes, int fromIndex, int toIndex);
+
+    private static StructuralScanner create() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                // loaded reflectively, so that the Vector API classes are never resolved when the module is absent
+                return (StructuralScanner) Class.forName("dev.blaauwendraad.masker.json.VectorStructuralScanner")
+                        .getDeclaredConstructor()
+                        .newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // the vectors are too small to be worth it, or the Vector API is not usable, use the scalar engine
+            }
+        }
+        return new ScalarStructuralScanner();
+    }
+}
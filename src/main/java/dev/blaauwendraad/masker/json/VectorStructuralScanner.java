@@ -0,0 +1,86 @@
+package dev.blaauwendraad.masker.json;
+
+import dev.blaauwendraad.masker.json.util.AsciiJsonUtil;
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link StructuralScanner} that uses the Vector API to compare a whole vector of bytes (32 bytes with AVX2, 64 bytes
+ * with AVX-512) per iteration: every searched byte is compared against all lanes at once and the resulting masks are
+ * combined, the first set lane is the match. The remainder that does not fill a vector is scanned by the
+ * {@link ScalarStructuralScanner scalar engine}.
+ * <p>
+ * This class must only be loaded when the {@code jdk.incubator.vector} module is present, see
+ * {@link StructuralScanner#INSTANCE}.
+ */
+final class VectorStructuralScanner implements StructuralScanner {
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+    /**
+     * Smaller vectors are not faster than comparing 8 bytes at a time, and without hardware support the Vector API
+     * falls back to a much slower Java implementation.
+     */
+    private static final int MIN_VECTOR_BYTE_SIZE = 32;
+
+    VectorStructuralScanner() {
+        if (SPECIES.vectorByteSize() < MIN_VECTOR_BYTE_SIZE) {
+            throw new UnsupportedOperationException("Vectors of %s bytes are not supported".formatted(SPECIES.vectorByteSize()));
+        }
+    }
+
+    @Override
+    public int indexOfQuoteOrBackslash(byte[] bytes, int fromIndex, int toIndex) {
+        int index = fromIndex;
+        int upperBound = toIndex - SPECIES.length();
+        for (; index <= upperBound; index += SPECIES.length()) {
+            ByteVector vector = ByteVector.fromArray(SPECIES, bytes, index);
+            VectorMask<Byte> matches = vector.eq((byte) '"').or(vector.eq((byte) '\\'));
+            if (matches.anyTrue()) {
+                return index + matches.firstTrue();
+            }
+        }
+        return AsciiJsonUtil.indexOfQuoteOrBackslash(bytes, index, toIndex);
+    }
+
+    @Override
+    public int indexOfQuoteOrBracket(byte[] bytes, int fromIndex, int toIndex, byte openingBracket, byte closingBracket) {
+        int index = fromIndex;
+        int upperBound = toIndex - SPECIES.length();
+        for (; index <= upperBound; index += SPECIES.length()) {
+            ByteVector vector = ByteVector.fromArray(SPECIES, bytes, index);
+            VectorMask<Byte> matches = vector.eq((byte) '"')
+                    .or(vector.eq(openingBracket))
+                    .or(vector.eq(closingBracket));
+            if (matches.anyTrue()) {
+                return index + matches.firstTrue();
+            }
+        }
+        return AsciiJsonUtil.indexOfQuoteOrBracket(bytes, index, toIndex, openingBracket, closingBracket);
+    }
+
+    @Override
+    public int indexOfNewline(byte[] bytes, int fromIndex, int toIndex) {
+        int index = fromIndex;
+        int upperBound = toIndex - SPECIES.length();
+        for (; index <= upperBound; index += SPECIES.length()) {
+            VectorMask<Byte> matches = ByteVector.fromArray(SPECIES, bytes, index).eq((byte) '\n');
+            if (matches.anyTrue()) {
+                return index + matches.firstTrue();
+            }
+        }
+        return AsciiJsonUtil.indexOfNewline(bytes, index, toIndex);
+    }
+
+    @Override
+    public int lastIndexOfNewline(byte[] bytes, int fromIndex, int toIndex) {
+        int index = toIndex;
+        int lowerBound = fromIndex + SPECIES.length();
+        for (; index >= lowerBound; index -= SPECIES.length()) {
+            VectorMask<Byte> matches = ByteVector.fromArray(SPECIES, bytes, index - SPECIES.length()).eq((byte) '\n');
+            if (matches.anyTrue()) {
+                return index - SPECIES.length() + matches.lastTrue();
+            }
+        }
+        return AsciiJsonUtil.lastIndexOfNewline(bytes, fromIndex, index);
+    }
+}
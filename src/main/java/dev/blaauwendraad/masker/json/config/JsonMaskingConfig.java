@@ -29,13 +29,49 @@ public final class JsonMaskingConfig {
      * Specifies the set of JSONPaths for which the string/number values should be masked.
      */
     private final Set<JsonPath> targetJsonPaths;
+    /**
+     * Specifies the set of key patterns for which the string/number values should be targeted (either masked or
+     * allowed, depending on the configured {@link JsonMaskingConfig#targetKeyMode}.
+     *
+     * @see JsonMaskingConfig.Builder#maskKeyPatterns(Set)
+     */
+    private final Set<String> targetKeyPatterns;
     /**
      * @see JsonMaskingConfig.Builder#caseSensitiveTargetKeys
      */
     private final boolean caseSensitiveTargetKeys;
+    /**
+     * @see JsonMaskingConfig.Builder#normalizeTargetKeys
+     */
+    private final boolean normalizeTargetKeys;
+    /**
+     * @see JsonMaskingConfig.Builder#maskInPlace
+     */
+    private final boolean maskInPlace;
+    /**
+     * @see JsonMaskingConfig.Builder#writeThrough
+     */
+    private final boolean writeThrough;
+    /**
+     * @see JsonMaskingConfig.Builder#maxDepth
+     */
+    private final int maxDepth;
+    /**
+     * @see JsonMaskingConfig.Builder#disableThreadLocalMaskingState
+     */
+    private final boolean threadLocalMaskingState;
+    /**
+     * @see JsonMaskingConfig.Builder#prefilterTargetKeys
+     */
+    private final boolean prefilterTargetKeys;
+    /**
+     * @see JsonMaskingConfig.Builder#cacheKeyMatches
+     */
+    private final int keyMatchCacheCapacity;
 
     private final KeyMaskingConfig defaultConfig;
     private final Map<String, KeyMaskingConfig> targetKeyConfigs;
+    private final Map<String, KeyMaskingConfig> targetKeyPatternConfigs;
 
     JsonMaskingConfig(JsonMaskingConfig.Builder builder) {
         if (builder.targetKeyMode == null) {
@@ -44,9 +80,27 @@ public final class JsonMaskingConfig {
         this.targetKeyMode = builder.targetKeyMode;
         this.targetKeys = builder.targetKeys;
         this.targetJsonPaths = builder.targetJsonPaths;
+        this.targetKeyPatterns = builder.targetKeyPatterns;
         this.caseSensitiveTargetKeys = builder.caseSensitiveTargetKeys != null && builder.caseSensitiveTargetKeys;
+        this.normalizeTargetKeys = builder.normalizeTargetKeys != null && builder.normalizeTargetKeys;
+        if (normalizeTargetKeys && caseSensitiveTargetKeys) {
+            throw new IllegalArgumentException("Normalized target keys cannot be case-sensitive");
+        }
+        this.maskInPlace = builder.maskInPlace != null && builder.maskInPlace;
+        this.writeThrough = builder.writeThrough != null && builder.writeThrough;
+        if (maskInPlace && writeThrough) {
+            throw new IllegalArgumentException("Masking in-place cannot be combined with writing through");
+        }
+        this.maxDepth = builder.maxDepth != null ? builder.maxDepth : Integer.MAX_VALUE;
+        this.threadLocalMaskingState = builder.threadLocalMaskingState == null || builder.threadLocalMaskingState;
+        this.prefilterTargetKeys = builder.prefilterTargetKeys != null && builder.prefilterTargetKeys;
+        if (prefilterTargetKeys && targetKeyMode != TargetKeyMode.MASK) {
+            throw new IllegalArgumentException("Prefiltering target keys is only supported when masking keys");
+        }
+        this.keyMatchCacheCapacity = builder.keyMatchCacheCapacity != null ? builder.keyMatchCacheCapacity : 0;
         this.defaultConfig = builder.defaultConfigBuilder.build();
         this.targetKeyConfigs = builder.targetKeyConfigs;
+        this.targetKeyPatternConfigs = builder.targetKeyPatternConfigs;
     }
 
     /**
@@ -86,6 +140,10 @@ public final class JsonMaskingConfig {
         return targetJsonPaths;
     }
 
+    public Set<String> getTargetKeyPatterns() {
+        return targetKeyPatterns;
+    }
+
     /**
      * Tests if target keys should be considered case-sensitive.
      *
@@ -95,6 +153,71 @@ public final class JsonMaskingConfig {
         return caseSensitiveTargetKeys;
     }
 
+    /**
+     * Tests if the target keys are matched ignoring case and the separators {@code '_'}, {@code '-'} and {@code '.'}.
+     *
+     * @return true if the target keys are normalized and false otherwise.
+     */
+    public boolean normalizeTargetKeys() {
+        return normalizeTargetKeys;
+    }
+
+    /**
+     * Tests if values are masked directly in the input array when the mask has the same length as the value.
+     *
+     * @return true if values are masked in-place and false otherwise.
+     */
+    public boolean maskInPlace() {
+        return maskInPlace;
+    }
+
+    /**
+     * Tests if the masked message is written through into a new array while the input is traversed, rather than
+     * applying the replacements after the input has been traversed.
+     *
+     * @return true if the masked message is written through and false otherwise.
+     */
+    public boolean writeThrough() {
+        return writeThrough;
+    }
+
+    /**
+     * Returns the maximum number of nested objects and arrays in the JSON that is masked.
+     *
+     * @return the maximum depth, {@link Integer#MAX_VALUE} if the depth is not limited
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Tests if the masking state is cached per thread and reused when masking into a caller supplied output array.
+     *
+     * @return true if the masking state is cached per thread and false otherwise.
+     */
+    public boolean threadLocalMaskingState() {
+        return threadLocalMaskingState;
+    }
+
+    /**
+     * Tests if the input is searched for the target keys before masking, so that input without any of them is returned
+     * as is.
+     *
+     * @return true if the target keys are prefiltered and false otherwise.
+     */
+    public boolean prefilterTargetKeys() {
+        return prefilterTargetKeys;
+    }
+
+    /**
+     * Returns the number of keys for which the matching result is cached.
+     *
+     * @return the capacity of the cache, 0 if the matching results are not cached
+     */
+    public int getKeyMatchCacheCapacity() {
+        return keyMatchCacheCapacity;
+    }
+
     /**
      * Returns the config for the given key. If no specific config is available for the given key, the default config.
      *
@@ -118,17 +241,35 @@ public final class JsonMaskingConfig {
         return Collections.unmodifiableMap(targetKeyConfigs);
     }
 
+    /**
+     * Returns a map with all masking configs per key pattern.
+     *
+     * @return masking configs per key pattern
+     */
+    public Map<String, KeyMaskingConfig> getKeyPatternConfigs() {
+        return Collections.unmodifiableMap(targetKeyPatternConfigs);
+    }
+
     @Override
     public String toString() {
         return """
                targetKeys=%s,
                targetJsonPaths=%s,
+               targetKeyPatterns=%s,
                targetKeyMode=%s,
                caseSensitiveTargetKeys=%s,
+               normalizeTargetKeys=%s,
+               maskInPlace=%s,
+               writeThrough=%s,
+               maxDepth=%s,
+               threadLocalMaskingState=%s,
+               prefilterTargetKeys=%s,
+               keyMatchCacheCapacity=%s,
                defaultConfig=%s,
-               targetKeyConfigs=%s
+               targetKeyConfigs=%s,
+               targetKeyPatternConfigs=%s
                """
-                .formatted(targetKeys, targetJsonPaths, targetKeyMode, caseSensitiveTargetKeys, defaultConfig, targetKeyConfigs);
+                .formatted(targetKeys, targetJsonPaths, targetKeyPatterns, targetKeyMode, caseSensitiveTargetKeys, normalizeTargetKeys, maskInPlace, writeThrough, maxDepth, threadLocalMaskingState, prefilterTargetKeys, keyMatchCacheCapacity, defaultConfig, targetKeyConfigs, targetKeyPatternConfigs);
     }
 
     /**
@@ -139,13 +280,29 @@ public final class JsonMaskingConfig {
 
         private final Set<String> targetKeys = new HashSet<>();
         private final Set<JsonPath> targetJsonPaths = new HashSet<>();
+        private final Set<String> targetKeyPatterns = new HashSet<>();
         @Nullable
         private TargetKeyMode targetKeyMode;
         @Nullable
         private Boolean caseSensitiveTargetKeys;
+        @Nullable
+        private Boolean normalizeTargetKeys;
+        @Nullable
+        private Boolean maskInPlace;
+        @Nullable
+        private Boolean writeThrough;
+        @Nullable
+        private Integer maxDepth;
+        @Nullable
+        private Boolean threadLocalMaskingState;
+        @Nullable
+        private Boolean prefilterTargetKeys;
+        @Nullable
+        private Integer keyMatchCacheCapacity;
 
         private final KeyMaskingConfig.Builder defaultConfigBuilder = KeyMaskingConfig.builder();
         private final Map<String, KeyMaskingConfig> targetKeyConfigs = new HashMap<>();
+        private final Map<String, KeyMaskingConfig> targetKeyPatternConfigs = new HashMap<>();
 
         private Builder() {
         }
@@ -229,6 +386,10 @@ public final class JsonMaskingConfig {
 
         /**
          * Masks all JSON values corresponding to the given JSONPaths with the default masking configuration.
+         * <p>
+         * A JSONPath can contain descendant segments, e.g. {@code $.request..password} masks the {@code password} at
+         * any depth below {@code request}. When multiple JSONPaths match the same value, the most specific one is used:
+         * the one with the most keys, and of those the one with the fewest descendant segments.
          *
          * @return the builder instance
          */
@@ -306,6 +467,88 @@ public final class JsonMaskingConfig {
             }
         }
 
+        /**
+         * Masks all JSON values corresponding to keys that match any of the given patterns with the default masking
+         * configuration.
+         *
+         * @return the builder instance
+         * @see #maskKeyPatterns(Set)
+         */
+        public Builder maskKeyPatterns(String... patterns) {
+            return maskKeyPatterns(Set.of(patterns));
+        }
+
+        /**
+         * Masks all JSON values corresponding to keys that match any of the given patterns with the default masking
+         * configuration. A key that is also masked or allowed as an exact key uses the configuration of the exact key.
+         * <p>
+         * Patterns follow the same case sensitivity as the target keys and support the following syntax:
+         * <ul>
+         *   <li>{@code *} matches any number of characters, e.g. {@code *password*} or {@code secret*}</li>
+         *   <li>{@code ?} matches exactly one character, e.g. {@code api?key}</li>
+         *   <li>{@code [abc]} matches one of the listed characters, {@code [a-z]} one of the characters in the range
+         *   and {@code [!abc]} any character but the listed ones, only ASCII characters can be listed</li>
+         *   <li>{@code \} escapes the next character, e.g. {@code \*} only matches a star</li>
+         * </ul>
+         * Invalid patterns are rejected when creating the {@link dev.blaauwendraad.masker.json.JsonMasker}.
+         *
+         * @return the builder instance
+         */
+        public Builder maskKeyPatterns(Set<String> patterns) {
+            if (patterns.isEmpty()) {
+                throw new IllegalArgumentException("At least one key pattern must be provided");
+            }
+            patterns.forEach(pattern -> addMaskKeyPattern(pattern, null));
+            return this;
+        }
+
+        /**
+         * Masks all JSON values corresponding to keys that match the given pattern with the provided masking
+         * configuration.
+         *
+         * @return the builder instance
+         * @see #maskKeyPatterns(Set)
+         */
+        public Builder maskKeyPatterns(String pattern, KeyMaskingConfig config) {
+            addMaskKeyPattern(pattern, Objects.requireNonNull(config));
+            return this;
+        }
+
+        /**
+         * Masks all JSON values corresponding to keys that match any of the given patterns with the provided masking
+         * configuration.
+         *
+         * @return the builder instance
+         * @see #maskKeyPatterns(Set)
+         */
+        public Builder maskKeyPatterns(Set<String> patterns, KeyMaskingConfig config) {
+            if (patterns.isEmpty()) {
+                throw new IllegalArgumentException("At least one key pattern must be provided");
+            }
+            Objects.requireNonNull(config);
+            patterns.forEach(pattern -> addMaskKeyPattern(pattern, config));
+            return this;
+        }
+
+        private void addMaskKeyPattern(String pattern, @Nullable KeyMaskingConfig config) {
+            if (config == null && targetKeyMode == TargetKeyMode.ALLOW) {
+                throw new IllegalArgumentException("Cannot mask key patterns when in ALLOW mode, if you want" +
+                                                   " to customize masking for specific key patterns in ALLOW mode, use" +
+                                                   " maskKeyPatterns that accepts KeyMaskingConfig");
+            }
+            if (targetKeyPatterns.contains(pattern) || targetKeyPatternConfigs.containsKey(pattern)) {
+                throw new IllegalArgumentException("Duplicate key pattern '%s'".formatted(pattern));
+            }
+            // in ALLOW mode this method can be used to set a specific masking config for a key pattern
+            if (targetKeyMode != TargetKeyMode.ALLOW) {
+                targetKeyMode = TargetKeyMode.MASK;
+                targetKeyPatterns.add(pattern);
+            }
+            if (config != null) {
+                targetKeyPatternConfigs.put(pattern, config);
+            }
+        }
+
         /**
          * Only allow the given key to be unmasked, mask JSON values corresponding to any other key.
          *
@@ -378,10 +621,49 @@ public final class JsonMaskingConfig {
             return this;
         }
 
+        /**
+         * Only allow keys that match any of the given patterns to be unmasked, mask JSON values corresponding to any
+         * other key.
+         *
+         * <p>This method is incompatible with any mask method, except cases when a specific key(s), JSONPath(s) or key
+         * pattern(s) needs to be masked with a specific {@link KeyMaskingConfig} masking configuration.
+         *
+         * @return the builder instance
+         * @see #maskKeyPatterns(Set)
+         */
+        public Builder allowKeyPatterns(String... patterns) {
+            return allowKeyPatterns(Set.of(patterns));
+        }
+
+        /**
+         * Only allow keys that match any of the given patterns to be unmasked, mask JSON values corresponding to any
+         * other key.
+         *
+         * <p>This method is incompatible with any mask method, except cases when a specific key(s), JSONPath(s) or key
+         * pattern(s) needs to be masked with a specific {@link KeyMaskingConfig} masking configuration.
+         *
+         * @return the builder instance
+         * @see #maskKeyPatterns(Set)
+         */
+        public Builder allowKeyPatterns(Set<String> patterns) {
+            if (targetKeyMode == TargetKeyMode.MASK) {
+                throw new IllegalArgumentException("Cannot allow key patterns when in MASK mode");
+            }
+            targetKeyMode = TargetKeyMode.ALLOW;
+            for (String pattern : patterns) {
+                if (targetKeyPatterns.contains(pattern)) {
+                    throw new IllegalArgumentException("Duplicate key pattern '%s'".formatted(pattern));
+                }
+                targetKeyPatterns.add(pattern);
+            }
+            return this;
+        }
+
         /**
          * Configures whether the target keys are considered case-sensitive (e.g. cvv != CVV)
          * <p>
-         * Default value: false (target keys are considered case-insensitive)
+         * Default value: false (target keys are considered case-insensitive, following the locale independent Unicode
+         * case mappings, so e.g. straße == STRASSE)
          *
          * @return the builder instance
          */
@@ -393,6 +675,168 @@ public final class JsonMaskingConfig {
             return this;
         }
 
+        /**
+         * Configures the target keys to be matched ignoring case and the separators {@code '_'}, {@code '-'} and
+         * {@code '.'}, so that naming conventions do not matter: target key {@code creditCardNumber} also matches
+         * {@code credit_card_number}, {@code credit-card-number} and {@code CREDIT_CARD_NUMBER}. This applies to the
+         * target keys (and in allow mode the allowed keys and the keys with a specific masking configuration), but not
+         * to key patterns and JSONPaths, in which the separators keep their meaning.
+         * <p>
+         * Cannot be combined with {@link #caseSensitiveTargetKeys()}.
+         * <p>
+         * Default value: false (target keys are matched including the separators)
+         *
+         * @return the builder instance
+         */
+        public Builder normalizeTargetKeys() {
+            if (normalizeTargetKeys != null) {
+                throw new IllegalArgumentException("Normalizing target keys already set");
+            }
+            this.normalizeTargetKeys = true;
+            return this;
+        }
+
+        /**
+         * Configures whether values are masked directly in the input array of {@link
+         * dev.blaauwendraad.masker.json.JsonMasker#mask(byte[])} when the mask has the same length as the value (e.g.
+         * when using {@link #maskStringCharactersWith(String)} or {@link #maskNumberDigitsWith(int)}). In that case the
+         * input array itself is returned, which saves copying the whole message.
+         * <p>
+         * If any of the values is masked with a mask of a different length, a new array is returned as usual, but the
+         * input array might still be partially modified. Therefore, the input array must not be used after masking
+         * when this option is enabled.
+         * <p>
+         * Default value: false (the input array is never modified)
+         *
+         * @return the builder instance
+         */
+        public Builder maskInPlace() {
+            if (maskInPlace != null) {
+                throw new IllegalArgumentException("Masking in-place already set");
+            }
+            this.maskInPlace = true;
+            return this;
+        }
+
+        /**
+         * Configures whether {@link dev.blaauwendraad.masker.json.JsonMasker#mask(byte[])} writes the masked message
+         * through into a new array while the input is traversed: unchanged parts are copied and masks are written as
+         * soon as they are encountered, so that the input is only traversed once. By default, the replacements are
+         * recorded while the input is traversed and applied at the end, which copies the input a second time, but
+         * allocates exactly the length of the masked message.
+         * <p>
+         * Masking into an output array or an output stream always writes through. Cannot be combined with
+         * {@link #maskInPlace()}.
+         * <p>
+         * Default value: false (the replacements are applied at the end)
+         *
+         * @return the builder instance
+         */
+        public Builder writeThrough() {
+            if (writeThrough != null) {
+                throw new IllegalArgumentException("Writing through already set");
+            }
+            this.writeThrough = true;
+            return this;
+        }
+
+        /**
+         * Limits the number of nested objects and arrays in the JSON, e.g. {@code [{"a":[]}]} has a depth of 3. Masking
+         * JSON that is nested deeper fails with an {@link dev.blaauwendraad.masker.json.InvalidJsonException} as soon
+         * as the limit is exceeded. Objects and arrays that are stepped over as a whole, such as the values of allowed
+         * keys in allow mode, are not visited and therefore not counted.
+         * <p>
+         * The depth of the JSON is not limited by the call stack, as nested objects and arrays are tracked on the heap.
+         * The limit protects against untrusted input that is nested excessively deep.
+         * <p>
+         * Default value: no limit
+         *
+         * @param maxDepth the maximum depth, must be positive
+         * @return the builder instance
+         */
+        public Builder maxDepth(int maxDepth) {
+            if (this.maxDepth != null) {
+                throw new IllegalArgumentException("Maximum depth already set");
+            }
+            if (maxDepth < 1) {
+                throw new IllegalArgumentException("Maximum depth must be positive, but was %s".formatted(maxDepth));
+            }
+            this.maxDepth = maxDepth;
+            return this;
+        }
+
+        /**
+         * Disables caching the masking state per thread. By default, the state that is needed for masking into a
+         * caller supplied output array (see {@link dev.blaauwendraad.masker.json.JsonMasker#mask(byte[], int, int,
+         * byte[], int)}) is cached in a {@link ThreadLocal}, so that it is allocated only once per thread. With many
+         * short-lived threads, e.g. virtual threads, that cache is never reused and only retains memory, in which case
+         * a new state is allocated for every invocation instead. To still reuse the state, use an explicit
+         * {@link dev.blaauwendraad.masker.json.MaskingSession} instead.
+         * <p>
+         * Default value: true (the masking state is cached per thread)
+         *
+         * @return the builder instance
+         * @see dev.blaauwendraad.masker.json.JsonMasker#newSession()
+         */
+        public Builder disableThreadLocalMaskingState() {
+            if (threadLocalMaskingState != null) {
+                throw new IllegalArgumentException("Thread-local masking state already set");
+            }
+            this.threadLocalMaskingState = false;
+            return this;
+        }
+
+        /**
+         * Configures whether {@link dev.blaauwendraad.masker.json.JsonMasker#mask(byte[])} first searches the raw
+         * input for the target keys (and the last key of every target JSONPath), in the configured case sensitivity.
+         * Input that contains none of them is returned as is, without being traversed, which is much faster when most
+         * of the masked messages do not contain any target key. Every string in the input is compared to the target keys,
+         * with unicode escapes (e.g. <code>&#92;u0041</code>) decoded the same way as when masking.
+         * <p>
+         * As input without any target key is not traversed, it is also not checked to be valid JSON, nor checked
+         * against the {@link #maxDepth(int) maximum depth}. Only supported when masking keys. JSONPaths that end
+         * with wildcards only, e.g. {@code $.*}, do not have a key to search for, in which case the input is always
+         * traversed.
+         * <p>
+         * Default value: false (the input is always traversed)
+         *
+         * @return the builder instance
+         */
+        public Builder prefilterTargetKeys() {
+            if (prefilterTargetKeys != null) {
+                throw new IllegalArgumentException("Prefiltering target keys already set");
+            }
+            this.prefilterTargetKeys = true;
+            return this;
+        }
+
+        /**
+         * Caches whether a key matches the target keys, so that keys that occur over and over again, as in most JSON
+         * messages of the same kind, are looked up once and then found by their hash. The cache is bounded and shared
+         * by all threads that use the masker without locking; when it is full, older keys are replaced by new ones.
+         * <p>
+         * Caching pays off when the look-up of a key is expensive compared to hashing it, e.g. with key patterns, many
+         * target keys or non-ASCII keys matched case-insensitively. A capacity of a few times the number of distinct
+         * keys in the masked JSON keeps the hit rate high. Keys longer than 64 bytes are not cached. The cache is
+         * allocated up front and takes about 80 bytes per key of capacity, rounded up to a power of two, so caching a
+         * new key does not allocate.
+         * <p>
+         * Default value: no cache
+         *
+         * @param capacity the maximum number of cached keys, must be positive
+         * @return the builder instance
+         */
+        public Builder cacheKeyMatches(int capacity) {
+            if (this.keyMatchCacheCapacity != null) {
+                throw new IllegalArgumentException("Key match cache already set");
+            }
+            if (capacity < 1) {
+                throw new IllegalArgumentException("Key match cache capacity must be positive, but was %s".formatted(capacity));
+            }
+            this.keyMatchCacheCapacity = capacity;
+            return this;
+        }
+
         /**
          * Mask all string values with the provided value.
          * For example, "maskMe": "secret" -> "maskMe": "***".
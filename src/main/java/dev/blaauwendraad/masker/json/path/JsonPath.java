@@ -9,6 +9,11 @@ import java.util.Arrays;
  * See {@link JsonPathParser} for details.
  */
 public record JsonPath(String[] segments) {
+    /**
+     * The segment that represents a descendant segment ({@code ..}), it is followed by the segment that is matched at
+     * any depth.
+     */
+    public static final String DESCENDANT = "..";
 
     /**
      * The last segment of the jsonpath key is an actual target key.
@@ -19,9 +24,26 @@ public record JsonPath(String[] segments) {
         return segments.length != 0 ? segments[segments.length - 1] : null;
     }
 
+    /**
+     * Checks whether the jsonpath contains a descendant segment.
+     *
+     * @return true if any of the segments is {@link #DESCENDANT}
+     */
+    public boolean hasDescendantSegment() {
+        return Arrays.asList(segments).contains(DESCENDANT);
+    }
+
     @Override
     public String toString() {
-        return String.join(".", segments);
+        StringBuilder jsonPath = new StringBuilder();
+        for (int i = 0; i < segments.length; i++) {
+            // a descendant segment is written as is, without the dots that separate the other segments
+            if (i > 0 && !segments[i].equals(DESCENDANT) && !segments[i - 1].equals(DESCENDANT)) {
+                jsonPath.append('.');
+            }
+            jsonPath.append(segments[i]);
+        }
+        return jsonPath.toString();
     }
 
     @Override
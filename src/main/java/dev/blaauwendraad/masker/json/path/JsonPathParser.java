@@ -11,9 +11,12 @@ import java.util.Set;
 /**
  * Parses a jsonpath literal into a {@link dev.blaauwendraad.masker.json.path.JsonPath} object.
  * <p>
+ * Descendant segments ({@code $..password}, {@code $.request..*.token}) are supported, they match the next segment at
+ * any depth below the preceding segments, including in arrays. A descendant segment is represented by the
+ * {@link JsonPath#DESCENDANT} segment.
+ * <p>
  * The following features from jsonpath specification are not supported:
  * <ul>
- *  <li>Descendant segments</li>
  *  <li>Child segments</li>
  *  <li>Name selectors</li>
  *  <li>Array slice selectors</li>
@@ -29,6 +32,7 @@ import java.util.Set;
  *  <li>A set of input jsonpath literals must not be ambiguous</li>
  * </ul>
  * An example of ambiguous set of queries is {@code $.*.b} and {@code $.a.b}. In this case, we cannot match forward the segments.
+ * JSONPaths with descendant segments are not checked for ambiguity, see {@link #checkAmbiguity(Set)}.
  */
 public class JsonPathParser {
 
@@ -48,10 +52,25 @@ public class JsonPathParser {
         if (literal.contains("'") || literal.contains("\\")) {
             throw new IllegalArgumentException(ERROR_PREFIX.formatted(literal) + "Escape characters are not supported.");
         }
-        if (literal.contains("..")) {
-            throw new IllegalArgumentException(ERROR_PREFIX.formatted(literal) + "Descendant segments are not supported.");
+        List<String> segments = new ArrayList<>();
+        // the parts between the descendant segments are parsed as relative paths from the root
+        String[] parts = literal.split("\\.\\.", -1);
+        segments.addAll(parseSegments(parts[0]));
+        for (int i = 1; i < parts.length; i++) {
+            String part = parts[i];
+            if (part.isEmpty() || part.startsWith(".")) {
+                throw new IllegalArgumentException(ERROR_PREFIX.formatted(literal) + "A descendant segment must be followed by a key or a wildcard.");
+            }
+            List<String> descendantSegments = parseSegments(part.startsWith("[") ? "$" + part : "$." + part);
+            segments.add(JsonPath.DESCENDANT);
+            segments.addAll(descendantSegments.subList(1, descendantSegments.size()));
+        }
+        int lastIndex = segments.size() - 1;
+        if (lastIndex > 0 && segments.get(lastIndex).equals("*") && !segments.get(lastIndex - 1).equals("*")) {
+            List<String> withoutWildcard = segments.subList(0, segments.get(lastIndex - 1).equals(JsonPath.DESCENDANT) ? lastIndex - 1 : lastIndex);
+            throw new IllegalArgumentException(ERROR_PREFIX.formatted(literal) + "A single leading wildcard is not allowed. " +
+                    "Use '" + new JsonPath(withoutWildcard.toArray(String[]::new)) + "' instead.");
         }
-        List<String> segments = parseSegments(literal);
         segments.forEach(segment -> validateSegment(segment, literal));
         return new JsonPath(segments.toArray(String[]::new));
     }
@@ -99,11 +118,6 @@ public class JsonPathParser {
         if (!segment.isEmpty() || literal.endsWith("[]")) {
             segments.add(segment.toString());
         }
-        if (segments.size() > 1 && segments.get(segments.size() - 1).equals("*") && !segments.get(segments.size() - 2).equals("*")) {
-            throw new IllegalArgumentException(ERROR_PREFIX.formatted(literal) + "A single leading wildcard is not allowed. " +
-                    "Use '" + literal.substring(0, literal.length() - 2) + "' instead.");
-
-        }
         return segments;
     }
 
@@ -132,11 +146,18 @@ public class JsonPathParser {
      * Validates if the input set of JSONPath queries contains ambiguous segments. Throws {@code java.lang.IllegalArgumentException#IllegalArgumentException} if it does.
      * <p>
      * The method does a lexical sort of input jsonpath queries, iterates over sorted values and checks if any local pair is ambiguous.
+     * <p>
+     * JSONPaths with descendant segments are skipped, as they can overlap with any other JSONPath by definition. When
+     * multiple JSONPaths match the same value, the most specific one is used, see
+     * {@link dev.blaauwendraad.masker.json.config.JsonMaskingConfig.Builder#maskJsonPaths(String...)}.
      *
      * @param jsonPaths input set of jsonpath queries
      */
     public void checkAmbiguity(Set<JsonPath> jsonPaths) {
-        List<JsonPath> jsonPathList = jsonPaths.stream().sorted(Comparator.comparing(JsonPath::toString)).toList();
+        List<JsonPath> jsonPathList = jsonPaths.stream()
+                .filter(jsonPath -> !jsonPath.hasDescendantSegment())
+                .sorted(Comparator.comparing(JsonPath::toString))
+                .toList();
         for (int i = 1; i < jsonPathList.size(); i++) {
             JsonPath current = jsonPathList.get(i - 1);
             JsonPath next = jsonPathList.get(i);
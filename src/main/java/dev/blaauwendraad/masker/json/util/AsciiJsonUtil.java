@@ -1,6 +1,21 @@
 package dev.blaauwendraad.masker.json.util;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
 public final class AsciiJsonUtil {
+    /**
+     * Reads 8 bytes of a byte array at once as a little-endian long, so that the byte at the lowest index ends up in
+     * the least significant bits.
+     */
+    private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+    private static final long QUOTES = ONES * '"';
+    private static final long BACKSLASHES = ONES * '\\';
+    private static final long NEWLINES = ONES * '\n';
+    private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
 
     private AsciiJsonUtil() { /* don't instantiate */ }
 
@@ -18,4 +33,122 @@ public final class AsciiJsonUtil {
         };
     }
 
+    /**
+     * Finds the first double quote or backslash in the given range of the byte array, which are the only bytes that
+     * end a plain run of characters in a JSON string.
+     * <p>
+     * The bytes are compared 8 at a time (SWAR, SIMD within a register): XOR-ing a word with the searched byte
+     * repeated 8 times turns every matching byte into zero, and {@code (x - 0x01..) & ~x & 0x80..} sets the high bit
+     * of the lowest zero byte. Higher bytes can be flagged falsely due to the borrow, so only the lowest flagged byte is
+     * used. Multibyte UTF-8 characters never match, as all of their bytes have the high bit set.
+     *
+     * @param bytes     the array to search in
+     * @param fromIndex the index to start searching from (inclusive)
+     * @param toIndex   the index to stop searching at (exclusive)
+     * @return the index of the first double quote or backslash, or {@code toIndex} if there is none
+     */
+    public static int indexOfQuoteOrBackslash(byte[] bytes, int fromIndex, int toIndex) {
+        int index = fromIndex;
+        while (index <= toIndex - Long.BYTES) {
+            long word = (long) LONG_VIEW.get(bytes, index);
+            long quotes = word ^ QUOTES;
+            long backslashes = word ^ BACKSLASHES;
+            long matches = ((quotes - ONES) & ~quotes | (backslashes - ONES) & ~backslashes) & HIGH_BITS;
+            if (matches != 0) {
+                return index + (Long.numberOfTrailingZeros(matches) >>> 3);
+            }
+            index += Long.BYTES;
+        }
+        while (index < toIndex && bytes[index] != '"' && bytes[index] != '\\') {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Finds the first double quote, opening bracket or closing bracket in the given range of the byte array, which are
+     * the only bytes that matter when stepping over an object or array. Uses the same SWAR technique as
+     * {@link #indexOfQuoteOrBackslash(byte[], int, int)}.
+     *
+     * @param bytes          the array to search in
+     * @param fromIndex      the index to start searching from (inclusive)
+     * @param toIndex        the index to stop searching at (exclusive)
+     * @param openingBracket the opening bracket to search for, either <code>{</code> or <code>[</code>
+     * @param closingBracket the closing bracket to search for, either <code>}</code> or <code>]</code>
+     * @return the index of the first double quote or bracket, or {@code toIndex} if there is none
+     */
+    public static int indexOfQuoteOrBracket(byte[] bytes, int fromIndex, int toIndex, byte openingBracket, byte closingBracket) {
+        long openingBrackets = ONES * openingBracket;
+        long closingBrackets = ONES * closingBracket;
+        int index = fromIndex;
+        while (index <= toIndex - Long.BYTES) {
+            long word = (long) LONG_VIEW.get(bytes, index);
+            long quotes = word ^ QUOTES;
+            long opening = word ^ openingBrackets;
+            long closing = word ^ closingBrackets;
+            long matches = ((quotes - ONES) & ~quotes
+                    | (opening - ONES) & ~opening
+                    | (closing - ONES) & ~closing) & HIGH_BITS;
+            if (matches != 0) {
+                return index + (Long.numberOfTrailingZeros(matches) >>> 3);
+            }
+            index += Long.BYTES;
+        }
+        while (index < toIndex && bytes[index] != '"' && bytes[index] != openingBracket && bytes[index] != closingBracket) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Finds the first line feed in the given range of the byte array, which separates the values of newline-delimited
+     * JSON. Uses the same SWAR technique as {@link #indexOfQuoteOrBackslash(byte[], int, int)}.
+     *
+     * @param bytes     the array to search in
+     * @param fromIndex the index to start searching from (inclusive)
+     * @param toIndex   the index to stop searching at (exclusive)
+     * @return the index of the first line feed, or {@code toIndex} if there is none
+     */
+    public static int indexOfNewline(byte[] bytes, int fromIndex, int toIndex) {
+        int index = fromIndex;
+        while (index <= toIndex - Long.BYTES) {
+            long newlines = (long) LONG_VIEW.get(bytes, index) ^ NEWLINES;
+            long matches = (newlines - ONES) & ~newlines & HIGH_BITS;
+            if (matches != 0) {
+                return index + (Long.numberOfTrailingZeros(matches) >>> 3);
+            }
+            index += Long.BYTES;
+        }
+        while (index < toIndex && bytes[index] != '\n') {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Finds the last line feed in the given range of the byte array. As the highest flagged byte is used here, the
+     * borrow of {@link #indexOfNewline(byte[], int, int)} would give false matches, so zero bytes are found without a
+     * borrow instead: {@code (x & 0x7F..) + 0x7F..} sets the high bit of every byte that has one of its low bits set,
+     * or-ing with {@code x} sets it for all non-zero bytes, and the complement leaves it only for the zero bytes.
+     *
+     * @param bytes     the array to search in
+     * @param fromIndex the index to stop searching at (inclusive)
+     * @param toIndex   the index to start searching backwards from (exclusive)
+     * @return the index of the last line feed, or {@code fromIndex - 1} if there is none
+     */
+    public static int lastIndexOfNewline(byte[] bytes, int fromIndex, int toIndex) {
+        int index = toIndex;
+        while (index - Long.BYTES >= fromIndex) {
+            long newlines = (long) LONG_VIEW.get(bytes, index - Long.BYTES) ^ NEWLINES;
+            long matches = ~(((newlines & LOW_BITS) + LOW_BITS) | newlines | LOW_BITS);
+            if (matches != 0) {
+                return index - 1 - (Long.numberOfLeadingZeros(matches) >>> 3);
+            }
+            index -= Long.BYTES;
+        }
+        do {
+            index--;
+        } while (index >= fromIndex && bytes[index] != '\n');
+        return index;
+    }
 }
@@ -0,0 +1,27 @@
+package dev.blaauwendraad.masker.json.util;
+
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * {@link OutputStream} that writes into a {@link ByteBuffer} starting at its position. Writing more bytes than
+ * remaining in the buffer results in a {@link BufferOverflowException}.
+ */
+public final class ByteBufferOutputStream extends OutputStream {
+    private final ByteBuffer buffer;
+
+    public ByteBufferOutputStream(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    public void write(int b) {
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+        buffer.put(bytes, offset, length);
+    }
+}
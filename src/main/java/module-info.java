@@ -2,6 +2,8 @@ module dev.blaauwendraad.masker.json {
     requires java.base;
     // https://github.com/ben-manes/caffeine/issues/535#issuecomment-854879514
     requires static org.jspecify;
+    // optional engine, only used when the module is added with --add-modules jdk.incubator.vector
+    requires static jdk.incubator.vector;
 
     exports dev.blaauwendraad.masker.json;
     exports dev.blaauwendraad.masker.json.config;
@@ -0,0 +1,150 @@
+package dev.blaauwendraad.masker.json;
+
+import dev.blaauwendraad.masker.json.config.JsonMaskingConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+final class BatchMaskingTest {
+
+    private static final int BATCH_SIZE = 3;
+
+    @ParameterizedTest
+    @MethodSource("testInstances")
+    void shouldMaskAllTheSameWayAsSeparateInputs(JsonMaskerTestInstance testInstance) {
+        byte[] input = testInstance.input().getBytes(StandardCharsets.UTF_8);
+        List<byte[]> inputs = List.of(input, Arrays.copyOf(input, input.length), Arrays.copyOf(input, input.length));
+
+        List<byte[]> outputs = testInstance.jsonMasker().maskAll(inputs);
+
+        assertThat(outputs).hasSize(BATCH_SIZE);
+        for (byte[] output : outputs) {
+            assertThat(new String(output, StandardCharsets.UTF_8)).isEqualTo(testInstance.expectedOutput());
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("testInstances")
+    void shouldMaskBatchTheSameWayAsSeparateInputs(JsonMaskerTestInstance testInstance) {
+        String input = testInstance.input();
+        byte[] inputBytes = input.repeat(BATCH_SIZE).getBytes(StandardCharsets.UTF_8);
+        int[] offsets = new int[BATCH_SIZE + 1];
+        for (int i = 0; i <= BATCH_SIZE; i++) {
+            offsets[i] = i * inputBytes.length / BATCH_SIZE;
+        }
+        int[] outputOffsets = new int[offsets.length];
+
+        int required = -testInstance.jsonMasker().maskBatch(inputBytes, offsets, new byte[3], 3, outputOffsets);
+        byte[] output = new byte[required + 5];
+        int written = testInstance.jsonMasker().maskBatch(inputBytes, offsets, output, 5, outputOffsets);
+
+        assertThat(written).isEqualTo(required);
+        assertThat(outputOffsets[0]).isEqualTo(5);
+        assertThat(outputOffsets[BATCH_SIZE]).isEqualTo(output.length);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            String masked = new String(output, outputOffsets[i], outputOffsets[i + 1] - outputOffsets[i], StandardCharsets.UTF_8);
+            assertThat(masked).isEqualTo(testInstance.expectedOutput());
+        }
+    }
+
+    private static Stream<JsonMaskerTestInstance> testInstances() throws IOException {
+        return Stream.of(
+                "test-allow-mode.json",
+                "test-escaped-characters.json",
+                "test-json-path.json",
+                "test-masking-array-values.json",
+                "test-masking-object-values.json",
+                "test-multiple-target-keys.json",
+                "test-preserve-length.json"
+        ).flatMap(fileName -> {
+            try {
+                return JsonMaskerTestUtil.getJsonMaskerTestInstancesFromFile(fileName).stream();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    @Test
+    void shouldReturnRequiredLengthWhenOutputArrayIsTooSmall() {
+        JsonMasker jsonMasker = JsonMasker.getMasker(Set.of("maskMe"));
+        byte[] input = "{\"maskMe\":\"s\"}[]{\"maskMe\":\"s\"}".getBytes(StandardCharsets.UTF_8);
+        int[] offsets = {0, 14, 16, 16, 30};
+        int[] outputOffsets = new int[5];
+        byte[] output = new byte[20];
+
+        assertThat(jsonMasker.maskBatch(input, offsets, output, 0, outputOffsets)).isEqualTo(-34);
+        assertThat(outputOffsets).containsExactly(0, 16, 18, 18, 34);
+        assertThat(new String(output, 0, 18, StandardCharsets.UTF_8)).isEqualTo("{\"maskMe\":\"***\"}[]");
+    }
+
+    @Test
+    void shouldMaskEmptyBatches() {
+        JsonMasker jsonMasker = JsonMasker.getMasker(Set.of("maskMe"));
+
+        assertThat(jsonMasker.maskAll(List.of())).isEmpty();
+        assertThat(jsonMasker.maskBatch(new byte[0], new int[0], new byte[0], 0, new int[0])).isZero();
+        int[] outputOffsets = new int[1];
+        assertThat(jsonMasker.maskBatch(new byte[0], new int[]{0}, new byte[2], 1, outputOffsets)).isZero();
+        assertThat(outputOffsets).containsExactly(1);
+    }
+
+    @Test
+    void shouldValidateBounds() {
+        JsonMasker jsonMasker = JsonMasker.getMasker(Set.of("maskMe"));
+        byte[] input = "{}{}".getBytes(StandardCharsets.UTF_8);
+
+        assertThatThrownBy(() -> jsonMasker.maskBatch(input, new int[]{0, 2, 5}, new byte[10], 0, new int[3]))
+                .isInstanceOf(IndexOutOfBoundsException.class);
+        assertThatThrownBy(() -> jsonMasker.maskBatch(input, new int[]{2, 0}, new byte[10], 0, new int[2]))
+                .isInstanceOf(IndexOutOfBoundsException.class);
+        assertThatThrownBy(() -> jsonMasker.maskBatch(input, new int[]{0, 2, 4}, new byte[10], 0, new int[2]))
+                .isInstanceOf(IndexOutOfBoundsException.class);
+        assertThatThrownBy(() -> jsonMasker.maskBatch(input, new int[]{0, 2, 4}, new byte[10], 11, new int[3]))
+                .isInstanceOf(IndexOutOfBoundsException.class);
+    }
+
+    @Test
+    void shouldGrowOutputForLargeMasks() {
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder()
+                .maskKeys("maskMe")
+                .maskNumbersWith("a very long mask that does not fit")
+                .build()
+        );
+        List<byte[]> inputs = List.of(
+                "{\"maskMe\":1}".getBytes(StandardCharsets.UTF_8),
+                "[1,2,3]".getBytes(StandardCharsets.UTF_8)
+        );
+
+        List<byte[]> outputs = jsonMasker.maskAll(inputs);
+
+        assertThat(outputs.stream().map(output -> new String(output, StandardCharsets.UTF_8)).toList())
+                .containsExactly("{\"maskMe\":\"a very long mask that does not fit\"}", "[1,2,3]");
+    }
+
+    @Test
+    void shouldThrowInvalidJsonException() {
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder().allowKeys("allowMe").build());
+        byte[] validInput = "{\"allowMe\":\"yes\"}".getBytes(StandardCharsets.UTF_8);
+        byte[] invalidInput = "[{\"key\": \"value\"}, ".getBytes(StandardCharsets.UTF_8);
+
+        assertThatThrownBy(() -> jsonMasker.maskAll(List.of(validInput, invalidInput)))
+                .isInstanceOf(InvalidJsonException.class);
+        byte[] input = Arrays.copyOf(validInput, validInput.length + invalidInput.length);
+        System.arraycopy(invalidInput, 0, input, validInput.length, invalidInput.length);
+        assertThatThrownBy(() -> jsonMasker.maskBatch(input, new int[]{0, validInput.length, input.length}, new byte[100], 0, new int[3]))
+                .isInstanceOf(InvalidJsonException.class);
+        // the masker must still be usable after invalid input
+        assertThat(jsonMasker.maskAll(List.of(validInput)).get(0)).isEqualTo(validInput);
+    }
+}
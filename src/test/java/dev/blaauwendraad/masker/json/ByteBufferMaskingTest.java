@@ -0,0 +1,154 @@
+package dev.blaauwendraad.masker.json;
+
+import dev.blaauwendraad.masker.json.config.JsonMaskingConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+final class ByteBufferMaskingTest {
+
+    @ParameterizedTest
+    @MethodSource("testInstances")
+    void shouldMaskByteBuffersTheSameWayAsBytes(JsonMaskerTestInstance testInstance, boolean directInput, boolean directOutput) {
+        byte[] expected = testInstance.expectedOutput().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer input = buffer(testInstance.input().getBytes(StandardCharsets.UTF_8), directInput);
+        ByteBuffer output = directOutput ? ByteBuffer.allocateDirect(expected.length) : ByteBuffer.allocate(expected.length);
+
+        testInstance.jsonMasker().mask(input, output);
+
+        assertThat(input.hasRemaining()).isFalse();
+        assertThat(output.hasRemaining()).isFalse();
+        assertThat(bytes(output.flip())).isEqualTo(expected);
+    }
+
+    private static Stream<Arguments> testInstances() throws IOException {
+        return Stream.of(
+                "test-allow-mode.json",
+                "test-escaped-characters.json",
+                "test-json-path.json",
+                "test-masking-array-values.json",
+                "test-masking-object-values.json",
+                "test-multiple-target-keys.json",
+                "test-preserve-length.json"
+        ).flatMap(fileName -> {
+            try {
+                return JsonMaskerTestUtil.getJsonMaskerTestInstancesFromFile(fileName).stream();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }).flatMap(testInstance -> Stream.of(
+                Arguments.of(testInstance, false, false),
+                Arguments.of(testInstance, true, false),
+                Arguments.of(testInstance, false, true),
+                Arguments.of(testInstance, true, true)
+        ));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void shouldOnlyMaskBetweenPositionAndLimit(boolean direct) {
+        JsonMasker jsonMasker = JsonMasker.getMasker(Set.of("maskMe"));
+        ByteBuffer input = buffer("[[{\"maskMe\":\"secret\"}]]".getBytes(StandardCharsets.UTF_8), direct)
+                .position(1)
+                .limit(22);
+        ByteBuffer output = ByteBuffer.allocate(100).position(10);
+
+        jsonMasker.mask(input, output);
+
+        assertThat(input.position()).isEqualTo(22);
+        assertThat(input.limit()).isEqualTo(22);
+        assertThat(output.position()).isEqualTo(28);
+        assertThat(bytes(output.flip().position(10))).isEqualTo("[{\"maskMe\":\"***\"}]".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldMaskSlicedHeapBuffers() {
+        JsonMasker jsonMasker = JsonMasker.getMasker(Set.of("maskMe"));
+        byte[] inputBytes = "xx{\"maskMe\":\"secret\"}xx".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer input = ByteBuffer.wrap(inputBytes, 2, inputBytes.length - 4).slice();
+        byte[] outputBytes = new byte[30];
+        ByteBuffer output = ByteBuffer.wrap(outputBytes, 5, 20).slice();
+
+        jsonMasker.mask(input, output);
+
+        assertThat(output.position()).isEqualTo(16);
+        assertThat(new String(outputBytes, 5, 16, StandardCharsets.UTF_8)).isEqualTo("{\"maskMe\":\"***\"}");
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void shouldThrowBufferOverflowExceptionWhenOutputIsTooSmall(boolean direct) {
+        JsonMasker jsonMasker = JsonMasker.getMasker(Set.of("maskMe"));
+        ByteBuffer input = buffer("{\"maskMe\":\"s\"}".getBytes(StandardCharsets.UTF_8), direct);
+        // the output is limited to less than the masked length, even though the capacity is large enough
+        ByteBuffer output = direct ? ByteBuffer.allocateDirect(100) : ByteBuffer.allocate(100);
+        output.position(2).limit(17);
+
+        assertThatThrownBy(() -> jsonMasker.mask(input, output)).isInstanceOf(BufferOverflowException.class);
+        assertThat(input.position()).isEqualTo(0);
+        assertThat(output.position()).isEqualTo(2);
+
+        output.limit(18);
+        jsonMasker.mask(input, output);
+        assertThat(output.position()).isEqualTo(18);
+    }
+
+    @Test
+    void shouldMaskReadOnlyInput() {
+        JsonMasker jsonMasker = JsonMasker.getMasker(Set.of("maskMe"));
+        ByteBuffer input = ByteBuffer.wrap("{\"maskMe\":\"secret\"}".getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer();
+        ByteBuffer output = ByteBuffer.allocate(100);
+
+        jsonMasker.mask(input, output);
+
+        assertThat(bytes(output.flip())).isEqualTo("{\"maskMe\":\"***\"}".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldNotWriteIntoReadOnlyOutput() {
+        JsonMasker jsonMasker = JsonMasker.getMasker(Set.of("maskMe"));
+        ByteBuffer input = ByteBuffer.wrap("{\"maskMe\":\"secret\"}".getBytes(StandardCharsets.UTF_8));
+        ByteBuffer output = ByteBuffer.allocate(100).asReadOnlyBuffer();
+
+        assertThatThrownBy(() -> jsonMasker.mask(input, output)).isInstanceOf(ReadOnlyBufferException.class);
+        assertThat(input.position()).isEqualTo(0);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void shouldThrowInvalidJsonException(boolean direct) {
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder().allowKeys("allowMe").build());
+        ByteBuffer input = buffer("[{\"key\": \"value\"}, ".getBytes(StandardCharsets.UTF_8), direct);
+        ByteBuffer output = direct ? ByteBuffer.allocateDirect(100) : ByteBuffer.allocate(100);
+
+        assertThatThrownBy(() -> jsonMasker.mask(input, output)).isInstanceOf(InvalidJsonException.class);
+        assertThat(input.position()).isEqualTo(0);
+        assertThat(output.position()).isEqualTo(0);
+    }
+
+    private static ByteBuffer buffer(byte[] bytes, boolean direct) {
+        if (!direct) {
+            return ByteBuffer.wrap(bytes);
+        }
+        return ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,75 @@
+package dev.blaauwendraad.masker.json;
+
+import dev.blaauwendraad.masker.json.config.JsonMaskingConfig;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+final class CaseFoldingTest {
+
+    @Test
+    void shouldFoldEveryCharacterLikeTheStringCaseMappings() {
+        for (int codePoint = 0; codePoint <= Character.MAX_CODE_POINT; codePoint++) {
+            if (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE) {
+                continue;
+            }
+            String folded = Character.toString(codePoint);
+            String previous;
+            do {
+                previous = folded;
+                folded = folded.toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+            } while (!folded.equals(previous));
+            byte[] expected = folded.getBytes(StandardCharsets.UTF_8);
+            if (!Arrays.equals(CaseFolding.foldCodePoint(codePoint), expected)) {
+                assertThat(CaseFolding.foldCodePoint(codePoint))
+                        .as("fold of U+%04X", codePoint)
+                        .isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    void shouldFoldKeysWithCharactersOfThreeAndMoreBytes() {
+        assertThat(new String(CaseFolding.fold("ＳＥＣＲＥＴ"), StandardCharsets.UTF_8)).isEqualTo("ｓｅｃｒｅｔ");
+        assertThat(new String(CaseFolding.fold("ﬀ"), StandardCharsets.UTF_8)).isEqualTo("ff");
+        assertThat(new String(CaseFolding.fold("K"), StandardCharsets.UTF_8)).isEqualTo("k");
+        assertThat(new String(CaseFolding.fold("𐐀"), StandardCharsets.UTF_8)).isEqualTo("𐐨");
+    }
+
+    @Test
+    void shouldNotAllocateMemoryWhenMatchingKeysWithCharactersOfThreeBytes() {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        KeyMatcher keyMatcher = new KeyMatcher(JsonMaskingConfig.builder().maskKeys("ｓｅｃｒｅｔ", "eﬀect", "kelvin").build());
+        byte[][] keys = new byte[][]{
+                "ＳＥＣＲＥＴ".getBytes(StandardCharsets.UTF_8),
+                "EFFECT".getBytes(StandardCharsets.UTF_8),
+                "Kelvin".getBytes(StandardCharsets.UTF_8)
+        };
+        for (byte[] key : keys) {
+            assertThat(keyMatcher.getMaskConfigIfMatched(key, 0, key.length, null)).isNotNull();
+        }
+        int iterations = 10_000;
+        for (int i = 0; i < iterations; i++) {
+            for (byte[] key : keys) {
+                keyMatcher.getMaskConfigIfMatched(key, 0, key.length, null);
+            }
+        }
+
+        long allocatedBytesBefore = threadMXBean.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < iterations; i++) {
+            for (byte[] key : keys) {
+                keyMatcher.getMaskConfigIfMatched(key, 0, key.length, null);
+            }
+        }
+        long allocatedBytes = threadMXBean.getCurrentThreadAllocatedBytes() - allocatedBytesBefore;
+
+        // a single allocation per look-up would add up to at least 16 bytes per look-up, anything below that is noise
+        // from the JVM itself (e.g. JIT compilation)
+        assertThat(allocatedBytes / iterations / keys.length).isZero();
+    }
+}
@@ -0,0 +1,85 @@
+package dev.blaauwendraad.masker.json;
+
+import dev.blaauwendraad.masker.json.config.JsonMaskingConfig;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+final class ChannelMaskingTest {
+
+    @Test
+    void shouldMaskChannels() throws IOException {
+        JsonMasker jsonMasker = JsonMasker.getMasker(Set.of("maskMe"));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        jsonMasker.mask(
+                Channels.newChannel(new ByteArrayInputStream("{\"maskMe\":\"secret\"}".getBytes(StandardCharsets.UTF_8))),
+                Channels.newChannel(output)
+        );
+
+        assertThat(output.toString(StandardCharsets.UTF_8)).isEqualTo("{\"maskMe\":\"***\"}");
+    }
+
+    @Test
+    void shouldMaskFiles() throws IOException {
+        JsonMasker jsonMasker = JsonMasker.getMasker(Set.of("maskMe"));
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 100_000; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"maskMe\":\"secret").append(i).append("\",\"other\":").append(i).append('}');
+        }
+        json.append(']');
+        Path input = Files.createTempFile("json-masker-input", ".json");
+        Path output = Files.createTempFile("json-masker-output", ".json");
+        try {
+            Files.writeString(input, json);
+            try (FileChannel inputChannel = FileChannel.open(input, StandardOpenOption.READ);
+                 FileChannel outputChannel = FileChannel.open(output, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                jsonMasker.mask(inputChannel, outputChannel);
+
+                assertThat(inputChannel.isOpen()).isTrue();
+                assertThat(outputChannel.isOpen()).isTrue();
+            }
+
+            assertThat(Files.readString(output)).isEqualTo(jsonMasker.mask(json.toString()));
+        } finally {
+            Files.delete(input);
+            Files.delete(output);
+        }
+    }
+
+    @Test
+    void shouldReportIndexInTheWholeInput() {
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder()
+                .maskKeys("maskMe")
+                .maskStringsWith(ValueMaskers.withTextFunction(value -> value))
+                .build()
+        );
+        // the invalid escape is far beyond the size of the streaming buffer
+        String json = "[" + "1,".repeat(50_000) + "{\"maskMe\":\"\\x\"}]";
+        assertThatThrownBy(() -> jsonMasker.mask(json))
+                .isInstanceOf(InvalidJsonException.class)
+                .hasMessage("Unexpected character after '\\': 'x' at index 100014");
+
+        assertThatThrownBy(() -> jsonMasker.mask(
+                Channels.newChannel(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8))),
+                Channels.newChannel(new ByteArrayOutputStream())
+        ))
+                .isInstanceOf(InvalidJsonException.class)
+                .hasMessage("Unexpected character after '\\': 'x' at index 100014");
+    }
+}
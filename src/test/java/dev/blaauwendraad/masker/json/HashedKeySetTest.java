@@ -0,0 +1,172 @@
+package dev.blaauwendraad.masker.json;
+
+import dev.blaauwendraad.masker.json.config.JsonMaskingConfig;
+import dev.blaauwendraad.masker.json.config.KeyMaskingConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+final class HashedKeySetTest {
+    private static final String KEY_CHARACTERS = "aAbBzZ09_-. éÉçÇßẞıİ€\u0000\"😀";
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void shouldMatchSameKeysAsTrie(boolean caseSensitive) {
+        Random random = new Random(caseSensitive ? 1 : 2);
+        Set<String> keys = randomKeys(random, 2000);
+        JsonMaskingConfig.Builder builder = JsonMaskingConfig.builder().maskKeys(keys);
+        if (caseSensitive) {
+            builder.caseSensitiveTargetKeys();
+        }
+        JsonMaskingConfig config = builder.build();
+        KeyMatcher trieKeyMatcher = new KeyMatcher(config, false);
+        KeyMatcher hashedKeyMatcher = new KeyMatcher(config, true);
+
+        List<String> candidates = new ArrayList<>(randomKeys(random, 2000));
+        for (String key : keys) {
+            candidates.add(key);
+            candidates.add(key.toUpperCase(Locale.ROOT));
+            candidates.add(key.toLowerCase(Locale.ROOT));
+            candidates.add(key + "a");
+            candidates.add(key.substring(0, key.length() - 1));
+        }
+        for (String candidate : candidates) {
+            assertThat(matches(hashedKeyMatcher, candidate))
+                    .as(candidate)
+                    .isEqualTo(matches(trieKeyMatcher, candidate));
+            String escaped = unicodeEscaped(candidate);
+            assertThat(matches(hashedKeyMatcher, escaped))
+                    .as(escaped)
+                    .isEqualTo(matches(trieKeyMatcher, escaped));
+        }
+    }
+
+    @Test
+    void shouldMatchKeysWithUnicodeEscapes() {
+        KeyMatcher keyMatcher = new KeyMatcher(JsonMaskingConfig.builder().maskKeys("maskMe", "smile😀").build(), true);
+
+        assertThat(matches(keyMatcher, "\\u006daskMe")).isTrue();
+        assertThat(matches(keyMatcher, "mask\\u004De")).isTrue();
+        assertThat(matches(keyMatcher, "SMILE\\ud83d\\ude00")).isTrue();
+        assertThat(matches(keyMatcher, "smile\\ud83d")).isFalse();
+        assertThat(matches(keyMatcher, "smile\\ude00\\ud83d")).isFalse();
+        assertThat(matches(keyMatcher, "mask\\\"Me")).isFalse();
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void shouldNotDecodeEscapedBackslashFollowedByU(boolean hashed) {
+        KeyMatcher keyMatcher = new KeyMatcher(JsonMaskingConfig.builder().maskKeys("a", "\\a", "kxxxxxxx9").build(), hashed);
+
+        assertThat(matches(keyMatcher, "\\u0061")).isTrue();
+        assertThat(matches(keyMatcher, "\\\\u0061")).isFalse();
+        assertThat(matches(keyMatcher, "\\\\\\u0061")).isFalse();
+        assertThat(matches(keyMatcher, "k\\\\uzzzz9")).isFalse();
+    }
+
+    @Test
+    void shouldMaskKeysWithEscapedBackslashFollowedByU() {
+        Set<String> keys = new HashSet<>();
+        for (int i = 0; i < 2000; i++) {
+            keys.add("key" + i);
+        }
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder().maskKeys(keys).maskKeys("a").build());
+
+        assertThat(jsonMasker.mask("{\"k\\\\uzzzz9\":\"value\",\"\\\\u0061\":\"value\",\"\\u0061\":\"value\"}"))
+                .isEqualTo("{\"k\\\\uzzzz9\":\"value\",\"\\\\u0061\":\"value\",\"\\u0061\":\"***\"}");
+    }
+
+    @Test
+    void shouldMatchKeysThatChangeLengthWhenFolded() {
+        KeyMatcher keyMatcher = new KeyMatcher(JsonMaskingConfig.builder().maskKeys("straße", "maskMe").build(), true);
+
+        assertThat(matches(keyMatcher, "straße")).isTrue();
+        assertThat(matches(keyMatcher, "STRASSE")).isTrue();
+        assertThat(matches(keyMatcher, "Strasse")).isTrue();
+        assertThat(matches(keyMatcher, "STRA\\u1E9EE")).isTrue();
+        assertThat(matches(keyMatcher, "MASKME")).isTrue();
+        assertThat(matches(keyMatcher, "strasse2")).isFalse();
+    }
+
+    @Test
+    void shouldReturnMaskingConfigInAllowMode() {
+        Set<String> allowedKeys = new HashSet<>();
+        for (int i = 0; i < 2000; i++) {
+            allowedKeys.add("allowed" + i);
+        }
+        KeyMaskingConfig redacted = KeyMaskingConfig.builder().maskStringsWith("[redacted]").build();
+        JsonMaskingConfig config = JsonMaskingConfig.builder()
+                .allowKeys(allowedKeys)
+                .maskKeys("maskMeLikeCIA", redacted)
+                .build();
+        KeyMatcher keyMatcher = new KeyMatcher(config, true);
+
+        assertThat(config(keyMatcher, "allowed1999")).isNull();
+        assertThat(config(keyMatcher, "ALLOWED0")).isNull();
+        assertThat(config(keyMatcher, "maskMeLikeCIA")).isSameAs(redacted);
+        assertThat(config(keyMatcher, "other")).isSameAs(config.getDefaultConfig());
+    }
+
+    @Test
+    void shouldMaskLargeNumberOfKeys() {
+        Set<String> keys = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            keys.add("key" + i);
+        }
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder()
+                .maskKeys(keys)
+                .maskJsonPaths("$.path.key")
+                .build()
+        );
+
+        assertThat(jsonMasker.mask("{\"key0\":\"value\",\"KEY9999\":\"value\",\"key10000\":\"value\",\"path\":{\"key\":\"value\"}}"))
+                .isEqualTo("{\"key0\":\"***\",\"KEY9999\":\"***\",\"key10000\":\"value\",\"path\":{\"key\":\"***\"}}");
+    }
+
+    private static Set<String> randomKeys(Random random, int count) {
+        Set<String> keys = new HashSet<>();
+        while (keys.size() < count) {
+            StringBuilder key = new StringBuilder();
+            int length = 1 + random.nextInt(8);
+            for (int i = 0; i < length; i++) {
+                int index = random.nextInt(KEY_CHARACTERS.length());
+                if (Character.isSurrogate(KEY_CHARACTERS.charAt(index))) {
+                    // always take the whole surrogate pair
+                    index = KEY_CHARACTERS.length() - 2;
+                    key.append(KEY_CHARACTERS, index, index + 2);
+                } else {
+                    key.append(KEY_CHARACTERS.charAt(index));
+                }
+            }
+            keys.add(key.toString());
+        }
+        return keys;
+    }
+
+    private static String unicodeEscaped(String key) {
+        StringBuilder escaped = new StringBuilder();
+        for (char c : key.toCharArray()) {
+            escaped.append("\\u%04x".formatted((int) c));
+        }
+        return escaped.toString();
+    }
+
+    private static boolean matches(KeyMatcher keyMatcher, String key) {
+        return config(keyMatcher, key) != null;
+    }
+
+    private static KeyMaskingConfig config(KeyMatcher keyMatcher, String key) {
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        return keyMatcher.getMaskConfigIfMatched(bytes, 0, bytes.length, null);
+    }
+}
@@ -0,0 +1,97 @@
+package dev.blaauwendraad.masker.json;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import dev.blaauwendraad.masker.json.config.JsonMaskingConfig;
+import dev.blaauwendraad.masker.randomgen.RandomJsonGenerator;
+import dev.blaauwendraad.masker.randomgen.RandomJsonGeneratorConfig;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+final class InPlaceMaskingTest {
+
+    @Test
+    void shouldMaskInPlaceWhenLengthIsPreserved() {
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder()
+                .maskKeys("maskMe")
+                .maskStringCharactersWith("*")
+                .maskNumberDigitsWith(8)
+                .maskInPlace()
+                .build()
+        );
+        byte[] input = "{\"maskMe\":\"secret\",\"other\":[{\"maskMe\":12345},{\"maskMe\":\"x\"}]}".getBytes(StandardCharsets.UTF_8);
+
+        byte[] output = jsonMasker.mask(input);
+
+        assertThat(output).isSameAs(input);
+        assertThat(new String(output, StandardCharsets.UTF_8))
+                .isEqualTo("{\"maskMe\":\"******\",\"other\":[{\"maskMe\":88888},{\"maskMe\":\"*\"}]}");
+    }
+
+    @Test
+    void shouldCopyWhenLengthIsNotPreserved() {
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder()
+                .maskKeys("maskMe")
+                .maskStringCharactersWith("*")
+                .maskInPlace()
+                .build()
+        );
+        byte[] input = "{\"maskMe\":\"secret\",\"other\":{\"maskMe\":1234}}".getBytes(StandardCharsets.UTF_8);
+
+        byte[] output = jsonMasker.mask(input);
+
+        assertThat(output).isNotSameAs(input);
+        assertThat(new String(output, StandardCharsets.UTF_8))
+                .isEqualTo("{\"maskMe\":\"******\",\"other\":{\"maskMe\":\"###\"}}");
+    }
+
+    @Test
+    void shouldNotModifyInputByDefault() {
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder()
+                .maskKeys("maskMe")
+                .maskStringCharactersWith("*")
+                .build()
+        );
+        String json = "{\"maskMe\":\"secret\"}";
+        byte[] input = json.getBytes(StandardCharsets.UTF_8);
+
+        byte[] output = jsonMasker.mask(input);
+
+        assertThat(output).isNotSameAs(input);
+        assertThat(new String(input, StandardCharsets.UTF_8)).isEqualTo(json);
+    }
+
+    @Test
+    void shouldMaskTheSameWayAsWithoutMaskingInPlace() {
+        Set<String> targetKeys = Set.of("targetKey1", "targetKey2");
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder()
+                .maskKeys(targetKeys)
+                .maskStringCharactersWith("*")
+                .maskNumberDigitsWith(1)
+                .build()
+        );
+        JsonMasker inPlaceJsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder()
+                .maskKeys(targetKeys)
+                .maskStringCharactersWith("*")
+                .maskNumberDigitsWith(1)
+                .maskInPlace()
+                .build()
+        );
+        RandomJsonGenerator randomJsonGenerator = new RandomJsonGenerator(RandomJsonGeneratorConfig.builder()
+                .setTargetKeys(targetKeys)
+                .createConfig()
+        );
+        for (int i = 0; i < 1000; i++) {
+            JsonNode jsonNode = randomJsonGenerator.createRandomJsonNode();
+            byte[] input = jsonNode.toString().getBytes(StandardCharsets.UTF_8);
+            byte[] expected = jsonMasker.mask(input);
+
+            assertThat(inPlaceJsonMasker.mask(input))
+                    .as("Failed for input: " + jsonNode)
+                    .isEqualTo(expected);
+        }
+    }
+}
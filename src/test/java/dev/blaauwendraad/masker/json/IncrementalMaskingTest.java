@@ -0,0 +1,264 @@
+package dev.blaauwendraad.masker.json;
+
+import dev.blaauwendraad.masker.json.config.JsonMaskingConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+final class IncrementalMaskingTest {
+
+    @ParameterizedTest
+    @MethodSource("testInstances")
+    void shouldMaskIncrementallyTheSameWayAsBytes(JsonMaskerTestInstance testInstance, int chunkSize) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        IncrementalJsonMasker incrementalJsonMasker = testInstance.jsonMasker().maskIncrementally(output);
+        byte[] input = testInstance.input().getBytes(StandardCharsets.UTF_8);
+
+        for (int offset = 0; offset < input.length; offset += chunkSize) {
+            byte[] chunk = Arrays.copyOfRange(input, offset, Math.min(input.length, offset + chunkSize));
+            incrementalJsonMasker.feed(chunk);
+            // the chunk must not be referenced after feeding it
+            Arrays.fill(chunk, (byte) 0);
+        }
+        incrementalJsonMasker.finish();
+
+        assertThat(output.toString(StandardCharsets.UTF_8)).isEqualTo(testInstance.expectedOutput());
+    }
+
+    private static Stream<Arguments> testInstances() throws IOException {
+        return Stream.of(
+                "test-allow-mode.json",
+                "test-escaped-characters.json",
+                "test-json-path.json",
+                "test-masking-array-values.json",
+                "test-masking-object-values.json",
+                "test-multiple-target-keys.json",
+                "test-preserve-length.json"
+        ).flatMap(fileName -> {
+            try {
+                return JsonMaskerTestUtil.getJsonMaskerTestInstancesFromFile(fileName).stream();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }).flatMap(testInstance -> Stream.of(
+                Arguments.of(testInstance, 1),
+                Arguments.of(testInstance, 3),
+                Arguments.of(testInstance, 1024)
+        ));
+    }
+
+    @Test
+    void shouldWriteOutputAsSoonAsItIsFinal() throws IOException {
+        JsonMasker jsonMasker = JsonMasker.getMasker(Set.of("maskMe"));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        IncrementalJsonMasker incrementalJsonMasker = jsonMasker.maskIncrementally(output);
+
+        incrementalJsonMasker.feed(bytes("[{\"maskMe\":\"sec"));
+        assertThat(output.toString(StandardCharsets.UTF_8)).isEqualTo("[");
+
+        incrementalJsonMasker.feed(bytes("ret\",\"other\":\"value\"},"));
+        assertThat(output.toString(StandardCharsets.UTF_8)).isEqualTo("[{\"maskMe\":\"***\",\"other\":\"value\"}");
+
+        incrementalJsonMasker.feed(bytes(" {\"mask"));
+        assertThat(output.toString(StandardCharsets.UTF_8)).isEqualTo("[{\"maskMe\":\"***\",\"other\":\"value\"}, ");
+
+        incrementalJsonMasker.feed(bytes("Me\":1}] "));
+        incrementalJsonMasker.finish();
+        assertThat(output.toString(StandardCharsets.UTF_8))
+                .isEqualTo("[{\"maskMe\":\"***\",\"other\":\"value\"}, {\"maskMe\":\"###\"}] ");
+    }
+
+    @Test
+    void shouldMaskChunksSplitInEscapeSequences() throws IOException {
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder()
+                .maskKeys("maskMe")
+                .maskStringsWith(ValueMaskers.withTextFunction(value -> value + "!"))
+                .build()
+        );
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        IncrementalJsonMasker incrementalJsonMasker = jsonMasker.maskIncrementally(output);
+
+        incrementalJsonMasker.feed(bytes("{\"mask\\u00"));
+        incrementalJsonMasker.feed(bytes("4de\":\"a\\"));
+        incrementalJsonMasker.feed(bytes("\"b\\u00"));
+        incrementalJsonMasker.feed(bytes("e9\"}"));
+        incrementalJsonMasker.finish();
+
+        assertThat(output.toString(StandardCharsets.UTF_8)).isEqualTo("{\"mask\\u004de\":\"a\\\"bé!\"}");
+    }
+
+    @Test
+    void shouldResumeAfterEmptyChunks() throws IOException {
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder().maskJsonPaths("$.maskMe").build());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        IncrementalJsonMasker incrementalJsonMasker = jsonMasker.maskIncrementally(output);
+        byte[] input = bytes("{\"other\":{\"a\":[\"}\",{}]},\"maskMe\":true}");
+
+        for (int offset = 0; offset < input.length; offset++) {
+            incrementalJsonMasker.feed(input, offset, 1);
+            incrementalJsonMasker.feed(input, offset, 0);
+        }
+        incrementalJsonMasker.finish();
+
+        assertThat(output.toString(StandardCharsets.UTF_8)).isEqualTo("{\"other\":{\"a\":[\"}\",{}]},\"maskMe\":\"&&&\"}");
+    }
+
+    @Test
+    void shouldCopyEverythingAfterTheJsonValue() throws IOException {
+        JsonMasker jsonMasker = JsonMasker.getMasker(Set.of("maskMe"));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        IncrementalJsonMasker incrementalJsonMasker = jsonMasker.maskIncrementally(output);
+
+        incrementalJsonMasker.feed(bytes("{\"maskMe\":\"secret\"}\n"));
+        incrementalJsonMasker.feed(bytes("\n"));
+        incrementalJsonMasker.finish();
+
+        assertThat(output.toString(StandardCharsets.UTF_8)).isEqualTo("{\"maskMe\":\"***\"}\n\n");
+    }
+
+    @Test
+    void shouldMaskRootPrimitiveValuesWhenFinished() throws IOException {
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder().allowKeys("allowMe").build());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        IncrementalJsonMasker incrementalJsonMasker = jsonMasker.maskIncrementally(output);
+
+        incrementalJsonMasker.feed(bytes("12"));
+        incrementalJsonMasker.feed(bytes("34"));
+        assertThat(output.size()).isZero();
+        incrementalJsonMasker.finish();
+
+        assertThat(output.toString(StandardCharsets.UTF_8)).isEqualTo("\"###\"");
+    }
+
+    @Test
+    void shouldNotAllowFeedingAfterFinish() throws IOException {
+        JsonMasker jsonMasker = JsonMasker.getMasker(Set.of("maskMe"));
+        IncrementalJsonMasker incrementalJsonMasker = jsonMasker.maskIncrementally(new ByteArrayOutputStream());
+        incrementalJsonMasker.feed(bytes("{}"));
+        incrementalJsonMasker.finish();
+
+        assertThatThrownBy(() -> incrementalJsonMasker.feed(bytes("{}"))).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(incrementalJsonMasker::finish).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> incrementalJsonMasker.feed(new byte[2], 1, 2))
+                .isInstanceOf(IndexOutOfBoundsException.class);
+    }
+
+    @Test
+    void shouldThrowInvalidJsonExceptionForIncompleteInput() throws IOException {
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder().allowKeys("allowMe").build());
+        IncrementalJsonMasker incrementalJsonMasker = jsonMasker.maskIncrementally(new ByteArrayOutputStream());
+        incrementalJsonMasker.feed(bytes("[{\"key\": \"value\"}, "));
+
+        assertThatThrownBy(incrementalJsonMasker::finish).isInstanceOf(InvalidJsonException.class);
+        assertThatThrownBy(() -> incrementalJsonMasker.feed(bytes("{}"))).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void shouldOnlyKeepIncompleteValuesInMemory() throws IOException {
+        JsonMasker jsonMasker = JsonMasker.getMasker(Set.of("maskMe"));
+        CountingOutputStream output = new CountingOutputStream();
+        IncrementalJsonMasker incrementalJsonMasker = jsonMasker.maskIncrementally(output);
+        byte[] element = bytes("{\"maskMe\":\"secret\",\"other\":[1,2,3]},");
+        int elements = 100_000;
+
+        incrementalJsonMasker.feed(bytes("["));
+        for (int i = 0; i < elements; i++) {
+            incrementalJsonMasker.feed(element);
+            // everything but the last comma is final
+            assertThat(output.count).isEqualTo(1 + (i + 1) * (element.length - 3L) - 1);
+        }
+        incrementalJsonMasker.feed(bytes("{}]"));
+        incrementalJsonMasker.finish();
+
+        assertThat(output.count).isEqualTo(1 + elements * (element.length - 3L) + 3);
+    }
+
+    @ParameterizedTest
+    @MethodSource("largeValues")
+    void shouldNotKeepLargeValuesThatAreNotMaskedInMemory(JsonMaskingConfig maskingConfig, String largeValue) throws IOException {
+        JsonMasker jsonMasker = JsonMasker.getMasker(maskingConfig);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        IncrementalJsonMasker incrementalJsonMasker = jsonMasker.maskIncrementally(output);
+        byte[] input = bytes("{\"maskMe\":\"secret\",\"largeValue\":" + largeValue + ",\"maskMe\":1}");
+        int chunkSize = 1000;
+
+        for (int offset = 0; offset < input.length; offset += chunkSize) {
+            incrementalJsonMasker.feed(input, offset, Math.min(chunkSize, input.length - offset));
+            // masking resumes from the last checkpoint, so the work per chunk is bounded by the buffered bytes as well
+            assertThat(incrementalJsonMasker.bufferedBytes()).isLessThanOrEqualTo(chunkSize);
+        }
+        incrementalJsonMasker.finish();
+
+        assertThat(output.toByteArray()).isEqualTo(jsonMasker.mask(input));
+    }
+
+    private static Stream<Arguments> largeValues() {
+        String string = "\"" + "plain text with \\\"escapes\\\\ and [brackets] {}".repeat(30_000) + "\"";
+        String object = "{\"key\":" + "[{\"a\":[1,\"x]}\"],\"b\":{\"c\":null}},".repeat(30_000) + "true]}";
+        JsonMaskingConfig maskKeys = JsonMaskingConfig.builder().maskKeys("maskMe").build();
+        JsonMaskingConfig allowKeys = JsonMaskingConfig.builder().allowKeys("largeValue").build();
+        JsonMaskingConfig maskJsonPaths = JsonMaskingConfig.builder().maskJsonPaths("$.maskMe").build();
+        return Stream.of(
+                Arguments.of(maskKeys, string),
+                Arguments.of(maskKeys, object),
+                Arguments.of(allowKeys, string),
+                Arguments.of(allowKeys, object),
+                Arguments.of(maskJsonPaths, string),
+                Arguments.of(maskJsonPaths, object)
+        );
+    }
+
+    @Test
+    void shouldMaskLargeValuesFedInSmallChunks() throws IOException {
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder()
+                .maskKeys("maskMe")
+                .maskStringsWith(ValueMaskers.withTextFunction(value -> String.valueOf(value.length())))
+                .build()
+        );
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        IncrementalJsonMasker incrementalJsonMasker = jsonMasker.maskIncrementally(output);
+        String value = "secret with \\\"escapes\\\\ ".repeat(50_000);
+        byte[] input = bytes("{\"maskMe\":\"" + value + "\"}");
+
+        int valueEnd = input.length - 2;
+        for (int offset = 0; offset < valueEnd; offset += 100) {
+            incrementalJsonMasker.feed(input, offset, Math.min(100, valueEnd - offset));
+        }
+        // the masked value is kept until it is complete
+        assertThat(incrementalJsonMasker.bufferedBytes()).isEqualTo(valueEnd);
+        incrementalJsonMasker.feed(input, valueEnd, 2);
+        incrementalJsonMasker.finish();
+
+        assertThat(output.toByteArray()).isEqualTo(jsonMasker.mask(input));
+        assertThat(incrementalJsonMasker.bufferedBytes()).isZero();
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static final class CountingOutputStream extends java.io.OutputStream {
+        private long count = 0;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
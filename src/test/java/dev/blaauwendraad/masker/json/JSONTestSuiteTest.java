@@ -25,7 +25,7 @@ import static org.assertj.core.api.Assertions.assertThat;
  */
 public class JSONTestSuiteTest {
 
-    private static final List<String> PRODUCING_STACK_OVER_FLOW = List.of(
+    private static final List<String> DEEPLY_NESTED = List.of(
             "n_structure_100000_opening_arrays.json",
             "n_structure_open_array_object.json"
     );
@@ -138,8 +138,16 @@ public class JSONTestSuiteTest {
                         .build()
         );
 
-        if (PRODUCING_STACK_OVER_FLOW.contains(file.name)) {
-            Assertions.assertThatThrownBy(() -> jsonMasker.mask(file.originalContent))
+        if (DEEPLY_NESTED.contains(file.name)) {
+            // the depth is not limited by the call stack, but can be limited explicitly
+            jsonMasker.mask(file.originalContent);
+            JsonMasker depthLimitedJsonMasker = JsonMasker.getMasker(
+                    JsonMaskingConfig.builder()
+                            .allowKeys(Set.of())
+                            .maxDepth(1000)
+                            .build()
+            );
+            Assertions.assertThatThrownBy(() -> depthLimitedJsonMasker.mask(file.originalContent))
                     .isInstanceOf(InvalidJsonException.class);
         } else {
             jsonMasker.mask(file.originalContent);
@@ -147,7 +155,7 @@ public class JSONTestSuiteTest {
     }
 
     @ParameterizedTest(name = "{0}")
-    @MethodSource("allWithoutStackOverFlow")
+    @MethodSource("allWithoutDeeplyNested")
     void shouldMaskAllTestCasesPredictably(String testName, JsonTestSuiteFile file) {
         // masks everything
         JsonMasker jsonMasker = JsonMasker.getMasker(
@@ -164,7 +172,7 @@ public class JSONTestSuiteTest {
     }
 
     @ParameterizedTest(name = "{0}")
-    @MethodSource("allWithoutStackOverFlow")
+    @MethodSource("allWithoutDeeplyNested")
     void mustPassSuiteWithNoopTextFunction(String testName, JsonTestSuiteFile file) {
         // masks everything with withTextFunction, that is equivalent to default masker settings
         JsonMasker jsonMasker = JsonMasker.getMasker(
@@ -206,8 +214,8 @@ public class JSONTestSuiteTest {
                 .map(file -> Arguments.of(file.name, file));
     }
 
-    private static Stream<Arguments> allWithoutStackOverFlow() {
-        return loadSuite(name -> !PRODUCING_STACK_OVER_FLOW.contains(name))
+    private static Stream<Arguments> allWithoutDeeplyNested() {
+        return loadSuite(name -> !DEEPLY_NESTED.contains(name))
                 .stream()
                 .map(file -> Arguments.of(file.name, file));
     }
@@ -220,7 +228,7 @@ public class JSONTestSuiteTest {
                         try {
                             var fileName = file.getFileName().toString();
                             var content = Files.readAllBytes(file);
-                            if (PRODUCING_STACK_OVER_FLOW.contains(fileName)) {
+                            if (DEEPLY_NESTED.contains(fileName)) {
                                 return new JsonTestSuiteFile(fileName, content, null);
                             }
                             var maskedContent = Files.readAllBytes(JSON_TEST_SUITE_PATH.resolve("masked/%s".formatted(fileName)));
@@ -0,0 +1,141 @@
+package dev.blaauwendraad.masker.json;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import dev.blaauwendraad.masker.json.config.JsonMaskingConfig;
+import dev.blaauwendraad.masker.randomgen.RandomJsonGenerator;
+import dev.blaauwendraad.masker.randomgen.RandomJsonGeneratorConfig;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+final class JsonLinesMaskingTest {
+
+    @Test
+    void shouldMaskEveryLine() throws IOException {
+        JsonMasker jsonMasker = JsonMasker.getMasker(Set.of("maskMe"));
+        String input = """
+                {"maskMe":"secret1"}
+                {"other":"value","maskMe":2}
+                ["not an object"]
+                """;
+        String expected = """
+                {"maskMe":"***"}
+                {"other":"value","maskMe":"###"}
+                ["not an object"]
+                """;
+
+        assertThat(maskJsonLines(jsonMasker, input)).isEqualTo(expected);
+        assertThat(maskJsonLinesStream(jsonMasker, input)).isEqualTo(expected);
+    }
+
+    @Test
+    void shouldKeepEmptyLinesAndLineSeparators() throws IOException {
+        JsonMasker jsonMasker = JsonMasker.getMasker(Set.of("maskMe"));
+        String input = "\n{\"maskMe\":\"secret\"}\r\n\r\n{\"maskMe\":\"secret\"}";
+        String expected = "\n{\"maskMe\":\"***\"}\r\n\r\n{\"maskMe\":\"***\"}";
+
+        assertThat(maskJsonLines(jsonMasker, input)).isEqualTo(expected);
+        assertThat(maskJsonLinesStream(jsonMasker, input)).isEqualTo(expected);
+        assertThat(maskJsonLines(jsonMasker, "")).isEmpty();
+        assertThat(maskJsonLinesStream(jsonMasker, "")).isEmpty();
+    }
+
+    @Test
+    void shouldMaskLinesTheSameWayAsSeparateJson() throws IOException {
+        Set<String> targetKeys = Set.of("targetKey1", "targetKey2");
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder()
+                .maskKeys(targetKeys)
+                .maskStringCharactersWith("*")
+                .build()
+        );
+        RandomJsonGenerator randomJsonGenerator = new RandomJsonGenerator(RandomJsonGeneratorConfig.builder()
+                .setTargetKeys(targetKeys)
+                .createConfig()
+        );
+        StringBuilder input = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        // enough lines to be split into multiple chunks and blocks
+        while (input.length() < 3 * 1024 * 1024) {
+            JsonNode jsonNode = randomJsonGenerator.createRandomJsonNode();
+            input.append(jsonNode).append('\n');
+            expected.append(jsonMasker.mask(jsonNode.toString())).append('\n');
+        }
+
+        assertThat(maskJsonLines(jsonMasker, input.toString())).isEqualTo(expected.toString());
+        assertThat(maskJsonLinesStream(jsonMasker, input.toString())).isEqualTo(expected.toString());
+    }
+
+    @Test
+    void shouldMaskLinesLargerThanChunks() throws IOException {
+        JsonMasker jsonMasker = JsonMasker.getMasker(Set.of("maskMe"));
+        String largeValue = "a".repeat(3 * 1024 * 1024);
+        String input = "{\"maskMe\":\"secret\"}\n{\"other\":\"%s\"}\n{\"maskMe\":\"secret\"}\n".formatted(largeValue);
+        String expected = "{\"maskMe\":\"***\"}\n{\"other\":\"%s\"}\n{\"maskMe\":\"***\"}\n".formatted(largeValue);
+
+        assertThat(maskJsonLines(jsonMasker, input)).isEqualTo(expected);
+        assertThat(maskJsonLinesStream(jsonMasker, input)).isEqualTo(expected);
+    }
+
+    @Test
+    void shouldReuseBlocksForLinesOfDifferentLengths() throws IOException {
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder()
+                .maskKeys("maskMe")
+                .maskStringsWith("a mask that is longer than the value")
+                .build()
+        );
+        // short lines, then a line that is larger than a block and short lines again, so that blocks and their output
+        // buffers are reused for input they are too small for
+        String shortLines = "{\"maskMe\":\"s\"}\n".repeat(200_000);
+        String input = shortLines + "{\"maskMe\":\"%s\"}\n".formatted("a".repeat(3 * 1024 * 1024)) + shortLines;
+        String expected = "{\"maskMe\":\"a mask that is longer than the value\"}\n".repeat(400_001);
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            jsonMasker.maskJsonLines(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), output, pool);
+
+            assertThat(output.toString(StandardCharsets.UTF_8)).isEqualTo(expected);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void shouldUseGivenPool() {
+        JsonMasker jsonMasker = JsonMasker.getMasker(Set.of("maskMe"));
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            byte[] output = jsonMasker.maskJsonLines("{\"maskMe\":\"secret\"}\n".getBytes(StandardCharsets.UTF_8), pool);
+
+            assertThat(new String(output, StandardCharsets.UTF_8)).isEqualTo("{\"maskMe\":\"***\"}\n");
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void shouldThrowInvalidJsonException() {
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder().allowKeys("allowMe").build());
+        String input = "{\"allowMe\":\"value\"}\n[{\"key\": \"value\"}, \n";
+
+        assertThatThrownBy(() -> maskJsonLines(jsonMasker, input)).isInstanceOf(InvalidJsonException.class);
+        assertThatThrownBy(() -> maskJsonLinesStream(jsonMasker, input)).isInstanceOf(InvalidJsonException.class);
+    }
+
+    private static String maskJsonLines(JsonMasker jsonMasker, String input) {
+        return new String(jsonMasker.maskJsonLines(input.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8);
+    }
+
+    private static String maskJsonLinesStream(JsonMasker jsonMasker, String input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        jsonMasker.maskJsonLines(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), output);
+        return output.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,307 @@
+package dev.blaauwendraad.masker.json;
+
+import dev.blaauwendraad.masker.json.config.JsonMaskingConfig;
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+final class JsonMaskingProcessorTest {
+
+    @Test
+    void shouldMaskPublishedBuffers() {
+        JsonMaskingProcessor processor = new JsonMaskingProcessor(JsonMaskingConfig.builder().maskKeys("maskMe").build());
+        ListPublisher publisher = new ListPublisher(chunks("[{\"maskMe\":\"secret\",\"other\":\"value\"},{\"mask", "Me\":12}]", true));
+        CollectingSubscriber subscriber = new CollectingSubscriber();
+
+        publisher.subscribe(processor);
+        processor.subscribe(subscriber);
+        subscriber.subscription().request(Long.MAX_VALUE);
+
+        assertThat(subscriber.completed).isTrue();
+        assertThat(subscriber.output()).isEqualTo("[{\"maskMe\":\"***\",\"other\":\"value\"},{\"maskMe\":\"###\"}]");
+    }
+
+    @Test
+    void shouldMaskAsynchronously() throws Exception {
+        JsonMasker jsonMasker = JsonMasker.getMasker(Set.of("maskMe"));
+        JsonMaskingProcessor processor = new JsonMaskingProcessor(jsonMasker, 16);
+        CompletableFuture<String> output = new CompletableFuture<>();
+        processor.subscribe(new Flow.Subscriber<>() {
+            private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            private Flow.@Nullable Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(ByteBuffer item) {
+                bytes.write(item.array(), item.arrayOffset() + item.position(), item.remaining());
+                Objects.requireNonNull(subscription).request(1);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                output.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                output.complete(bytes.toString(StandardCharsets.UTF_8));
+            }
+        });
+        StringBuilder input = new StringBuilder("[");
+        StringBuilder expected = new StringBuilder("[");
+        try (SubmissionPublisher<ByteBuffer> publisher = new SubmissionPublisher<>()) {
+            publisher.subscribe(processor);
+            publisher.submit(ByteBuffer.wrap("[".getBytes(StandardCharsets.UTF_8)));
+            for (int i = 0; i < 1000; i++) {
+                String element = "{\"maskMe\":\"secret%s\",\"other\":%s},".formatted(i, i);
+                input.append(element);
+                expected.append("{\"maskMe\":\"***\",\"other\":%s},".formatted(i));
+                // direct buffers are copied before masking
+                ByteBuffer buffer = ByteBuffer.allocateDirect(element.length());
+                buffer.put(element.getBytes(StandardCharsets.UTF_8)).flip();
+                publisher.submit(buffer);
+            }
+            publisher.submit(ByteBuffer.wrap("{}]".getBytes(StandardCharsets.UTF_8)));
+        }
+        expected.append("{}]");
+
+        assertThat(output.get(10, TimeUnit.SECONDS)).isEqualTo(expected.toString());
+    }
+
+    @Test
+    void shouldNotRequestMoreThanTheWindowAllows() {
+        JsonMaskingProcessor processor = new JsonMaskingProcessor(JsonMasker.getMasker(Set.of("maskMe")), 10);
+        List<ByteBuffer> chunks = new ArrayList<>();
+        chunks.add(ByteBuffer.wrap("[".getBytes(StandardCharsets.UTF_8)));
+        for (int i = 0; i < 100; i++) {
+            chunks.add(ByteBuffer.wrap("{\"a\":1},".getBytes(StandardCharsets.UTF_8)));
+        }
+        chunks.add(ByteBuffer.wrap("{}]".getBytes(StandardCharsets.UTF_8)));
+        ListPublisher publisher = new ListPublisher(chunks);
+        CollectingSubscriber subscriber = new CollectingSubscriber();
+
+        publisher.subscribe(processor);
+        processor.subscribe(subscriber);
+
+        // the first chunk only produces 1 byte of output, every next one 8 bytes
+        assertThat(publisher.published).isEqualTo(3);
+        assertThat(subscriber.items).isEmpty();
+
+        // publishing one buffer makes room in the window for one more chunk
+        subscriber.subscription().request(1);
+        assertThat(subscriber.items).hasSize(1);
+        assertThat(publisher.published).isEqualTo(4);
+
+        subscriber.subscription().request(Long.MAX_VALUE);
+        assertThat(publisher.published).isEqualTo(102);
+        assertThat(subscriber.completed).isTrue();
+        assertThat(subscriber.output()).isEqualTo("[" + "{\"a\":1},".repeat(100) + "{}]");
+    }
+
+    @Test
+    void shouldSignalInvalidJson() {
+        JsonMaskingProcessor processor = new JsonMaskingProcessor(JsonMaskingConfig.builder().allowKeys("allowMe").build());
+        ListPublisher publisher = new ListPublisher(chunks("[{\"key\": \"value\"}, "));
+        CollectingSubscriber subscriber = new CollectingSubscriber();
+
+        publisher.subscribe(processor);
+        processor.subscribe(subscriber);
+        subscriber.subscription().request(Long.MAX_VALUE);
+
+        assertThat(subscriber.error).isInstanceOf(InvalidJsonException.class);
+        assertThat(subscriber.completed).isFalse();
+    }
+
+    @Test
+    void shouldPublishValuesLargerThanTheWindowThatAreNotMasked() {
+        JsonMaskingProcessor processor = new JsonMaskingProcessor(JsonMasker.getMasker(Set.of("maskMe")), 16);
+        String largeValue = "0123456789".repeat(1000);
+        List<ByteBuffer> chunks = new ArrayList<>();
+        chunks.add(ByteBuffer.wrap("{\"maskMe\":\"secret\",\"other\":\"".getBytes(StandardCharsets.UTF_8)));
+        for (int i = 0; i < largeValue.length(); i += 10) {
+            chunks.add(ByteBuffer.wrap(largeValue.substring(i, i + 10).getBytes(StandardCharsets.UTF_8)));
+        }
+        chunks.add(ByteBuffer.wrap("\"}".getBytes(StandardCharsets.UTF_8)));
+        ListPublisher publisher = new ListPublisher(chunks);
+        CollectingSubscriber subscriber = new CollectingSubscriber();
+
+        publisher.subscribe(processor);
+        processor.subscribe(subscriber);
+        subscriber.subscription().request(Long.MAX_VALUE);
+
+        assertThat(subscriber.error).isNull();
+        assertThat(subscriber.completed).isTrue();
+        assertThat(subscriber.output()).isEqualTo("{\"maskMe\":\"***\",\"other\":\"" + largeValue + "\"}");
+    }
+
+    @Test
+    void shouldSignalMaskedValuesLargerThanTheWindow() {
+        JsonMaskingProcessor processor = new JsonMaskingProcessor(JsonMasker.getMasker(Set.of("maskMe")), 16);
+        ListPublisher publisher = new ListPublisher(chunks("{\"other\":1,\"maskMe\":\"01234", "56789", "\"}"));
+        CollectingSubscriber subscriber = new CollectingSubscriber();
+
+        publisher.subscribe(processor);
+        processor.subscribe(subscriber);
+        subscriber.subscription().request(Long.MAX_VALUE);
+
+        // the first buffer keeps the 16 bytes from the comma before the key, the second one exceeds the window
+        assertThat(subscriber.error)
+                .isInstanceOf(InvalidJsonException.class)
+                .hasMessageContaining("exceeds the window size");
+        assertThat(subscriber.completed).isFalse();
+        assertThat(publisher.cancelled).isTrue();
+        assertThat(publisher.published).isEqualTo(2);
+    }
+
+    @Test
+    void shouldCancelUpstreamWhenCancelled() {
+        JsonMaskingProcessor processor = new JsonMaskingProcessor(JsonMaskingConfig.builder().maskKeys("maskMe").build());
+        ListPublisher publisher = new ListPublisher(chunks("[1,", "2]"));
+        CollectingSubscriber subscriber = new CollectingSubscriber();
+
+        publisher.subscribe(processor);
+        processor.subscribe(subscriber);
+        subscriber.subscription().cancel();
+        subscriber.subscription().request(1);
+
+        assertThat(publisher.cancelled).isTrue();
+        assertThat(subscriber.items).isEmpty();
+        assertThat(subscriber.completed).isFalse();
+    }
+
+    @Test
+    void shouldSignalNonPositiveRequests() {
+        JsonMaskingProcessor processor = new JsonMaskingProcessor(JsonMaskingConfig.builder().maskKeys("maskMe").build());
+        ListPublisher publisher = new ListPublisher(chunks("[1,", "2]"));
+        CollectingSubscriber subscriber = new CollectingSubscriber();
+
+        publisher.subscribe(processor);
+        processor.subscribe(subscriber);
+        subscriber.subscription().request(0);
+
+        assertThat(subscriber.error).isInstanceOf(IllegalArgumentException.class);
+        assertThat(publisher.cancelled).isTrue();
+    }
+
+    @Test
+    void shouldOnlyAllowSingleSubscriber() {
+        JsonMaskingProcessor processor = new JsonMaskingProcessor(JsonMaskingConfig.builder().maskKeys("maskMe").build());
+        CollectingSubscriber subscriber = new CollectingSubscriber();
+        CollectingSubscriber otherSubscriber = new CollectingSubscriber();
+
+        processor.subscribe(subscriber);
+        processor.subscribe(otherSubscriber);
+
+        assertThat(subscriber.error).isNull();
+        assertThat(otherSubscriber.error).isInstanceOf(IllegalStateException.class);
+    }
+
+    private static List<ByteBuffer> chunks(String... chunks) {
+        List<ByteBuffer> buffers = new ArrayList<>();
+        for (String chunk : chunks) {
+            buffers.add(ByteBuffer.wrap(chunk.getBytes(StandardCharsets.UTF_8)));
+        }
+        return buffers;
+    }
+
+    private static List<ByteBuffer> chunks(String first, String second, boolean readOnly) {
+        List<ByteBuffer> buffers = chunks(first, second);
+        if (readOnly) {
+            buffers.replaceAll(ByteBuffer::asReadOnlyBuffer);
+        }
+        return buffers;
+    }
+
+    /**
+     * Publishes the buffers synchronously, in the thread that requests them.
+     */
+    private static final class ListPublisher implements Flow.Publisher<ByteBuffer> {
+        private final List<ByteBuffer> buffers;
+        private int published = 0;
+        private boolean cancelled = false;
+
+        private ListPublisher(List<ByteBuffer> buffers) {
+            this.buffers = buffers;
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                    for (long i = 0; i < n && published < buffers.size() && !cancelled; i++) {
+                        subscriber.onNext(buffers.get(published++));
+                    }
+                    if (published == buffers.size() && !cancelled) {
+                        cancelled = true;
+                        subscriber.onComplete();
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    cancelled = true;
+                }
+            });
+        }
+    }
+
+    private static final class CollectingSubscriber implements Flow.Subscriber<ByteBuffer> {
+        private final List<ByteBuffer> items = new ArrayList<>();
+        private Flow.@Nullable Subscription subscription;
+        private @Nullable Throwable error;
+        private boolean completed = false;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(ByteBuffer item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            this.error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            this.completed = true;
+        }
+
+        Flow.Subscription subscription() {
+            return Objects.requireNonNull(subscription);
+        }
+
+        String output() {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            for (ByteBuffer item : items) {
+                byte[] bytes = new byte[item.remaining()];
+                item.duplicate().get(bytes);
+                output.writeBytes(bytes);
+            }
+            return output.toString(StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package dev.blaauwendraad.masker.json;
+
+import dev.blaauwendraad.masker.json.config.JsonMaskingConfig;
+import dev.blaauwendraad.masker.json.config.KeyMaskingConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+final class KeyMatchCacheTest {
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 16, 1024})
+    void shouldMatchSameKeysAsWithoutCache(int capacity) {
+        KeyMaskingConfig redacted = KeyMaskingConfig.builder().maskStringsWith("[redacted]").build();
+        List<JsonMaskingConfig.Builder> builders = List.of(
+                JsonMaskingConfig.builder().maskKeys("maskMe", "secret", "é😀").maskKeyPatterns("*token*"),
+                JsonMaskingConfig.builder().maskKeys("maskMe", "secret").caseSensitiveTargetKeys(),
+                JsonMaskingConfig.builder().allowKeys("allowMe", "name").maskKeys("secret", redacted).allowKeyPatterns("*Id")
+        );
+        Random random = new Random(capacity);
+        List<String> keys = List.of("maskMe", "MASKME", "mask\\u004De", "secret", "secrets", "é😀", "É😀", "accessToken",
+                "token", "allowMe", "name", "userId", "other", "", "a".repeat(100), "maskMe".repeat(20));
+        for (JsonMaskingConfig.Builder builder : builders) {
+            JsonMaskingConfig config = builder.build();
+            KeyMatcher keyMatcher = new KeyMatcher(config);
+            KeyMatcher cachingKeyMatcher = new KeyMatcher(builder.cacheKeyMatches(capacity).build());
+            for (int i = 0; i < 1000; i++) {
+                String key = keys.get(random.nextInt(keys.size()));
+                // the configurations are built separately, so they are compared by their string representation
+                assertThat(String.valueOf(config(cachingKeyMatcher, key))).as(key).isEqualTo(String.valueOf(config(keyMatcher, key)));
+            }
+        }
+    }
+
+    @Test
+    void shouldMatchKeysAtAnyOffset() {
+        KeyMatcher keyMatcher = new KeyMatcher(JsonMaskingConfig.builder().maskKeys("maskMe").cacheKeyMatches(16).build());
+        byte[] bytes = "maskMe maskMe maskMa".getBytes(StandardCharsets.UTF_8);
+
+        assertThat(keyMatcher.getMaskConfigIfMatched(bytes, 0, 6, null)).isNotNull();
+        assertThat(keyMatcher.getMaskConfigIfMatched(bytes, 7, 6, null)).isNotNull();
+        assertThat(keyMatcher.getMaskConfigIfMatched(bytes, 14, 6, null)).isNull();
+        assertThat(keyMatcher.getMaskConfigIfMatched(bytes, 0, 5, null)).isNull();
+    }
+
+    @Test
+    void shouldShareCacheAcrossThreads() throws Exception {
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder()
+                .maskKeys("maskMe")
+                .maskKeyPatterns("secret*")
+                .cacheKeyMatches(4)
+                .build()
+        );
+        String input = "{\"maskMe\":\"a\",\"key1\":\"b\",\"secretKey\":\"c\",\"key2\":\"d\",\"MASKME\":\"e\",\"key3\":\"f\"}";
+        String expectedOutput = "{\"maskMe\":\"***\",\"key1\":\"b\",\"secretKey\":\"***\",\"key2\":\"d\",\"MASKME\":\"***\",\"key3\":\"f\"}";
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit(() -> {
+                    for (int j = 0; j < 10_000; j++) {
+                        if (!jsonMasker.mask(input).equals(expectedOutput)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertThat(result.get()).isTrue();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldNotAllocateMemoryWhenCachingKeys() {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        // with key patterns every key is cached, and as there are more keys than fit in the cache, most look-ups miss
+        KeyMatcher keyMatcher = new KeyMatcher(JsonMaskingConfig.builder()
+                .maskKeys("maskMe")
+                .maskKeyPatterns("secret*")
+                .cacheKeyMatches(16)
+                .build()
+        );
+        byte[][] keys = new byte[1000][];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = ("key" + i).getBytes(StandardCharsets.UTF_8);
+        }
+        int iterations = 100;
+        for (int i = 0; i < iterations; i++) {
+            for (byte[] key : keys) {
+                keyMatcher.getMaskConfigIfMatched(key, 0, key.length, null);
+            }
+        }
+
+        long allocatedBytesBefore = threadMXBean.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < iterations; i++) {
+            for (byte[] key : keys) {
+                keyMatcher.getMaskConfigIfMatched(key, 0, key.length, null);
+            }
+        }
+        long allocatedBytes = threadMXBean.getCurrentThreadAllocatedBytes() - allocatedBytesBefore;
+
+        // a single allocation per look-up would add up to at least 16 bytes per look-up, anything below that is noise
+        // from the JVM itself (e.g. JIT compilation)
+        assertThat(allocatedBytes / iterations / keys.length).isZero();
+    }
+
+    @Test
+    void shouldNeverReturnResultOfOtherKeyWhenWrittenConcurrently() throws Exception {
+        // a small cache, so that the threads keep overwriting the same slots
+        KeyMatchCache cache = new KeyMatchCache(4);
+        byte[][] keys = new byte[64][];
+        KeyMatcher.TrieNode[] nodes = new KeyMatcher.TrieNode[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = ("key" + i).repeat(i % 8 + 1).getBytes(StandardCharsets.UTF_8);
+            nodes[i] = new KeyMatcher.TrieNode();
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int seed = t;
+                results.add(executor.submit(() -> {
+                    Random random = new Random(seed);
+                    for (int j = 0; j < 200_000; j++) {
+                        int i = random.nextInt(keys.length);
+                        byte[] key = keys[i];
+                        int hash = KeyMatchCache.hash(key, 0, key.length);
+                        KeyMatcher.TrieNode cached = cache.get(key, 0, key.length, hash);
+                        if (cached == KeyMatchCache.NOT_CACHED) {
+                            cache.put(key, 0, key.length, hash, nodes[i]);
+                        } else if (cached != nodes[i]) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertThat(result.get()).isTrue();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static KeyMaskingConfig config(KeyMatcher keyMatcher, String key) {
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        return keyMatcher.getMaskConfigIfMatched(bytes, 0, bytes.length, null);
+    }
+}
@@ -6,8 +6,12 @@ import dev.blaauwendraad.masker.json.util.ByteValueMaskerContext;
 import org.assertj.core.api.Assertions;
 import org.assertj.core.api.ObjectAssert;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
+import java.lang.management.ManagementFactory;
 import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
 import java.util.Locale;
 import java.util.Set;
 
@@ -122,6 +126,56 @@ final class KeyMatcherTest {
         assertThat(keyMatcher.getMaskConfigIfMatched(bytes, 0, 0, node)).isNull();
     }
 
+    @Test
+    void shouldMatchDescendantJsonPaths() {
+        KeyMatcher keyMatcher = new KeyMatcher(JsonMaskingConfig.builder().maskJsonPaths("$.a..b").build());
+        byte[] bytes = "a b x".getBytes(StandardCharsets.UTF_8);
+
+        KeyMatcher.TrieNode node = keyMatcher.getJsonPathRootNode();
+        assertThat(keyMatcher.traverseJsonPathSegment(bytes, node, 4, 1)).isNull();
+        node = keyMatcher.traverseJsonPathSegment(bytes, node, 0, 1);
+        for (int depth = 0; depth < 3; depth++) {
+            assertThat(keyMatcher.canMatchJsonPathBelow(node)).isTrue();
+            assertThat(keyMatcher.getMaskConfigIfMatched(bytes, 0, -1, keyMatcher.traverseJsonPathSegment(bytes, node, 2, 1))).isNotNull();
+            assertThat(keyMatcher.getMaskConfigIfMatched(bytes, 0, -1, keyMatcher.traverseJsonPathSegment(bytes, node, 4, 1))).isNull();
+            node = depth % 2 == 0
+                    ? keyMatcher.traverseJsonPathSegment(bytes, node, 4, 1)
+                    : keyMatcher.traverseJsonPathSegment(bytes, node, -1, -1);
+        }
+    }
+
+    @Test
+    void shouldNotAllocateMemoryWhenMatchingDescendantJsonPaths() {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        KeyMatcher keyMatcher = new KeyMatcher(JsonMaskingConfig.builder().maskJsonPaths("$..pässword").build());
+        // escaped and multibyte keys used to be decoded and folded into a copy before matching
+        byte[][] keys = new byte[][]{
+                "p\\u00e4ssword".getBytes(StandardCharsets.UTF_8),
+                "PÄSSWORD".getBytes(StandardCharsets.UTF_8),
+                "other".getBytes(StandardCharsets.UTF_8)
+        };
+        int iterations = 10_000;
+        for (int i = 0; i < iterations; i++) {
+            for (byte[] key : keys) {
+                keyMatcher.traverseJsonPathSegment(key, keyMatcher.getJsonPathRootNode(), 0, key.length);
+            }
+        }
+
+        long allocatedBytesBefore = threadMXBean.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < iterations; i++) {
+            for (byte[] key : keys) {
+                keyMatcher.traverseJsonPathSegment(key, keyMatcher.getJsonPathRootNode(), 0, key.length);
+            }
+        }
+        long allocatedBytes = threadMXBean.getCurrentThreadAllocatedBytes() - allocatedBytesBefore;
+
+        assertThat(keyMatcher.getMaskConfigIfMatched(keys[0], 0, -1, keyMatcher.traverseJsonPathSegment(keys[0], keyMatcher.getJsonPathRootNode(), 0, keys[0].length))).isNotNull();
+        assertThat(keyMatcher.getMaskConfigIfMatched(keys[1], 0, -1, keyMatcher.traverseJsonPathSegment(keys[1], keyMatcher.getJsonPathRootNode(), 0, keys[1].length))).isNotNull();
+        // a single allocation per step would add up to at least 16 bytes per step, anything below that is noise from
+        // the JVM itself (e.g. JIT compilation)
+        assertThat(allocatedBytes / iterations / keys.length).isZero();
+    }
+
     @Test
     void shouldMatchJsonPathArrays() {
         KeyMatcher keyMatcher = new KeyMatcher(JsonMaskingConfig.builder().maskJsonPaths(Set.of("$.a[*].b", "$.a[*].c")).build());
@@ -193,13 +247,14 @@ final class KeyMatcherTest {
         assertThat(keyMatcher.getMaskConfigIfMatched(bytes, 0, -1, node)).isNotNull();
     }
 
-    @Test
-    void shouldReturnMaskingConfigForJsonPathInAllowMode() {
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void shouldReturnMaskingConfigForJsonPathInAllowMode(boolean hashKeys) {
         JsonMaskingConfig config = JsonMaskingConfig.builder()
                 .allowJsonPaths("$.allowMe")
                 .maskJsonPaths("$.maskMeLikeCIA", KeyMaskingConfig.builder().maskStringsWith("[redacted]").build())
                 .build();
-        KeyMatcher keyMatcher = new KeyMatcher(config);
+        KeyMatcher keyMatcher = new KeyMatcher(config, hashKeys);
 
         var json = """
                 {"allowMe":"value","maskMe":"secret","maskMeLikeCIA":"secret"}
@@ -234,6 +289,74 @@ final class KeyMatcherTest {
         assertThatConfig(keyMatcher, key).isNotNull();
     }
 
+    @Test
+    void shouldMatchKeysWhenNodeHasManyChildren() {
+        // the node after 'x' has more children than can be stored compactly
+        Set<String> manyKeys = new HashSet<>();
+        for (char c = 'a'; c <= 'z'; c++) {
+            manyKeys.add("x" + c);
+            manyKeys.add("x" + c + "y");
+        }
+        KeyMatcher keyMatcher = new KeyMatcher(JsonMaskingConfig.builder().maskKeys(manyKeys).build());
+
+        for (String key : manyKeys) {
+            assertThatConfig(keyMatcher, key).isNotNull();
+            assertThatConfig(keyMatcher, key.toUpperCase(Locale.ROOT)).isNotNull();
+            assertThatConfig(keyMatcher, key + "z").isNull();
+        }
+        assertThatConfig(keyMatcher, "x").isNull();
+        assertThatConfig(keyMatcher, "x1").isNull();
+        assertThatConfig(keyMatcher, "xay").isNotNull();
+    }
+
+    @Test
+    void shouldRejectKeysByLengthAndFirstAndLastByte() {
+        KeyMatcher keyMatcher = new KeyMatcher(JsonMaskingConfig.builder().maskKeys(Set.of("maskMe", "secret")).build());
+
+        assertThatConfig(keyMatcher, "masked").isNull();
+        assertThatConfig(keyMatcher, "maskMeToo").isNull();
+        assertThatConfig(keyMatcher, "sMaskMe").isNull();
+        assertThatConfig(keyMatcher, "SECRET").isNotNull();
+    }
+
+    @Test
+    void shouldMatchKeysWithUnicodeEscapesAtAnyPosition() {
+        KeyMatcher keyMatcher = new KeyMatcher(JsonMaskingConfig.builder().maskKeys(Set.of("maskMe", "é", "😀")).build());
+
+        assertThatConfig(keyMatcher, "\\u006daskMe").isNotNull();
+        assertThatConfig(keyMatcher, "mask\\u004De").isNotNull();
+        assertThatConfig(keyMatcher, "maskM\\u0065").isNotNull();
+        assertThatConfig(keyMatcher, "\\u006d\\u0061\\u0073\\u006b\\u004d\\u0065").isNotNull();
+        assertThatConfig(keyMatcher, "\\u00e9").isNotNull();
+        assertThatConfig(keyMatcher, "\\ud83d\\ude00").isNotNull();
+        assertThatConfig(keyMatcher, "\\u006daskMeToo").isNull();
+    }
+
+    @Test
+    void shouldMatchKeysThatChangeLengthWhenFolded() {
+        KeyMatcher keyMatcher = new KeyMatcher(JsonMaskingConfig.builder().maskKeys(Set.of("straße", "ıd", "İl")).build());
+
+        assertThatConfig(keyMatcher, "STRASSE").isNotNull();
+        assertThatConfig(keyMatcher, "strasse").isNotNull();
+        assertThatConfig(keyMatcher, "STRAẞE").isNotNull();
+        assertThatConfig(keyMatcher, "stra\\u00dfe").isNotNull();
+        assertThatConfig(keyMatcher, "strase").isNull();
+        assertThatConfig(keyMatcher, "ID").isNotNull();
+        assertThatConfig(keyMatcher, "id").isNotNull();
+        assertThatConfig(keyMatcher, "i\u0307L").isNotNull();
+        assertThatConfig(keyMatcher, "il").isNull();
+    }
+
+    @Test
+    void shouldMatchKeysWithInvalidUtf8CaseInsensitively() {
+        KeyMatcher keyMatcher = new KeyMatcher(JsonMaskingConfig.builder().maskKeys(Set.of("maskMe")).build());
+        byte[] bytes = {(byte) 0xc3, 'm', 'a', 's', 'k', 'M', 'e'};
+
+        Assertions.assertThat(keyMatcher.getMaskConfigIfMatched(bytes, 1, 6, null)).isNotNull();
+        Assertions.assertThat(keyMatcher.getMaskConfigIfMatched(bytes, 0, 7, null)).isNull();
+        Assertions.assertThat(keyMatcher.getMaskConfigIfMatched(bytes, 0, 1, null)).isNull();
+    }
+
     private ObjectAssert<KeyMaskingConfig> assertThatConfig(KeyMatcher keyMatcher, String key) {
         byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
         return Assertions.assertThat(keyMatcher.getMaskConfigIfMatched(bytes, 0, bytes.length, null));
@@ -0,0 +1,193 @@
+package dev.blaauwendraad.masker.json;
+
+import dev.blaauwendraad.masker.json.config.JsonMaskingConfig;
+import dev.blaauwendraad.masker.json.config.KeyMaskingConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+final class KeyPatternTest {
+    private static final String KEY_CHARACTERS = "abcAB_-*?[]\\é€😀";
+
+    @Test
+    void shouldMaskKeysMatchingPatterns() {
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder()
+                .maskKeys("exact")
+                .maskKeyPatterns("*password*", "*_token", "secret*", "api?key")
+                .build()
+        );
+
+        assertThat(jsonMasker.mask("""
+                {"userPassword":"a","password":"b","passwd":"c","access_token":"d","token":"e","secretKey":"f","mySecret":"g","api_key":"h","API-KEY":"i","apikey":"j","exact":"k"}
+                """.strip())).isEqualTo("""
+                {"userPassword":"***","password":"***","passwd":"c","access_token":"***","token":"e","secretKey":"***","mySecret":"g","api_key":"***","API-KEY":"***","apikey":"j","exact":"***"}
+                """.strip());
+    }
+
+    @Test
+    void shouldMatchPatternsCaseSensitiveIfSpecified() {
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder()
+                .maskKeyPatterns("secret*")
+                .caseSensitiveTargetKeys()
+                .build()
+        );
+
+        assertThat(jsonMasker.mask("{\"secretKey\":\"a\",\"SecretKey\":\"b\"}")).isEqualTo("{\"secretKey\":\"***\",\"SecretKey\":\"b\"}");
+    }
+
+    @Test
+    void shouldMatchKeysWithUnicodeEscapes() {
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder()
+                .maskKeyPatterns("*password*", "smile?")
+                .build()
+        );
+
+        assertThat(jsonMasker.mask("{\"\\u0070assword\":\"a\",\"pass\\u0077ord\":\"b\",\"smile\\ud83d\\ude00\":\"c\",\"smile\\ud83d\":\"d\"}"))
+                .isEqualTo("{\"\\u0070assword\":\"***\",\"pass\\u0077ord\":\"***\",\"smile\\ud83d\\ude00\":\"***\",\"smile\\ud83d\":\"d\"}");
+    }
+
+    @Test
+    void shouldNotDecodeEscapedBackslashFollowedByU() {
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder()
+                .maskKeyPatterns("*password*")
+                .build()
+        );
+
+        assertThat(jsonMasker.mask("{\"x\\\\uzzzz\":\"a\",\"\\\\u0070assword\":\"b\",\"\\\\\\u0070assword\":\"c\"}"))
+                .isEqualTo("{\"x\\\\uzzzz\":\"a\",\"\\\\u0070assword\":\"b\",\"\\\\\\u0070assword\":\"***\"}");
+    }
+
+    @Test
+    void shouldPreferExactKeysAndPatternsWithSpecificConfig() {
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder()
+                .maskKeys("secretKey", KeyMaskingConfig.builder().maskStringsWith("[key]").build())
+                .maskKeyPatterns("secret*")
+                .maskKeyPatterns("*id", KeyMaskingConfig.builder().maskStringsWith("[id]").build())
+                .build()
+        );
+
+        assertThat(jsonMasker.mask("{\"secretKey\":\"a\",\"secretId\":\"b\",\"secretValue\":\"c\",\"userId\":\"d\"}"))
+                .isEqualTo("{\"secretKey\":\"[key]\",\"secretId\":\"[id]\",\"secretValue\":\"***\",\"userId\":\"[id]\"}");
+    }
+
+    @Test
+    void shouldAllowKeysMatchingPatterns() {
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder()
+                .allowKeys("name")
+                .allowKeyPatterns("*Id", "created*")
+                .maskKeyPatterns("secret*", KeyMaskingConfig.builder().maskStringsWith("[redacted]").build())
+                .build()
+        );
+
+        assertThat(jsonMasker.mask("{\"name\":\"a\",\"userId\":\"b\",\"createdAt\":\"c\",\"secretId\":\"d\",\"email\":\"e\"}"))
+                .isEqualTo("{\"name\":\"a\",\"userId\":\"b\",\"createdAt\":\"c\",\"secretId\":\"[redacted]\",\"email\":\"***\"}");
+    }
+
+    @Test
+    void shouldPrefilterWithPatterns() {
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder()
+                .maskKeyPatterns("*password*")
+                .prefilterTargetKeys()
+                .build()
+        );
+        byte[] input = "{\"user\":\"value\"}".getBytes(StandardCharsets.UTF_8);
+
+        assertThat(jsonMasker.mask(input)).isSameAs(input);
+        assertThat(jsonMasker.mask("{\"nested\":{\"myPassword\":\"value\"}}")).isEqualTo("{\"nested\":{\"myPassword\":\"***\"}}");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"[abc", "[]", "[!]", "[z-a]", "[é]", "abc\\"})
+    void shouldRejectInvalidPatterns(String pattern) {
+        JsonMaskingConfig config = JsonMaskingConfig.builder().maskKeyPatterns(pattern).build();
+
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> JsonMasker.getMasker(config));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void shouldMatchSameKeysAsRegex(boolean caseSensitive) {
+        Random random = new Random(caseSensitive ? 1 : 2);
+        for (int i = 0; i < 200; i++) {
+            List<String> patterns = new ArrayList<>();
+            int patternCount = 1 + random.nextInt(3);
+            for (int j = 0; j < patternCount; j++) {
+                patterns.add(randomPattern(random));
+            }
+            KeyMatcher.TrieNode[] nodes = new KeyMatcher.TrieNode[patterns.size()];
+            for (int j = 0; j < nodes.length; j++) {
+                nodes[j] = new KeyMatcher.TrieNode();
+            }
+            KeyPatternAutomaton automaton = new KeyPatternAutomaton(patterns.toArray(new String[0]), nodes, caseSensitive);
+            List<Pattern> regexes = patterns.stream().map(pattern -> toRegex(pattern, caseSensitive)).toList();
+
+            for (int j = 0; j < 100; j++) {
+                String key = randomKey(random);
+                byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+                KeyMatcher.TrieNode expected = null;
+                for (int k = 0; k < regexes.size(); k++) {
+                    if (regexes.get(k).matcher(key).matches()) {
+                        expected = nodes[k];
+                        break;
+                    }
+                }
+                assertThat(automaton.match(bytes, 0, bytes.length))
+                        .as("key '%s' with patterns %s", key, patterns)
+                        .isSameAs(expected);
+            }
+        }
+    }
+
+    private static String randomPattern(Random random) {
+        String[] elements = {"a", "b", "A", "_", "é", "😀", "*", "?", "[ab]", "[!a_]", "[a-c]", "\\*", "\\?"};
+        StringBuilder pattern = new StringBuilder();
+        int length = random.nextInt(6);
+        for (int i = 0; i < length; i++) {
+            pattern.append(elements[random.nextInt(elements.length)]);
+        }
+        return pattern.toString();
+    }
+
+    private static String randomKey(Random random) {
+        StringBuilder key = new StringBuilder();
+        int[] codePoints = KEY_CHARACTERS.codePoints().toArray();
+        int length = random.nextInt(8);
+        for (int i = 0; i < length; i++) {
+            key.appendCodePoint(codePoints[random.nextInt(codePoints.length)]);
+        }
+        return key.toString();
+    }
+
+    private static Pattern toRegex(String pattern, boolean caseSensitive) {
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < pattern.length(); i += Character.charCount(pattern.codePointAt(i))) {
+            int c = pattern.codePointAt(i);
+            switch (c) {
+                case '*' -> regex.append(".*");
+                case '?' -> regex.append(".");
+                case '[' -> {
+                    int end = pattern.indexOf(']', i);
+                    String characterClass = pattern.substring(i + 1, end);
+                    regex.append(characterClass.startsWith("!") ? "[^" + characterClass.substring(1) + "]" : "[" + characterClass + "]");
+                    i = end;
+                }
+                case '\\' -> regex.append(Pattern.quote(String.valueOf(pattern.charAt(++i))));
+                default -> regex.append(Pattern.quote(Character.toString(c)));
+            }
+        }
+        int flags = Pattern.DOTALL;
+        if (!caseSensitive) {
+            flags |= Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+        }
+        return Pattern.compile(regex.toString(), flags);
+    }
+}
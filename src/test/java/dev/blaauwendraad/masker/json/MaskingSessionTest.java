@@ -0,0 +1,165 @@
+package dev.blaauwendraad.masker.json;
+
+import dev.blaauwendraad.masker.json.config.JsonMaskingConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+final class MaskingSessionTest {
+
+    @ParameterizedTest
+    @MethodSource("testInstances")
+    void shouldMaskTheSameWayAsMasker(JsonMaskerTestInstance testInstance) {
+        MaskingSession maskingSession = testInstance.jsonMasker().newSession();
+        byte[] input = testInstance.input().getBytes(StandardCharsets.UTF_8);
+        byte[] expected = testInstance.expectedOutput().getBytes(StandardCharsets.UTF_8);
+        byte[] output = new byte[expected.length + 5];
+
+        // the session must give the same result when it is reused
+        for (int i = 0; i < 3; i++) {
+            assertThat(maskingSession.mask(input)).isEqualTo(expected);
+            assertThat(maskingSession.mask(testInstance.input())).isEqualTo(testInstance.expectedOutput());
+            assertThat(maskingSession.mask(input, 0, input.length, output, 5)).isEqualTo(expected.length);
+            assertThat(Arrays.copyOfRange(output, 5, output.length)).isEqualTo(expected);
+        }
+    }
+
+    private static Stream<JsonMaskerTestInstance> testInstances() throws IOException {
+        return Stream.of(
+                "test-allow-mode.json",
+                "test-escaped-characters.json",
+                "test-json-path.json",
+                "test-masking-array-values.json",
+                "test-masking-object-values.json",
+                "test-multiple-target-keys.json",
+                "test-preserve-length.json"
+        ).flatMap(fileName -> {
+            try {
+                return JsonMaskerTestUtil.getJsonMaskerTestInstancesFromFile(fileName).stream();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    @Test
+    void shouldGrowToLargestMessage() {
+        MaskingSession maskingSession = JsonMasker.getMasker(JsonMaskingConfig.builder()
+                .maskKeys("maskMe")
+                .maskStringsWith("a mask that is longer than the value")
+                .build()
+        ).newSession();
+
+        assertThat(maskingSession.mask("{\"maskMe\":\"s\"}")).isEqualTo("{\"maskMe\":\"a mask that is longer than the value\"}");
+        assertThat(maskingSession.mask("[" + "{\"maskMe\":\"s\"},".repeat(100) + "{}]"))
+                .isEqualTo("[" + "{\"maskMe\":\"a mask that is longer than the value\"},".repeat(100) + "{}]");
+        assertThat(maskingSession.mask("{\"other\":\"s\"}")).isEqualTo("{\"other\":\"s\"}");
+    }
+
+    @Test
+    void shouldReturnInputWhenNothingIsMasked() {
+        MaskingSession maskingSession = JsonMasker.getMasker(Set.of("maskMe")).newSession();
+        byte[] withoutTargetKey = "{\"other\":\"s\"}".getBytes(StandardCharsets.UTF_8);
+        byte[] withoutMaskedValue = "{\"other\":\"maskMe\"}".getBytes(StandardCharsets.UTF_8);
+        byte[] withMaskedValue = "{\"maskMe\":\"s\"}".getBytes(StandardCharsets.UTF_8);
+
+        assertThat(maskingSession.mask(withoutTargetKey)).isSameAs(withoutTargetKey);
+        assertThat(maskingSession.mask(withoutMaskedValue)).isSameAs(withoutMaskedValue);
+        assertThat(maskingSession.mask(withMaskedValue)).isNotSameAs(withMaskedValue).isEqualTo("{\"maskMe\":\"***\"}".getBytes(StandardCharsets.UTF_8));
+        // the masked value of the previous message must not be taken for a replacement in the next one
+        assertThat(maskingSession.mask(withoutMaskedValue)).isSameAs(withoutMaskedValue);
+    }
+
+    @Test
+    void shouldReturnRequiredLengthWhenOutputArrayIsTooSmall() {
+        MaskingSession maskingSession = JsonMasker.getMasker(Set.of("maskMe")).newSession();
+        byte[] input = "{\"maskMe\":\"s\"}".getBytes(StandardCharsets.UTF_8);
+
+        assertThat(maskingSession.mask(input, 0, input.length, new byte[16], 2)).isEqualTo(-16);
+        assertThat(maskingSession.mask(input, 0, input.length, new byte[18], 2)).isEqualTo(16);
+        assertThatThrownBy(() -> maskingSession.mask(input, 1, input.length, new byte[18], 0))
+                .isInstanceOf(IndexOutOfBoundsException.class);
+    }
+
+    @Test
+    void shouldThrowInvalidJsonException() {
+        MaskingSession maskingSession = JsonMasker.getMasker(JsonMaskingConfig.builder().allowKeys("allowMe").build()).newSession();
+
+        assertThatThrownBy(() -> maskingSession.mask("[{\"key\": \"value\"}, "))
+                .isInstanceOf(InvalidJsonException.class);
+        // the session must still be usable after invalid input
+        assertThat(maskingSession.mask("{\"allowMe\":\"yes\"}")).isEqualTo("{\"allowMe\":\"yes\"}");
+    }
+
+    @Test
+    void shouldAllowMaskingFromValueMaskerWithSameSession() {
+        AtomicReference<MaskingSession> maskingSession = new AtomicReference<>();
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder()
+                .maskKeys("maskMe", "inner")
+                .maskStringsWith(ValueMaskers.withRawValueFunction(value -> {
+                    if (!value.startsWith("\"{")) {
+                        return "\"***\"";
+                    }
+                    return maskingSession.get().mask("{\"inner\":\"value\"}").replace("\"", "'");
+                }))
+                .build()
+        );
+        maskingSession.set(jsonMasker.newSession());
+
+        assertThat(maskingSession.get().mask("{\"maskMe\":\"{}\"}")).isEqualTo("{\"maskMe\":{'inner':'***'}}");
+    }
+
+    @Test
+    void shouldNotAllocateMemoryWithoutThreadLocalMaskingState() {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        MaskingSession maskingSession = JsonMasker.getMasker(JsonMaskingConfig.builder()
+                .maskKeys("maskMe")
+                .maskJsonPaths("$.nested.maskMe")
+                .disableThreadLocalMaskingState()
+                .build()
+        ).newSession();
+        byte[] input = "{\"maskMe\":\"secret\",\"other\":[1,2,{\"maskMe\":123}],\"nested\":{\"maskMe\":true}}"
+                .getBytes(StandardCharsets.UTF_8);
+        byte[] output = new byte[input.length];
+        int iterations = 10_000;
+        for (int i = 0; i < iterations; i++) {
+            maskingSession.mask(input, 0, input.length, output, 0);
+        }
+
+        long allocatedBytesBefore = threadMXBean.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < iterations; i++) {
+            maskingSession.mask(input, 0, input.length, output, 0);
+        }
+        long allocatedBytes = threadMXBean.getCurrentThreadAllocatedBytes() - allocatedBytesBefore;
+
+        // a single allocation per call would add up to at least 16 bytes per call, anything below that is noise
+        // from the JVM itself (e.g. JIT compilation)
+        assertThat(allocatedBytes / iterations).isZero();
+    }
+
+    @Test
+    void shouldMaskIntoOutputArrayWithoutThreadLocalMaskingState() {
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder()
+                .maskKeys("maskMe")
+                .disableThreadLocalMaskingState()
+                .build()
+        );
+        byte[] input = "{\"maskMe\":\"secret\"}".getBytes(StandardCharsets.UTF_8);
+        byte[] output = new byte[100];
+
+        int written = jsonMasker.mask(input, 0, input.length, output, 0);
+
+        assertThat(new String(output, 0, written, StandardCharsets.UTF_8)).isEqualTo("{\"maskMe\":\"***\"}");
+    }
+}
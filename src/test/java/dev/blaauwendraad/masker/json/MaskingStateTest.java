@@ -53,6 +53,22 @@ class MaskingStateTest {
         Assertions.assertThat(maskingState.getCurrentJsonPathNode()).isNotNull();
     }
 
+    @Test
+    void replacementOperationsExceedCapacity() {
+        byte[] message = "[1,22,333,4444]".repeat(100).getBytes(StandardCharsets.UTF_8);
+        MaskingState maskingState = new MaskingState(message, false);
+        byte[] mask = "x".getBytes(StandardCharsets.UTF_8);
+        int index = 0;
+        for (int i = 0; i < 100; i++) {
+            maskingState.replaceTargetValueWith(index + 1, 1, mask, 2);
+            maskingState.replaceTargetValueWith(index + 3, 2, mask, 1);
+            maskingState.replaceTargetValueWith(index + 6, 3, mask, 3);
+            index += 15;
+        }
+        Assertions.assertThat(new String(maskingState.flushReplacementOperations(), StandardCharsets.UTF_8))
+                .isEqualTo("[xx,x,xxx,4444]".repeat(100));
+    }
+
     @Test
     void getCurrentJsonPathNodeFromEmptyJsonPath() {
         MaskingState maskingState = new MaskingState("[]".getBytes(StandardCharsets.UTF_8), true);
@@ -0,0 +1,115 @@
+package dev.blaauwendraad.masker.json;
+
+import dev.blaauwendraad.masker.json.config.JsonMaskingConfig;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+final class NestingDepthTest {
+
+    private static final int DEPTH = 100_000;
+
+    @Test
+    void shouldMaskDeeplyNestedJsonOnSmallStack() throws InterruptedException {
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder()
+                .maskKeys("maskMe")
+                .maskJsonPaths("$.nested.maskMe")
+                .build()
+        );
+        String arrays = "[".repeat(DEPTH) + "{\"maskMe\":\"secret\"}" + "]".repeat(DEPTH);
+        String objects = "{\"nested\":".repeat(DEPTH) + "{\"maskMe\":1}" + "}".repeat(DEPTH);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        // a recursive traversal would need a stack frame per nested object or array
+        Thread thread = new Thread(null, () -> {
+            try {
+                assertThat(jsonMasker.mask(arrays))
+                        .isEqualTo("[".repeat(DEPTH) + "{\"maskMe\":\"***\"}" + "]".repeat(DEPTH));
+                assertThat(jsonMasker.mask(objects))
+                        .isEqualTo("{\"nested\":".repeat(DEPTH) + "{\"maskMe\":\"###\"}" + "}".repeat(DEPTH));
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        }, "small-stack", 128 * 1024);
+        thread.start();
+        thread.join();
+
+        assertThat(failure.get()).isNull();
+    }
+
+    @Test
+    void shouldAllowJsonUpToMaxDepth() {
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder()
+                .maskKeys("maskMe")
+                .maxDepth(3)
+                .build()
+        );
+
+        assertThat(jsonMasker.mask("[{\"maskMe\":[1]},[[]],{}]")).isEqualTo("[{\"maskMe\":[\"###\"]},[[]],{}]");
+        assertThat(jsonMasker.mask("\"maskMe\"")).isEqualTo("\"maskMe\"");
+    }
+
+    @Test
+    void shouldFailWhenMaxDepthIsExceeded() {
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder()
+                .maskKeys("maskMe")
+                .maxDepth(3)
+                .build()
+        );
+
+        assertThatThrownBy(() -> jsonMasker.mask("[{\"maskMe\":[[1]]}]"))
+                .isInstanceOf(InvalidJsonException.class)
+                .hasMessage("Maximum depth of 3 exceeded at index 12");
+        // unclosed arrays fail as soon as the maximum depth is exceeded
+        assertThatThrownBy(() -> jsonMasker.mask("[".repeat(DEPTH)))
+                .isInstanceOf(InvalidJsonException.class)
+                .hasMessage("Maximum depth of 3 exceeded at index 3");
+    }
+
+    @Test
+    void shouldFailWhenMaxDepthIsExceededWhileStreaming() {
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder()
+                .maskKeys("maskMe")
+                .maxDepth(2)
+                .build()
+        );
+        byte[] input = ("[" + " ".repeat(10_000) + "[[1]]]").getBytes(StandardCharsets.UTF_8);
+
+        assertThatThrownBy(() -> jsonMasker.mask(new ByteArrayInputStream(input), new ByteArrayOutputStream()))
+                .isInstanceOf(InvalidJsonException.class)
+                .hasMessage("Maximum depth of 2 exceeded at index 10002");
+    }
+
+    @Test
+    void shouldNotCountValuesOfAllowedKeys() {
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder()
+                .allowKeys(Set.of("allowMe"))
+                .maxDepth(2)
+                .build()
+        );
+
+        assertThat(jsonMasker.mask("{\"allowMe\":[[[\"value\"]]],\"other\":[\"value\"]}"))
+                .isEqualTo("{\"allowMe\":[[[\"value\"]]],\"other\":[\"***\"]}");
+    }
+
+    @Test
+    void shouldNotCountSubtreesNoJsonPathCanMatchIn() {
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder()
+                .maskJsonPaths(Set.of("$.maskMe"))
+                .maxDepth(2)
+                .build()
+        );
+
+        assertThat(jsonMasker.mask("{\"other\":[[[{\"maskMe\":\"value\"}]]],\"maskMe\":[\"value\"]}"))
+                .isEqualTo("{\"other\":[[[{\"maskMe\":\"value\"}]]],\"maskMe\":[\"***\"]}");
+        assertThatThrownBy(() -> jsonMasker.mask("{\"other\":[[[{\"maskMe\":\"value\"}]]"))
+                .isInstanceOf(InvalidJsonException.class);
+    }
+}
@@ -0,0 +1,129 @@
+package dev.blaauwendraad.masker.json;
+
+import dev.blaauwendraad.masker.json.config.JsonMaskingConfig;
+import dev.blaauwendraad.masker.json.config.KeyMaskingConfig;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+final class NormalizedTargetKeyTest {
+    private static final String KEY_CHARACTERS = "aAbBzZ09_-.éÉß€😀";
+
+    @Test
+    void shouldMaskKeysInAnyNamingConvention() {
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder()
+                .maskKeys("creditCardNumber")
+                .normalizeTargetKeys()
+                .build()
+        );
+
+        assertThat(jsonMasker.mask("""
+                {"creditCardNumber":"a","credit_card_number":"b","credit-card-number":"c","CREDIT.CARD.NUMBER":"d","_creditcardnumber_":"e","creditCard":"f","credit card number":"g"}
+                """.strip())).isEqualTo("""
+                {"creditCardNumber":"***","credit_card_number":"***","credit-card-number":"***","CREDIT.CARD.NUMBER":"***","_creditcardnumber_":"***","creditCard":"f","credit card number":"g"}
+                """.strip());
+    }
+
+    @Test
+    void shouldIgnoreSeparatorsInTargetKeys() {
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder()
+                .maskKeys("api_key")
+                .maskKeys("x-api-token", KeyMaskingConfig.builder().maskStringsWith("[token]").build())
+                .normalizeTargetKeys()
+                .build()
+        );
+
+        assertThat(jsonMasker.mask("{\"apiKey\":\"a\",\"XApiToken\":\"b\",\"api\\u005fkey\":\"c\",\"api\\u005Fke\\u0079\":\"d\"}"))
+                .isEqualTo("{\"apiKey\":\"***\",\"XApiToken\":\"[token]\",\"api\\u005fkey\":\"***\",\"api\\u005Fke\\u0079\":\"***\"}");
+    }
+
+    @Test
+    void shouldAllowKeysInAnyNamingConvention() {
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder()
+                .allowKeys("user_name")
+                .maskKeys("credit-card", KeyMaskingConfig.builder().maskStringsWith("[redacted]").build())
+                .normalizeTargetKeys()
+                .build()
+        );
+
+        assertThat(jsonMasker.mask("{\"userName\":\"a\",\"USER-NAME\":\"b\",\"creditCard\":\"c\",\"email\":\"d\"}"))
+                .isEqualTo("{\"userName\":\"a\",\"USER-NAME\":\"b\",\"creditCard\":\"[redacted]\",\"email\":\"***\"}");
+    }
+
+    @Test
+    void shouldNotIgnoreSeparatorsInJsonPaths() {
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder()
+                .maskJsonPaths("$.payment.card_number")
+                .normalizeTargetKeys()
+                .build()
+        );
+
+        assertThat(jsonMasker.mask("{\"payment\":{\"CARD_NUMBER\":\"a\",\"cardNumber\":\"b\"}}"))
+                .isEqualTo("{\"payment\":{\"CARD_NUMBER\":\"***\",\"cardNumber\":\"b\"}}");
+    }
+
+    @Test
+    void shouldPrefilterNormalizedKeys() {
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder()
+                .maskKeys("creditCard")
+                .maskJsonPaths("$.payment.card_number")
+                .normalizeTargetKeys()
+                .prefilterTargetKeys()
+                .build()
+        );
+        byte[] input = "{\"credit\":\"a\",\"card\":\"b\"}".getBytes(StandardCharsets.UTF_8);
+
+        assertThat(jsonMasker.mask(input)).isSameAs(input);
+        assertThat(jsonMasker.mask("{\"credit-card\":\"a\"}")).isEqualTo("{\"credit-card\":\"***\"}");
+        assertThat(jsonMasker.mask("{\"payment\":{\"card_number\":\"a\"}}")).isEqualTo("{\"payment\":{\"card_number\":\"***\"}}");
+    }
+
+    @Test
+    void shouldMatchSameKeysWhenHashed() {
+        Random random = new Random(1);
+        Set<String> keys = randomKeys(random, 2000);
+        JsonMaskingConfig config = JsonMaskingConfig.builder().maskKeys(keys).normalizeTargetKeys().build();
+        KeyMatcher trieKeyMatcher = new KeyMatcher(config, false);
+        KeyMatcher hashedKeyMatcher = new KeyMatcher(config, true);
+
+        Set<String> candidates = randomKeys(random, 2000);
+        for (String key : keys) {
+            candidates.add(key);
+            candidates.add(key.replace("_", ""));
+            candidates.add("-" + key.toUpperCase(Locale.ROOT) + ".");
+            candidates.add(key + "a");
+        }
+        int matched = 0;
+        for (String candidate : candidates) {
+            byte[] bytes = candidate.getBytes(StandardCharsets.UTF_8);
+            KeyMaskingConfig expected = trieKeyMatcher.getMaskConfigIfMatched(bytes, 0, bytes.length, null);
+            assertThat(hashedKeyMatcher.getMaskConfigIfMatched(bytes, 0, bytes.length, null))
+                    .as(candidate)
+                    .isEqualTo(expected);
+            if (expected != null) {
+                matched++;
+            }
+        }
+        assertThat(matched).isGreaterThan(keys.size());
+    }
+
+    private static Set<String> randomKeys(Random random, int count) {
+        int[] codePoints = KEY_CHARACTERS.codePoints().toArray();
+        Set<String> keys = new HashSet<>();
+        while (keys.size() < count) {
+            StringBuilder key = new StringBuilder();
+            int length = 1 + random.nextInt(8);
+            for (int i = 0; i < length; i++) {
+                key.appendCodePoint(codePoints[random.nextInt(codePoints.length)]);
+            }
+            keys.add(key.toString());
+        }
+        return keys;
+    }
+}
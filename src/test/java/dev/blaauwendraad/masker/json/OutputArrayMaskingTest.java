@@ -0,0 +1,146 @@
+package dev.blaauwendraad.masker.json;
+
+import dev.blaauwendraad.masker.json.config.JsonMaskingConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+final class OutputArrayMaskingTest {
+
+    @ParameterizedTest
+    @MethodSource("testInstances")
+    void shouldMaskIntoOutputArrayTheSameWayAsBytes(JsonMaskerTestInstance testInstance) {
+        byte[] input = testInstance.input().getBytes(StandardCharsets.UTF_8);
+        byte[] expected = testInstance.expectedOutput().getBytes(StandardCharsets.UTF_8);
+        // surround the input with some bytes that are not part of the JSON
+        byte[] paddedInput = new byte[input.length + 10];
+        Arrays.fill(paddedInput, (byte) '{');
+        System.arraycopy(input, 0, paddedInput, 3, input.length);
+        byte[] output = new byte[expected.length + 10];
+
+        int written = testInstance.jsonMasker().mask(paddedInput, 3, input.length, output, 5);
+
+        assertThat(written).isEqualTo(expected.length);
+        assertThat(Arrays.copyOfRange(output, 5, 5 + written)).isEqualTo(expected);
+    }
+
+    private static Stream<JsonMaskerTestInstance> testInstances() throws IOException {
+        return Stream.of(
+                "test-allow-mode.json",
+                "test-escaped-characters.json",
+                "test-json-path.json",
+                "test-masking-array-values.json",
+                "test-masking-object-values.json",
+                "test-multiple-target-keys.json",
+                "test-preserve-length.json"
+        ).flatMap(fileName -> {
+            try {
+                return JsonMaskerTestUtil.getJsonMaskerTestInstancesFromFile(fileName).stream();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    @Test
+    void shouldReturnRequiredLengthWhenOutputArrayIsTooSmall() {
+        JsonMasker jsonMasker = JsonMasker.getMasker(Set.of("maskMe"));
+        byte[] input = "{\"maskMe\":\"s\"}".getBytes(StandardCharsets.UTF_8);
+        byte[] output = new byte[16];
+
+        int written = jsonMasker.mask(input, 0, input.length, output, 2);
+
+        assertThat(written).isEqualTo(-16);
+        assertThat(jsonMasker.mask(input, 0, input.length, new byte[18], 2)).isEqualTo(16);
+    }
+
+    @Test
+    void shouldNotWriteOutsideOfOutputArray() {
+        JsonMasker jsonMasker = JsonMasker.getMasker(Set.of("maskMe"));
+        byte[] input = "{\"maskMe\":\"s\",\"other\":\"value\"}".getBytes(StandardCharsets.UTF_8);
+
+        assertThat(jsonMasker.mask(input, 0, input.length, new byte[10], 0)).isEqualTo(-32);
+    }
+
+    @Test
+    void shouldValidateBounds() {
+        JsonMasker jsonMasker = JsonMasker.getMasker(Set.of("maskMe"));
+        byte[] input = "{}".getBytes(StandardCharsets.UTF_8);
+
+        assertThatThrownBy(() -> jsonMasker.mask(input, 1, 2, new byte[10], 0))
+                .isInstanceOf(IndexOutOfBoundsException.class);
+        assertThatThrownBy(() -> jsonMasker.mask(input, 0, 2, new byte[10], 11))
+                .isInstanceOf(IndexOutOfBoundsException.class);
+    }
+
+    @Test
+    void shouldThrowInvalidJsonException() {
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder().allowKeys("allowMe").build());
+        byte[] input = "[{\"key\": \"value\"}, ".getBytes(StandardCharsets.UTF_8);
+
+        assertThatThrownBy(() -> jsonMasker.mask(input, 0, input.length, new byte[100], 0))
+                .isInstanceOf(InvalidJsonException.class);
+        // the masker must still be usable after invalid input
+        assertThat(jsonMasker.mask("{\"allowMe\":\"yes\"}")).isEqualTo("{\"allowMe\":\"yes\"}");
+        byte[] validInput = "{\"allowMe\":\"yes\"}".getBytes(StandardCharsets.UTF_8);
+        assertThat(jsonMasker.mask(validInput, 0, validInput.length, new byte[100], 0)).isEqualTo(validInput.length);
+    }
+
+    @Test
+    void shouldAllowMaskingFromValueMasker() {
+        JsonMasker innerMasker = JsonMasker.getMasker(Set.of("inner"));
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder()
+                .maskKeys("maskMe")
+                .maskStringsWith(ValueMaskers.withRawValueFunction(value -> {
+                    byte[] input = "{\"inner\":\"value\"}".getBytes(StandardCharsets.UTF_8);
+                    byte[] output = new byte[100];
+                    int written = innerMasker.mask(input, 0, input.length, output, 0);
+                    return new String(output, 0, written, StandardCharsets.UTF_8).replace("\"", "'");
+                }))
+                .build()
+        );
+        byte[] input = "{\"maskMe\":\"value\"}".getBytes(StandardCharsets.UTF_8);
+        byte[] output = new byte[100];
+
+        int written = jsonMasker.mask(input, 0, input.length, output, 0);
+
+        assertThat(new String(output, 0, written, StandardCharsets.UTF_8)).isEqualTo("{\"maskMe\":{'inner':'***'}}");
+    }
+
+    @Test
+    void shouldNotAllocateMemory() {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder()
+                .maskKeys("maskMe")
+                .maskJsonPaths("$.nested.maskMe")
+                .build()
+        );
+        byte[] input = "{\"maskMe\":\"secret\",\"other\":[1,2,{\"maskMe\":123}],\"nested\":{\"maskMe\":true}}"
+                .getBytes(StandardCharsets.UTF_8);
+        byte[] output = new byte[input.length];
+        int iterations = 10_000;
+        for (int i = 0; i < iterations; i++) {
+            jsonMasker.mask(input, 0, input.length, output, 0);
+        }
+
+        long allocatedBytesBefore = threadMXBean.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < iterations; i++) {
+            jsonMasker.mask(input, 0, input.length, output, 0);
+        }
+        long allocatedBytes = threadMXBean.getCurrentThreadAllocatedBytes() - allocatedBytesBefore;
+
+        // a single allocation per call would add up to at least 16 bytes per call, anything below that is noise
+        // from the JVM itself (e.g. JIT compilation)
+        assertThat(allocatedBytes / iterations).isZero();
+    }
+}
@@ -0,0 +1,159 @@
+package dev.blaauwendraad.masker.json;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import dev.blaauwendraad.masker.json.config.JsonMaskingConfig;
+import dev.blaauwendraad.masker.json.util.JsonFormatter;
+import dev.blaauwendraad.masker.randomgen.RandomJsonGenerator;
+import dev.blaauwendraad.masker.randomgen.RandomJsonGeneratorConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+final class StreamingMaskingTest {
+
+    @ParameterizedTest
+    @MethodSource("testInstances")
+    void shouldMaskStreamsTheSameWayAsBytes(JsonMaskerTestInstance testInstance) throws IOException {
+        assertThat(maskStream(testInstance.jsonMasker(), testInstance.input(), 1)).isEqualTo(testInstance.expectedOutput());
+        assertThat(maskStream(testInstance.jsonMasker(), testInstance.input(), 7)).isEqualTo(testInstance.expectedOutput());
+    }
+
+    private static Stream<JsonMaskerTestInstance> testInstances() throws IOException {
+        return Stream.of(
+                "test-allow-mode.json",
+                "test-escaped-characters.json",
+                "test-json-path.json",
+                "test-masking-array-values.json",
+                "test-masking-object-values.json",
+                "test-multiple-target-keys.json",
+                "test-preserve-length.json"
+        ).flatMap(fileName -> {
+            try {
+                return JsonMaskerTestUtil.getJsonMaskerTestInstancesFromFile(fileName).stream();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3, 100, 8192})
+    void shouldMaskRandomJsonTheSameWayAsBytes(int chunkSize) throws IOException {
+        Set<String> targetKeys = Set.of("targetKey1", "targetKey2");
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder()
+                .maskKeys(targetKeys)
+                .maskStringCharactersWith("*")
+                .build()
+        );
+        RandomJsonGenerator randomJsonGenerator = new RandomJsonGenerator(RandomJsonGeneratorConfig.builder()
+                .setTargetKeys(targetKeys)
+                .createConfig()
+        );
+        for (int i = 0; i < 100; i++) {
+            JsonNode jsonNode = randomJsonGenerator.createRandomJsonNode();
+            for (JsonFormatter formatter : JsonFormatter.values()) {
+                if (!formatter.isValid()) {
+                    continue;
+                }
+                String json = formatter.format(jsonNode);
+                assertThat(maskStream(jsonMasker, json, chunkSize))
+                        .as("Failed for input: " + json)
+                        .isEqualTo(jsonMasker.mask(json));
+            }
+        }
+    }
+
+    @Test
+    void shouldMaskValuesCrossingTheBufferBoundary() throws IOException {
+        JsonMasker jsonMasker = JsonMasker.getMasker(Set.of("maskMe"));
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 10_000; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"maskMe\":\"secret").append(i).append("\",\"other\":").append(i).append('}');
+        }
+        json.append(']');
+
+        assertThat(maskStream(jsonMasker, json.toString(), 8192)).isEqualTo(jsonMasker.mask(json.toString()));
+    }
+
+    @Test
+    void shouldMaskValuesLargerThanTheBuffer() throws IOException {
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder()
+                .maskKeys("maskMe")
+                .maskStringCharactersWith("*")
+                .build()
+        );
+        String json = "{\"maskMe\":\"%s\",\"%s\":\"value\"}".formatted("a".repeat(100_000), "b".repeat(100_000));
+
+        assertThat(maskStream(jsonMasker, json, 8192))
+                .isEqualTo("{\"maskMe\":\"%s\",\"%s\":\"value\"}".formatted("*".repeat(100_000), "b".repeat(100_000)));
+    }
+
+    @Test
+    void shouldKeepContentAfterTheJsonValue() throws IOException {
+        JsonMasker jsonMasker = JsonMasker.getMasker(Set.of("maskMe"));
+
+        assertThat(maskStream(jsonMasker, "{\"maskMe\":\"secret\"}  \n", 1)).isEqualTo("{\"maskMe\":\"***\"}  \n");
+    }
+
+    @Test
+    void shouldThrowInvalidJsonException() {
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder().allowKeys("allowMe").build());
+
+        assertThatThrownBy(() -> maskStream(jsonMasker, "[{\"key\": \"value\"}, ", 1))
+                .isInstanceOf(InvalidJsonException.class);
+    }
+
+    @Test
+    void shouldPropagateIOException() {
+        JsonMasker jsonMasker = JsonMasker.getMasker(Set.of("maskMe"));
+        InputStream failingInput = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Connection reset");
+            }
+        };
+
+        assertThatThrownBy(() -> jsonMasker.mask(failingInput, OutputStream.nullOutputStream()))
+                .isInstanceOf(IOException.class)
+                .hasMessage("Connection reset");
+    }
+
+    private static String maskStream(JsonMasker jsonMasker, String json, int chunkSize) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        jsonMasker.mask(new ChunkedInputStream(json.getBytes(StandardCharsets.UTF_8), chunkSize), output);
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns at most {@code chunkSize} bytes per read, to simulate input arriving in chunks (e.g. over the network).
+     */
+    private static class ChunkedInputStream extends ByteArrayInputStream {
+        private final int chunkSize;
+
+        ChunkedInputStream(byte[] bytes, int chunkSize) {
+            super(bytes);
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            return super.read(b, off, Math.min(len, chunkSize));
+        }
+    }
+}
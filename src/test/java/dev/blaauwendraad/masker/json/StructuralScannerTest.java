@@ -0,0 +1,111 @@
+package dev.blaauwendraad.masker.json;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+final class StructuralScannerTest {
+    private static final byte[] TRICKY_BYTES = {
+            0, 1, '\n', 0x0B, '!', '"', '#', '[', '\\', ']', '{', '|', '}', (byte) ('"' | 0x80), (byte) ('[' | 0x80), (byte) 0xFF
+    };
+
+    @Test
+    void shouldOnlyUseVectorEngineWhenVectorModuleIsPresent() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            assertThat(StructuralScanner.INSTANCE).isInstanceOf(ScalarStructuralScanner.class);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("scanners")
+    void indexOfQuoteOrBackslash(StructuralScanner scanner) {
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            byte[] bytes = randomBytes(random);
+            int fromIndex = bytes.length == 0 ? 0 : random.nextInt(bytes.length);
+            int toIndex = fromIndex + random.nextInt(bytes.length - fromIndex + 1);
+            int expected = fromIndex;
+            while (expected < toIndex && bytes[expected] != '"' && bytes[expected] != '\\') {
+                expected++;
+            }
+
+            assertThat(scanner.indexOfQuoteOrBackslash(bytes, fromIndex, toIndex)).isEqualTo(expected);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("scanners")
+    void indexOfQuoteOrBracket(StructuralScanner scanner) {
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            byte[] bytes = randomBytes(random);
+            byte openingBracket = random.nextBoolean() ? (byte) '{' : (byte) '[';
+            byte closingBracket = (byte) (openingBracket + 2);
+            int fromIndex = bytes.length == 0 ? 0 : random.nextInt(bytes.length);
+            int toIndex = fromIndex + random.nextInt(bytes.length - fromIndex + 1);
+            int expected = fromIndex;
+            while (expected < toIndex && bytes[expected] != '"' && bytes[expected] != openingBracket && bytes[expected] != closingBracket) {
+                expected++;
+            }
+
+            assertThat(scanner.indexOfQuoteOrBracket(bytes, fromIndex, toIndex, openingBracket, closingBracket))
+                    .isEqualTo(expected);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("scanners")
+    void indexOfNewline(StructuralScanner scanner) {
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            byte[] bytes = randomBytes(random);
+            int fromIndex = bytes.length == 0 ? 0 : random.nextInt(bytes.length);
+            int toIndex = fromIndex + random.nextInt(bytes.length - fromIndex + 1);
+            int expected = fromIndex;
+            while (expected < toIndex && bytes[expected] != '\n') {
+                expected++;
+            }
+
+            assertThat(scanner.indexOfNewline(bytes, fromIndex, toIndex)).isEqualTo(expected);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("scanners")
+    void lastIndexOfNewline(StructuralScanner scanner) {
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            byte[] bytes = randomBytes(random);
+            int fromIndex = bytes.length == 0 ? 0 : random.nextInt(bytes.length);
+            int toIndex = fromIndex + random.nextInt(bytes.length - fromIndex + 1);
+            int expected = toIndex - 1;
+            while (expected >= fromIndex && bytes[expected] != '\n') {
+                expected--;
+            }
+
+            assertThat(scanner.lastIndexOfNewline(bytes, fromIndex, toIndex)).isEqualTo(expected);
+        }
+    }
+
+    private static Stream<StructuralScanner> scanners() {
+        // the vector engine is only tested when the tests run with --add-modules jdk.incubator.vector
+        return Stream.of(new ScalarStructuralScanner(), StructuralScanner.INSTANCE);
+    }
+
+    private static byte[] randomBytes(Random random) {
+        // long enough to span several vectors, with matches that are sparse enough to be found in a later vector
+        byte[] bytes = new byte[random.nextInt(300)];
+        int trickyBytesFrequency = 1 + random.nextInt(200);
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = random.nextInt(trickyBytesFrequency) == 0
+                    ? TRICKY_BYTES[random.nextInt(TRICKY_BYTES.length)]
+                    : (byte) ('a' + random.nextInt(26));
+        }
+        return bytes;
+    }
+}
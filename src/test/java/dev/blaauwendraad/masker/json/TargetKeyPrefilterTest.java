@@ -0,0 +1,107 @@
+package dev.blaauwendraad.masker.json;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import dev.blaauwendraad.masker.json.config.JsonMaskingConfig;
+import dev.blaauwendraad.masker.randomgen.RandomJsonGenerator;
+import dev.blaauwendraad.masker.randomgen.RandomJsonGeneratorConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+final class TargetKeyPrefilterTest {
+    private final JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder()
+            .maskKeys("maskMe")
+            .maskJsonPaths("$.path.key", "$.array[*].field")
+            .prefilterTargetKeys()
+            .build()
+    );
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "{}",
+            "{\"other\":\"value\",\"nested\":{\"maskM\":\"value\",\"maskMee\":\"value\"}}",
+            "{\"path\":{\"other\":\"value\"},\"arrays\":[\"value\"]}",
+            "[\"maskMe \",\" maskMe\",\"mask\\\"Me\"]",
+            "{\"key\":\"value\"",
+            "not json at all"
+    })
+    void shouldReturnInputWhenNoTargetKeyIsPresent(String json) {
+        byte[] input = json.getBytes(StandardCharsets.UTF_8);
+
+        assertThat(jsonMasker.mask(input)).isSameAs(input);
+    }
+
+    @Test
+    void shouldMaskWhenTargetKeyIsPresent() {
+        assertThat(jsonMasker.mask("{\"MASKME\":\"value\"}")).isEqualTo("{\"MASKME\":\"***\"}");
+        assertThat(jsonMasker.mask("{\"path\":{\"key\":\"value\"}}")).isEqualTo("{\"path\":{\"key\":\"***\"}}");
+        assertThat(jsonMasker.mask("{\"array\":[{\"field\":\"value\"}]}")).isEqualTo("{\"array\":[{\"field\":\"***\"}]}");
+        // a string that equals a target key is not necessarily a key, in which case the input is masked as usual
+        assertThat(jsonMasker.mask("{\"other\":\"maskMe\"}")).isEqualTo("{\"other\":\"maskMe\"}");
+    }
+
+    @Test
+    void shouldMaskKeysWithUnicodeEscapes() {
+        assertThat(jsonMasker.mask("{\"\\u006daskMe\":\"value\"}")).isEqualTo("{\"\\u006daskMe\":\"***\"}");
+        assertThat(jsonMasker.mask("{\"mask\\u004De\":\"value\"}")).isEqualTo("{\"mask\\u004De\":\"***\"}");
+    }
+
+    @Test
+    void shouldRespectCaseSensitivity() {
+        JsonMasker caseSensitiveJsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder()
+                .maskKeys("maskMe")
+                .caseSensitiveTargetKeys()
+                .prefilterTargetKeys()
+                .build()
+        );
+        byte[] input = "{\"MASKME\":\"value\"}".getBytes(StandardCharsets.UTF_8);
+
+        assertThat(caseSensitiveJsonMasker.mask(input)).isSameAs(input);
+        assertThat(caseSensitiveJsonMasker.mask("{\"maskMe\":\"value\"}")).isEqualTo("{\"maskMe\":\"***\"}");
+    }
+
+    @Test
+    void shouldAlwaysMaskWhenJsonPathHasNoKey() {
+        JsonMasker wildcardJsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder()
+                .maskJsonPaths("$.*.*")
+                .prefilterTargetKeys()
+                .build()
+        );
+
+        assertThat(wildcardJsonMasker.mask("{\"a\":{\"b\":\"value\"}}")).isEqualTo("{\"a\":{\"b\":\"***\"}}");
+    }
+
+    @Test
+    void shouldMaskRandomJsonTheSameWayAsWithoutPrefilter() {
+        Set<String> targetKeys = Set.of("targetKey1", "targetKey2");
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder()
+                .maskKeys(targetKeys)
+                .maskJsonPaths("$.targetKey3")
+                .build()
+        );
+        JsonMasker prefilteringJsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder()
+                .maskKeys(targetKeys)
+                .maskJsonPaths("$.targetKey3")
+                .prefilterTargetKeys()
+                .build()
+        );
+        RandomJsonGenerator randomJsonGenerator = new RandomJsonGenerator(RandomJsonGeneratorConfig.builder()
+                .setTargetKeys(Set.of("targetKey1", "targetKey2", "targetKey3"))
+                .setTargetKeyPercentage(0.01)
+                .createConfig()
+        );
+        for (int i = 0; i < 1000; i++) {
+            JsonNode jsonNode = randomJsonGenerator.createRandomJsonNode();
+            byte[] input = jsonNode.toString().getBytes(StandardCharsets.UTF_8);
+
+            assertThat(prefilteringJsonMasker.mask(input))
+                    .as("Failed for input: " + jsonNode)
+                    .isEqualTo(jsonMasker.mask(input));
+        }
+    }
+}
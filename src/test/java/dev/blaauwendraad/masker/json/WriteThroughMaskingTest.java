@@ -0,0 +1,89 @@
+package dev.blaauwendraad.masker.json;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import dev.blaauwendraad.masker.json.config.JsonMaskingConfig;
+import dev.blaauwendraad.masker.randomgen.RandomJsonGenerator;
+import dev.blaauwendraad.masker.randomgen.RandomJsonGeneratorConfig;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+final class WriteThroughMaskingTest {
+
+    @Test
+    void shouldGrowOutputWhenMasksAreLongerThanValues() {
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder()
+                .maskKeys("maskMe")
+                .maskStringsWith("a mask that is longer than the value")
+                .writeThrough()
+                .build()
+        );
+
+        assertThat(jsonMasker.mask("[" + "{\"maskMe\":\"s\"},".repeat(100) + "{}]"))
+                .isEqualTo("[" + "{\"maskMe\":\"a mask that is longer than the value\"},".repeat(100) + "{}]");
+    }
+
+    @Test
+    void shouldNotModifyInput() {
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder()
+                .maskKeys("maskMe")
+                .maskStringCharactersWith("*")
+                .writeThrough()
+                .build()
+        );
+        String json = "{\"maskMe\":\"secret\"}";
+        byte[] input = json.getBytes(StandardCharsets.UTF_8);
+
+        byte[] output = jsonMasker.mask(input);
+
+        assertThat(output).isNotSameAs(input);
+        assertThat(new String(output, StandardCharsets.UTF_8)).isEqualTo("{\"maskMe\":\"******\"}");
+        assertThat(new String(input, StandardCharsets.UTF_8)).isEqualTo(json);
+    }
+
+    @Test
+    void shouldThrowInvalidJsonException() {
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder()
+                .allowKeys("allowMe")
+                .writeThrough()
+                .build()
+        );
+
+        assertThatThrownBy(() -> jsonMasker.mask("[{\"key\": \"value\"}, "))
+                .isInstanceOf(InvalidJsonException.class);
+    }
+
+    @Test
+    void shouldMaskRandomJsonTheSameWayAsWithoutWritingThrough() {
+        Set<String> targetKeys = Set.of("targetKey1", "targetKey2");
+        JsonMasker jsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder()
+                .maskKeys(targetKeys)
+                .maskJsonPaths("$.targetKey3")
+                .maskStringCharactersWith("*")
+                .build()
+        );
+        JsonMasker writeThroughJsonMasker = JsonMasker.getMasker(JsonMaskingConfig.builder()
+                .maskKeys(targetKeys)
+                .maskJsonPaths("$.targetKey3")
+                .maskStringCharactersWith("*")
+                .writeThrough()
+                .build()
+        );
+        RandomJsonGenerator randomJsonGenerator = new RandomJsonGenerator(RandomJsonGeneratorConfig.builder()
+                .setTargetKeys(Set.of("targetKey1", "targetKey2", "targetKey3"))
+                .createConfig()
+        );
+        for (int i = 0; i < 1000; i++) {
+            JsonNode jsonNode = randomJsonGenerator.createRandomJsonNode();
+            byte[] input = jsonNode.toString().getBytes(StandardCharsets.UTF_8);
+
+            assertThat(writeThroughJsonMasker.mask(input))
+                    .as("Failed for input: " + jsonNode)
+                    .isEqualTo(jsonMasker.mask(input));
+        }
+    }
+}
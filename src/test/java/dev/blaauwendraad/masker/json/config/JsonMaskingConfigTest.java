@@ -39,7 +39,25 @@ final class JsonMaskingConfigTest {
                 () -> JsonMaskingConfig.builder().allowJsonPaths("$.allowMe").maskKeys("maskMe"),
                 () -> JsonMaskingConfig.builder().allowJsonPaths("$.allowMe").maskJsonPaths("$.maskMe"),
                 () -> JsonMaskingConfig.builder().allowJsonPaths("$"),
+                () -> JsonMaskingConfig.builder().maskKeyPatterns(Set.of()),
+                () -> JsonMaskingConfig.builder().maskKeyPatterns(Set.of(), KeyMaskingConfig.builder().build()),
+                () -> JsonMaskingConfig.builder().maskKeyPatterns("*secret*").maskKeyPatterns("*secret*"),
+                () -> JsonMaskingConfig.builder().maskKeyPatterns("*secret*").allowKeyPatterns("*id"),
+                () -> JsonMaskingConfig.builder().allowKeyPatterns("*id").allowKeyPatterns("*id"),
+                () -> JsonMaskingConfig.builder().allowKeyPatterns("*id").maskKeyPatterns("*secret*"),
                 () -> JsonMaskingConfig.builder().caseSensitiveTargetKeys().caseSensitiveTargetKeys(),
+                () -> JsonMaskingConfig.builder().maskKeys("maskMe").normalizeTargetKeys().normalizeTargetKeys(),
+                () -> JsonMaskingConfig.builder().maskKeys("maskMe").normalizeTargetKeys().caseSensitiveTargetKeys(),
+                () -> JsonMaskingConfig.builder().maskInPlace().maskInPlace(),
+                () -> JsonMaskingConfig.builder().writeThrough().writeThrough(),
+                () -> JsonMaskingConfig.builder().maxDepth(10).maxDepth(10),
+                () -> JsonMaskingConfig.builder().maxDepth(0),
+                () -> JsonMaskingConfig.builder().maskKeys("maskMe").maskInPlace().writeThrough(),
+                () -> JsonMaskingConfig.builder().disableThreadLocalMaskingState().disableThreadLocalMaskingState(),
+                () -> JsonMaskingConfig.builder().prefilterTargetKeys().prefilterTargetKeys(),
+                () -> JsonMaskingConfig.builder().maskKeys("maskMe").cacheKeyMatches(0),
+                () -> JsonMaskingConfig.builder().maskKeys("maskMe").cacheKeyMatches(100).cacheKeyMatches(100),
+                () -> JsonMaskingConfig.builder().allowKeys("allowMe").prefilterTargetKeys(),
                 () -> JsonMaskingConfig.builder().maskStringsWith("***").maskStringsWith("***"),
                 () -> JsonMaskingConfig.builder().maskStringsWith("***").maskStringCharactersWith("*"),
                 () -> JsonMaskingConfig.builder().maskStringsWith(ValueMaskers.with("***")).maskStringsWith(ValueMaskers.with("***")),
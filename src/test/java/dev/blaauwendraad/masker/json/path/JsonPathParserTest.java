@@ -36,6 +36,25 @@ class JsonPathParserTest {
         Assertions.assertEquals(bracketNotationJsonPath, dotNotationJsonPath);
     }
 
+    @Test
+    void shouldPrintDescendantSegments() {
+        JsonPathParser parser = new JsonPathParser();
+        Assertions.assertEquals("$..a", parser.parse("$..a").toString());
+        Assertions.assertEquals("$.a..*.b", parser.parse("$[a]..[*].b").toString());
+        Assertions.assertEquals("$..a..b.c", parser.parse("$..a..b.c").toString());
+    }
+
+    @Test
+    void shouldSuggestJsonPathWithoutSingleLeadingWildcard() {
+        JsonPathParser parser = new JsonPathParser();
+        assertThatThrownBy(() -> parser.parse("$.a[*]"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Use '$.a' instead.");
+        assertThatThrownBy(() -> parser.parse("$.a..*"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Use '$.a' instead.");
+    }
+
     @ParameterizedTest
     @MethodSource("ambiguousJsonPaths")
     void ambiguousJsonPathKeys(Set<String> jsonPathLiterals, String expectedExceptionMessage) {
@@ -68,13 +87,25 @@ class JsonPathParserTest {
                 Arguments.of("$.*.b", new JsonPath(new String[]{"$", "*", "b"})),
                 Arguments.of("$", new JsonPath(new String[]{"$"})),
                 Arguments.of("$.a.*.*", new JsonPath(new String[]{"$", "a", "*", "*"})),
-                Arguments.of("$[*].*.*", new JsonPath(new String[]{"$", "*", "*", "*"}))
+                Arguments.of("$[*].*.*", new JsonPath(new String[]{"$", "*", "*", "*"})),
+                Arguments.of("$..a.b.c", new JsonPath(new String[]{"$", "..", "a", "b", "c"})),
+                Arguments.of("$.a..b", new JsonPath(new String[]{"$", "a", "..", "b"})),
+                Arguments.of("$[a]..[b]", new JsonPath(new String[]{"$", "a", "..", "b"})),
+                Arguments.of("$..*.b", new JsonPath(new String[]{"$", "..", "*", "b"})),
+                Arguments.of("$..[*].b", new JsonPath(new String[]{"$", "..", "*", "b"})),
+                Arguments.of("$..a..b", new JsonPath(new String[]{"$", "..", "a", "..", "b"}))
         );
     }
 
     private static Stream<String> illegalJsonPathLiterals() {
         return Stream.of(
-                "$..a.b.c",
+                "$..",
+                "$.a..",
+                "$...a",
+                "$.a....b",
+                "$..*",
+                "$.a..[*]",
+                "$..12",
                 "$a.b.c",
                 "$a.13.c",
                 "$.a.b.*",
@@ -119,7 +150,8 @@ class JsonPathParserTest {
                 Set.of("$.a.b", "$.a", "$.a!", "$.a.c", "$.a0.i"),
                 Set.of("$.a.b.c", "$.a.b.c.*.f"),
                 Set.of("$.key.bbb.c", "$.key.bbb.c.d"),
-                Set.of("$.f.e.g", "$.n.*.m", "$", "$.a.b.c.d")
+                Set.of("$.f.e.g", "$.n.*.m", "$", "$.a.b.c.d"),
+                Set.of("$.a.b.c", "$..c", "$.a..*.c")
         );
     }
 
@@ -0,0 +1,136 @@
+package dev.blaauwendraad.masker.json.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AsciiJsonUtilTest {
+    private static final byte[] TRICKY_BYTES = {
+            0, 1, '!', '"', '#', '[', '\\', ']', '{', '|', '}', (byte) ('"' | 0x80), (byte) ('\\' | 0x80), (byte) 0xFF
+    };
+
+    @Test
+    void indexOfQuoteOrBackslash() {
+        byte[] bytes = "0123456789abcdef\"ghijklmnopqrstuvwxyz\\".getBytes(StandardCharsets.UTF_8);
+
+        assertThat(AsciiJsonUtil.indexOfQuoteOrBackslash(bytes, 0, bytes.length)).isEqualTo(16);
+        assertThat(AsciiJsonUtil.indexOfQuoteOrBackslash(bytes, 16, bytes.length)).isEqualTo(16);
+        assertThat(AsciiJsonUtil.indexOfQuoteOrBackslash(bytes, 17, bytes.length)).isEqualTo(bytes.length - 1);
+        assertThat(AsciiJsonUtil.indexOfQuoteOrBackslash(bytes, 3, 16)).isEqualTo(16);
+        assertThat(AsciiJsonUtil.indexOfQuoteOrBackslash(bytes, 17, 30)).isEqualTo(30);
+        assertThat(AsciiJsonUtil.indexOfQuoteOrBackslash(bytes, 5, 5)).isEqualTo(5);
+    }
+
+    @Test
+    void indexOfQuoteOrBackslashInMultibyteCharacters() {
+        // the bytes of multibyte characters must not be mistaken for quotes or backslashes
+        byte[] bytes = "€𠜎ŀ¢ऄ¢ÜĢŜ\"".getBytes(StandardCharsets.UTF_8);
+
+        assertThat(AsciiJsonUtil.indexOfQuoteOrBackslash(bytes, 0, bytes.length)).isEqualTo(bytes.length - 1);
+    }
+
+    @Test
+    void indexOfQuoteOrBackslashForAllBytes() {
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            byte[] bytes = new byte[random.nextInt(40)];
+            random.nextBytes(bytes);
+            for (int j = 0; j < bytes.length; j++) {
+                // bytes that are close to the searched ones are more likely to be mistaken for them
+                if (random.nextInt(4) == 0) {
+                    bytes[j] = TRICKY_BYTES[random.nextInt(TRICKY_BYTES.length)];
+                }
+            }
+            int fromIndex = bytes.length == 0 ? 0 : random.nextInt(bytes.length);
+            int expected = fromIndex;
+            while (expected < bytes.length && bytes[expected] != '"' && bytes[expected] != '\\') {
+                expected++;
+            }
+
+            assertThat(AsciiJsonUtil.indexOfQuoteOrBackslash(bytes, fromIndex, bytes.length)).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void indexOfQuoteOrBracket() {
+        byte[] bytes = "{\"a\":{\"b\":[1,2,3],\"c\":null}, \"d\": true }".getBytes(StandardCharsets.UTF_8);
+
+        assertThat(AsciiJsonUtil.indexOfQuoteOrBracket(bytes, 0, bytes.length, (byte) '{', (byte) '}')).isEqualTo(0);
+        assertThat(AsciiJsonUtil.indexOfQuoteOrBracket(bytes, 4, bytes.length, (byte) '{', (byte) '}')).isEqualTo(5);
+        assertThat(AsciiJsonUtil.indexOfQuoteOrBracket(bytes, 10, bytes.length, (byte) '{', (byte) '}')).isEqualTo(18);
+        assertThat(AsciiJsonUtil.indexOfQuoteOrBracket(bytes, 10, bytes.length, (byte) '[', (byte) ']')).isEqualTo(10);
+        assertThat(AsciiJsonUtil.indexOfQuoteOrBracket(bytes, 11, bytes.length, (byte) '[', (byte) ']')).isEqualTo(16);
+        assertThat(AsciiJsonUtil.indexOfQuoteOrBracket(bytes, 35, bytes.length, (byte) '[', (byte) ']')).isEqualTo(bytes.length);
+        assertThat(AsciiJsonUtil.indexOfQuoteOrBracket(bytes, 35, bytes.length, (byte) '{', (byte) '}')).isEqualTo(bytes.length - 1);
+    }
+
+    @Test
+    void indexOfQuoteOrBracketForAllBytes() {
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            byte[] bytes = new byte[random.nextInt(40)];
+            random.nextBytes(bytes);
+            for (int j = 0; j < bytes.length; j++) {
+                if (random.nextInt(4) == 0) {
+                    bytes[j] = TRICKY_BYTES[random.nextInt(TRICKY_BYTES.length)];
+                }
+            }
+            byte openingBracket = random.nextBoolean() ? (byte) '{' : (byte) '[';
+            byte closingBracket = (byte) (openingBracket + 2);
+            int fromIndex = bytes.length == 0 ? 0 : random.nextInt(bytes.length);
+            int expected = fromIndex;
+            while (expected < bytes.length && bytes[expected] != '"' && bytes[expected] != openingBracket && bytes[expected] != closingBracket) {
+                expected++;
+            }
+
+            assertThat(AsciiJsonUtil.indexOfQuoteOrBracket(bytes, fromIndex, bytes.length, openingBracket, closingBracket))
+                    .isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void indexOfNewline() {
+        byte[] bytes = "{\"a\":1}\r\n{\"b\":[1,2,3],\"c\":null}\n\n{}".getBytes(StandardCharsets.UTF_8);
+
+        assertThat(AsciiJsonUtil.indexOfNewline(bytes, 0, bytes.length)).isEqualTo(8);
+        assertThat(AsciiJsonUtil.indexOfNewline(bytes, 9, bytes.length)).isEqualTo(31);
+        assertThat(AsciiJsonUtil.indexOfNewline(bytes, 32, bytes.length)).isEqualTo(32);
+        assertThat(AsciiJsonUtil.indexOfNewline(bytes, 33, bytes.length)).isEqualTo(bytes.length);
+        assertThat(AsciiJsonUtil.lastIndexOfNewline(bytes, 0, bytes.length)).isEqualTo(32);
+        assertThat(AsciiJsonUtil.lastIndexOfNewline(bytes, 0, 32)).isEqualTo(31);
+        assertThat(AsciiJsonUtil.lastIndexOfNewline(bytes, 0, 31)).isEqualTo(8);
+        assertThat(AsciiJsonUtil.lastIndexOfNewline(bytes, 9, 31)).isEqualTo(8);
+        assertThat(AsciiJsonUtil.lastIndexOfNewline(bytes, 0, 8)).isEqualTo(-1);
+    }
+
+    @Test
+    void indexOfNewlineForAllBytes() {
+        // the bytes next to a line feed are the ones a borrow can turn into a false match
+        byte[] trickyBytes = {0, '\t', '\n', 0x0B, '\r', (byte) ('\n' | 0x80), (byte) 0xFF};
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            byte[] bytes = new byte[random.nextInt(40)];
+            random.nextBytes(bytes);
+            for (int j = 0; j < bytes.length; j++) {
+                if (random.nextInt(4) == 0) {
+                    bytes[j] = trickyBytes[random.nextInt(trickyBytes.length)];
+                }
+            }
+            int fromIndex = bytes.length == 0 ? 0 : random.nextInt(bytes.length);
+            int expected = fromIndex;
+            while (expected < bytes.length && bytes[expected] != '\n') {
+                expected++;
+            }
+            int expectedLast = bytes.length - 1;
+            while (expectedLast >= fromIndex && bytes[expectedLast] != '\n') {
+                expectedLast--;
+            }
+
+            assertThat(AsciiJsonUtil.indexOfNewline(bytes, fromIndex, bytes.length)).isEqualTo(expected);
+            assertThat(AsciiJsonUtil.lastIndexOfNewline(bytes, fromIndex, bytes.length)).isEqualTo(expectedLast);
+        }
+    }
+}